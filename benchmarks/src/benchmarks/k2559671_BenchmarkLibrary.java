@@ -0,0 +1,92 @@
+package benchmarks;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+import domain.k2559671_Book;
+import domain.k2559671_MembershipType;
+import domain.k2559671_User;
+import system.k2559671_LibrarySystem;
+
+/**
+ * BenchmarkLibrary - Builds the libraries the benchmarks run against.
+ *
+ * Catalogs are generated deterministically: book i has ID "B" + i, a title
+ * made of two words from WORDS plus its number, one of 1000 authors
+ * ("Author" + i % 1000) and one of CATEGORIES, so searches have predictable
+ * result sizes at every catalog size.
+ *
+ * The logger's console and file output are switched off and System.out is
+ * muted while a benchmark runs, so printing does not dominate the results.
+ */
+final class k2559671_BenchmarkLibrary {
+    static final String[] CATEGORIES = {
+        "Computer Science", "Mathematics", "Physics", "History", "Philosophy",
+        "Literature", "Economics", "Biology", "Art", "Engineering"
+    };
+
+    static final String[] WORDS = {
+        "patterns", "systems", "design", "history", "modern", "theory", "practice", "advanced",
+        "introduction", "principles", "data", "network", "language", "world", "science", "art",
+        "structures", "algorithms", "economy", "culture", "logic", "mind", "nature", "society",
+        "energy", "matter", "life", "code", "machines", "stories", "empire", "ocean"
+    };
+
+    private static final PrintStream CONSOLE = System.out;
+
+    private k2559671_BenchmarkLibrary() {
+    }
+
+    static void muteConsole() {
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    static void restoreConsole() {
+        System.setOut(CONSOLE);
+    }
+
+    /**
+     * An empty library with console and file logging switched off.
+     */
+    static k2559671_LibrarySystem create() {
+        k2559671_LibrarySystem library = new k2559671_LibrarySystem();
+        library.getLogger().setConsoleOutput(false);
+        library.getLogger().setFileOutput(false);
+        return library;
+    }
+
+    /**
+     * A library holding books 0 .. size-1.
+     */
+    static k2559671_LibrarySystem withCatalog(int size) {
+        k2559671_LibrarySystem library = create();
+        for (int i = 0; i < size; i++) {
+            library.addBook(book(i));
+        }
+        return library;
+    }
+
+    static k2559671_Book book(long i) {
+        return new k2559671_Book(bookId(i), title(i), author(i), category(i), "ISBN-" + i);
+    }
+
+    static String title(long i) {
+        return WORDS[(int) (i % WORDS.length)] + " " + WORDS[(int) ((i / WORDS.length) % WORDS.length)] + " " + i;
+    }
+
+    static String author(long i) {
+        return "Author" + (i % 1000);
+    }
+
+    static String category(long i) {
+        return CATEGORIES[(int) (i % CATEGORIES.length)];
+    }
+
+    static String bookId(long i) {
+        return "B" + i;
+    }
+
+    static k2559671_User user(String userId, k2559671_MembershipType type) {
+        return new k2559671_User(userId, "Bench " + userId, userId + "@bench.lk", "0770000000", type);
+    }
+}
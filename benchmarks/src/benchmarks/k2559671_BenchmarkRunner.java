@@ -0,0 +1,66 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * BenchmarkRunner - Runs the benchmarks once per thread count, with the GC
+ * profiler attached so every result includes its allocation rate
+ * (gc.alloc.rate.norm = bytes allocated per operation). The footprint
+ * benchmark measures heap, not time, so it runs once on a single thread.
+ *
+ * Usage:
+ *   java -cp target/benchmarks.jar benchmarks.k2559671_BenchmarkRunner [regex] [threads...]
+ *
+ * regex selects benchmarks (default: all of them); threads defaults to 1 4 16.
+ * Catalog sizes come from each benchmark's catalogSize parameter; for a
+ * quicker run use the plain JMH launcher, e.g.
+ *   java -jar target/benchmarks.jar Catalog -t 4 -p catalogSize=1000,100000 -prof gc
+ */
+public final class k2559671_BenchmarkRunner {
+    private static final String FOOTPRINT = "benchmarks\\.k2559671_FootprintBenchmark";
+
+    private k2559671_BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : "benchmarks\\.k2559671_.*Benchmark";
+        List<Integer> threadCounts = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            threadCounts.add(Integer.parseInt(args[i]));
+        }
+        if (threadCounts.isEmpty()) {
+            threadCounts = List.of(1, 4, 16);
+        }
+
+        for (int threads : threadCounts) {
+            Options options = new OptionsBuilder()
+                    .include(include)
+                    .exclude(FOOTPRINT)
+                    .threads(threads)
+                    .addProfiler(GCProfiler.class)
+                    .result("jmh-result-" + threads + "t.json")
+                    .resultFormat(ResultFormatType.JSON)
+                    .build();
+            new Runner(options).run();
+        }
+
+        if (Pattern.compile(include).matcher("benchmarks.k2559671_FootprintBenchmark.buildCatalog").find()) {
+            Options footprint = new OptionsBuilder()
+                    .include(FOOTPRINT)
+                    .threads(1)
+                    .result("jmh-result-footprint.json")
+                    .resultFormat(ResultFormatType.JSON)
+                    .build();
+            new Runner(footprint).run();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package benchmarks;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import domain.k2559671_Book;
+import system.k2559671_LibrarySystem;
+
+/**
+ * CatalogBenchmark - addBook, getBook, searchBook and getAvailableBooks.
+ *
+ * The library is shared by all benchmark threads (run with -t N to measure
+ * contention). addBook adds books with fresh IDs beyond the catalog, so the
+ * catalog grows by the books added during the trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class k2559671_CatalogBenchmark {
+    private static final String[] QUERIES = {
+        "author42", "patterns", "history author7", "\"modern systems\"", "science OR economy"
+    };
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int catalogSize;
+
+    private k2559671_LibrarySystem library;
+    private AtomicLong nextBookId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        k2559671_BenchmarkLibrary.muteConsole();
+        library = k2559671_BenchmarkLibrary.withCatalog(catalogSize);
+        nextBookId = new AtomicLong(catalogSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        library.getLogger().close();
+        k2559671_BenchmarkLibrary.restoreConsole();
+    }
+
+    @Benchmark
+    public k2559671_Book addBook() {
+        k2559671_Book book = k2559671_BenchmarkLibrary.book(nextBookId.getAndIncrement());
+        library.addBook(book);
+        return book;
+    }
+
+    @Benchmark
+    public k2559671_Book getBook() {
+        return library.getBook(k2559671_BenchmarkLibrary.bookId(ThreadLocalRandom.current().nextInt(catalogSize)));
+    }
+
+    @Benchmark
+    public List<k2559671_Book> searchBook() {
+        return library.searchBook(QUERIES[ThreadLocalRandom.current().nextInt(QUERIES.length)]);
+    }
+
+    @Benchmark
+    public List<k2559671_Book> getAvailableBooks() {
+        return library.getAvailableBooks();
+    }
+}
@@ -0,0 +1,87 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import domain.k2559671_Book;
+import domain.k2559671_MembershipType;
+import domain.k2559671_User;
+import patterns.command.k2559671_BorrowCommand;
+import patterns.command.k2559671_ReturnCommand;
+import system.k2559671_LibrarySystem;
+
+/**
+ * CirculationBenchmark - One borrow followed by one return, both through
+ * k2559671_LibrarySystem.processCommand.
+ *
+ * Every benchmark thread gets its own user and its own book, so threads
+ * contend on the library's shared indexes, aggregates and schedulers but
+ * never on the same copy. Each cycle leaves one returned borrow record in
+ * the user's history.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class k2559671_CirculationBenchmark {
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int catalogSize;
+
+    private k2559671_LibrarySystem library;
+    private final AtomicInteger desks = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        k2559671_BenchmarkLibrary.muteConsole();
+        library = k2559671_BenchmarkLibrary.withCatalog(catalogSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        library.getLogger().close();
+        k2559671_BenchmarkLibrary.restoreConsole();
+    }
+
+    /**
+     * The user and book one benchmark thread circulates.
+     */
+    @State(Scope.Thread)
+    public static class Desk {
+        k2559671_User user;
+        k2559671_Book book;
+
+        @Setup(Level.Trial)
+        public void setUp(k2559671_CirculationBenchmark benchmark) {
+            int desk = benchmark.desks.getAndIncrement();
+            user = k2559671_BenchmarkLibrary.user("DESK" + desk, k2559671_MembershipType.FACULTY);
+            benchmark.library.addUser(user);
+            book = k2559671_BenchmarkLibrary.book(benchmark.catalogSize + desk);
+            benchmark.library.addBook(book);
+        }
+    }
+
+    @Benchmark
+    public boolean borrowReturnCycle(Desk desk) {
+        k2559671_BorrowCommand borrow = new k2559671_BorrowCommand(desk.user, desk.book, library.getLogger());
+        library.processCommand(borrow);
+        k2559671_ReturnCommand ret = new k2559671_ReturnCommand(desk.user, desk.book, library.getLogger());
+        library.processCommand(ret);
+        return borrow.isExecuted() && ret.isExecuted();
+    }
+}
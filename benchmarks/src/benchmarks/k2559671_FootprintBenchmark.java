@@ -0,0 +1,144 @@
+package benchmarks;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import patterns.state.k2559671_AvailableState;
+import patterns.state.k2559671_BookState;
+
+/**
+ * FootprintBenchmark - Retained heap per title for a catalog of k2559671_Book
+ * objects, against the per-book layout the class had before it was compacted.
+ *
+ * Each iteration builds the whole catalog once and reports, as the
+ * bytesPerTitle counter, the heap still in use after a full GC divided by
+ * the number of titles. The array holding the catalog is allocated before
+ * the first reading, so only the books themselves are counted.
+ *
+ * Layouts:
+ * - compact: k2559671_Book as it is (pooled author and category, one-byte
+ *   state code, history and hold queue allocated on first use)
+ * - baseline: LegacyBook, a copy of the old field layout (own String
+ *   references and status string, two eager ArrayLists, one state object
+ *   per book)
+ *
+ * Both layouts get the same generated strings from k2559671_BenchmarkLibrary.
+ * Run with one thread and one measurement iteration: JMH sums event
+ * counters over iterations, and the counter is meaningless while other
+ * threads allocate. The 10M rows need about 8 GB of heap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+public class k2559671_FootprintBenchmark {
+    @Param({"1000000", "10000000"})
+    public int titles;
+
+    @Param({"compact", "baseline"})
+    public String layout;
+
+    private Object[] catalog;
+
+    /**
+     * Reported with the result as a secondary metric.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Footprint {
+        public long bytesPerTitle;
+    }
+
+    @Setup(Level.Trial)
+    public void muteConsole() {
+        k2559671_BenchmarkLibrary.muteConsole();
+    }
+
+    @TearDown(Level.Iteration)
+    public void release() {
+        catalog = null;
+    }
+
+    @TearDown(Level.Trial)
+    public void restoreConsole() {
+        k2559671_BenchmarkLibrary.restoreConsole();
+    }
+
+    @Benchmark
+    public Object[] buildCatalog(Footprint footprint) {
+        Object[] books = new Object[titles];
+        boolean compact = "compact".equals(layout);
+        long before = usedHeap();
+        for (int i = 0; i < titles; i++) {
+            books[i] = compact ? k2559671_BenchmarkLibrary.book(i) : LegacyBook.of(i);
+        }
+        long after = usedHeap();
+        footprint.bytesPerTitle = (after - before) / titles;
+        catalog = books;
+        return books;
+    }
+
+    private static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * The fields k2559671_Book had before compaction, filled the way its
+     * constructor filled them.
+     */
+    @SuppressWarnings("unused")
+    static final class LegacyBook {
+        private final String bookId;
+        private final String title;
+        private final String author;
+        private final String category;
+        private final String isbn;
+        private String availabilityStatus;
+        private final List<Object> borrowedHistory;
+        private final List<Object> reservations;
+        private k2559671_BookState currentState;
+        private Object metadata;
+        private Object stateListener;
+
+        private LegacyBook(String bookId, String title, String author, String category, String isbn) {
+            this.bookId = bookId;
+            this.title = title;
+            this.author = author;
+            this.category = category;
+            this.isbn = isbn;
+            this.availabilityStatus = "Available";
+            this.borrowedHistory = new ArrayList<>();
+            this.reservations = new ArrayList<>();
+            this.currentState = new k2559671_AvailableState();
+        }
+
+        static LegacyBook of(long i) {
+            return new LegacyBook(k2559671_BenchmarkLibrary.bookId(i), k2559671_BenchmarkLibrary.title(i),
+                    k2559671_BenchmarkLibrary.author(i), k2559671_BenchmarkLibrary.category(i), "ISBN-" + i);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import patterns.observer.k2559671_NotificationManager;
+import patterns.observer.k2559671_Observer;
+
+/**
+ * NotificationBenchmark - k2559671_NotificationManager.notifyObservers to
+ * a number of global observers, delivered synchronously or through the
+ * async dispatcher.
+ *
+ * The manager keeps every broadcast message, so a fresh manager is built
+ * for each iteration to keep that history from growing across the run.
+ * In async mode the iteration ends only once the queued notifications have
+ * been delivered; notifications rejected by a full queue are not retried.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class k2559671_NotificationBenchmark {
+    private static final String MESSAGE = "Library notice: opening hours extended during exams";
+
+    @Param({"10", "1000", "100000"})
+    public int observers;
+
+    @Param({"sync", "async"})
+    public String delivery;
+
+    private k2559671_NotificationManager manager;
+    private final LongAdder received = new LongAdder();
+
+    @Setup(Level.Trial)
+    public void muteConsole() {
+        k2559671_BenchmarkLibrary.muteConsole();
+    }
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        manager = new k2559671_NotificationManager();
+        k2559671_Observer observer = message -> received.increment();
+        for (int i = 0; i < observers; i++) {
+            // Distinct instances: the observer set would collapse one shared lambda
+            manager.addObserver(message -> observer.update(message));
+        }
+        if ("async".equals(delivery)) {
+            manager.enableAsyncDelivery(65536, 256);
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        manager.awaitDelivery(30, TimeUnit.SECONDS);
+        manager.disableAsyncDelivery();
+    }
+
+    @TearDown(Level.Trial)
+    public void restoreConsole() {
+        k2559671_BenchmarkLibrary.restoreConsole();
+    }
+
+    @Benchmark
+    public void notifyObservers() {
+        manager.notifyObservers(MESSAGE);
+    }
+}
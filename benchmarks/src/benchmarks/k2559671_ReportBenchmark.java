@@ -0,0 +1,137 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import domain.k2559671_Book;
+import domain.k2559671_BorrowRecord;
+import domain.k2559671_Fine;
+import domain.k2559671_LibraryClock;
+import domain.k2559671_MembershipType;
+import domain.k2559671_User;
+import patterns.command.k2559671_BorrowCommand;
+import patterns.command.k2559671_Command;
+import system.k2559671_LibrarySystem;
+import system.k2559671_ReportManager;
+
+/**
+ * ReportBenchmark - Every k2559671_ReportManager report.
+ *
+ * Setup lends a tenth of the catalog (five loans per student) under a
+ * manual k2559671_LibraryClock, then moves the clock 20 days on so every
+ * loan is overdue, assesses fines and pays half of them. Reports print
+ * into a muted System.out, so the cost of building their text is included.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class k2559671_ReportBenchmark {
+    private static final int LOANS_PER_USER = 5;
+    private static final int BATCH = 1000;
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int catalogSize;
+
+    private k2559671_LibrarySystem library;
+    private k2559671_ReportManager reports;
+    private int userCount;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        k2559671_BenchmarkLibrary.muteConsole();
+        k2559671_LibraryClock.Manual clock = k2559671_LibraryClock.manual(System.currentTimeMillis());
+        k2559671_LibraryClock.install(clock);
+
+        library = k2559671_BenchmarkLibrary.withCatalog(catalogSize);
+        int loans = catalogSize / 10;
+        userCount = Math.max(1, loans / LOANS_PER_USER);
+        List<k2559671_Command> batch = new ArrayList<>(BATCH);
+        for (int u = 0; u < userCount; u++) {
+            k2559671_User user = k2559671_BenchmarkLibrary.user("U" + u, k2559671_MembershipType.STUDENT);
+            library.addUser(user);
+            for (int l = 0; l < LOANS_PER_USER && u * LOANS_PER_USER + l < loans; l++) {
+                k2559671_Book book = library.getBook(k2559671_BenchmarkLibrary.bookId(u * LOANS_PER_USER + l));
+                batch.add(new k2559671_BorrowCommand(user, book, library.getLogger()));
+                if (batch.size() == BATCH) {
+                    library.processCommands(batch, false);
+                    batch.clear();
+                }
+            }
+        }
+        library.processCommands(batch, false);
+
+        clock.advanceDays(20);
+        library.assessFines();
+        boolean pay = false;
+        for (k2559671_Fine fine : library.getAllFines()) {
+            if (pay) {
+                library.payFine(fine.getFineId());
+            }
+            pay = !pay;
+        }
+        reports = library.getReportManager();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        library.getLogger().close();
+        k2559671_LibraryClock.install(k2559671_LibraryClock.system());
+        k2559671_BenchmarkLibrary.restoreConsole();
+    }
+
+    @Benchmark
+    public List<k2559671_Book> mostBorrowedBooks() {
+        return reports.generateMostBorrowedBooks();
+    }
+
+    @Benchmark
+    public List<k2559671_Book> mostBorrowedBooksInCategory() {
+        return reports.generateMostBorrowedBooks(
+                k2559671_BenchmarkLibrary.CATEGORIES[ThreadLocalRandom.current().nextInt(
+                        k2559671_BenchmarkLibrary.CATEGORIES.length)]);
+    }
+
+    @Benchmark
+    public List<k2559671_Book> trendingBooks() {
+        return reports.generateTrendingBooks();
+    }
+
+    @Benchmark
+    public List<k2559671_User> activeBorrowers() {
+        return reports.generateActiveBorrowers();
+    }
+
+    @Benchmark
+    public List<k2559671_BorrowRecord> overdueBooks() {
+        return reports.generateOverdueBooks();
+    }
+
+    @Benchmark
+    public double revenueReport() {
+        return reports.generateRevenueReport();
+    }
+
+    @Benchmark
+    public String userReport() {
+        return reports.generateUserReport("U" + ThreadLocalRandom.current().nextInt(userCount));
+    }
+}
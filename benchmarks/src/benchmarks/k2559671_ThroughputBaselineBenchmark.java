@@ -0,0 +1,117 @@
+package benchmarks;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import domain.k2559671_Book;
+import domain.k2559671_MembershipType;
+import domain.k2559671_User;
+import patterns.command.k2559671_BorrowCommand;
+import patterns.command.k2559671_ReturnCommand;
+import system.k2559671_LibrarySystem;
+
+/**
+ * ThroughputBaselineBenchmark - Desk throughput of the concurrent library
+ * against the same library behind one global lock.
+ *
+ * One operation is what a circulation desk does for a patron: look up a
+ * random catalog book, then borrow and return the desk's own book through
+ * processCommand. Each benchmark thread is one desk with its own user and
+ * book.
+ *
+ * Access modes:
+ * - concurrent: desks call the library directly, as the concurrent core allows
+ * - globalLock: every operation holds one global lock around the same code,
+ *   so only one desk is served at a time
+ *
+ * Both modes run the current data structures, so globalLock measures what
+ * the fine-grained locking gains at a given thread count, not the speed of
+ * the pre-concurrency library (its list scans are gone). Compare the two
+ * modes at the same thread count, e.g. 4 or 16.
+ * k2559671_BenchmarkRunner runs every thread count; for one comparison use e.g.
+ *   java -jar target/benchmarks.jar ThroughputBaseline -t 16
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class k2559671_ThroughputBaselineBenchmark {
+    @Param({"100000", "1000000"})
+    public int catalogSize;
+
+    @Param({"concurrent", "globalLock"})
+    public String access;
+
+    private k2559671_LibrarySystem library;
+    private boolean globalLocked;
+    private final Object globalLock = new Object();
+    private final AtomicInteger desks = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        k2559671_BenchmarkLibrary.muteConsole();
+        library = k2559671_BenchmarkLibrary.withCatalog(catalogSize);
+        globalLocked = "globalLock".equals(access);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        library.getLogger().close();
+        k2559671_BenchmarkLibrary.restoreConsole();
+    }
+
+    /**
+     * The user and book one desk circulates.
+     */
+    @State(Scope.Thread)
+    public static class Desk {
+        k2559671_User user;
+        k2559671_Book book;
+
+        @Setup(Level.Trial)
+        public void setUp(k2559671_ThroughputBaselineBenchmark benchmark) {
+            int desk = benchmark.desks.getAndIncrement();
+            user = k2559671_BenchmarkLibrary.user("DESK" + desk, k2559671_MembershipType.FACULTY);
+            benchmark.library.addUser(user);
+            book = k2559671_BenchmarkLibrary.book(benchmark.catalogSize + desk);
+            benchmark.library.addBook(book);
+        }
+    }
+
+    @Benchmark
+    public boolean deskOperation(Desk desk) {
+        if (globalLocked) {
+            synchronized (globalLock) {
+                return serve(desk);
+            }
+        }
+        return serve(desk);
+    }
+
+    private boolean serve(Desk desk) {
+        k2559671_Book lookedUp = library.getBook(
+                k2559671_BenchmarkLibrary.bookId(ThreadLocalRandom.current().nextInt(catalogSize)));
+        k2559671_BorrowCommand borrow = new k2559671_BorrowCommand(desk.user, desk.book, library.getLogger());
+        library.processCommand(borrow);
+        k2559671_ReturnCommand ret = new k2559671_ReturnCommand(desk.user, desk.book, library.getLogger());
+        library.processCommand(ret);
+        return lookedUp != null && borrow.isExecuted() && ret.isExecuted();
+    }
+}
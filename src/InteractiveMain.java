@@ -1,17 +1,24 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.List;
 import java.util.Scanner;
 
 import domain.k2559671_Book;
 import domain.k2559671_BookMetadata;
 import domain.k2559671_MembershipType;
+import domain.k2559671_Reservation;
 import domain.k2559671_User;
 import patterns.builder.k2559671_BookBuilder;
 import patterns.command.k2559671_BorrowCommand;
 import patterns.command.k2559671_Command;
+import patterns.command.k2559671_ReserveCommand;
 import patterns.command.k2559671_ReturnCommand;
 import patterns.decorator.k2559671_FeaturedDecorator;
 import patterns.decorator.k2559671_RecommendedDecorator;
 import patterns.decorator.k2559671_SpecialEditionDecorator;
+import patterns.observer.k2559671_NotificationManager;
 import patterns.strategy.k2559671_FacultyFineStrategy;
 import patterns.strategy.k2559671_FineStrategy;
 import patterns.strategy.k2559671_GuestFineStrategy;
@@ -33,10 +40,11 @@ import system.k2559671_LibrarySystem;
  * 6. Builder Pattern - Complex book creation
  */
 public class InteractiveMain {
+    private static final Path SNAPSHOT_FILE = Paths.get("library_system.snapshot");
+
     private static k2559671_LibrarySystem library;
     private static Scanner scanner;
     private static k2559671_BookBuilder bookBuilder;
-    private static k2559671_Command lastCommand;
 
     public static void main(String[] args) {
         library = new k2559671_LibrarySystem();
@@ -45,8 +53,12 @@ public class InteractiveMain {
 
         printHeader();
         
-        // Add sample books for testing
-        addSampleBooks();
+        // Restore the previous session, or add sample books for testing
+        if (Files.exists(SNAPSHOT_FILE)) {
+            loadSnapshot();
+        } else {
+            addSampleBooks();
+        }
 
         boolean running = true;
         while (running) {
@@ -69,8 +81,10 @@ public class InteractiveMain {
                 case 13 -> generateReports();
                 case 14 -> runDemo();
                 case 15 -> viewAllReservations();
+                case 16 -> redoLastCommand();
                 case 0 -> {
                     running = false;
+                    saveSnapshot();
                     System.out.println("\n✓ Thank you for using the Library Management System!");
                 }
                 default -> System.out.println("\n⚠ Invalid choice. Please try again.");
@@ -98,15 +112,16 @@ public class InteractiveMain {
         System.out.println("  4. View All Users");
         System.out.println("  5. Borrow Book (State & Command Pattern)");
         System.out.println("  6. Return Book (State & Command Pattern)");
-        System.out.println("  7. Reserve Book (State Pattern)");
+        System.out.println("  7. Reserve Book (State & Command Pattern)");
         System.out.println("  8. Decorate Book (Decorator Pattern)");
         System.out.println("  9. Calculate Fine (Strategy Pattern)");
         System.out.println(" 10. View Notifications (Observer Pattern)");
         System.out.println(" 11. Send Notification (Observer Pattern)");
-        System.out.println(" 12. Undo Last Command (Command Pattern)");
+        System.out.println(" 12. Undo Commands (Command Pattern)");
         System.out.println(" 13. Generate Reports");
         System.out.println(" 14. Run Full Demo");
         System.out.println(" 15. View All Reservations");
+        System.out.println(" 16. Redo Undone Command (Command Pattern)");
         System.out.println("  0. Exit");
         System.out.println("═══════════════════════════════════════════════════════════");
     }
@@ -276,7 +291,7 @@ public class InteractiveMain {
         }
 
         k2559671_Command borrowCmd = new k2559671_BorrowCommand(user, book, library.getLogger());
-        library.processCommand(borrowCmd);        lastCommand = borrowCmd;
+        library.processCommand(borrowCmd);
         System.out.println("\n Borrow operation completed!");
         System.out.println("Book Status: " + book.getAvailabilityStatus());
     }
@@ -301,13 +316,13 @@ public class InteractiveMain {
         }
 
         k2559671_Command returnCmd = new k2559671_ReturnCommand(user, book, library.getLogger());
-        library.processCommand(returnCmd);        lastCommand = returnCmd;
+        library.processCommand(returnCmd);
         System.out.println("\n Return operation completed!");
         System.out.println("Book Status: " + book.getAvailabilityStatus());
     }
 
     private static void reserveBook() {
-        System.out.println("\n--- RESERVE BOOK (State Pattern) ---");
+        System.out.println("\n--- RESERVE BOOK (State & Command Pattern) ---");
 
         if (library.getAllUsers().isEmpty()) {
             System.out.println("⚠ No users in the system.");
@@ -338,15 +353,15 @@ public class InteractiveMain {
         }
 
         System.out.println("\nCurrent Book Status: " + book.getAvailabilityStatus());
-        
-        // Reserve the book
-        book.reserve();
-        user.reserveBook(book);
-        
-        // Create reservation object with auto-generated ID
-        String reservationId = "RES" + String.format("%03d", library.getAllReservations().size() + 1);
-        domain.k2559671_Reservation reservation = new domain.k2559671_Reservation(reservationId, userId, bookId);
-        library.addReservation(reservation);
+
+        // Reserve through the command, so the hold is queued, journaled and undoable
+        k2559671_Command reserveCmd = new k2559671_ReserveCommand(user, book, library.getLogger());
+        library.processCommand(reserveCmd);
+        k2559671_Reservation reservation = latestHold(userId, bookId);
+        if (!reserveCmd.isExecuted() || reservation == null) {
+            System.out.println("⚠ Reservation failed!");
+            return;
+        }
         
         System.out.println("\n✓ Reservation Created Successfully!");
         System.out.println("━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
@@ -354,13 +369,31 @@ public class InteractiveMain {
         System.out.println("User               : " + user.getName() + " (" + userId + ")");
         System.out.println("Book               : " + book.getTitle() + " (" + bookId + ")");
         System.out.println("Reservation Date   : " + reservation.getReservationDate());
-        System.out.println("Expiry Date        : " + reservation.getExpiryDate() + " (3 days)");
+        System.out.println("Expiry Date        : " + (reservation.hasPickupDeadline()
+                ? reservation.getExpiryDate() + " (3 days)" : "None while waiting"));
         System.out.println("Status             : " + reservation.getStatus());
+        if ("Active".equals(reservation.getStatus())) {
+            System.out.println("Queue Position     : " + book.getHoldPosition(reservation.getReservationId()));
+        }
         System.out.println("Is Active          : " + reservation.isActive());
         System.out.println("Has Expired        : " + reservation.hasExpired());
         System.out.println("━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
         System.out.println("New Book Status    : " + book.getAvailabilityStatus());
-        System.out.println("\n📝 Note: Reservation will expire in 3 days if not fulfilled");
+        System.out.println("\n📝 Note: Once the book is ready, it must be picked up within 3 days");
+    }
+
+    /**
+     * The user's most recent hold on a book, e.g. the one a reserve command just placed.
+     */
+    private static k2559671_Reservation latestHold(String userId, String bookId) {
+        k2559671_Reservation latest = null;
+        for (k2559671_Reservation reservation : library.getReservationsForUser(userId)) {
+            if (reservation.getBookId().equals(bookId)
+                    && (latest == null || reservation.getReservationMillis() >= latest.getReservationMillis())) {
+                latest = reservation;
+            }
+        }
+        return latest;
     }
 
     private static void decorateBook() {
@@ -409,8 +442,10 @@ public class InteractiveMain {
         System.out.println("2. Active Borrowers");
         System.out.println("3. Revenue Report");
         System.out.println("4. User Report");
+        System.out.println("5. Most Borrowed Books by Category");
+        System.out.println("6. Trending Books");
 
-        int choice = getIntInput("Select report (1-4): ");
+        int choice = getIntInput("Select report (1-6): ");
 
         switch (choice) {
             case 1 -> library.getReportManager().generateMostBorrowedBooks();
@@ -420,6 +455,11 @@ public class InteractiveMain {
                 String userId = getStringInput("Enter User ID: ");
                 library.getReportManager().generateUserReport(userId);
             }
+            case 5 -> {
+                String category = getStringInput("Enter Category: ");
+                library.getReportManager().generateMostBorrowedBooks(category);
+            }
+            case 6 -> library.getReportManager().generateTrendingBooks();
             default -> System.out.println("⚠ Invalid choice!");
         }
     }
@@ -433,6 +473,25 @@ public class InteractiveMain {
         Main.main(args);
     }
 
+    private static void loadSnapshot() {
+        try {
+            System.out.println("\n📂 Restoring library from " + SNAPSHOT_FILE + "...");
+            System.out.println("✓ " + library.loadSnapshot(SNAPSHOT_FILE));
+        } catch (IOException e) {
+            System.out.println("⚠ Could not load snapshot (" + e.getMessage() + "). Loading sample books instead.");
+            addSampleBooks();
+        }
+    }
+
+    private static void saveSnapshot() {
+        try {
+            library.saveSnapshot(SNAPSHOT_FILE);
+            System.out.println("✓ Library saved to " + SNAPSHOT_FILE);
+        } catch (IOException e) {
+            System.out.println("⚠ Could not save snapshot: " + e.getMessage());
+        }
+    }
+
     private static void addSampleBooks() {
         System.out.println("\n📚 Loading sample books into the library...\n");
         
@@ -680,7 +739,8 @@ public class InteractiveMain {
             }
             case 4 -> {
                 String customMessage = getStringInput("\nEnter custom message: ");
-                user.update(customMessage);
+                library.getNotificationManager().publish(customMessage,
+                        k2559671_NotificationManager.userTopic(user.getUserId()));
                 System.out.println("\n✓ Custom notification sent!");
             }
             default -> System.out.println("⚠ Invalid notification type!");
@@ -690,28 +750,48 @@ public class InteractiveMain {
     }
     
     private static void undoLastCommand() {
-        System.out.println("\n--- UNDO LAST COMMAND (Command Pattern) ---");
+        System.out.println("\n--- UNDO COMMANDS (Command Pattern) ---");
         
-        if (lastCommand == null) {
+        int available = library.getCommandHistory().getUndoCount();
+        if (available == 0) {
             System.out.println("⚠ No command to undo!");
             return;
         }
         
-        System.out.println("Last Command: " + lastCommand.getDescription());
+        System.out.println("Commands in history: " + available);
+        int steps = getIntInput("How many commands to undo? ");
+        if (steps <= 0) {
+            System.out.println("⚠ Nothing undone.");
+            return;
+        }
         System.out.println("\nExecuting UNDO...\n");
         
-        lastCommand.undo();
+        int undone = library.undoLast(steps);
         
-        System.out.println("\n✓ Command undone successfully!");
+        System.out.println("\n✓ " + undone + " command(s) undone successfully!");
         System.out.println("✓ Command Pattern: Undo operation completed");
+    }
+    
+    private static void redoLastCommand() {
+        System.out.println("\n--- REDO (Command Pattern) ---");
         
-        lastCommand = null;
+        if (library.getCommandHistory().getRedoCount() == 0) {
+            System.out.println("⚠ No command to redo!");
+            return;
+        }
+        
+        System.out.println("\nExecuting REDO...\n");
+        if (library.redo()) {
+            System.out.println("\n✓ Command redone successfully!");
+        } else {
+            System.out.println("\n⚠ Command could not be redone.");
+        }
     }
 
     private static void viewAllReservations() {
         System.out.println("\n--- VIEW ALL RESERVATIONS ---");
         
-        List<domain.k2559671_Reservation> reservations = library.getAllReservations();
+        List<k2559671_Reservation> reservations = library.getAllReservations();
         
         if (reservations.isEmpty()) {
             System.out.println("⚠ No reservations in the system.");
@@ -721,7 +801,7 @@ public class InteractiveMain {
         System.out.println("\nTotal Reservations: " + reservations.size());
         System.out.println("━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
         
-        for (domain.k2559671_Reservation res : reservations) {
+        for (k2559671_Reservation res : reservations) {
             k2559671_User user = library.getUser(res.getUserId());
             k2559671_Book book = library.getBook(res.getBookId());
             
@@ -729,7 +809,8 @@ public class InteractiveMain {
             System.out.println("User               : " + (user != null ? user.getName() : "Unknown") + " (" + res.getUserId() + ")");
             System.out.println("Book               : " + (book != null ? book.getTitle() : "Unknown") + " (" + res.getBookId() + ")");
             System.out.println("Reservation Date   : " + res.getReservationDate());
-            System.out.println("Expiry Date        : " + res.getExpiryDate() + " (3 days from creation)");
+            System.out.println("Expiry Date        : " + (res.hasPickupDeadline()
+                    ? res.getExpiryDate() + " (3 days from allocation)" : "None while waiting"));
             System.out.println("Status             : " + res.getStatus());
             System.out.println("Is Active          : " + res.isActive());
             System.out.println("Has Expired        : " + res.hasExpired());
@@ -163,7 +163,7 @@ public class Main {
         // Demonstrate undo functionality
         System.out.println("\n--- Undo Command ---");
         System.out.println("Undoing borrow command...");
-        borrowCmd.undo();
+        library.undoCommand(borrowCmd);
         
         System.out.println();
         
@@ -1,10 +1,12 @@
 package domain;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.util.ArrayList;
 import java.util.List;
 
-import patterns.state.k2559671_AvailableState;
 import patterns.state.k2559671_BookState;
+import patterns.state.k2559671_BookStates;
 
 /**
  * Book class represents a book in the Smart Library Management System.
@@ -33,7 +35,19 @@ import patterns.state.k2559671_BookState;
  * - Has one k2559671_BookState (current state) [1→1]
  * - Has zero or one k2559671_BookMetadata (composition) [1→1]
  * - Has many k2559671_BorrowRecord objects (history) [1→0..*]
- * - Has many k2559671_Reservation objects [1→0..*]
+ * - Has many k2559671_Reservation objects, queued in a k2559671_HoldQueue [1→0..*]
+ * 
+ * Memory Layout (compact for multi-million-title catalogs):
+ * - Author and category are pooled through k2559671_StringPool, so repeated
+ *   values share one String instance
+ * - State is stored as a one-byte code from k2559671_BookStates; the status
+ *   string is derived from it instead of being stored per book
+ * 
+ * Thread Safety:
+ * - State changes are compare-and-set on the state code through a VarHandle,
+ *   so concurrent checkouts of the same copy have exactly one winner and no
+ *   lock is taken
+ * - History list and hold queue are only allocated on first use
  */
 public class k2559671_Book {
     private final String bookId;
@@ -41,11 +55,21 @@ public class k2559671_Book {
     private final String author;
     private final String category;
     private final String isbn;
-    private String availabilityStatus;
-    private final List<k2559671_BorrowRecord> borrowedHistory;
-    private final List<k2559671_Reservation> reservations;
-    private k2559671_BookState currentState;
+    private volatile byte stateCode;
+    private List<k2559671_BorrowRecord> borrowedHistory;
+    private volatile k2559671_HoldQueue holds;
     private k2559671_BookMetadata metadata;
+    private k2559671_BookStateListener stateListener;
+    
+    private static final VarHandle STATE_CODE;
+    
+    static {
+        try {
+            STATE_CODE = MethodHandles.lookup().findVarHandle(k2559671_Book.class, "stateCode", byte.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
     
     /**
      * Constructor for creating a new book.
@@ -60,13 +84,10 @@ public class k2559671_Book {
     public k2559671_Book(String bookId, String title, String author, String category, String isbn) {
         this.bookId = bookId;
         this.title = title;
-        this.author = author;
-        this.category = category;
+        this.author = k2559671_StringPool.intern(author);
+        this.category = k2559671_StringPool.intern(category);
         this.isbn = isbn;
-        this.borrowedHistory = new ArrayList<>();
-        this.reservations = new ArrayList<>();
-        this.currentState = new k2559671_AvailableState();
-        this.availabilityStatus = "Available";
+        this.stateCode = k2559671_BookStates.AVAILABLE_CODE;
     }
     
     public String getBookId() {
@@ -90,7 +111,7 @@ public class k2559671_Book {
     }
     
     public String getAvailabilityStatus() {
-        return availabilityStatus;
+        return getState().getStateName();
     }
     
     /**
@@ -105,8 +126,8 @@ public class k2559671_Book {
         details.append("Author: ").append(author).append("\n");
         details.append("Category: ").append(category).append("\n");
         details.append("ISBN: ").append(isbn).append("\n");
-        details.append("Status: ").append(availabilityStatus).append("\n");
-        details.append("Times Borrowed: ").append(borrowedHistory.size()).append("\n");
+        details.append("Status: ").append(getAvailabilityStatus()).append("\n");
+        details.append("Times Borrowed: ").append(getTimesBorrowed()).append("\n");
         
         if (metadata != null) {
             details.append("Publisher: ").append(metadata.getPublisher()).append("\n");
@@ -125,46 +146,116 @@ public class k2559671_Book {
      * @param status New status (Available, Borrowed, Reserved)
      */
     public void updateStatus(String status) {
-        this.availabilityStatus = status;
+        setStateCode(k2559671_BookStates.codeOf(status));
     }
     
     /**
      * State Pattern: Change the current state of the book.
-     * Updates both the state object and availability status string.
+     * Only the state's one-byte code is stored.
      * 
      * @param state New book state
      */
     public void setState(k2559671_BookState state) {
-        this.currentState = state;
-        this.availabilityStatus = state.getStateName();
+        setStateCode(k2559671_BookStates.codeOf(state));
+    }
+    
+    private void setStateCode(byte code) {
+        byte oldCode = (byte) STATE_CODE.getAndSet(this, code);
+        fireStateChanged(k2559671_BookStates.forCode(oldCode).getStateName(),
+                k2559671_BookStates.forCode(code).getStateName());
+    }
+    
+    /**
+     * State Pattern: Atomically move from one state to another.
+     * 
+     * @param expected State the book must currently be in
+     * @param next New state
+     * @return false if the book was not in the expected state (nothing changed)
+     */
+    public boolean compareAndSetState(k2559671_BookState expected, k2559671_BookState next) {
+        byte expectedCode = k2559671_BookStates.codeOf(expected);
+        byte nextCode = k2559671_BookStates.codeOf(next);
+        if (!STATE_CODE.compareAndSet(this, expectedCode, nextCode)) {
+            return false;
+        }
+        fireStateChanged(expected.getStateName(), next.getStateName());
+        return true;
+    }
+    
+    /**
+     * Register the listener told about every availability change.
+     * Used by the library to keep its per-state indexes current.
+     * 
+     * @param stateListener Listener, or null to stop notifications
+     */
+    public void setStateListener(k2559671_BookStateListener stateListener) {
+        this.stateListener = stateListener;
+    }
+    
+    private void fireStateChanged(String oldStatus, String newStatus) {
+        k2559671_BookStateListener listener = stateListener;
+        if (listener != null && !oldStatus.equals(newStatus)) {
+            listener.stateChanged(this, oldStatus, newStatus);
+        }
     }
     
     public k2559671_BookState getState() {
-        return currentState;
+        return k2559671_BookStates.forCode(stateCode);
     }
     
     /**
      * State Pattern: Borrow action - delegates to current state.
      * State determines if borrowing is allowed and handles transition.
+     * 
+     * @return true if this call borrowed the book
      */
-    public void borrow() {
-        currentState.borrow(this);
+    public boolean borrow() {
+        return getState().borrow(this);
     }
-    
+
+    /**
+     * State Pattern: Borrow action for a user - delegates to current state.
+     * A Reserved book can only be borrowed by the user it is held for.
+     *
+     * @param userId Borrower
+     * @return true if this call borrowed the book
+     */
+    public boolean borrow(String userId) {
+        return getState().borrow(this, userId);
+    }
+
+    /**
+     * Hand a book held for pickup to its holder: move it from Reserved to
+     * Borrowed and end the allocation in one step, so the hold cannot expire
+     * or pass to the next holder in between.
+     *
+     * @param userId User picking the book up
+     * @return false if the book is not Reserved for a hold of that user
+     */
+    public boolean pickUp(String userId) {
+        k2559671_HoldQueue queue = holds;
+        return queue != null && queue.pickUp(userId,
+                () -> compareAndSetState(k2559671_BookStates.RESERVED, k2559671_BookStates.BORROWED));
+    }
+
     /**
      * State Pattern: Return action - delegates to current state.
      * State handles transition back to Available state.
+     * 
+     * @return true if this call changed the state
      */
-    public void returnBook() {
-        currentState.returnBook(this);
+    public boolean returnBook() {
+        return getState().returnBook(this);
     }
     
     /**
      * State Pattern: Reserve action - delegates to current state.
      * State determines if reservation is allowed and handles transition.
+     * 
+     * @return true if this call reserved the book
      */
-    public void reserve() {
-        currentState.reserve(this);
+    public boolean reserve() {
+        return getState().reserve(this);
     }
     
     /**
@@ -188,6 +279,9 @@ public class k2559671_Book {
      * @param record Borrow record to add
      */
     public void addBorrowRecord(k2559671_BorrowRecord record) {
+        if (borrowedHistory == null) {
+            borrowedHistory = new ArrayList<>(4);
+        }
         borrowedHistory.add(record);
     }
     
@@ -198,51 +292,133 @@ public class k2559671_Book {
      * @return List of all borrow records for this book
      */
     public List<k2559671_BorrowRecord> getBorrowedHistory() {
-        return new ArrayList<>(borrowedHistory);
+        return borrowedHistory == null ? new ArrayList<>() : new ArrayList<>(borrowedHistory);
+    }
+    
+    /**
+     * Get how many times this book has been borrowed without copying the history.
+     * 
+     * @return Number of borrow records for this book
+     */
+    public int getTimesBorrowed() {
+        return borrowedHistory == null ? 0 : borrowedHistory.size();
     }
     
     /**
-     * Add a reservation to the book's reservation list.
+     * Add a reservation to the back of the book's hold queue (first come, first served).
      * Multiplicity: Book [1] → Reservation [0..*]
      * 
      * @param reservation Reservation to add
      */
     public void addReservation(k2559671_Reservation reservation) {
-        reservations.add(reservation);
+        addReservation(reservation, 0);
+    }
+    
+    /**
+     * Add a reservation to the hold queue with a priority class.
+     * Holds in a lower class are served first, e.g.
+     * k2559671_MembershipType.getHoldPriority() puts faculty before students.
+     * 
+     * @param reservation Reservation to add
+     * @param priority Priority class (0 is served first)
+     */
+    public void addReservation(k2559671_Reservation reservation, int priority) {
+        holdQueue().add(reservation, priority);
     }
     
     /**
-     * Remove a reservation from the book's reservation list.
+     * Remove a reservation from the hold queue (cancelled or expired).
      * 
      * @param reservation Reservation to remove
      */
     public void removeReservation(k2559671_Reservation reservation) {
-        reservations.remove(reservation);
+        if (holds != null) {
+            holds.remove(reservation);
+        }
     }
     
     /**
-     * Get all reservations for this book.
-     * Returns a copy to maintain encapsulation.
+     * Allocate the book to the next reservation in the hold queue.
+     * 
+     * @return Newly allocated reservation, or null if the book is already
+     *         allocated or no one is waiting
+     */
+    public k2559671_Reservation allocateNextReservation() {
+        return holds == null ? null : holds.allocateNext();
+    }
+    
+    /**
+     * Record that the book is allocated to a reservation (waiting for pickup).
+     * 
+     * @param reservation Allocated reservation
+     */
+    public void setAllocatedReservation(k2559671_Reservation reservation) {
+        holdQueue().setAllocated(reservation);
+    }
+    
+    /**
+     * Get the reservation the book is currently allocated to.
+     * 
+     * @return Allocated reservation, or null if none
+     */
+    public k2559671_Reservation getAllocatedReservation() {
+        return holds == null ? null : holds.getAllocated();
+    }
+    
+    /**
+     * End the book's allocation to a reservation.
+     * 
+     * @param reservation Reservation that was picked up, cancelled or expired
+     * @return false if it was not the allocated reservation
+     */
+    public boolean clearAllocatedReservation(k2559671_Reservation reservation) {
+        return holds != null && holds.clearAllocated(reservation);
+    }
+    
+    /**
+     * Get the position of a reservation in the hold queue (O(log n)).
+     * 
+     * @param reservationId Reservation ID
+     * @return 1-based position, or -1 if it is not waiting
+     */
+    public int getHoldPosition(String reservationId) {
+        return holds == null ? -1 : holds.getPosition(reservationId);
+    }
+    
+    /**
+     * Get the waiting reservations for this book, in the order they will be served.
      * 
-     * @return List of all reservations for this book
+     * @return List of waiting reservations
      */
     public List<k2559671_Reservation> getReservations() {
-        return new ArrayList<>(reservations);
+        return holds == null ? new ArrayList<>() : holds.toList();
     }
     
     /**
-     * Get count of active reservations for this book.
+     * Get count of waiting reservations for this book (O(1)).
      * 
-     * @return Number of active reservations
+     * @return Number of waiting reservations
      */
     public int getActiveReservationCount() {
-        return (int) reservations.stream()
-                .filter(k2559671_Reservation::isActive)
-                .count();
+        return holds == null ? 0 : holds.size();
+    }
+    
+    private k2559671_HoldQueue holdQueue() {
+        k2559671_HoldQueue queue = holds;
+        if (queue == null) {
+            synchronized (this) {
+                queue = holds;
+                if (queue == null) {
+                    queue = new k2559671_HoldQueue(k2559671_MembershipType.values().length);
+                    holds = queue;
+                }
+            }
+        }
+        return queue;
     }
     
     @Override
     public String toString() {
-        return title + " by " + author + " [" + availabilityStatus + "]";
+        return title + " by " + author + " [" + getAvailabilityStatus() + "]";
     }
 }
@@ -1,6 +1,7 @@
 package domain;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -20,13 +21,17 @@ import java.util.List;
  * Relationships:
  * - Associated with k2559671_Book (optional one-to-one)
  * - Created via k2559671_BookBuilder
+ *
+ * Memory: publisher, edition and language are pooled through
+ * k2559671_StringPool, and the tag/review lists are only allocated when
+ * the first tag or review is added.
  */
 public class k2559671_BookMetadata {
     private String publisher;
     private int publicationYear;
     private String edition;
-    private final List<String> tags;
-    private final List<String> reviews;
+    private List<String> tags;
+    private List<String> reviews;
     private String summary;
     private String language;
     private int pageCount;
@@ -35,8 +40,6 @@ public class k2559671_BookMetadata {
      * Constructor initializes default metadata values.
      */
     public k2559671_BookMetadata() {
-        this.tags = new ArrayList<>();
-        this.reviews = new ArrayList<>();
         this.publisher = "Unknown Publisher";
         this.publicationYear = 0;
         this.edition = "1st Edition";
@@ -50,7 +53,7 @@ public class k2559671_BookMetadata {
     }
 
     public void setPublisher(String publisher) {
-        this.publisher = publisher;
+        this.publisher = k2559671_StringPool.intern(publisher);
     }
 
     public int getPublicationYear() {
@@ -66,22 +69,28 @@ public class k2559671_BookMetadata {
     }
 
     public void setEdition(String edition) {
-        this.edition = edition;
+        this.edition = k2559671_StringPool.intern(edition);
     }
 
     public List<String> getTags() {
-        return tags;
+        return tags == null ? Collections.emptyList() : tags;
     }
 
     public void addTag(String tag) {
-        this.tags.add(tag);
+        if (tags == null) {
+            tags = new ArrayList<>(4);
+        }
+        this.tags.add(k2559671_StringPool.intern(tag));
     }
 
     public List<String> getReviews() {
-        return reviews;
+        return reviews == null ? Collections.emptyList() : reviews;
     }
 
     public void addReview(String review) {
+        if (reviews == null) {
+            reviews = new ArrayList<>(2);
+        }
         this.reviews.add(review);
     }
 
@@ -98,7 +107,7 @@ public class k2559671_BookMetadata {
     }
 
     public void setLanguage(String language) {
-        this.language = language;
+        this.language = k2559671_StringPool.intern(language);
     }
 
     public int getPageCount() {
@@ -118,7 +127,7 @@ public class k2559671_BookMetadata {
         metadata.append(", Edition: ").append(edition);
         metadata.append(", Language: ").append(language);
         metadata.append(", Pages: ").append(pageCount);
-        if (!tags.isEmpty()) {
+        if (tags != null && !tags.isEmpty()) {
             metadata.append(", Tags: ").append(String.join(", ", tags));
         }
         return metadata.toString();
@@ -0,0 +1,11 @@
+package domain;
+
+/**
+ * Listener notified whenever a book changes availability state.
+ * 
+ * Lets the library keep per-state indexes up to date at the moment a
+ * transition happens, instead of rescanning every book to find out.
+ */
+public interface k2559671_BookStateListener {
+    void stateChanged(k2559671_Book book, String oldState, String newState);
+}
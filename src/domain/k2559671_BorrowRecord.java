@@ -21,14 +21,16 @@ import java.util.Date;
  * - Due dates are calculated based on membership type (14/30 days)
  * - Fines are calculated: Student LKR50/day, Faculty LKR20/day, Guest LKR100/day
  * - Tracks return status and actual return date
+ * - Dates are stored as epoch millis and checked against k2559671_LibraryClock,
+ *   so overdue checks over many records allocate nothing
  */
 public class k2559671_BorrowRecord {
     private final String recordId;
     private final String userId;
     private final String bookId;
-    private final Date borrowDate;
-    private final Date dueDate;
-    private Date returnDate;
+    private final long borrowMillis;
+    private final long dueMillis;
+    private long returnMillis;
     private double fineAmount;
     private boolean isReturned;
     
@@ -42,11 +44,24 @@ public class k2559671_BorrowRecord {
      * @param dueDate Date when the book should be returned
      */
     public k2559671_BorrowRecord(String recordId, String userId, String bookId, Date borrowDate, Date dueDate) {
+        this(recordId, userId, bookId, borrowDate.getTime(), dueDate.getTime());
+    }
+    
+    /**
+     * Constructor taking the borrow and due times as epoch millis.
+     *
+     * @param recordId Unique identifier for this borrow record
+     * @param userId ID of the user borrowing the book
+     * @param bookId ID of the book being borrowed
+     * @param borrowMillis Time the book was borrowed
+     * @param dueMillis Time the book should be returned by
+     */
+    public k2559671_BorrowRecord(String recordId, String userId, String bookId, long borrowMillis, long dueMillis) {
         this.recordId = recordId;
         this.userId = userId;
         this.bookId = bookId;
-        this.borrowDate = borrowDate;
-        this.dueDate = dueDate;
+        this.borrowMillis = borrowMillis;
+        this.dueMillis = dueMillis;
         this.isReturned = false;
         this.fineAmount = 0.0;
     }
@@ -64,15 +79,40 @@ public class k2559671_BorrowRecord {
     }
     
     public Date getBorrowDate() {
-        return borrowDate;
+        return new Date(borrowMillis);
     }
     
     public Date getDueDate() {
-        return dueDate;
+        return new Date(dueMillis);
     }
     
+    /**
+     * @return Return date, or null if the book has not been returned
+     */
     public Date getReturnDate() {
-        return returnDate;
+        return isReturned ? new Date(returnMillis) : null;
+    }
+    
+    public long getBorrowMillis() {
+        return borrowMillis;
+    }
+    
+    public long getDueMillis() {
+        return dueMillis;
+    }
+    
+    /**
+     * @return Return time in epoch millis, or 0 if not returned
+     */
+    public long getReturnMillis() {
+        return returnMillis;
+    }
+    
+    /**
+     * Epoch day (UTC) of the due date.
+     */
+    public long getDueEpochDay() {
+        return Math.floorDiv(dueMillis, k2559671_LibraryClock.MILLIS_PER_DAY);
     }
     
     /**
@@ -97,31 +137,65 @@ public class k2559671_BorrowRecord {
      */
     public boolean isOverdue() {
         if (isReturned) {
-            return returnDate.after(dueDate);
+            return returnMillis > dueMillis;
         }
-        return new Date().after(dueDate);
+        return k2559671_LibraryClock.get().millis() > dueMillis;
     }
     
     /**
-     * Mark the book as returned with current timestamp.
+     * Mark the book as returned now (by k2559671_LibraryClock).
      * Sets return date and updates return status.
      */
     public void markReturned() {
-        this.returnDate = new Date();
+        markReturned(k2559671_LibraryClock.get().millis());
+    }
+    
+    /**
+     * Mark the book as returned at a known time, e.g. when restoring a snapshot.
+     *
+     * @param returnDate Date the book was returned
+     */
+    public void markReturned(Date returnDate) {
+        markReturned(returnDate.getTime());
+    }
+    
+    /**
+     * Mark the book as returned at a known time (epoch millis).
+     */
+    public void markReturned(long returnMillis) {
+        this.returnMillis = returnMillis;
         this.isReturned = true;
     }
     
+    /**
+     * Clear the return, e.g. when a return command is undone.
+     */
+    public void reopen() {
+        this.returnMillis = 0L;
+        this.isReturned = false;
+    }
+    
     /**
      * Calculate number of days the book is overdue.
-     * Compares due date with return date (if returned) or current date.
+     * Compares due date with return date (if returned) or the library clock.
      *
      * @return Number of days overdue, or 0 if not overdue
      */
     public int getDaysOverdue() {
-        Date compareDate = isReturned ? returnDate : new Date();
-        if (compareDate.after(dueDate)) {
-            long diff = compareDate.getTime() - dueDate.getTime();
-            return (int) (diff / (1000 * 60 * 60 * 24));
+        return getDaysOverdue(k2559671_LibraryClock.get().millis());
+    }
+    
+    /**
+     * Calculate number of days the book is overdue as of a given time,
+     * e.g. for a batch fine assessment run with one cut-off for every loan.
+     *
+     * @param asOfMillis Time to measure an open loan against (epoch millis)
+     * @return Number of days overdue, or 0 if not overdue
+     */
+    public int getDaysOverdue(long asOfMillis) {
+        long compareTime = isReturned ? returnMillis : asOfMillis;
+        if (compareTime > dueMillis) {
+            return (int) ((compareTime - dueMillis) / k2559671_LibraryClock.MILLIS_PER_DAY);
         }
         return 0;
     }
@@ -157,6 +231,6 @@ public class k2559671_BorrowRecord {
     @Override
     public String toString() {
         return "Record #" + recordId + " - Book: " + bookId + ", User: " + userId + 
-        ", Due: " + dueDate + ", Returned: " + isReturned;
+        ", Due: " + getDueDate() + ", Returned: " + isReturned;
     }
 }
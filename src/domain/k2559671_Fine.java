@@ -4,23 +4,48 @@ import java.util.Date;
 
 /**
  * Fine class represents a fine issued to a user for late book returns.
+ *
+ * The amount is held as a long number of minor units (cents of a rupee) so
+ * totals built from fines are exact; getAmount() converts back to rupees.
+ *
+ * Once a fine is registered with the library it carries a PaymentListener,
+ * so paying it here or through k2559671_LibrarySystem.payFine updates the
+ * fine ledger and journal either way.
  */
 public class k2559671_Fine {
     private final String fineId;
     private final String userId;
     private final String bookId;
-    private double amount;
+    private static final int MINOR_UNITS_PER_LKR = 100;
+
+    private long amountMinor;
     private boolean isPaid;
     private final Date dateIssued;
     private Date datePaid;
+    private PaymentListener paymentListener;
+    
+    /**
+     * Told once, under the fine's lock, when an unpaid fine becomes paid.
+     */
+    @FunctionalInterface
+    public interface PaymentListener {
+        void finePaid(k2559671_Fine fine);
+    }
     
     public k2559671_Fine(String fineId, String userId, String bookId, double amount) {
+        this(fineId, userId, bookId, amount, new Date(k2559671_LibraryClock.get().millis()));
+    }
+    
+    /**
+     * Re-create a fine issued at a known time, e.g. when replaying the journal.
+     */
+    public k2559671_Fine(String fineId, String userId, String bookId, double amount, Date dateIssued) {
         this.fineId = fineId;
         this.userId = userId;
         this.bookId = bookId;
-        this.amount = amount;
+        this.amountMinor = toMinorUnits(amount);
         this.isPaid = false;
-        this.dateIssued = new Date();
+        this.dateIssued = dateIssued;
     }
     
     public String getFineId() {
@@ -28,7 +53,14 @@ public class k2559671_Fine {
     }
     
     public double getAmount() {
-        return amount;
+        return fromMinorUnits(amountMinor);
+    }
+    
+    /**
+     * Amount in minor units (cents).
+     */
+    public long getAmountMinor() {
+        return amountMinor;
     }
     
     public boolean isPaid() {
@@ -36,18 +68,56 @@ public class k2559671_Fine {
     }
     
     public void payFine() {
-        this.isPaid = true;
-        this.datePaid = new Date();
+        payFine(new Date(k2559671_LibraryClock.get().millis()));
+    }
+    
+    /**
+     * Mark the fine as paid at a known time, e.g. when restoring a snapshot.
+     * 
+     * @return false if the fine was already paid
+     */
+    public boolean payFine(Date datePaid) {
+        synchronized (this) {
+            if (isPaid) {
+                return false;
+            }
+            this.isPaid = true;
+            this.datePaid = datePaid;
+            if (paymentListener != null) {
+                paymentListener.finePaid(this);
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Attach the listener that records payments (set by the library on registration).
+     */
+    public void setPaymentListener(PaymentListener paymentListener) {
+        synchronized (this) {
+            this.paymentListener = paymentListener;
+        }
     }
     
     public String getFineDetails() {
-        return "Fine #" + fineId + " - Amount: LKR " + amount + 
+        return "Fine #" + fineId + " - Amount: LKR " + getAmount() + 
         ", User: " + userId + ", Book: " + bookId + 
         ", Paid: " + (isPaid ? "Yes" : "No");
     }
     
     public void setAmount(double amount) {
-        this.amount = amount;
+        this.amountMinor = toMinorUnits(amount);
+    }
+    
+    /**
+     * Convert rupees to minor units, rounding to the nearest cent.
+     */
+    public static long toMinorUnits(double amount) {
+        return Math.round(amount * MINOR_UNITS_PER_LKR);
+    }
+    
+    public static double fromMinorUnits(long amountMinor) {
+        return amountMinor / (double) MINOR_UNITS_PER_LKR;
     }
     
     public String getUserId() {
@@ -0,0 +1,286 @@
+package domain;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+/**
+ * HoldQueue - Waiting reservations (holds) for one book.
+ *
+ * Data Structures Used:
+ * - One FIFO lane per priority class (lower class is served first, e.g.
+ *   faculty before students); each lane is an append-only array of slots
+ * - A Fenwick (binary indexed) tree per lane counting waiting slots, so the
+ *   position of a hold is O(log n) even with hundreds of holds
+ * - HashMap<String, Slot>: reservation ID -> slot for O(1) removal
+ *
+ * Removing a hold only clears its slot; the lane is compacted once most of
+ * its slots are empty. A removed hold that is added again before compaction
+ * (e.g. an undone cancellation) gets its old place back.
+ *
+ * The queue also remembers which reservation the book is currently
+ * allocated to (waiting for pickup), so there is at most one per book.
+ *
+ * All methods are synchronized on the queue; one queue serves one book.
+ */
+public class k2559671_HoldQueue {
+    private final Lane[] lanes;
+    private final Map<String, Slot> slots;
+    private int size;
+    private k2559671_Reservation allocated;
+
+    private static final class Slot {
+        private final k2559671_Reservation reservation;
+        private final int lane;
+        private int index;
+        private boolean waiting;
+
+        private Slot(k2559671_Reservation reservation, int lane) {
+            this.reservation = reservation;
+            this.lane = lane;
+        }
+    }
+
+    /**
+     * FIFO lane of slots with a Fenwick tree over their waiting flags.
+     */
+    private static final class Lane {
+        private Slot[] entries = new Slot[4];
+        private int[] tree = new int[5];
+        private int length;
+        private int head;
+        private int waiting;
+
+        private void append(Slot slot) {
+            if (length == entries.length) {
+                entries = Arrays.copyOf(entries, length * 2);
+                rebuildTree();
+            }
+            slot.index = length;
+            entries[length++] = slot;
+        }
+
+        private void update(int index, int delta) {
+            for (int i = index + 1; i < tree.length; i += i & -i) {
+                tree[i] += delta;
+            }
+            waiting += delta;
+        }
+
+        /** Waiting slots in [0, index]. */
+        private int prefix(int index) {
+            int sum = 0;
+            for (int i = index + 1; i > 0; i -= i & -i) {
+                sum += tree[i];
+            }
+            return sum;
+        }
+
+        /** Drop cleared slots once they outnumber the waiting ones. */
+        private void compactIfSparse(Map<String, Slot> slots) {
+            int cleared = length - waiting;
+            if (cleared < 32 || cleared < waiting) {
+                return;
+            }
+            int next = 0;
+            for (int i = 0; i < length; i++) {
+                Slot slot = entries[i];
+                if (slot.waiting) {
+                    slot.index = next;
+                    entries[next++] = slot;
+                } else {
+                    slots.remove(slot.reservation.getReservationId());
+                }
+            }
+            Arrays.fill(entries, next, length, null);
+            length = next;
+            head = 0;
+            rebuildTree();
+        }
+
+        /** Linear-time Fenwick construction from the waiting flags. */
+        private void rebuildTree() {
+            tree = new int[entries.length + 1];
+            for (int i = 1; i <= length; i++) {
+                tree[i] += entries[i - 1].waiting ? 1 : 0;
+                int parent = i + (i & -i);
+                if (parent < tree.length) {
+                    tree[parent] += tree[i];
+                }
+            }
+        }
+
+        private Slot first() {
+            while (head < length && !entries[head].waiting) {
+                head++;
+            }
+            return head < length ? entries[head] : null;
+        }
+    }
+
+    /**
+     * @param priorityClasses Number of priority classes (class 0 is served first)
+     */
+    public k2559671_HoldQueue(int priorityClasses) {
+        this.lanes = new Lane[priorityClasses];
+        for (int i = 0; i < priorityClasses; i++) {
+            lanes[i] = new Lane();
+        }
+        this.slots = new HashMap<>();
+    }
+
+    /**
+     * Add a hold at the back of its priority class.
+     *
+     * @param reservation Reservation to queue
+     * @param priority Priority class, clamped to the configured range
+     */
+    public synchronized void add(k2559671_Reservation reservation, int priority) {
+        Slot slot = slots.get(reservation.getReservationId());
+        if (slot == null) {
+            slot = new Slot(reservation, Math.max(0, Math.min(priority, lanes.length - 1)));
+            lanes[slot.lane].append(slot);
+            slots.put(reservation.getReservationId(), slot);
+        } else if (slot.waiting) {
+            return;
+        }
+        Lane lane = lanes[slot.lane];
+        slot.waiting = true;
+        lane.update(slot.index, 1);
+        lane.head = Math.min(lane.head, slot.index);
+        size++;
+    }
+
+    /**
+     * Remove a hold (cancelled, expired or allocated).
+     *
+     * @return false if the hold was not waiting
+     */
+    public synchronized boolean remove(k2559671_Reservation reservation) {
+        Slot slot = slots.get(reservation.getReservationId());
+        if (slot == null || !slot.waiting) {
+            return false;
+        }
+        clear(slot);
+        return true;
+    }
+
+    private void clear(Slot slot) {
+        Lane lane = lanes[slot.lane];
+        slot.waiting = false;
+        lane.update(slot.index, -1);
+        size--;
+        lane.compactIfSparse(slots);
+    }
+
+    /**
+     * Remove and return the next hold: the oldest in the highest priority class.
+     *
+     * @return Next reservation, or null if no one is waiting
+     */
+    public synchronized k2559671_Reservation poll() {
+        for (Lane lane : lanes) {
+            Slot slot = lane.first();
+            if (slot != null) {
+                clear(slot);
+                return slot.reservation;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Take the next hold off the queue and allocate the book to it.
+     *
+     * @return Newly allocated reservation, or null if the book is already
+     *         allocated or no one is waiting
+     */
+    public synchronized k2559671_Reservation allocateNext() {
+        if (allocated != null) {
+            return null;
+        }
+        allocated = poll();
+        return allocated;
+    }
+
+    /**
+     * Record an existing allocation, e.g. a "Ready" reservation restored from a snapshot.
+     */
+    public synchronized void setAllocated(k2559671_Reservation reservation) {
+        allocated = reservation;
+    }
+
+    public synchronized k2559671_Reservation getAllocated() {
+        return allocated;
+    }
+
+    /**
+     * End the current allocation (picked up, cancelled or expired).
+     *
+     * @return false if the reservation was not the allocated one
+     */
+    public synchronized boolean clearAllocated(k2559671_Reservation reservation) {
+        if (allocated != reservation) {
+            return false;
+        }
+        allocated = null;
+        return true;
+    }
+
+    /**
+     * End the allocation because its holder picked the book up. The hand-over
+     * runs under the queue's lock, so the allocation cannot expire or pass to
+     * the next holder while it happens.
+     *
+     * @param userId User picking the book up
+     * @param handOver Hands the book over (e.g. Reserved -> Borrowed); false if it failed
+     * @return false if the book is not allocated to userId or the hand-over failed
+     */
+    public synchronized boolean pickUp(String userId, BooleanSupplier handOver) {
+        if (allocated == null || !allocated.getUserId().equals(userId) || !handOver.getAsBoolean()) {
+            return false;
+        }
+        allocated = null;
+        return true;
+    }
+
+    /**
+     * 1-based position of a hold in the queue (O(log n)).
+     *
+     * @param reservationId Reservation ID
+     * @return Position, or -1 if the hold is not waiting
+     */
+    public synchronized int getPosition(String reservationId) {
+        Slot slot = slots.get(reservationId);
+        if (slot == null || !slot.waiting) {
+            return -1;
+        }
+        int ahead = 0;
+        for (int i = 0; i < slot.lane; i++) {
+            ahead += lanes[i].waiting;
+        }
+        return ahead + lanes[slot.lane].prefix(slot.index);
+    }
+
+    /**
+     * Waiting holds in service order.
+     */
+    public synchronized List<k2559671_Reservation> toList() {
+        List<k2559671_Reservation> waiting = new ArrayList<>(size);
+        for (Lane lane : lanes) {
+            for (int i = lane.head; i < lane.length; i++) {
+                if (lane.entries[i].waiting) {
+                    waiting.add(lane.entries[i].reservation);
+                }
+            }
+        }
+        return waiting;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+}
@@ -0,0 +1,116 @@
+package domain;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LibraryClock - The library's source of "now" (epoch millis) and "today" (epoch day).
+ *
+ * Loan and reservation dates are stored as epoch millis and compared against
+ * this clock, so overdue and expiry checks are plain long arithmetic with no
+ * Date allocated per call. Epoch days are UTC days (millis / MILLIS_PER_DAY),
+ * the same unit getDaysOverdue() counts in.
+ *
+ * Implementations:
+ * - system(): the real time; today() is cached and only recomputed when the
+ *   day rolls over
+ * - manual(start): a clock that only moves when told to, for simulating
+ *   weeks or months of circulation (install it, advance it, then call
+ *   k2559671_LibrarySystem.checkOverdueBooks() to fire the events now due)
+ *
+ * The installed clock is global, like the k2559671_BookStates singletons:
+ * records are created in many places and do not carry a library reference.
+ */
+public abstract class k2559671_LibraryClock {
+    public static final long MILLIS_PER_DAY = TimeUnit.DAYS.toMillis(1);
+
+    private static final k2559671_LibraryClock SYSTEM = new SystemClock();
+    private static volatile k2559671_LibraryClock current = SYSTEM;
+
+    /**
+     * Current time in epoch millis.
+     */
+    public abstract long millis();
+
+    /**
+     * Current epoch day (days since 1970-01-01 UTC).
+     */
+    public long today() {
+        return Math.floorDiv(millis(), MILLIS_PER_DAY);
+    }
+
+    /**
+     * The clock used by records and schedulers.
+     */
+    public static k2559671_LibraryClock get() {
+        return current;
+    }
+
+    /**
+     * Replace the clock used by records and schedulers (e.g. with a manual
+     * clock in a simulation). Install before loans are opened.
+     */
+    public static void install(k2559671_LibraryClock clock) {
+        current = clock;
+    }
+
+    /**
+     * The real-time clock (installed by default).
+     */
+    public static k2559671_LibraryClock system() {
+        return SYSTEM;
+    }
+
+    public static Manual manual(long startMillis) {
+        return new Manual(startMillis);
+    }
+
+    private static final class SystemClock extends k2559671_LibraryClock {
+        private volatile long cachedDay = Long.MIN_VALUE;
+
+        @Override
+        public long millis() {
+            return System.currentTimeMillis();
+        }
+
+        @Override
+        public long today() {
+            long now = System.currentTimeMillis();
+            long day = cachedDay;
+            long dayStart = day * MILLIS_PER_DAY;
+            if (day == Long.MIN_VALUE || now < dayStart || now - dayStart >= MILLIS_PER_DAY) {
+                day = Math.floorDiv(now, MILLIS_PER_DAY);
+                cachedDay = day;
+            }
+            return day;
+        }
+    }
+
+    /**
+     * A clock that only moves when set or advanced.
+     */
+    public static final class Manual extends k2559671_LibraryClock {
+        private final AtomicLong now;
+
+        private Manual(long startMillis) {
+            this.now = new AtomicLong(startMillis);
+        }
+
+        @Override
+        public long millis() {
+            return now.get();
+        }
+
+        public void set(long millis) {
+            now.set(millis);
+        }
+
+        public long advance(long millis) {
+            return now.addAndGet(millis);
+        }
+
+        public long advanceDays(int days) {
+            return advance(days * MILLIS_PER_DAY);
+        }
+    }
+}
@@ -2,26 +2,42 @@ package domain;
 
 /**
  * Enum representing different membership types in the library system.
- * Each type has different borrowing limits and fine rates.
+ * Each type has different borrowing limits, loan periods, fine rates and
+ * hold priorities.
  */
 public enum k2559671_MembershipType {
-    STUDENT(5, 50.0),
-    FACULTY(10, 20.0),
-    GUEST(2, 100.0);
+    STUDENT(5, 14, 50.0, 1),
+    FACULTY(10, 30, 20.0, 0),
+    GUEST(2, 14, 100.0, 2);
 
     private final int borrowingLimit;
+    private final int loanPeriodDays;
     private final double fineRate;
+    private final int holdPriority;
 
-    k2559671_MembershipType(int borrowingLimit, double fineRate) {
+    k2559671_MembershipType(int borrowingLimit, int loanPeriodDays, double fineRate, int holdPriority) {
         this.borrowingLimit = borrowingLimit;
+        this.loanPeriodDays = loanPeriodDays;
         this.fineRate = fineRate;
+        this.holdPriority = holdPriority;
     }
 
     public int getBorrowingLimit() {
         return borrowingLimit;
     }
 
+    public int getLoanPeriodDays() {
+        return loanPeriodDays;
+    }
+
     public double getFineRate() {
         return fineRate;
     }
+
+    /**
+     * Hold-queue priority class: faculty (0) before students (1) before guests (2).
+     */
+    public int getHoldPriority() {
+        return holdPriority;
+    }
 }
@@ -16,37 +16,64 @@ import java.util.Date;
  * - Associated with k2559671_Book [Book 1 → Reservation 0..*]
  * - Linked to k2559671_Observer for notification handling
  * Business Logic:
- * - Reservations expire after 3 days if not fulfilled
+ * - Dates are stored as epoch millis and checked against k2559671_LibraryClock
+ * - A waiting ("Active") reservation has no deadline: it stays in the queue
+ *   however long the current loan runs
+ * - Once the book is allocated to it ("Ready") the user has 3 days to pick
+ *   it up; the library's k2559671_ReservationExpiryEngine flips the status
+ *   to "Expired" on time
  * - Users are notified via Observer pattern when books become available
- * - Active reservations are prioritized when books are returned
+ * - Active reservations wait in the book's k2559671_HoldQueue; when the book
+ *   is returned the next holder's reservation becomes "Ready" (held for
+ *   pickup) and then "Fulfilled" once they borrow it
  */
 public class k2559671_Reservation {
+    private static final long HOLD_MILLIS = 3 * k2559671_LibraryClock.MILLIS_PER_DAY;
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
+
     private final String reservationId;
     private final String userId;
     private final String bookId;
-    private final Date reservationDate;
-    private String status;
-    private final Date expiryDate;
+    private final long reservationMillis;
+    private volatile String status;
+    private volatile long expiryMillis;
     
     /**
      * Constructor for creating a new reservation.
-     * Automatically sets reservation date to current time.
-     * Expiry date is set to 3 days from reservation.
+     * Automatically sets reservation date to now (by k2559671_LibraryClock).
+     * There is no expiry date until the book is allocated to it.
      *
      * @param reservationId Unique identifier for the reservation
      * @param userId ID of the user making the reservation
      * @param bookId ID of the book being reserved
      */
     public k2559671_Reservation(String reservationId, String userId, String bookId) {
+        this(reservationId, userId, bookId, k2559671_LibraryClock.get().millis());
+    }
+    
+    /**
+     * Constructor for re-creating a reservation made at a known time,
+     * e.g. when rebuilding state from the journal.
+     *
+     * @param reservationId Unique identifier for the reservation
+     * @param userId ID of the user making the reservation
+     * @param bookId ID of the book being reserved
+     * @param reservationDate Date the reservation was made
+     */
+    public k2559671_Reservation(String reservationId, String userId, String bookId, Date reservationDate) {
+        this(reservationId, userId, bookId, reservationDate.getTime());
+    }
+    
+    /**
+     * Constructor taking the reservation time as epoch millis.
+     */
+    public k2559671_Reservation(String reservationId, String userId, String bookId, long reservationMillis) {
         this.reservationId = reservationId;
         this.userId = userId;
         this.bookId = bookId;
-        this.reservationDate = new Date();
+        this.reservationMillis = reservationMillis;
         this.status = "Active";
-        
-        // Reservation expires in 3 days
-        long threeDaysInMillis = 3 * 24 * 60 * 60 * 1000L;
-        this.expiryDate = new Date(System.currentTimeMillis() + threeDaysInMillis);
+        this.expiryMillis = NO_DEADLINE;
     }
     
     public String getReservationId() {
@@ -62,15 +89,62 @@ public class k2559671_Reservation {
     }
     
     public Date getReservationDate() {
-        return reservationDate;
+        return new Date(reservationMillis);
+    }
+    
+    public long getReservationMillis() {
+        return reservationMillis;
     }
     
     public String getStatus() {
         return status;
     }
     
+    /**
+     * @return Pickup deadline, or null while the reservation is still waiting
+     */
     public Date getExpiryDate() {
-        return expiryDate;
+        return hasPickupDeadline() ? new Date(expiryMillis) : null;
+    }
+    
+    /**
+     * @return Pickup deadline in epoch millis, or Long.MAX_VALUE while waiting
+     */
+    public long getExpiryMillis() {
+        return expiryMillis;
+    }
+    
+    public boolean hasPickupDeadline() {
+        return expiryMillis != NO_DEADLINE;
+    }
+    
+    /**
+     * Restore a pickup deadline, e.g. when loading a snapshot.
+     *
+     * @param expiryMillis Deadline in epoch millis, or Long.MAX_VALUE for none
+     */
+    public void setExpiryMillis(long expiryMillis) {
+        this.expiryMillis = expiryMillis;
+    }
+    
+    /**
+     * The book has been allocated to this reservation: it is "Ready" and
+     * must be picked up within 3 days of the allocation.
+     *
+     * @param allocatedMillis Time the book was allocated
+     */
+    public void markReady(long allocatedMillis) {
+        this.expiryMillis = allocatedMillis + HOLD_MILLIS;
+        this.status = "Ready";
+    }
+    
+    /**
+     * Put an allocated reservation back in the queue ("Active"), dropping
+     * its pickup deadline.
+     */
+    public void returnToQueue() {
+        this.status = "Active";
+        this.expiryMillis = NO_DEADLINE;
     }
     
     /**
@@ -103,12 +177,12 @@ public class k2559671_Reservation {
     
     /**
      * Check if reservation has expired.
-     * Reservations expire 3 days after creation.
+     * Only an allocated reservation has a deadline: 3 days after allocation.
      *
      * @return true if current date is past expiry date
      */
     public boolean hasExpired() {
-        return new Date().after(expiryDate);
+        return k2559671_LibraryClock.get().millis() > expiryMillis;
     }
     
     public void setStatus(String status) {
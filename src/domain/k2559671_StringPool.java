@@ -0,0 +1,75 @@
+package domain;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * StringPool - Dictionary of canonical instances for repeated catalog strings.
+ * 
+ * Categories, authors, publishers, editions and languages repeat across
+ * thousands of titles. Each distinct value is stored once and every book
+ * points to the shared instance. With compressed references a pooled
+ * reference is as small as an integer dictionary code, but needs no decode
+ * step on read.
+ * 
+ * Data Structures Used:
+ * - WeakHashMap<String, WeakReference<String>>: canonical instance -> itself,
+ *   held weakly on both sides, so a value no book refers to any more (e.g.
+ *   the last book by an author was removed, or a library was discarded) is
+ *   dropped by the garbage collector instead of living for the whole process
+ * - Striped by hash, one lock per stripe, so concurrent bulk loads rarely
+ *   contend
+ */
+public final class k2559671_StringPool {
+    private static final int STRIPES = 16;
+    private static final List<Map<String, WeakReference<String>>> POOL = newStripes();
+
+    private k2559671_StringPool() {
+    }
+
+    private static List<Map<String, WeakReference<String>>> newStripes() {
+        List<Map<String, WeakReference<String>>> stripes = new ArrayList<>(STRIPES);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes.add(new WeakHashMap<>());
+        }
+        return List.copyOf(stripes);
+    }
+
+    /**
+     * Get the canonical instance of a string.
+     * 
+     * @param value String to pool (may be null)
+     * @return Shared instance equal to value, or null
+     */
+    public static String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        Map<String, WeakReference<String>> stripe = POOL.get(Math.floorMod(value.hashCode(), STRIPES));
+        synchronized (stripe) {
+            WeakReference<String> ref = stripe.get(value);
+            String existing = ref != null ? ref.get() : null;
+            if (existing != null) {
+                return existing;
+            }
+            stripe.put(value, new WeakReference<>(value));
+            return value;
+        }
+    }
+
+    /**
+     * Number of distinct pooled strings still referenced.
+     */
+    public static int size() {
+        int size = 0;
+        for (Map<String, WeakReference<String>> stripe : POOL) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+}
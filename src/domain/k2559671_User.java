@@ -2,6 +2,11 @@ package domain;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import patterns.observer.k2559671_Observer;
 import patterns.strategy.k2559671_FineStrategy;
@@ -20,6 +25,16 @@ import patterns.strategy.k2559671_FineStrategy;
  * - Enforces borrowing limits based on membership type
  * - Receives automated notifications via Observer pattern
  * 
+ * Loan Tracking:
+ * - Open loans live in a small map with a live counter, so borrow-limit
+ *   checks are O(1) however long the user's history is
+ * - Returned records move to an archived history that is only read on demand
+ * - A borrow claims its slot with one compare-and-set on the counter before
+ *   the book changes state, so concurrent borrows cannot overshoot the limit;
+ *   the loan record the library opens for it is then linked to that slot
+ * - The library opens and closes loans; do not call
+ *   k2559671_BorrowRecord.markReturned() directly on a linked record
+ * 
  * Relationships (as per class diagram):
  * - Has many k2559671_BorrowRecord objects (borrowing history) [1→0..*]
  * - Has many k2559671_Reservation objects (reservation history) [1→0..*]
@@ -32,9 +47,11 @@ public class k2559671_User implements k2559671_Observer {
     private final String email;
     private final String contactNo;
     private final k2559671_MembershipType membershipType;
-    private final List<k2559671_BorrowRecord> borrowedBooks;
-    private final List<k2559671_Reservation> reservations;
-    private final List<String> notifications;
+    private final Map<String, k2559671_BorrowRecord> openLoans;
+    private final AtomicInteger openLoanCount;
+    private final Queue<k2559671_BorrowRecord> archivedLoans;
+    private final Queue<k2559671_Reservation> reservations;
+    private final Queue<String> notifications;
     private k2559671_FineStrategy fineStrategy;
 
     /**
@@ -53,9 +70,11 @@ public class k2559671_User implements k2559671_Observer {
         this.email = email;
         this.contactNo = contactNo;
         this.membershipType = membershipType;
-        this.borrowedBooks = new ArrayList<>();
-        this.reservations = new ArrayList<>();
-        this.notifications = new ArrayList<>();
+        this.openLoans = new ConcurrentHashMap<>();
+        this.openLoanCount = new AtomicInteger();
+        this.archivedLoans = new ConcurrentLinkedQueue<>();
+        this.reservations = new ConcurrentLinkedQueue<>();
+        this.notifications = new ConcurrentLinkedQueue<>();
     }
 
     public String getUserId() {
@@ -78,12 +97,60 @@ public class k2559671_User implements k2559671_Observer {
         return membershipType;
     }
 
+    /**
+     * Get the user's full borrowing history: open loans first, then archived ones.
+     * Builds a new list, so prefer getActiveLoans() or getCurrentBorrowedCount()
+     * on hot paths.
+     * 
+     * @return Copy of all borrow records linked to this user
+     */
     public List<k2559671_BorrowRecord> getBorrowedBooks() {
-        return borrowedBooks;
+        List<k2559671_BorrowRecord> all = new ArrayList<>(openLoans.values());
+        all.addAll(archivedLoans);
+        return all;
+    }
+
+    /**
+     * Get the loans the user has not returned yet.
+     * 
+     * @return Copy of the open borrow records
+     */
+    public List<k2559671_BorrowRecord> getActiveLoans() {
+        return new ArrayList<>(openLoans.values());
+    }
+
+    /**
+     * Check whether the user has an open loan of a book. Only the open loans
+     * are scanned, and the borrowing limit keeps them few.
+     * 
+     * @param bookId Book ID
+     * @return true if one of the user's open loans is for that book
+     */
+    public boolean hasOpenLoan(String bookId) {
+        for (k2559671_BorrowRecord record : openLoans.values()) {
+            if (record.getBookId().equals(bookId)) {
+                return true;
+            }
+        }
+        return false;
     }
 
+    /**
+     * Get the returned loans (archived history).
+     * 
+     * @return Copy of the returned borrow records
+     */
+    public List<k2559671_BorrowRecord> getLoanHistory() {
+        return new ArrayList<>(archivedLoans);
+    }
+
+    /**
+     * Get the reservations linked to this user.
+     * 
+     * @return Copy of the user's reservations
+     */
     public List<k2559671_Reservation> getReservations() {
-        return reservations;
+        return new ArrayList<>(reservations);
     }
 
     /**
@@ -98,14 +165,12 @@ public class k2559671_User implements k2559671_Observer {
 
     /**
      * Get the current count of books borrowed by the user.
-     * Only counts books that haven't been returned yet.
+     * Reads the live open-loan counter (O(1)).
      * 
      * @return Number of currently borrowed books
      */
     public int getCurrentBorrowedCount() {
-        return (int) borrowedBooks.stream()
-                .filter(record -> !record.getIsReturned())
-                .count();
+        return openLoanCount.get();
     }
 
     /**
@@ -164,6 +229,34 @@ public class k2559671_User implements k2559671_Observer {
         return canBorrowMore();
     }
 
+    /**
+     * Claim one of the user's loan slots for a borrow in progress. The limit
+     * check and the increment are a single compare-and-set; release the slot
+     * if the borrow then fails.
+     * 
+     * @return false if the borrowing limit is reached
+     */
+    public boolean tryClaimLoanSlot() {
+        int limit = getBorrowLimit();
+        while (true) {
+            int current = openLoanCount.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (openLoanCount.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Give back a slot claimed with tryClaimLoanSlot(), e.g. when the book
+     * could not be borrowed or the borrow is undone.
+     */
+    public void releaseLoanSlot() {
+        openLoanCount.decrementAndGet();
+    }
+
     /**
      * Observer Pattern Implementation.
      * Receives notifications about overdue books, due dates, and reservations.
@@ -199,11 +292,71 @@ public class k2559671_User implements k2559671_Observer {
 
     /**
      * Add a borrow record to the user's history.
+     * Open records count towards the borrowing limit; returned ones are archived.
      * 
      * @param record The borrow record to add
      */
     public void addBorrowRecord(k2559671_BorrowRecord record) {
-        borrowedBooks.add(record);
+        if (record.getIsReturned()) {
+            archivedLoans.add(record);
+        } else if (openLoans.putIfAbsent(record.getRecordId(), record) == null) {
+            openLoanCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Link the loan record opened for a borrow that already claimed its slot.
+     * 
+     * @param record The new, open borrow record
+     */
+    public void addClaimedLoan(k2559671_BorrowRecord record) {
+        openLoans.putIfAbsent(record.getRecordId(), record);
+    }
+
+    /**
+     * Unlink the loan record of an undone borrow; the borrow releases its own slot.
+     * 
+     * @param record The borrow record to remove
+     */
+    public void removeClaimedLoan(k2559671_BorrowRecord record) {
+        openLoans.remove(record.getRecordId(), record);
+    }
+
+    /**
+     * Move a loan that has just been returned from the open set to the archive.
+     * 
+     * @param record The returned borrow record
+     */
+    public void loanReturned(k2559671_BorrowRecord record) {
+        if (openLoans.remove(record.getRecordId()) != null) {
+            openLoanCount.decrementAndGet();
+            archivedLoans.add(record);
+        }
+    }
+
+    /**
+     * Move a loan back from the archive to the open set, e.g. when a return is undone.
+     * Searching the archive is O(history), which is fine for a rare undo.
+     * 
+     * @param record The reopened borrow record
+     */
+    public void loanReopened(k2559671_BorrowRecord record) {
+        if (archivedLoans.remove(record)) {
+            addBorrowRecord(record);
+        }
+    }
+
+    /**
+     * Remove a borrow record from the user's history, e.g. when a borrow is undone.
+     * 
+     * @param record The borrow record to remove
+     */
+    public void removeBorrowRecord(k2559671_BorrowRecord record) {
+        if (openLoans.remove(record.getRecordId(), record)) {
+            openLoanCount.decrementAndGet();
+        } else {
+            archivedLoans.remove(record);
+        }
     }
 
     public void addReservation(k2559671_Reservation reservation) {
@@ -1,12 +1,17 @@
 package patterns.command;
 
 import domain.k2559671_Book;
+import domain.k2559671_Reservation;
 import domain.k2559671_User;
 import system.k2559671_Logger;
 
 /**
  * Command Pattern: Borrow book command.
  * Encapsulates the action of borrowing a book.
+ * 
+ * An executed borrow holds one of the user's loan slots until it is undone
+ * or its loan is returned. A Reserved book can only be borrowed by the user
+ * it is held for ("Ready" hold), and not at all while it is still on loan.
  */
 public class k2559671_BorrowCommand implements k2559671_Command {
     private final k2559671_User user;
@@ -23,26 +28,58 @@ public class k2559671_BorrowCommand implements k2559671_Command {
     
     @Override
     public void execute() {
-        if (user.canBorrow()) {
-            book.borrow();
+        if (isHeldForAnotherUser()) {
+            logger.logError("Book " + book.getTitle() + " is held for another user");
+        } else if (!user.tryClaimLoanSlot()) {
+            logger.logError("User " + user.getName() + " cannot borrow more books (limit reached)");
+        } else if (!book.borrow(user.getUserId())) {
+            user.releaseLoanSlot();
+            logger.logError("Book " + book.getTitle() + " is not available to borrow");
+        } else {
             user.borrowBook(book);
             executed = true;
             logger.log("User " + user.getName() + " borrowed book: " + book.getTitle());
-        } else {
-            logger.logError("User " + user.getName() + " cannot borrow more books (limit reached)");
         }
     }
     
+    private boolean isHeldForAnotherUser() {
+        k2559671_Reservation held = book.getAllocatedReservation();
+        return held != null && !held.getUserId().equals(user.getUserId());
+    }
+    
     @Override
     public void undo() {
         if (executed) {
-            book.returnBook();
+            if (book.returnBook()) {
+                // Not already returned, so the slot is still held by this borrow
+                user.releaseLoanSlot();
+            }
             user.returnBook(book);
             executed = false;
             logger.log("UNDO: Borrow command reversed for book: " + book.getTitle());
         }
     }
     
+    public k2559671_User getUser() {
+        return user;
+    }
+    
+    public k2559671_Book getBook() {
+        return book;
+    }
+    
+    @Override
+    public boolean isExecuted() {
+        return executed;
+    }
+    
+    /**
+     * Mark a command rebuilt from a k2559671_CommandSnapshot as already executed, so it can be undone.
+     */
+    void markExecuted() {
+        executed = true;
+    }
+    
     @Override
     public String getDescription() {
         return "Borrow: " + book.getTitle() + " by " + user.getName();
@@ -36,6 +36,30 @@ public class k2559671_CancelReservationCommand implements k2559671_Command {
         }
     }
     
+    public k2559671_Reservation getReservation() {
+        return reservation;
+    }
+    
+    /**
+     * Status the reservation had before it was cancelled, or null if not executed.
+     */
+    public String getPreviousStatus() {
+        return previousStatus;
+    }
+    
+    @Override
+    public boolean isExecuted() {
+        return executed;
+    }
+    
+    /**
+     * Mark a command rebuilt from a k2559671_CommandSnapshot as already executed, so it can be undone.
+     */
+    void markExecuted(String previousStatus) {
+        this.previousStatus = previousStatus;
+        executed = true;
+    }
+    
     @Override
     public String getDescription() {
         return "Cancel Reservation: #" + reservation.getReservationId();
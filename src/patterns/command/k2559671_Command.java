@@ -12,5 +12,6 @@ package patterns.command;
 public interface k2559671_Command {
     void execute();
     void undo();
+    boolean isExecuted();
     String getDescription();
 }
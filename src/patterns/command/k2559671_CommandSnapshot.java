@@ -0,0 +1,178 @@
+package patterns.command;
+
+import java.util.Objects;
+
+import domain.k2559671_Book;
+import domain.k2559671_Reservation;
+import domain.k2559671_User;
+import patterns.state.k2559671_BookState;
+import patterns.state.k2559671_BookStates;
+import system.k2559671_LibrarySystem;
+
+/**
+ * Command Pattern: Compact, ID-only description of a command.
+ * 
+ * Holds the command type and the IDs it refers to instead of references to
+ * whole k2559671_User/k2559671_Book graphs, so commands can be written to
+ * the journal and rebuilt later against a library.
+ * 
+ * For the undo history a snapshot also remembers what it needs to rebuild
+ * an executed command and check it is safe to undo:
+ * - the previous status: the reservation's for a cancellation, the book's
+ *   for a reservation that changed it (e.g. "Borrowed")
+ * - the ID of the loan or hold the command opened or closed
+ * Neither is part of equals() or written to the journal.
+ */
+public final class k2559671_CommandSnapshot {
+    public static final byte BORROW = 1;
+    public static final byte RETURN = 2;
+    public static final byte RESERVE = 3;
+    public static final byte CANCEL_RESERVATION = 4;
+
+    private final byte type;
+    private final String userId;
+    private final String bookId;
+    private final String reservationId;
+    private final String previousStatus;
+    private final String recordId;
+
+    public k2559671_CommandSnapshot(byte type, String userId, String bookId, String reservationId) {
+        this(type, userId, bookId, reservationId, null, null);
+    }
+
+    private k2559671_CommandSnapshot(byte type, String userId, String bookId, String reservationId,
+            String previousStatus, String recordId) {
+        this.type = type;
+        this.userId = userId;
+        this.bookId = bookId;
+        this.reservationId = reservationId;
+        this.previousStatus = previousStatus;
+        this.recordId = recordId;
+    }
+
+    /**
+     * Describe a command by type and IDs.
+     * 
+     * @param command Command to describe
+     * @return Snapshot, or null for command types that cannot be described
+     */
+    public static k2559671_CommandSnapshot of(k2559671_Command command) {
+        return of(command, null);
+    }
+
+    /**
+     * Describe an executed command for the undo history.
+     * 
+     * @param command Executed command
+     * @param recordId Loan or hold it opened or closed, or null
+     * @return Snapshot, or null for command types that cannot be described
+     */
+    public static k2559671_CommandSnapshot of(k2559671_Command command, String recordId) {
+        if (command instanceof k2559671_BorrowCommand borrow) {
+            return new k2559671_CommandSnapshot(BORROW, borrow.getUser().getUserId(),
+                    borrow.getBook().getBookId(), null, null, recordId);
+        }
+        if (command instanceof k2559671_ReturnCommand ret) {
+            return new k2559671_CommandSnapshot(RETURN, ret.getUser().getUserId(),
+                    ret.getBook().getBookId(), null, null, recordId);
+        }
+        if (command instanceof k2559671_ReserveCommand reserve) {
+            k2559671_BookState replaced = reserve.getReplacedState();
+            return new k2559671_CommandSnapshot(RESERVE, reserve.getUser().getUserId(),
+                    reserve.getBook().getBookId(), null,
+                    replaced != null ? replaced.getStateName() : null, recordId);
+        }
+        if (command instanceof k2559671_CancelReservationCommand cancel) {
+            return new k2559671_CommandSnapshot(CANCEL_RESERVATION, null, null,
+                    cancel.getReservation().getReservationId(), cancel.getPreviousStatus(), recordId);
+        }
+        return null;
+    }
+
+    /**
+     * Rebuild the command against the given library.
+     * 
+     * @param library Library to resolve users, books and reservations from
+     * @return New command, or null if a referenced object no longer exists
+     */
+    public k2559671_Command restore(k2559671_LibrarySystem library) {
+        if (type == CANCEL_RESERVATION) {
+            k2559671_Reservation reservation = library.getReservation(reservationId);
+            return reservation == null ? null
+                    : new k2559671_CancelReservationCommand(reservation, library.getLogger());
+        }
+
+        k2559671_User user = library.getUser(userId);
+        k2559671_Book book = library.getBook(bookId);
+        if (user == null || book == null) {
+            return null;
+        }
+        return switch (type) {
+            case BORROW -> new k2559671_BorrowCommand(user, book, library.getLogger());
+            case RETURN -> new k2559671_ReturnCommand(user, book, library.getLogger());
+            case RESERVE -> new k2559671_ReserveCommand(user, book, library.getLogger());
+            default -> null;
+        };
+    }
+
+    /**
+     * Rebuild a command that has already been executed, ready to be undone.
+     * 
+     * @param library Library to resolve users, books and reservations from
+     * @return Executed command, or null if a referenced object no longer exists
+     */
+    public k2559671_Command restoreExecuted(k2559671_LibrarySystem library) {
+        k2559671_Command command = restore(library);
+        if (command instanceof k2559671_CancelReservationCommand cancel) {
+            cancel.markExecuted(previousStatus != null ? previousStatus : "Active");
+        } else if (command instanceof k2559671_BorrowCommand borrow) {
+            borrow.markExecuted();
+        } else if (command instanceof k2559671_ReturnCommand ret) {
+            ret.markExecuted();
+        } else if (command instanceof k2559671_ReserveCommand reserve) {
+            reserve.markExecuted(previousStatus != null ? k2559671_BookStates.forName(previousStatus) : null);
+        }
+        return command;
+    }
+
+    public byte getType() {
+        return type;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getBookId() {
+        return bookId;
+    }
+
+    public String getReservationId() {
+        return reservationId;
+    }
+
+    /**
+     * @return Loan or hold the command opened or closed, or null if not recorded
+     */
+    public String getRecordId() {
+        return recordId;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof k2559671_CommandSnapshot snapshot)) {
+            return false;
+        }
+        return type == snapshot.type && Objects.equals(userId, snapshot.userId)
+                && Objects.equals(bookId, snapshot.bookId)
+                && Objects.equals(reservationId, snapshot.reservationId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, userId, bookId, reservationId);
+    }
+}
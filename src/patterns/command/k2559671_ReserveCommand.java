@@ -2,17 +2,23 @@ package patterns.command;
 
 import domain.k2559671_User;
 import domain.k2559671_Book;
+import patterns.state.k2559671_BookState;
+import patterns.state.k2559671_BookStates;
 import system.k2559671_Logger;
 
 /**
  * Command Pattern: Reserve book command.
  * Encapsulates the action of reserving a book.
+ * A book that is already reserved can still be reserved: the user joins
+ * its hold queue and the book's state is left alone.
  */
 public class k2559671_ReserveCommand implements k2559671_Command {
     private k2559671_User user;
     private k2559671_Book book;
     private k2559671_Logger logger;
     private boolean executed;
+    private k2559671_BookState previousState;
+    private boolean stateChanged;
     
     public k2559671_ReserveCommand(k2559671_User user, k2559671_Book book, k2559671_Logger logger) {
         this.user = user;
@@ -23,7 +29,8 @@ public class k2559671_ReserveCommand implements k2559671_Command {
     
     @Override
     public void execute() {
-        book.reserve();
+        previousState = book.getState();
+        stateChanged = book.reserve();
         user.reserveBook(book);
         executed = true;
         logger.log("User " + user.getName() + " reserved book: " + book.getTitle());
@@ -32,13 +39,47 @@ public class k2559671_ReserveCommand implements k2559671_Command {
     @Override
     public void undo() {
         if (executed) {
-            // Cancel reservation by returning to previous state
-            book.returnBook();
+            // Cancel reservation by returning to the state it had before, if we changed it
+            if (stateChanged && previousState != null) {
+                book.compareAndSetState(k2559671_BookStates.RESERVED, previousState);
+            }
             executed = false;
             logger.log("UNDO: Reservation cancelled for book: " + book.getTitle());
         }
     }
     
+    public k2559671_User getUser() {
+        return user;
+    }
+    
+    public k2559671_Book getBook() {
+        return book;
+    }
+    
+    /**
+     * @return State the reservation replaced (e.g. Borrowed), or null if it
+     *         left the book's state alone
+     */
+    public k2559671_BookState getReplacedState() {
+        return stateChanged ? previousState : null;
+    }
+    
+    @Override
+    public boolean isExecuted() {
+        return executed;
+    }
+    
+    /**
+     * Mark a command rebuilt from a k2559671_CommandSnapshot as already executed, so it can be undone.
+     * 
+     * @param replacedState State the original reservation replaced, or null if it did not change it
+     */
+    void markExecuted(k2559671_BookState replacedState) {
+        executed = true;
+        previousState = replacedState;
+        stateChanged = replacedState != null;
+    }
+    
     @Override
     public String getDescription() {
         return "Reserve: " + book.getTitle() + " by " + user.getName();
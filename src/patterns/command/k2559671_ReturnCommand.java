@@ -2,11 +2,13 @@ package patterns.command;
 
 import domain.k2559671_User;
 import domain.k2559671_Book;
+import patterns.state.k2559671_BookStates;
 import system.k2559671_Logger;
 
 /**
  * Command Pattern: Return book command.
  * Encapsulates the action of returning a book.
+ * Only a user with an open loan of the book can return it.
  */
 public class k2559671_ReturnCommand implements k2559671_Command {
     private k2559671_User user;
@@ -23,7 +25,14 @@ public class k2559671_ReturnCommand implements k2559671_Command {
     
     @Override
     public void execute() {
-        book.returnBook();
+        if (!user.hasOpenLoan(book.getBookId())) {
+            logger.logError("User " + user.getName() + " has no open loan of " + book.getTitle());
+            return;
+        }
+        if (!book.returnBook()) {
+            logger.logError("Book " + book.getTitle() + " is not on loan, nothing to return");
+            return;
+        }
         user.returnBook(book);
         executed = true;
         logger.log("User " + user.getName() + " returned book: " + book.getTitle());
@@ -32,13 +41,36 @@ public class k2559671_ReturnCommand implements k2559671_Command {
     @Override
     public void undo() {
         if (executed) {
-            book.borrow();
+            // A book reserved since the return stays Reserved: its holds wait for this loan again
+            if (book.getState() != k2559671_BookStates.RESERVED) {
+                book.borrow();
+            }
             user.borrowBook(book);
             executed = false;
             logger.log("UNDO: Return command reversed for book: " + book.getTitle());
         }
     }
     
+    public k2559671_User getUser() {
+        return user;
+    }
+    
+    public k2559671_Book getBook() {
+        return book;
+    }
+    
+    @Override
+    public boolean isExecuted() {
+        return executed;
+    }
+    
+    /**
+     * Mark a command rebuilt from a k2559671_CommandSnapshot as already executed, so it can be undone.
+     */
+    void markExecuted() {
+        executed = true;
+    }
+    
     @Override
     public String getDescription() {
         return "Return: " + book.getTitle() + " by " + user.getName();
@@ -0,0 +1,126 @@
+package patterns.observer;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+import domain.k2559671_LibraryClock;
+import system.k2559671_TimedEventQueue;
+
+/**
+ * DigestCoalescer - Collapses an observer's notifications into one digest.
+ *
+ * Data Structures Used:
+ * - ConcurrentHashMap<Observer, Digest>: the open digest of each observer;
+ *   adding to it and closing it are atomic per observer
+ * - LinkedHashMap<String, Integer> per digest: distinct messages in arrival
+ *   order with a repeat count, so identical alerts are stored once
+ * - k2559671_TimedEventQueue: one event per open digest, at the end of its window
+ *
+ * The first notification for an observer opens a digest and schedules its
+ * delivery one window later; later notifications in the window are merged
+ * into it. A digest holding a single message is delivered unchanged.
+ */
+public class k2559671_DigestCoalescer {
+    private final long windowMillis;
+    private final k2559671_TimedEventQueue events;
+    private final BiConsumer<k2559671_Observer, String> delivery;
+    private final Map<k2559671_Observer, Digest> open;
+    private final LongAdder received;
+    private final LongAdder digestsSent;
+
+    private static final class Digest {
+        private final Map<String, Integer> messages = new LinkedHashMap<>();
+        private k2559671_TimedEventQueue.Event flush;
+    }
+
+    /**
+     * @param windowMillis How long to collect notifications before delivering
+     * @param events Event queue that fires the end of each window
+     * @param delivery Sends a finished digest to its observer
+     */
+    public k2559671_DigestCoalescer(long windowMillis, k2559671_TimedEventQueue events,
+            BiConsumer<k2559671_Observer, String> delivery) {
+        this.windowMillis = windowMillis;
+        this.events = events;
+        this.delivery = delivery;
+        this.open = new ConcurrentHashMap<>();
+        this.received = new LongAdder();
+        this.digestsSent = new LongAdder();
+    }
+
+    /**
+     * Add a notification to the observer's open digest, opening one if needed.
+     */
+    public void add(k2559671_Observer observer, String message) {
+        received.increment();
+        open.compute(observer, (o, digest) -> {
+            if (digest == null) {
+                digest = new Digest();
+                digest.flush = events.schedule(k2559671_LibraryClock.get().millis() + windowMillis, () -> flush(o));
+            }
+            digest.messages.merge(message, 1, Integer::sum);
+            return digest;
+        });
+    }
+
+    private void flush(k2559671_Observer observer) {
+        Digest digest = open.remove(observer);
+        if (digest != null) {
+            digestsSent.increment();
+            delivery.accept(observer, format(digest));
+        }
+    }
+
+    /**
+     * Deliver every open digest now, e.g. before shutting down.
+     */
+    public void flushAll() {
+        for (k2559671_Observer observer : new ArrayList<>(open.keySet())) {
+            Digest digest = open.get(observer);
+            if (digest != null) {
+                events.cancel(digest.flush);
+            }
+            flush(observer);
+        }
+    }
+
+    private static String format(Digest digest) {
+        if (digest.messages.size() == 1) {
+            Map.Entry<String, Integer> only = digest.messages.entrySet().iterator().next();
+            return only.getValue() == 1 ? only.getKey() : only.getKey() + " (x" + only.getValue() + ")";
+        }
+        List<String> lines = new ArrayList<>(digest.messages.size() + 1);
+        lines.add("📦 Digest of " + digest.messages.size() + " alerts:");
+        for (Map.Entry<String, Integer> entry : digest.messages.entrySet()) {
+            lines.add("  - " + entry.getKey() + (entry.getValue() > 1 ? " (x" + entry.getValue() + ")" : ""));
+        }
+        return String.join(System.lineSeparator(), lines);
+    }
+
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+
+    /**
+     * Notifications handed to the coalescer.
+     */
+    public long getReceivedCount() {
+        return received.sum();
+    }
+
+    /**
+     * Digests actually delivered.
+     */
+    public long getDigestCount() {
+        return digestsSent.sum();
+    }
+
+    public int getOpenDigestCount() {
+        return open.size();
+    }
+}
@@ -0,0 +1,255 @@
+package patterns.observer;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import system.k2559671_RingBuffer;
+
+/**
+ * NotificationDispatcher - Delivers notifications off the caller's thread.
+ *
+ * Data Structures Used:
+ * - k2559671_RingBuffer<Delivery>: bounded lock-free queue the senders
+ *   publish to; a full queue rejects the notification instead of blocking
+ * - One dispatcher thread that drains the queue and cuts the work into
+ *   batches of observers
+ * - A virtual-thread-per-task executor that runs each batch, so slow
+ *   observers (console, e-mail) overlap instead of queueing behind each other
+ *
+ * Failure isolation: an observer that throws is counted and skipped; the
+ * rest of its batch is still delivered.
+ *
+ * Metrics: delivered, failed and rejected counts, plus delivery lag (time
+ * from send to update()) as an average and a maximum.
+ */
+public class k2559671_NotificationDispatcher {
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final k2559671_RingBuffer<Delivery> queue;
+    private final int batchSize;
+    private final ExecutorService workers;
+    private final Thread dispatcher;
+    private volatile boolean closed;
+
+    private final AtomicLong inFlight;
+    private final LongAdder delivered;
+    private final LongAdder failed;
+    private final LongAdder rejected;
+    private final LongAdder lagNanosTotal;
+    private final AtomicLong maxLagNanos;
+
+    /**
+     * A notification for one observer, or for all of them when observer is null.
+     */
+    private record Delivery(k2559671_Observer observer, Collection<k2559671_Observer> audience,
+            String message, long sentNanos) {
+    }
+
+    /**
+     * @param queueCapacity Pending notifications before sends are rejected
+     * @param batchSize Observers (or single notifications) per delivery task
+     */
+    public k2559671_NotificationDispatcher(int queueCapacity, int batchSize) {
+        this.queue = new k2559671_RingBuffer<>(queueCapacity);
+        this.batchSize = Math.max(1, batchSize);
+        this.workers = Executors.newVirtualThreadPerTaskExecutor();
+        this.inFlight = new AtomicLong();
+        this.delivered = new LongAdder();
+        this.failed = new LongAdder();
+        this.rejected = new LongAdder();
+        this.lagNanosTotal = new LongAdder();
+        this.maxLagNanos = new AtomicLong();
+
+        this.dispatcher = new Thread(this::runDispatcher, "library-notifier");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    /**
+     * Queue a notification for one observer.
+     *
+     * @return false if the queue is full and the notification was rejected
+     */
+    public boolean send(k2559671_Observer observer, String message) {
+        return publish(new Delivery(observer, null, message, System.nanoTime()));
+    }
+
+    /**
+     * Queue a notification for every observer in the audience. The audience
+     * is read on the dispatcher thread, not by the caller.
+     *
+     * @return false if the queue is full and the notification was rejected
+     */
+    public boolean broadcast(Collection<k2559671_Observer> audience, String message) {
+        return publish(new Delivery(null, audience, message, System.nanoTime()));
+    }
+
+    private boolean publish(Delivery delivery) {
+        if (closed) {
+            rejected.increment();
+            return false;
+        }
+        inFlight.incrementAndGet();
+        if (!queue.offer(delivery)) {
+            inFlight.decrementAndGet();
+            rejected.increment();
+            return false;
+        }
+        LockSupport.unpark(dispatcher);
+        return true;
+    }
+
+    /**
+     * Wait until every notification queued so far has been delivered.
+     *
+     * @return false if the timeout elapsed first
+     */
+    public boolean awaitDelivery(long timeout, TimeUnit unit) {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (inFlight.get() > 0) {
+            if (System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+            LockSupport.unpark(dispatcher);
+            LockSupport.parkNanos(100_000L);
+        }
+        return true;
+    }
+
+    /**
+     * Deliver what is queued, then stop the dispatcher and the workers.
+     */
+    public void close() {
+        awaitDelivery(5, TimeUnit.SECONDS);
+        closed = true;
+        LockSupport.unpark(dispatcher);
+        try {
+            dispatcher.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        workers.shutdown();
+    }
+
+    // Dispatcher thread
+
+    private void runDispatcher() {
+        k2559671_Observer[] singles = new k2559671_Observer[batchSize];
+        String[] messages = new String[batchSize];
+        long[] sentTimes = new long[batchSize];
+        while (true) {
+            Delivery delivery = queue.poll();
+            if (delivery == null) {
+                if (closed) {
+                    return;
+                }
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+
+            // Consecutive single-observer notifications share one task
+            int count = 0;
+            while (delivery != null && delivery.observer() != null) {
+                singles[count] = delivery.observer();
+                messages[count] = delivery.message();
+                sentTimes[count] = delivery.sentNanos();
+                if (++count == batchSize) {
+                    break;
+                }
+                delivery = queue.poll();
+            }
+            if (count > 0) {
+                submitSingles(singles, messages, sentTimes, count);
+            }
+            if (delivery != null && delivery.observer() == null) {
+                submitBroadcast(delivery);
+            }
+        }
+    }
+
+    private void submitSingles(k2559671_Observer[] observers, String[] messages, long[] sentTimes, int count) {
+        k2559671_Observer[] batchObservers = Arrays.copyOf(observers, count);
+        String[] batchMessages = Arrays.copyOf(messages, count);
+        long[] batchTimes = Arrays.copyOf(sentTimes, count);
+        workers.execute(() -> {
+            for (int i = 0; i < count; i++) {
+                deliver(batchObservers[i], batchMessages[i], batchTimes[i]);
+            }
+            inFlight.addAndGet(-count);
+        });
+    }
+
+    private void submitBroadcast(Delivery delivery) {
+        k2559671_Observer[] audience = delivery.audience().toArray(new k2559671_Observer[0]);
+        if (audience.length == 0) {
+            inFlight.decrementAndGet();
+            return;
+        }
+        int batches = (audience.length + batchSize - 1) / batchSize;
+        AtomicInteger remaining = new AtomicInteger(batches);
+        for (int start = 0; start < audience.length; start += batchSize) {
+            int from = start;
+            int to = Math.min(start + batchSize, audience.length);
+            workers.execute(() -> {
+                for (int i = from; i < to; i++) {
+                    deliver(audience[i], delivery.message(), delivery.sentNanos());
+                }
+                if (remaining.decrementAndGet() == 0) {
+                    inFlight.decrementAndGet();
+                }
+            });
+        }
+    }
+
+    private void deliver(k2559671_Observer observer, String message, long sentNanos) {
+        try {
+            observer.update(message);
+            delivered.increment();
+        } catch (RuntimeException e) {
+            failed.increment();
+        }
+        long lag = System.nanoTime() - sentNanos;
+        lagNanosTotal.add(lag);
+        maxLagNanos.accumulateAndGet(lag, Math::max);
+    }
+
+    // Metrics
+
+    public long getDeliveredCount() {
+        return delivered.sum();
+    }
+
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    public int getPendingCount() {
+        return queue.size();
+    }
+
+    /**
+     * Average time from send to delivery, in milliseconds.
+     */
+    public double getAverageLagMillis() {
+        long count = delivered.sum() + failed.sum();
+        return count == 0 ? 0.0 : lagNanosTotal.sum() / (double) count / 1_000_000.0;
+    }
+
+    /**
+     * Longest time from send to delivery so far, in milliseconds.
+     */
+    public double getMaxLagMillis() {
+        return maxLagNanos.get() / 1_000_000.0;
+    }
+}
@@ -1,22 +1,154 @@
 package patterns.observer;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
 
 import domain.k2559671_Book;
 import domain.k2559671_User;
+import system.k2559671_TimedEventQueue;
 
 /**
  * Observer Pattern: Notification manager (Subject).
  * Manages observers and sends notifications about library events.
+ * Observers and notification history are held in concurrent collections so
+ * notifications can be sent from several threads at once.
+ * 
+ * Topics:
+ * - Observers subscribe to topics: a book, a category, an event type or a
+ *   user's own loans (see bookTopic(), categoryTopic(), eventTopic(), userTopic())
+ * - ConcurrentHashMap<String, Set<Observer>>: topic -> subscribers, so a
+ *   publish costs time proportional to its subscribers, not to all users
+ * - ConcurrentHashMap<Observer, Set<String>>: observer -> topics, so
+ *   removeObserver() only touches the observer's own subscriptions
+ * - addObserver() still registers a global observer that receives every
+ *   notifyObservers() broadcast
+ * 
+ * Delivery is synchronous by default. enableAsyncDelivery() hands
+ * notifications to a k2559671_NotificationDispatcher instead, so senders
+ * (e.g. processCommand) never wait for observers; a broadcast to a large
+ * audience is delivered in batches on virtual threads.
+ * 
+ * In either mode an observer that throws does not stop delivery to the others.
+ * 
+ * Digests: enableDigest() collects each observer's alerts over a time window
+ * (k2559671_DigestCoalescer) and delivers them as one deduplicated message.
+ * notifyObservers() broadcasts are never coalesced.
  */
 public class k2559671_NotificationManager {
-    private final List<k2559671_Observer> observers;
-    private final List<String> notifications;
+    /**
+     * Library events an observer can subscribe to with eventTopic().
+     */
+    public enum EventType {
+        DUE_SOON, OVERDUE, RESERVATION_READY, RESERVATION_EXPIRED, BOOK_AVAILABLE, NEW_BOOK
+    }
+    
+    private final Set<k2559671_Observer> observers;
+    private final Map<String, Set<k2559671_Observer>> subscribers;
+    private final Map<k2559671_Observer, Set<String>> subscriptions;
+    private final Queue<String> notifications;
+    private volatile k2559671_NotificationDispatcher dispatcher;
+    private volatile k2559671_DigestCoalescer digests;
     
     public k2559671_NotificationManager() {
-        this.observers = new ArrayList<>();
-        this.notifications = new ArrayList<>();
+        this.observers = ConcurrentHashMap.newKeySet();
+        this.subscribers = new ConcurrentHashMap<>();
+        this.subscriptions = new ConcurrentHashMap<>();
+        this.notifications = new ConcurrentLinkedQueue<>();
+    }
+    
+    public static String bookTopic(String bookId) {
+        return "book:" + bookId;
+    }
+    
+    public static String categoryTopic(String category) {
+        return "category:" + category;
+    }
+    
+    public static String eventTopic(EventType type) {
+        return "event:" + type;
+    }
+    
+    public static String userTopic(String userId) {
+        return "user:" + userId;
+    }
+    
+    /**
+     * Switch to asynchronous delivery. Has no effect if already enabled.
+     * 
+     * @param queueCapacity Pending notifications before new ones are rejected
+     * @param batchSize Observers per delivery task
+     */
+    public synchronized void enableAsyncDelivery(int queueCapacity, int batchSize) {
+        if (dispatcher == null) {
+            dispatcher = new k2559671_NotificationDispatcher(queueCapacity, batchSize);
+        }
+    }
+    
+    /**
+     * Deliver what is pending and go back to synchronous delivery.
+     */
+    public synchronized void disableAsyncDelivery() {
+        if (dispatcher != null) {
+            dispatcher.close();
+            dispatcher = null;
+        }
+    }
+    
+    /**
+     * Start coalescing topic and user alerts into one digest per observer
+     * per window. Has no effect if already enabled.
+     * 
+     * @param windowMillis Collection window in milliseconds
+     * @param events Event queue that fires the end of each window
+     */
+    public synchronized void enableDigest(long windowMillis, k2559671_TimedEventQueue events) {
+        if (digests == null) {
+            digests = new k2559671_DigestCoalescer(windowMillis, events, this::send);
+        }
+    }
+    
+    /**
+     * Deliver all open digests and go back to sending alerts one by one.
+     */
+    public synchronized void disableDigest() {
+        if (digests != null) {
+            k2559671_DigestCoalescer current = digests;
+            digests = null;
+            current.flushAll();
+        }
+    }
+    
+    /**
+     * Digest coalescer and its counters, or null when digests are disabled.
+     */
+    public k2559671_DigestCoalescer getDigests() {
+        return digests;
+    }
+    
+    /**
+     * Asynchronous dispatcher and its delivery metrics, or null in synchronous mode.
+     */
+    public k2559671_NotificationDispatcher getDispatcher() {
+        return dispatcher;
+    }
+    
+    /**
+     * Wait until all queued notifications are delivered (returns at once in synchronous mode).
+     * 
+     * @return false if the timeout elapsed first
+     */
+    public boolean awaitDelivery(long timeout, TimeUnit unit) {
+        k2559671_NotificationDispatcher current = dispatcher;
+        return current == null || current.awaitDelivery(timeout, unit);
     }
     
     public void addObserver(k2559671_Observer observer) {
@@ -24,35 +156,187 @@ public class k2559671_NotificationManager {
         System.out.println("✓ Observer added to notification system");
     }
     
+    /**
+     * Remove an observer from the global broadcast and from all its topics.
+     */
     public void removeObserver(k2559671_Observer observer) {
-        observers.remove(observer);
-        System.out.println("✓ Observer removed from notification system");
+        unsubscribeAll(observer);
+        if (observers.remove(observer)) {
+            System.out.println("✓ Observer removed from notification system");
+        }
+    }
+    
+    /**
+     * Subscribe an observer to a topic.
+     * 
+     * @param topic Topic name, e.g. from bookTopic() or eventTopic()
+     * @param observer Subscriber
+     */
+    public void subscribe(String topic, k2559671_Observer observer) {
+        // Inside compute so removeSubscriber cannot unmap the set between lookup and add
+        subscribers.compute(topic, (t, set) -> {
+            Set<k2559671_Observer> updated = set != null ? set : ConcurrentHashMap.newKeySet();
+            updated.add(observer);
+            return updated;
+        });
+        subscriptions.computeIfAbsent(observer, o -> ConcurrentHashMap.newKeySet()).add(topic);
+    }
+    
+    public void unsubscribe(String topic, k2559671_Observer observer) {
+        Set<String> topics = subscriptions.get(observer);
+        if (topics != null) {
+            topics.remove(topic);
+        }
+        removeSubscriber(topic, observer);
+    }
+    
+    private void unsubscribeAll(k2559671_Observer observer) {
+        Set<String> topics = subscriptions.remove(observer);
+        if (topics != null) {
+            for (String topic : topics) {
+                removeSubscriber(topic, observer);
+            }
+        }
+    }
+    
+    private void removeSubscriber(String topic, k2559671_Observer observer) {
+        subscribers.computeIfPresent(topic, (t, set) -> {
+            set.remove(observer);
+            return set.isEmpty() ? null : set;
+        });
+    }
+    
+    public Set<k2559671_Observer> getSubscribers(String topic) {
+        Set<k2559671_Observer> set = subscribers.get(topic);
+        return set == null ? Collections.emptySet() : Collections.unmodifiableSet(set);
+    }
+    
+    public Set<String> getSubscriptions(k2559671_Observer observer) {
+        Set<String> topics = subscriptions.get(observer);
+        return topics == null ? Collections.emptySet() : Collections.unmodifiableSet(topics);
+    }
+    
+    /**
+     * Send a message to the subscribers of one or more topics. An observer
+     * subscribed to several of them receives the message once.
+     * 
+     * @param message Notification text
+     * @param topics Topics to publish to
+     */
+    public void publish(String message, String... topics) {
+        publishTo(null, message, topics);
+    }
+    
+    /**
+     * Deliver to an addressee (if any) plus the subscribers of the topics.
+     */
+    private void publishTo(k2559671_Observer addressee, String message, String... topics) {
+        Collection<k2559671_Observer> audience = null;
+        Set<k2559671_Observer> merged = null;
+        if (addressee != null) {
+            merged = new LinkedHashSet<>();
+            merged.add(addressee);
+        }
+        for (String topic : topics) {
+            Set<k2559671_Observer> set = subscribers.get(topic);
+            if (set == null || set.isEmpty()) {
+                continue;
+            }
+            if (merged == null && audience == null) {
+                audience = set; // Single topic: no copy needed
+                continue;
+            }
+            if (merged == null) {
+                merged = new LinkedHashSet<>(audience);
+            }
+            merged.addAll(set);
+        }
+        if (merged != null) {
+            audience = merged;
+        }
+        if (audience == null) {
+            return;
+        }
+        k2559671_DigestCoalescer coalescer = digests;
+        if (coalescer != null) {
+            for (k2559671_Observer observer : audience) {
+                coalescer.add(observer, message);
+            }
+            return;
+        }
+        if (audience.size() == 1 && addressee != null) {
+            send(addressee, message);
+        } else {
+            deliver(audience, message);
+        }
     }
     
     public void notifyObservers(String message) {
         notifications.add(message);
-        for (k2559671_Observer observer : observers) {
-            observer.update(message);
+        deliver(observers, message);
+    }
+    
+    private void deliver(Collection<k2559671_Observer> audience, String message) {
+        k2559671_NotificationDispatcher current = dispatcher;
+        if (current != null) {
+            current.broadcast(audience, message);
+            return;
+        }
+        for (k2559671_Observer observer : audience) {
+            deliverNow(observer, message);
         }
     }
     
+    // User alerts go to the user and to subscribers of the user's topic and the event topic
+    
     public void sendDueDateReminder(k2559671_User user, k2559671_Book book) {
         String message = "Reminder: Book '" + book.getTitle() + "' is due soon!";
-        user.update(message);
+        publishTo(user, message, userTopic(user.getUserId()), eventTopic(EventType.DUE_SOON));
     }
     
     public void sendOverdueAlert(k2559671_User user, k2559671_Book book) {
         String message = "⚠ OVERDUE: Book '" + book.getTitle() + "' is overdue! Please return immediately.";
-        user.update(message);
+        publishTo(user, message, userTopic(user.getUserId()), eventTopic(EventType.OVERDUE));
     }
     
     public void sendReservationAlert(k2559671_User user, k2559671_Book book) {
         String message = "✓ Your reserved book '" + book.getTitle() + "' is now available for pickup!";
-        user.update(message);
+        publishTo(user, message, userTopic(user.getUserId()), eventTopic(EventType.RESERVATION_READY));
     }
     
-    public void checkOverdueBooks() {
-        notifyObservers("System check: Scanning for overdue books...");
+    public void sendReservationExpiredAlert(k2559671_User user, k2559671_Book book) {
+        String message = "⌛ Your reservation for '" + book.getTitle() + "' has expired.";
+        publishTo(user, message, userTopic(user.getUserId()), eventTopic(EventType.RESERVATION_EXPIRED));
+    }
+    
+    // Book alerts go to subscribers of the book, its category and the event topic
+    
+    public void sendBookAvailable(k2559671_Book book) {
+        String message = "📗 Book '" + book.getTitle() + "' is now available.";
+        publish(message, bookTopic(book.getBookId()), categoryTopic(book.getCategory()),
+                eventTopic(EventType.BOOK_AVAILABLE));
+    }
+    
+    public void sendNewBookAlert(k2559671_Book book) {
+        String message = "🆕 New in " + book.getCategory() + ": '" + book.getTitle() + "' by " + book.getAuthor();
+        publish(message, categoryTopic(book.getCategory()), eventTopic(EventType.NEW_BOOK));
+    }
+    
+    private void send(k2559671_Observer observer, String message) {
+        k2559671_NotificationDispatcher current = dispatcher;
+        if (current != null) {
+            current.send(observer, message);
+        } else {
+            deliverNow(observer, message);
+        }
+    }
+    
+    private static void deliverNow(k2559671_Observer observer, String message) {
+        try {
+            observer.update(message);
+        } catch (RuntimeException e) {
+            System.err.println("⚠ Notification delivery failed: " + e.getMessage());
+        }
     }
     
     public List<String> getNotifications() {
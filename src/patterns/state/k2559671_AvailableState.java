@@ -9,20 +9,27 @@ import domain.k2559671_Book;
 public class k2559671_AvailableState implements k2559671_BookState {
     
     @Override
-    public void borrow(k2559671_Book book) {
+    public boolean borrow(k2559671_Book book) {
+        if (!book.compareAndSetState(this, k2559671_BookStates.BORROWED)) {
+            return book.borrow(); // State changed under us: act on the new one
+        }
         System.out.println("✓ Book '" + book.getTitle() + "' has been borrowed.");
-        book.setState(new k2559671_BorrowedState());
+        return true;
     }
     
     @Override
-    public void returnBook(k2559671_Book book) {
+    public boolean returnBook(k2559671_Book book) {
         System.out.println("⚠ Book is already available. Cannot return.");
+        return false;
     }
     
     @Override
-    public void reserve(k2559671_Book book) {
+    public boolean reserve(k2559671_Book book) {
+        if (!book.compareAndSetState(this, k2559671_BookStates.RESERVED)) {
+            return book.reserve();
+        }
         System.out.println("✓ Book '" + book.getTitle() + "' has been reserved.");
-        book.setState(new k2559671_ReservedState());
+        return true;
     }
     
     @Override
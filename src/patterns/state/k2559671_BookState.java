@@ -10,13 +10,25 @@ import domain.k2559671_Book;
  * - Books have distinct states (Available, Borrowed, Reserved)
  * - Each state has different behavior for borrow/return/reserve operations
  * - State transitions are well-defined and need to be consistent
+ * 
+ * Transitions are compare-and-set on the book's state (see
+ * k2559671_Book.compareAndSetState), so of two concurrent borrowers of an
+ * available copy exactly one wins. Each action reports whether it changed
+ * the state.
  */
 public interface k2559671_BookState {
-    void borrow(k2559671_Book book);
+    boolean borrow(k2559671_Book book);
+
+    /**
+     * Borrow for a given user. Only a Reserved book cares who the borrower is.
+     */
+    default boolean borrow(k2559671_Book book, String userId) {
+        return borrow(book);
+    }
 
-    void returnBook(k2559671_Book book);
+    boolean returnBook(k2559671_Book book);
 
-    void reserve(k2559671_Book book);
+    boolean reserve(k2559671_Book book);
 
     String getStateName();
 }
@@ -0,0 +1,91 @@
+package patterns.state;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * State Pattern: Registry of shared book state instances.
+ * 
+ * States carry no per-book data, so one instance of each is enough.
+ * Books store only a one-byte state code; this registry maps codes to
+ * state objects and back.
+ */
+public final class k2559671_BookStates {
+    public static final k2559671_BookState AVAILABLE = new k2559671_AvailableState();
+    public static final k2559671_BookState BORROWED = new k2559671_BorrowedState();
+    public static final k2559671_BookState RESERVED = new k2559671_ReservedState();
+
+    public static final byte AVAILABLE_CODE = 0;
+    public static final byte BORROWED_CODE = 1;
+    public static final byte RESERVED_CODE = 2;
+
+    private static final int MAX_STATES = 128;
+    private static final k2559671_BookState[] STATES = new k2559671_BookState[MAX_STATES];
+    private static final Map<String, Byte> CODES = new ConcurrentHashMap<>();
+    private static int stateCount;
+
+    static {
+        register(AVAILABLE);
+        register(BORROWED);
+        register(RESERVED);
+    }
+
+    private k2559671_BookStates() {
+    }
+
+    private static synchronized byte register(k2559671_BookState state) {
+        Byte existing = CODES.get(state.getStateName());
+        if (existing != null) {
+            return existing;
+        }
+        if (stateCount == MAX_STATES) {
+            throw new IllegalStateException("Too many book states registered");
+        }
+        byte code = (byte) stateCount++;
+        STATES[code] = state;
+        CODES.put(state.getStateName(), code);
+        return code;
+    }
+
+    /**
+     * Get the code for a state, registering custom states on first use.
+     * 
+     * @param state Book state
+     * @return One-byte state code
+     */
+    public static byte codeOf(k2559671_BookState state) {
+        Byte code = CODES.get(state.getStateName());
+        return code != null ? code : register(state);
+    }
+
+    /**
+     * Get the code for a state name.
+     * 
+     * @param stateName State name (Available, Borrowed, Reserved)
+     * @return One-byte state code
+     * @throws IllegalArgumentException if no state has that name
+     */
+    public static byte codeOf(String stateName) {
+        Byte code = CODES.get(stateName);
+        if (code == null) {
+            throw new IllegalArgumentException("Unknown book state: " + stateName);
+        }
+        return code;
+    }
+
+    /**
+     * Get the shared state instance for a state name.
+     * 
+     * @throws IllegalArgumentException if no state has that name
+     */
+    public static k2559671_BookState forName(String stateName) {
+        return forCode(codeOf(stateName));
+    }
+
+    /**
+     * Get the shared state instance for a code.
+     */
+    public static k2559671_BookState forCode(byte code) {
+        return STATES[code];
+    }
+}
@@ -9,20 +9,27 @@ import domain.k2559671_Book;
 public class k2559671_BorrowedState implements k2559671_BookState {
     
     @Override
-    public void borrow(k2559671_Book book) {
+    public boolean borrow(k2559671_Book book) {
         System.out.println("⚠ Book '" + book.getTitle() + "' is already borrowed. Cannot borrow again.");
+        return false;
     }
     
     @Override
-    public void returnBook(k2559671_Book book) {
+    public boolean returnBook(k2559671_Book book) {
+        if (!book.compareAndSetState(this, k2559671_BookStates.AVAILABLE)) {
+            return book.returnBook(); // State changed under us: act on the new one
+        }
         System.out.println("✓ Book '" + book.getTitle() + "' has been returned.");
-        book.setState(new k2559671_AvailableState());
+        return true;
     }
     
     @Override
-    public void reserve(k2559671_Book book) {
+    public boolean reserve(k2559671_Book book) {
+        if (!book.compareAndSetState(this, k2559671_BookStates.RESERVED)) {
+            return book.reserve();
+        }
         System.out.println("✓ Book '" + book.getTitle() + "' has been reserved (currently borrowed).");
-        book.setState(new k2559671_ReservedState());
+        return true;
     }
     
     @Override
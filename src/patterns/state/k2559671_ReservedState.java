@@ -4,25 +4,44 @@ import domain.k2559671_Book;
 
 /**
  * State Pattern: Reserved state implementation.
- * Book is reserved and waiting for pickup.
+ * Book is reserved: either still on loan with holds waiting, or back on
+ * the shelf and allocated to one hold (waiting for pickup).
+ * Only the user the book is allocated to can borrow it; while it is on
+ * loan there is no allocation, so no one can.
  */
 public class k2559671_ReservedState implements k2559671_BookState {
-    
+
+    @Override
+    public boolean borrow(k2559671_Book book) {
+        System.out.println("⚠ Book '" + book.getTitle() + "' is reserved. Only the reserver can borrow it.");
+        return false;
+    }
+
     @Override
-    public void borrow(k2559671_Book book) {
-        System.out.println("✓ Reserved book '" + book.getTitle() + "' has been borrowed by the reserver.");
-        book.setState(new k2559671_BorrowedState());
+    public boolean borrow(k2559671_Book book, String userId) {
+        if (book.pickUp(userId)) {
+            System.out.println("✓ Reserved book '" + book.getTitle() + "' has been borrowed by the reserver.");
+            return true;
+        }
+        if (book.getState() != this) {
+            return book.borrow(userId); // State changed under us: act on the new one
+        }
+        return borrow(book);
     }
     
     @Override
-    public void returnBook(k2559671_Book book) {
+    public boolean returnBook(k2559671_Book book) {
+        if (!book.compareAndSetState(this, k2559671_BookStates.AVAILABLE)) {
+            return book.returnBook();
+        }
         System.out.println("✓ Reservation cancelled. Book '" + book.getTitle() + "' is now available.");
-        book.setState(new k2559671_AvailableState());
+        return true;
     }
     
     @Override
-    public void reserve(k2559671_Book book) {
+    public boolean reserve(k2559671_Book book) {
         System.out.println("⚠ Book '" + book.getTitle() + "' is already reserved.");
+        return false;
     }
     
     @Override
@@ -0,0 +1,59 @@
+package patterns.strategy;
+
+/**
+ * Strategy Pattern: Registry of the built-in fine strategies.
+ * 
+ * The strategies carry no per-user data, so one shared instance of each is
+ * enough. Snapshots and the journal store a user's strategy as a one-byte
+ * code; this registry maps strategies to codes and back.
+ */
+public final class k2559671_FineStrategies {
+    public static final k2559671_FineStrategy STUDENT = new k2559671_StudentFineStrategy();
+    public static final k2559671_FineStrategy FACULTY = new k2559671_FacultyFineStrategy();
+    public static final k2559671_FineStrategy GUEST = new k2559671_GuestFineStrategy();
+
+    /** No strategy: the user's membership rate applies. */
+    public static final byte NONE_CODE = 0;
+    public static final byte STUDENT_CODE = 1;
+    public static final byte FACULTY_CODE = 2;
+    public static final byte GUEST_CODE = 3;
+
+    private k2559671_FineStrategies() {
+    }
+
+    /**
+     * Get the code for a strategy.
+     * 
+     * @param strategy Fine strategy, or null for the membership default
+     * @return One-byte strategy code
+     * @throws IllegalArgumentException if the strategy is not a built-in one
+     */
+    public static byte codeOf(k2559671_FineStrategy strategy) {
+        if (strategy == null) {
+            return NONE_CODE;
+        } else if (strategy instanceof k2559671_StudentFineStrategy) {
+            return STUDENT_CODE;
+        } else if (strategy instanceof k2559671_FacultyFineStrategy) {
+            return FACULTY_CODE;
+        } else if (strategy instanceof k2559671_GuestFineStrategy) {
+            return GUEST_CODE;
+        }
+        throw new IllegalArgumentException("Unknown fine strategy: " + strategy.getClass().getName());
+    }
+
+    /**
+     * Get the shared strategy instance for a code.
+     * 
+     * @return Fine strategy, or null for NONE_CODE
+     * @throws IllegalArgumentException if no strategy has that code
+     */
+    public static k2559671_FineStrategy forCode(byte code) {
+        return switch (code) {
+            case NONE_CODE -> null;
+            case STUDENT_CODE -> STUDENT;
+            case FACULTY_CODE -> FACULTY;
+            case GUEST_CODE -> GUEST;
+            default -> throw new IllegalArgumentException("Unknown fine strategy code: " + code);
+        };
+    }
+}
@@ -0,0 +1,135 @@
+package system;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import domain.k2559671_Book;
+import domain.k2559671_BookStateListener;
+
+/**
+ * AvailabilityIndex keeps live per-state membership sets for the catalog.
+ * 
+ * Data Structures Used:
+ * - ConcurrentHashMap<String, Set<k2559671_Book>>: state name -> books in that state
+ * - ConcurrentHashMap<String, Map<String, LongAdder>>: category -> state -> count
+ * - ConcurrentHashMap<k2559671_Book, String>: book -> state it is indexed under
+ * 
+ * Registered as the k2559671_BookStateListener of every book in the library,
+ * so each State Pattern transition moves the book between sets in O(1).
+ * Updates for one book run inside compute() on its entry and index the
+ * book's state as read there, not the event's arguments, so transitions
+ * that race each other still leave the book in exactly one, current set.
+ * Listing books in a state costs time proportional to the result size, and
+ * per-category counts are answered in O(1).
+ */
+public class k2559671_AvailabilityIndex implements k2559671_BookStateListener {
+    private static final String NO_CATEGORY = "";
+
+    private final Map<String, Set<k2559671_Book>> booksByState;
+    private final Map<String, Map<String, LongAdder>> countsByCategory;
+    private final Map<k2559671_Book, String> indexedState;
+
+    public k2559671_AvailabilityIndex() {
+        this.booksByState = new ConcurrentHashMap<>();
+        this.countsByCategory = new ConcurrentHashMap<>();
+        this.indexedState = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Start tracking a book in its current state.
+     * 
+     * @param book Book to track
+     */
+    public void add(k2559671_Book book) {
+        book.setStateListener(this);
+        indexedState.compute(book, (b, indexed) -> reindex(b, indexed));
+    }
+
+    /**
+     * Stop tracking a book.
+     * 
+     * @param book Book to remove
+     */
+    public void remove(k2559671_Book book) {
+        book.setStateListener(null);
+        indexedState.computeIfPresent(book, (b, indexed) -> {
+            leave(b, indexed);
+            return null;
+        });
+    }
+
+    @Override
+    public void stateChanged(k2559671_Book book, String oldState, String newState) {
+        // Only tracked books: a late event for a removed book must not re-add it
+        indexedState.computeIfPresent(book, (b, indexed) -> reindex(b, indexed));
+    }
+
+    /**
+     * Move a book from the state it is indexed under to its current state.
+     * Called inside compute() on the book's entry.
+     */
+    private String reindex(k2559671_Book book, String indexed) {
+        String current = book.getAvailabilityStatus();
+        if (!current.equals(indexed)) {
+            if (indexed != null) {
+                leave(book, indexed);
+            }
+            enter(book, current);
+        }
+        return current;
+    }
+
+    private void enter(k2559671_Book book, String state) {
+        if (booksByState.computeIfAbsent(state, s -> ConcurrentHashMap.newKeySet()).add(book)) {
+            counter(book.getCategory(), state).increment();
+        }
+    }
+
+    private void leave(k2559671_Book book, String state) {
+        Set<k2559671_Book> members = booksByState.get(state);
+        if (members != null && members.remove(book)) {
+            counter(book.getCategory(), state).decrement();
+        }
+    }
+
+    private LongAdder counter(String category, String state) {
+        return countsByCategory
+                .computeIfAbsent(category == null ? NO_CATEGORY : category, c -> new ConcurrentHashMap<>())
+                .computeIfAbsent(state, s -> new LongAdder());
+    }
+
+    /**
+     * Get the books currently in the given state.
+     * 
+     * @param state State name (Available, Borrowed, Reserved)
+     * @return Books in that state
+     */
+    public List<k2559671_Book> getBooks(String state) {
+        Set<k2559671_Book> members = booksByState.get(state);
+        return members == null ? new ArrayList<>() : new ArrayList<>(members);
+    }
+
+    /**
+     * Count the books currently in the given state.
+     */
+    public int count(String state) {
+        Set<k2559671_Book> members = booksByState.get(state);
+        return members == null ? 0 : members.size();
+    }
+
+    /**
+     * Count the books of one category currently in the given state.
+     */
+    public int count(String category, String state) {
+        Map<String, LongAdder> counts = countsByCategory.get(category == null ? NO_CATEGORY : category);
+        if (counts == null) {
+            return 0;
+        }
+        LongAdder counter = counts.get(state);
+        return counter == null ? 0 : counter.intValue();
+    }
+}
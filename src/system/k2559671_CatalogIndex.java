@@ -0,0 +1,398 @@
+package system;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
+
+import domain.k2559671_Book;
+import domain.k2559671_BookMetadata;
+
+/**
+ * CatalogIndex - In-memory inverted index for full-text catalog search.
+ *
+ * Data Structures Used:
+ * - ConcurrentSkipListMap<String, Map<String, Posting>>: sorted term dictionary,
+ *   term -> (bookId -> posting); sorted so a prefix is one range scan
+ * - ConcurrentHashMap<String, String[]>: bookId -> indexed terms, for removal
+ *
+ * Indexed fields (with ranking weight):
+ * - Title (3.0), Author (2.0), Category (1.5), Metadata tags (1.5), Summary (1.0)
+ *
+ * Query syntax:
+ * - clean code           AND of all terms
+ * - java OR python       OR between groups of terms
+ * - "design patterns"    Phrase (terms must appear next to each other in one field)
+ *
+ * A bare term also matches longer terms it is a prefix of ("prog" finds
+ * "programming"), as the old title/author substring search found partial
+ * words; a book scores by its best-matching term. Phrase terms match exactly.
+ *
+ * Text is tokenized on non-alphanumeric characters and case-folded, both when
+ * indexing and when querying. Results are ranked by a weighted TF-IDF score.
+ * The index is updated incrementally on add/remove, so a search only touches
+ * the posting lists of the query terms instead of every book in the catalog.
+ *
+ * After a bulk load (e.g. a snapshot restore) the index can be built in the
+ * background; searches made before it finishes wait for it.
+ */
+public class k2559671_CatalogIndex {
+    private static final double[] FIELD_WEIGHTS = {3.0, 2.0, 1.5, 1.5, 1.0};
+    private static final int TITLE = 0;
+    private static final int AUTHOR = 1;
+    private static final int CATEGORY = 2;
+    private static final int TAGS = 3;
+    private static final int SUMMARY = 4;
+    private static final int FIELD_SHIFT = 24;
+
+    private final ConcurrentNavigableMap<String, Map<String, Posting>> postings;
+    private final Map<String, String[]> bookTerms;
+    private final Function<String, k2559671_Book> bookLookup;
+    private volatile CompletableFuture<Void> pendingBuild;
+
+    /**
+     * Occurrences of one term in one book.
+     * Positions encode the field in the high bits so phrase matching
+     * never crosses a field boundary.
+     */
+    private static final class Posting {
+        private final int[] positions;
+        private final double weight;
+
+        private Posting(int[] positions, double weight) {
+            this.positions = positions;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * @param bookLookup Resolves book IDs in search results (the library's own map),
+     *        so the index does not hold a second copy of the catalog
+     */
+    public k2559671_CatalogIndex(Function<String, k2559671_Book> bookLookup) {
+        this.postings = new ConcurrentSkipListMap<>();
+        this.bookTerms = new ConcurrentHashMap<>();
+        this.bookLookup = bookLookup;
+    }
+
+    /**
+     * Index a book. Re-indexing a book replaces its previous entries.
+     *
+     * @param book Book to index
+     */
+    public void add(k2559671_Book book) {
+        remove(book.getBookId());
+
+        Map<String, List<Integer>> positions = new HashMap<>();
+        Map<String, Double> weights = new HashMap<>();
+        indexField(TITLE, book.getTitle(), positions, weights);
+        indexField(AUTHOR, book.getAuthor(), positions, weights);
+        indexField(CATEGORY, book.getCategory(), positions, weights);
+
+        k2559671_BookMetadata metadata = book.getMetadata();
+        if (metadata != null) {
+            // Join tags with a separator token gap so phrases cannot span two tags
+            indexField(TAGS, String.join(" | ", metadata.getTags()), positions, weights);
+            indexField(SUMMARY, metadata.getSummary(), positions, weights);
+        }
+
+        String bookId = book.getBookId();
+        String[] terms = new String[positions.size()];
+        int next = 0;
+        for (Map.Entry<String, List<Integer>> entry : positions.entrySet()) {
+            String term = entry.getKey();
+            List<Integer> list = entry.getValue();
+            int[] termPositions = new int[list.size()];
+            for (int i = 0; i < termPositions.length; i++) {
+                termPositions[i] = list.get(i);
+            }
+            Posting posting = new Posting(termPositions, weights.get(term));
+            // Inside compute so a concurrent remove cannot drop the list between lookup and put
+            postings.compute(term, (t, existing) -> {
+                Map<String, Posting> updated = existing != null ? existing : new ConcurrentHashMap<>();
+                updated.put(bookId, posting);
+                return updated;
+            });
+            terms[next++] = term;
+        }
+        bookTerms.put(bookId, terms);
+    }
+
+    /**
+     * Index a batch of books on a background thread.
+     * Books removed from the library before their turn are skipped.
+     *
+     * @param books Books to index
+     */
+    public void addAllInBackground(List<k2559671_Book> books) {
+        pendingBuild = CompletableFuture.runAsync(() -> {
+            for (k2559671_Book book : books) {
+                if (bookLookup.apply(book.getBookId()) == book) {
+                    add(book);
+                }
+            }
+        });
+    }
+
+    /**
+     * Remove a book and all of its postings.
+     *
+     * @param bookId ID of the book to remove
+     */
+    public void remove(String bookId) {
+        String[] terms = bookTerms.remove(bookId);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms) {
+            postings.computeIfPresent(term, (t, list) -> {
+                list.remove(bookId);
+                return list.isEmpty() ? null : list;
+            });
+        }
+    }
+
+    private void indexField(int field, String text, Map<String, List<Integer>> positions,
+            Map<String, Double> weights) {
+        if (text == null) {
+            return;
+        }
+        int position = 0;
+        for (String token : tokenize(text, true)) {
+            if (!token.isEmpty()) {
+                positions.computeIfAbsent(token, t -> new ArrayList<>()).add((field << FIELD_SHIFT) | position);
+                weights.merge(token, FIELD_WEIGHTS[field], Double::sum);
+            }
+            position++;
+        }
+    }
+
+    /**
+     * Split text into lower-case alphanumeric tokens.
+     *
+     * @param text Text to tokenize
+     * @param keepGaps If true, separators such as '|' produce an empty token
+     *        so they still advance the position counter
+     */
+    private static List<String> tokenize(String text, boolean keepGaps) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                current.append(c);
+            } else {
+                if (current.length() > 0) {
+                    tokens.add(current.toString().toLowerCase(Locale.ROOT));
+                    current.setLength(0);
+                }
+                if (keepGaps && c == '|') {
+                    tokens.add("");
+                }
+            }
+        }
+        if (current.length() > 0) {
+            tokens.add(current.toString().toLowerCase(Locale.ROOT));
+        }
+        return tokens;
+    }
+
+    /**
+     * Search the catalog.
+     *
+     * @param query Query text (terms, OR, and "quoted phrases")
+     * @return Matching books ordered by relevance, best first
+     */
+    public List<k2559671_Book> search(String query) {
+        CompletableFuture<Void> build = pendingBuild;
+        if (build != null) {
+            build.join();
+            pendingBuild = null;
+        }
+
+        Map<String, Double> scores = new HashMap<>();
+        for (List<List<String>> group : parse(query)) {
+            scoreGroup(group, scores);
+        }
+
+        List<Map.Entry<String, Double>> ranked = new ArrayList<>(scores.entrySet());
+        ranked.sort(Map.Entry.<String, Double>comparingByValue().reversed()
+                .thenComparing(Map.Entry.comparingByKey()));
+
+        List<k2559671_Book> results = new ArrayList<>(ranked.size());
+        for (Map.Entry<String, Double> entry : ranked) {
+            k2559671_Book book = bookLookup.apply(entry.getKey());
+            if (book != null) {
+                results.add(book);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Parse a query into OR-groups, each an AND of clauses.
+     * A clause is a single term or a phrase (a list of several terms).
+     */
+    private List<List<List<String>>> parse(String query) {
+        List<List<List<String>>> groups = new ArrayList<>();
+        List<List<String>> group = new ArrayList<>();
+        int i = 0;
+        while (i < query.length()) {
+            char c = query.charAt(i);
+            if (c == '"') {
+                int end = query.indexOf('"', i + 1);
+                if (end < 0) {
+                    end = query.length();
+                }
+                List<String> phrase = tokenize(query.substring(i + 1, end), false);
+                if (!phrase.isEmpty()) {
+                    group.add(phrase);
+                }
+                i = end + 1;
+            } else if (Character.isWhitespace(c)) {
+                i++;
+            } else {
+                int end = i;
+                while (end < query.length() && !Character.isWhitespace(query.charAt(end))
+                        && query.charAt(end) != '"') {
+                    end++;
+                }
+                String word = query.substring(i, end);
+                if (word.equals("OR")) {
+                    if (!group.isEmpty()) {
+                        groups.add(group);
+                    }
+                    group = new ArrayList<>();
+                } else {
+                    for (String term : tokenize(word, false)) {
+                        group.add(Collections.singletonList(term));
+                    }
+                }
+                i = end;
+            }
+        }
+        if (!group.isEmpty()) {
+            groups.add(group);
+        }
+        return groups;
+    }
+
+    /**
+     * Add the scores of all books matching every clause of the group.
+     */
+    private void scoreGroup(List<List<String>> clauses, Map<String, Double> scores) {
+        int totalBooks = Math.max(1, bookTerms.size());
+        Map<String, Double> groupScores = null;
+        for (List<String> clause : clauses) {
+            Map<String, Double> matches = clause.size() > 1
+                    ? phraseMatches(clause, totalBooks)
+                    : prefixMatches(clause.get(0), totalBooks);
+            if (groupScores == null) {
+                groupScores = matches;
+            } else {
+                groupScores.keySet().retainAll(matches.keySet());
+                groupScores.replaceAll((bookId, score) -> score + matches.get(bookId));
+            }
+            if (groupScores.isEmpty()) {
+                return; // A required clause matches nothing
+            }
+        }
+        if (groupScores != null) {
+            groupScores.forEach((bookId, score) -> scores.merge(bookId, score, Double::sum));
+        }
+    }
+
+    /**
+     * Score the books containing a term or any longer term starting with it.
+     * The matching terms are one contiguous range of the sorted dictionary.
+     */
+    private Map<String, Double> prefixMatches(String prefix, int totalBooks) {
+        Map<String, Double> matches = new HashMap<>();
+        for (Map.Entry<String, Map<String, Posting>> entry : postings.tailMap(prefix).entrySet()) {
+            if (!entry.getKey().startsWith(prefix)) {
+                break;
+            }
+            Map<String, Posting> list = entry.getValue();
+            double idf = idf(list, totalBooks);
+            for (Map.Entry<String, Posting> posting : list.entrySet()) {
+                matches.merge(posting.getKey(), termScore(posting.getValue(), idf), Math::max);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Score the books containing a phrase. Candidates come from the shortest
+     * posting list of its terms to keep the phrase checks few.
+     */
+    private Map<String, Double> phraseMatches(List<String> phrase, int totalBooks) {
+        Map<String, Double> matches = new HashMap<>();
+        Map<String, Posting> smallest = null;
+        for (String term : phrase) {
+            Map<String, Posting> list = postings.get(term);
+            if (list == null) {
+                return matches;
+            }
+            if (smallest == null || list.size() < smallest.size()) {
+                smallest = list;
+            }
+        }
+        for (String bookId : smallest.keySet()) {
+            if (!containsPhrase(bookId, phrase)) {
+                continue;
+            }
+            double score = 0.0;
+            for (String term : phrase) {
+                Map<String, Posting> list = postings.get(term);
+                Posting posting = list == null ? null : list.get(bookId);
+                if (posting != null) {
+                    score += termScore(posting, idf(list, totalBooks));
+                }
+            }
+            matches.put(bookId, score);
+        }
+        return matches;
+    }
+
+    private static double idf(Map<String, Posting> list, int totalBooks) {
+        return Math.log(1.0 + (double) totalBooks / Math.max(1, list.size()));
+    }
+
+    private static double termScore(Posting posting, double idf) {
+        return (1.0 + Math.log(posting.weight)) * idf;
+    }
+
+    private boolean containsPhrase(String bookId, List<String> phrase) {
+        int[][] positions = new int[phrase.size()][];
+        for (int i = 0; i < phrase.size(); i++) {
+            Map<String, Posting> list = postings.get(phrase.get(i));
+            Posting posting = list == null ? null : list.get(bookId);
+            if (posting == null) {
+                return false;
+            }
+            positions[i] = posting.positions;
+        }
+        for (int start : positions[0]) {
+            boolean found = true;
+            for (int i = 1; i < positions.length && found; i++) {
+                found = Arrays.binarySearch(positions[i], start + i) >= 0;
+            }
+            if (found) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int getTermCount() {
+        return postings.size();
+    }
+}
@@ -0,0 +1,137 @@
+package system;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+
+import patterns.command.k2559671_CommandSnapshot;
+
+/**
+ * CommandHistory - Bounded undo/redo history of executed commands.
+ *
+ * Data Structures Used:
+ * - ArrayDeque<k2559671_CommandSnapshot> undo stack (newest last) and redo
+ *   stack; entries hold a command type and IDs only, never k2559671_User or
+ *   k2559671_Book references, so old entries do not keep object graphs alive
+ *
+ * The history is bounded by entry count and by an estimate of the memory
+ * its entries use; when either limit is exceeded the oldest undo entries
+ * are dropped. Recording a new command clears the redo stack.
+ *
+ * k2559671_LibrarySystem drives the history (undoLast(), redo()); this class
+ * only keeps the stacks. Each circulation desk or session keeps its own
+ * history (k2559671_LibrarySystem.newCommandHistory()), so undo on one desk
+ * never reaches another desk's commands.
+ */
+public class k2559671_CommandHistory {
+    // Snapshot object header, fields and deque slot
+    private static final int ENTRY_OVERHEAD_BYTES = 48;
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final Deque<k2559671_CommandSnapshot> undo;
+    private final Deque<k2559671_CommandSnapshot> redo;
+    private long bytes;
+
+    /**
+     * @param maxEntries Most undo entries kept
+     * @param maxBytes Most estimated memory used by undo and redo entries together
+     */
+    public k2559671_CommandHistory(int maxEntries, long maxBytes) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.undo = new ArrayDeque<>();
+        this.redo = new ArrayDeque<>();
+    }
+
+    /**
+     * Record a newly executed command. Clears the redo stack.
+     */
+    public synchronized void record(k2559671_CommandSnapshot snapshot) {
+        while (!redo.isEmpty()) {
+            bytes -= sizeOf(redo.pop());
+        }
+        pushUndo(snapshot);
+    }
+
+    /**
+     * Push onto the undo stack without touching the redo stack (used by redo).
+     */
+    synchronized void pushUndo(k2559671_CommandSnapshot snapshot) {
+        undo.addLast(snapshot);
+        bytes += sizeOf(snapshot);
+        while (!undo.isEmpty() && (undo.size() > maxEntries || bytes > maxBytes)) {
+            bytes -= sizeOf(undo.pollFirst());
+        }
+    }
+
+    synchronized k2559671_CommandSnapshot popUndo() {
+        k2559671_CommandSnapshot snapshot = undo.pollLast();
+        if (snapshot != null) {
+            bytes -= sizeOf(snapshot);
+        }
+        return snapshot;
+    }
+
+    synchronized void pushRedo(k2559671_CommandSnapshot snapshot) {
+        redo.push(snapshot);
+        bytes += sizeOf(snapshot);
+    }
+
+    synchronized k2559671_CommandSnapshot popRedo() {
+        k2559671_CommandSnapshot snapshot = redo.poll();
+        if (snapshot != null) {
+            bytes -= sizeOf(snapshot);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Forget the newest undo entry matching a command that was undone
+     * directly (not through the history).
+     *
+     * @return false if no entry matched
+     */
+    public synchronized boolean remove(k2559671_CommandSnapshot snapshot) {
+        Iterator<k2559671_CommandSnapshot> newestFirst = undo.descendingIterator();
+        while (newestFirst.hasNext()) {
+            k2559671_CommandSnapshot entry = newestFirst.next();
+            if (entry.equals(snapshot)) {
+                newestFirst.remove();
+                bytes -= sizeOf(entry);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public synchronized void clear() {
+        undo.clear();
+        redo.clear();
+        bytes = 0;
+    }
+
+    private static long sizeOf(k2559671_CommandSnapshot snapshot) {
+        return ENTRY_OVERHEAD_BYTES + chars(snapshot.getUserId()) + chars(snapshot.getBookId())
+                + chars(snapshot.getReservationId()) + chars(snapshot.getRecordId());
+    }
+
+    private static int chars(String id) {
+        return id == null ? 0 : 2 * id.length();
+    }
+
+    public synchronized int getUndoCount() {
+        return undo.size();
+    }
+
+    public synchronized int getRedoCount() {
+        return redo.size();
+    }
+
+    /**
+     * Estimated memory used by the undo and redo entries, in bytes.
+     */
+    public synchronized long getEstimatedBytes() {
+        return bytes;
+    }
+}
@@ -0,0 +1,203 @@
+package system;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import patterns.command.k2559671_Command;
+
+/**
+ * CommandPipeline - Many producers, one writer thread applying commands.
+ *
+ * Data Structures Used:
+ * - k2559671_RingBuffer<Submission>: pre-sized lock-free queue that desks and
+ *   kiosks publish commands into; a full buffer makes producers wait, so
+ *   memory stays bounded under load
+ * - One writer thread ("library-command-writer") that drains the buffer in
+ *   order and applies each drained batch with
+ *   k2559671_LibrarySystem.processCommands(batch, false)
+ *
+ * Because every command submitted here is applied by the same thread, the
+ * commands never race each other on the domain model; a batch is journaled
+ * with one write and logged together. Each submission gets a
+ * CompletableFuture completed with its k2559671_CommandResult once its batch
+ * has been applied (futures complete on the writer thread, so use the
+ * *Async variants for slow follow-up work). A desk that wants its own undo
+ * passes its k2559671_CommandHistory with each submission.
+ */
+public class k2559671_CommandPipeline implements AutoCloseable {
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final k2559671_LibrarySystem library;
+    private final k2559671_RingBuffer<Submission> buffer;
+    private final int maxBatch;
+    private final Thread writer;
+    private volatile boolean closed;
+
+    private final AtomicLong submitted;
+    private volatile long applied;
+    private volatile long batches;
+
+    private record Submission(k2559671_Command command, k2559671_CommandHistory history,
+            CompletableFuture<k2559671_CommandResult> result) {
+    }
+
+    /**
+     * @param library Library the commands are applied to
+     * @param capacity Ring buffer size (rounded up to a power of two)
+     * @param maxBatch Most commands applied and journaled as one batch
+     */
+    public k2559671_CommandPipeline(k2559671_LibrarySystem library, int capacity, int maxBatch) {
+        this.library = library;
+        this.buffer = new k2559671_RingBuffer<>(capacity);
+        this.maxBatch = Math.max(1, maxBatch);
+        this.submitted = new AtomicLong();
+        this.writer = new Thread(this::runWriter, "library-command-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Publish a command. Waits only while the ring buffer is full.
+     *
+     * @param command Command to apply
+     * @return Future completed with the command's result, or failed with an
+     *         IllegalStateException if the pipeline closed before applying it
+     * @throws IllegalStateException if the pipeline is closed
+     */
+    public CompletableFuture<k2559671_CommandResult> submit(k2559671_Command command) {
+        return submit(command, library.getCommandHistory());
+    }
+
+    /**
+     * Publish a command for a desk; once applied it is recorded in that desk's undo history.
+     *
+     * @param command Command to apply
+     * @param history The desk's history (from k2559671_LibrarySystem.newCommandHistory())
+     * @return Future completed with the command's result, or failed with an
+     *         IllegalStateException if the pipeline closed before applying it
+     * @throws IllegalStateException if the pipeline is closed
+     */
+    public CompletableFuture<k2559671_CommandResult> submit(k2559671_Command command,
+            k2559671_CommandHistory history) {
+        if (closed) {
+            throw new IllegalStateException("Command pipeline is closed");
+        }
+        Submission submission = new Submission(command, history, new CompletableFuture<>());
+        // Counted before it is published, so the writer cannot see submitted == applied
+        // and exit while this submission is on its way into the buffer
+        submitted.incrementAndGet();
+        while (!buffer.offer(submission)) {
+            if (closed && !writer.isAlive()) {
+                return failClosed(submission);
+            }
+            LockSupport.unpark(writer);
+            Thread.yield();
+        }
+        LockSupport.unpark(writer);
+        if (closed) {
+            // close() may have let the writer exit before this submission was counted;
+            // once it has exited, anything it left behind will never be applied
+            if (awaitWriter()) {
+                return failClosed(submission);
+            }
+        }
+        return submission.result();
+    }
+
+    private static CompletableFuture<k2559671_CommandResult> failClosed(Submission submission) {
+        // No-op if the writer applied it after all
+        submission.result().completeExceptionally(new IllegalStateException("Command pipeline is closed"));
+        return submission.result();
+    }
+
+    private boolean awaitWriter() {
+        try {
+            writer.join();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Wait until every command submitted before this call has been applied.
+     */
+    public void flush() {
+        long target = submitted.get();
+        while (applied < target && writer.isAlive()) {
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(100_000L);
+        }
+    }
+
+    /**
+     * Apply what is queued, then stop the writer thread.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        flush();
+        LockSupport.unpark(writer);
+        try {
+            writer.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Writer thread
+
+    private void runWriter() {
+        List<Submission> drained = new ArrayList<>(maxBatch);
+        List<k2559671_Command> commands = new ArrayList<>(maxBatch);
+        List<k2559671_CommandHistory> histories = new ArrayList<>(maxBatch);
+        while (true) {
+            buffer.drain(drained::add, maxBatch);
+            if (drained.isEmpty()) {
+                if (closed && submitted.get() == applied) {
+                    return;
+                }
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+
+            for (Submission submission : drained) {
+                commands.add(submission.command());
+                histories.add(submission.history());
+            }
+            try {
+                List<k2559671_CommandResult> results = library.processCommands(commands, histories, false);
+                for (int i = 0; i < drained.size(); i++) {
+                    drained.get(i).result().complete(results.get(i));
+                }
+            } catch (RuntimeException e) {
+                for (Submission submission : drained) {
+                    submission.result().completeExceptionally(e);
+                }
+            }
+
+            batches++;
+            applied += drained.size();
+            drained.clear();
+            commands.clear();
+            histories.clear();
+        }
+    }
+
+    public long getAppliedCount() {
+        return applied;
+    }
+
+    public long getBatchCount() {
+        return batches;
+    }
+
+    public int getPendingCount() {
+        return buffer.size();
+    }
+}
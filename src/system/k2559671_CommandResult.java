@@ -0,0 +1,59 @@
+package system;
+
+import patterns.command.k2559671_Command;
+
+/**
+ * CommandResult - Outcome of one command in a batch passed to
+ * k2559671_LibrarySystem.processCommands().
+ *
+ * Status values:
+ * - EXECUTED: the command ran and its effects were kept
+ * - FAILED: the command did not execute (e.g. borrow limit reached) or threw
+ * - ROLLED_BACK: the command ran but was undone because a later command in
+ *   an all-or-nothing batch failed
+ * - SKIPPED: not attempted because an earlier command in an all-or-nothing
+ *   batch failed
+ */
+public class k2559671_CommandResult {
+    public enum Status {
+        EXECUTED, FAILED, ROLLED_BACK, SKIPPED
+    }
+
+    private final k2559671_Command command;
+    private Status status;
+    private final String error;
+
+    k2559671_CommandResult(k2559671_Command command, Status status, String error) {
+        this.command = command;
+        this.status = status;
+        this.error = error;
+    }
+
+    void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public k2559671_Command getCommand() {
+        return command;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isSuccess() {
+        return status == Status.EXECUTED;
+    }
+
+    /**
+     * Why the command failed, or null if it did not fail.
+     */
+    public String getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return command.getDescription() + " -> " + status + (error != null ? " (" + error + ")" : "");
+    }
+}
@@ -0,0 +1,148 @@
+package system;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+
+import domain.k2559671_Book;
+import domain.k2559671_BorrowRecord;
+import domain.k2559671_LibraryClock;
+import domain.k2559671_User;
+
+/**
+ * DueDateScheduler - Open loans indexed by due date, with timed reminders.
+ *
+ * Data Structures Used:
+ * - ConcurrentSkipListSet<k2559671_BorrowRecord>: open loans ordered by due
+ *   date, so "overdue now" is a head set and "due in the next N days" a sub
+ *   set; both cost time proportional to the answer, not to all loans
+ * - ConcurrentHashMap<String, Event[]>: the pending events of each open loan,
+ *   cancelled when the loan closes
+ *
+ * Each loan schedules two events on the shared k2559671_TimedEventQueue:
+ * - "due soon" at dueDate - reminderLead, sending sendDueDateReminder()
+ * - "overdue" at dueDate, sending sendOverdueAlert()
+ * Events whose time has already passed when the loan is opened (e.g. old
+ * loans restored from a snapshot) are not scheduled, so a restart does not
+ * re-send old alerts; those loans still show up in the queries.
+ */
+public class k2559671_DueDateScheduler {
+    private static final Comparator<k2559671_BorrowRecord> BY_DUE_DATE = Comparator
+            .comparingLong(k2559671_BorrowRecord::getDueMillis)
+            .thenComparing(k2559671_BorrowRecord::getRecordId);
+
+    private final k2559671_LibrarySystem library;
+    private final k2559671_TimedEventQueue events;
+    private final long reminderLeadMillis;
+    private final NavigableSet<k2559671_BorrowRecord> byDueDate;
+    private final Map<String, k2559671_TimedEventQueue.Event[]> pending;
+
+    /**
+     * @param library Library used to resolve users and books when events fire
+     * @param events Shared event queue
+     * @param reminderLeadDays How many days before the due date to send the reminder
+     */
+    public k2559671_DueDateScheduler(k2559671_LibrarySystem library, k2559671_TimedEventQueue events,
+            int reminderLeadDays) {
+        this.library = library;
+        this.events = events;
+        this.reminderLeadMillis = TimeUnit.DAYS.toMillis(reminderLeadDays);
+        this.byDueDate = new ConcurrentSkipListSet<>(BY_DUE_DATE);
+        this.pending = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Start tracking an open loan and schedule its reminder and overdue events.
+     */
+    public void loanOpened(k2559671_BorrowRecord record) {
+        if (!byDueDate.add(record)) {
+            return;
+        }
+        long now = k2559671_LibraryClock.get().millis();
+        long due = record.getDueMillis();
+        k2559671_TimedEventQueue.Event reminder = due - reminderLeadMillis > now
+                ? events.schedule(due - reminderLeadMillis, () -> fire(record, false))
+                : null;
+        k2559671_TimedEventQueue.Event overdue = due > now
+                ? events.schedule(due, () -> fire(record, true))
+                : null;
+        if (reminder != null || overdue != null) {
+            pending.put(record.getRecordId(), new k2559671_TimedEventQueue.Event[] {reminder, overdue});
+        }
+    }
+
+    /**
+     * Stop tracking a loan (returned or undone) and cancel its pending events.
+     */
+    public void loanClosed(k2559671_BorrowRecord record) {
+        byDueDate.remove(record);
+        k2559671_TimedEventQueue.Event[] scheduled = pending.remove(record.getRecordId());
+        if (scheduled != null) {
+            for (k2559671_TimedEventQueue.Event event : scheduled) {
+                events.cancel(event);
+            }
+        }
+    }
+
+    private void fire(k2559671_BorrowRecord record, boolean overdue) {
+        if (overdue) {
+            pending.remove(record.getRecordId());
+        }
+        if (record.getIsReturned()) {
+            return;
+        }
+        k2559671_User user = library.getUser(record.getUserId());
+        k2559671_Book book = library.getBook(record.getBookId());
+        if (user == null || book == null) {
+            return;
+        }
+        if (overdue) {
+            library.getNotificationManager().sendOverdueAlert(user, book);
+        } else {
+            library.getNotificationManager().sendDueDateReminder(user, book);
+        }
+    }
+
+    /**
+     * Open loans whose due date has passed (by k2559671_LibraryClock), earliest due first.
+     */
+    public List<k2559671_BorrowRecord> getOverdueLoans() {
+        return getOverdueLoans(k2559671_LibraryClock.get().millis());
+    }
+
+    /**
+     * Open loans whose due date is before the given time, earliest due first.
+     *
+     * @param asOfMillis Cut-off time (epoch millis)
+     */
+    public List<k2559671_BorrowRecord> getOverdueLoans(long asOfMillis) {
+        return new ArrayList<>(byDueDate.headSet(probe(asOfMillis), false));
+    }
+
+    /**
+     * Open loans that are not overdue yet but fall due within the next days.
+     *
+     * @param days Look-ahead in days
+     */
+    public List<k2559671_BorrowRecord> getLoansDueWithin(int days) {
+        long now = k2559671_LibraryClock.get().millis();
+        return new ArrayList<>(byDueDate.subSet(probe(now), true,
+                probe(now + TimeUnit.DAYS.toMillis(days)), false));
+    }
+
+    /**
+     * A search key that sorts before every real loan due at the given time.
+     */
+    private static k2559671_BorrowRecord probe(long dueMillis) {
+        return new k2559671_BorrowRecord("", null, null, dueMillis, dueMillis);
+    }
+
+    public int getOpenLoanCount() {
+        return byDueDate.size();
+    }
+}
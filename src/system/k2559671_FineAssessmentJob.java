@@ -0,0 +1,194 @@
+package system;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+import domain.k2559671_BorrowRecord;
+import domain.k2559671_Fine;
+import domain.k2559671_LibraryClock;
+import domain.k2559671_User;
+
+/**
+ * FineAssessmentJob - Nightly batch that brings every overdue loan's fine up to date.
+ *
+ * Data Structures Used:
+ * - List<k2559671_BorrowRecord>: overdue loans taken from
+ *   k2559671_DueDateScheduler in one pass, all measured against the same cut-off
+ * - RecursiveAction on a ForkJoinPool: the list is split in halves until a
+ *   partition is at most LEAF_SIZE loans, and partitions run in parallel
+ * - LongAdder counters shared by the partitions (no contention on one field)
+ *
+ * Each loan's fine is priced by its borrower's k2559671_FineStrategy and kept
+ * in a k2559671_Fine with ID "F-" + recordId, so running the job again is
+ * idempotent: a loan whose fine already has the current amount is left
+ * alone, a new overdue loan gets a fine, and an unpaid fine is re-priced.
+ * Paid fines are never changed. Each partition journals its changes with one
+ * write.
+ */
+public class k2559671_FineAssessmentJob {
+    private static final int LEAF_SIZE = 4096;
+    public static final String FINE_ID_PREFIX = "F-";
+
+    private final k2559671_LibrarySystem library;
+    private final ForkJoinPool pool;
+
+    /**
+     * Counts and throughput of one run.
+     */
+    public record Result(int scanned, long created, long updated, long unchanged, long skipped,
+            long elapsedMillis) {
+
+        public double getLoansPerSecond() {
+            return elapsedMillis == 0 ? scanned * 1000.0 : scanned * 1000.0 / elapsedMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Fine assessment: %d overdue loans, %d created, %d updated, "
+                    + "%d unchanged, %d skipped in %d ms (%.0f loans/s)",
+                    scanned, created, updated, unchanged, skipped, elapsedMillis, getLoansPerSecond());
+        }
+    }
+
+    /**
+     * Run on the common fork/join pool.
+     */
+    public k2559671_FineAssessmentJob(k2559671_LibrarySystem library) {
+        this(library, ForkJoinPool.commonPool());
+    }
+
+    public k2559671_FineAssessmentJob(k2559671_LibrarySystem library, ForkJoinPool pool) {
+        this.library = library;
+        this.pool = pool;
+    }
+
+    /**
+     * Assess every loan overdue now.
+     */
+    public Result run() {
+        return run(k2559671_LibraryClock.get().millis());
+    }
+
+    /**
+     * Assess every loan overdue as of the given time.
+     *
+     * @param asOfMillis Cut-off time (epoch millis) used for every loan
+     */
+    public Result run(long asOfMillis) {
+        long start = System.nanoTime();
+        List<k2559671_BorrowRecord> overdue = library.getDueDates().getOverdueLoans(asOfMillis);
+        Counters counters = new Counters();
+        if (!overdue.isEmpty()) {
+            pool.invoke(new Partition(library, overdue, 0, overdue.size(), asOfMillis, counters));
+        }
+        long elapsed = (System.nanoTime() - start) / 1_000_000L;
+
+        Result result = new Result(overdue.size(), counters.created.sum(), counters.updated.sum(),
+                counters.unchanged.sum(), counters.skipped.sum(), elapsed);
+        library.getLogger().log(result.toString());
+        return result;
+    }
+
+    private static final class Counters {
+        private final LongAdder created = new LongAdder();
+        private final LongAdder updated = new LongAdder();
+        private final LongAdder unchanged = new LongAdder();
+        private final LongAdder skipped = new LongAdder();
+    }
+
+    // Never serialized: a partition only lives for the duration of one run
+    @SuppressWarnings("serial")
+    private static final class Partition extends RecursiveAction {
+        private final k2559671_LibrarySystem library;
+        private final List<k2559671_BorrowRecord> loans;
+        private final int from;
+        private final int to;
+        private final long asOfMillis;
+        private final Counters counters;
+
+        Partition(k2559671_LibrarySystem library, List<k2559671_BorrowRecord> loans, int from, int to,
+                long asOfMillis, Counters counters) {
+            this.library = library;
+            this.loans = loans;
+            this.from = from;
+            this.to = to;
+            this.asOfMillis = asOfMillis;
+            this.counters = counters;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > LEAF_SIZE) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Partition(library, loans, from, mid, asOfMillis, counters),
+                        new Partition(library, loans, mid, to, asOfMillis, counters));
+                return;
+            }
+
+            List<k2559671_Fine> created = new ArrayList<>();
+            List<k2559671_Fine> updated = new ArrayList<>();
+            int unchanged = 0;
+            int skipped = 0;
+            for (int i = from; i < to; i++) {
+                switch (assess(loans.get(i), created, updated)) {
+                    case UNCHANGED -> unchanged++;
+                    case SKIPPED -> skipped++;
+                    default -> {
+                    }
+                }
+            }
+            library.journalFineAssessment(created, updated);
+
+            counters.created.add(created.size());
+            counters.updated.add(updated.size());
+            counters.unchanged.add(unchanged);
+            counters.skipped.add(skipped);
+        }
+
+        private Outcome assess(k2559671_BorrowRecord loan, List<k2559671_Fine> created,
+                List<k2559671_Fine> updated) {
+            k2559671_User user = library.getUser(loan.getUserId());
+            if (user == null || loan.getIsReturned()) {
+                return Outcome.SKIPPED;
+            }
+            double amount = user.calculateFine(loan.getDaysOverdue(asOfMillis));
+            loan.setFineAmount(amount);
+
+            // The fine, not the loan's cached amount, decides whether anything changed:
+            // a loan restored with an amount but no fine still needs its fine created
+            String fineId = FINE_ID_PREFIX + loan.getRecordId();
+            k2559671_Fine fine = library.getFine(fineId);
+            if (fine == null) {
+                if (amount == 0) {
+                    return Outcome.UNCHANGED;
+                }
+                fine = new k2559671_Fine(fineId, loan.getUserId(), loan.getBookId(), amount);
+                if (library.registerFine(fine)) {
+                    created.add(fine);
+                    return Outcome.CREATED;
+                }
+                fine = library.getFine(fineId);
+            }
+            synchronized (fine) {
+                if (fine.isPaid()) {
+                    return Outcome.SKIPPED;
+                }
+                long previous = fine.getAmountMinor();
+                if (previous == k2559671_Fine.toMinorUnits(amount)) {
+                    return Outcome.UNCHANGED;
+                }
+                fine.setAmount(amount);
+                library.getFineLedger().reassessed(fine, previous);
+            }
+            updated.add(fine);
+            return Outcome.UPDATED;
+        }
+    }
+
+    private enum Outcome {
+        CREATED, UPDATED, UNCHANGED, SKIPPED
+    }
+}
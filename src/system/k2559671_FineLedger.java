@@ -0,0 +1,163 @@
+package system;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import domain.k2559671_Fine;
+import domain.k2559671_MembershipType;
+
+/**
+ * FineLedger - Outstanding and paid fine balances, kept as fines change.
+ *
+ * Data Structures Used:
+ * - ConcurrentHashMap<String, Balance>: userId -> that user's balances
+ * - EnumMap<k2559671_MembershipType, Balance>: one balance per membership
+ *   type, filled once in the constructor and only read afterwards
+ * - LongAdder per balance: amounts in minor units (cents), so sums are exact
+ *   integers and concurrent payments do not contend on one counter
+ *
+ * A user's fines are booked against the membership type the user had when
+ * their first fine was recorded, so the per-type totals always add up to the
+ * library totals. The library calls issued(), reassessed() and paid() while
+ * it holds the fine's lock, so each fine moves from outstanding to paid once.
+ */
+public class k2559671_FineLedger {
+    private final Map<String, Balance> byUser;
+    private final Map<k2559671_MembershipType, Balance> byType;
+    private final Balance total;
+
+    /**
+     * Outstanding and paid amounts (minor units) for one user, one type or the library.
+     */
+    public static final class Balance {
+        private final k2559671_MembershipType type;
+        private final LongAdder outstanding = new LongAdder();
+        private final LongAdder paid = new LongAdder();
+        private final LongAdder paidCount = new LongAdder();
+
+        private Balance(k2559671_MembershipType type) {
+            this.type = type;
+        }
+
+        public long getOutstanding() {
+            return outstanding.sum();
+        }
+
+        public long getPaid() {
+            return paid.sum();
+        }
+
+        public long getPaidCount() {
+            return paidCount.sum();
+        }
+    }
+
+    public k2559671_FineLedger() {
+        this.byUser = new ConcurrentHashMap<>();
+        this.byType = new EnumMap<>(k2559671_MembershipType.class);
+        for (k2559671_MembershipType type : k2559671_MembershipType.values()) {
+            byType.put(type, new Balance(type));
+        }
+        this.total = new Balance(null);
+    }
+
+    /**
+     * A fine was recorded (already paid fines go straight to paid).
+     *
+     * @param type Membership type of the fined user, or null if unknown
+     */
+    public void issued(k2559671_Fine fine, k2559671_MembershipType type) {
+        Balance user = byUser.computeIfAbsent(fine.getUserId(), id -> new Balance(type));
+        if (fine.isPaid()) {
+            addPaid(user, fine.getAmountMinor());
+        } else {
+            addOutstanding(user, fine.getAmountMinor());
+        }
+    }
+
+    /**
+     * An unpaid fine's amount changed.
+     */
+    public void reassessed(k2559671_Fine fine, long previousMinor) {
+        Balance user = byUser.get(fine.getUserId());
+        if (user != null) {
+            addOutstanding(user, fine.getAmountMinor() - previousMinor);
+        }
+    }
+
+    /**
+     * An unpaid fine was paid.
+     */
+    public void paid(k2559671_Fine fine) {
+        Balance user = byUser.get(fine.getUserId());
+        if (user != null) {
+            addOutstanding(user, -fine.getAmountMinor());
+            addPaid(user, fine.getAmountMinor());
+        }
+    }
+
+    private void addOutstanding(Balance user, long amountMinor) {
+        user.outstanding.add(amountMinor);
+        total.outstanding.add(amountMinor);
+        if (user.type != null) {
+            byType.get(user.type).outstanding.add(amountMinor);
+        }
+    }
+
+    private void addPaid(Balance user, long amountMinor) {
+        addPaid(user.paid, user.paidCount, amountMinor);
+        addPaid(total.paid, total.paidCount, amountMinor);
+        if (user.type != null) {
+            Balance type = byType.get(user.type);
+            addPaid(type.paid, type.paidCount, amountMinor);
+        }
+    }
+
+    private static void addPaid(LongAdder paid, LongAdder paidCount, long amountMinor) {
+        paid.add(amountMinor);
+        paidCount.increment();
+    }
+
+    /**
+     * What the user still owes, in minor units (O(1)).
+     */
+    public long getOutstanding(String userId) {
+        Balance balance = byUser.get(userId);
+        return balance == null ? 0 : balance.getOutstanding();
+    }
+
+    /**
+     * What the user has paid so far, in minor units (O(1)).
+     */
+    public long getPaid(String userId) {
+        Balance balance = byUser.get(userId);
+        return balance == null ? 0 : balance.getPaid();
+    }
+
+    public Balance getBalance(k2559671_MembershipType type) {
+        return byType.get(type);
+    }
+
+    /**
+     * Balances of every membership type (read-only view).
+     */
+    public Map<k2559671_MembershipType, Balance> getBalancesByType() {
+        return Collections.unmodifiableMap(byType);
+    }
+
+    public Balance getTotal() {
+        return total;
+    }
+
+    /**
+     * Format minor units as rupees, e.g. 12550 -> "125.50".
+     */
+    public static String format(long amountMinor) {
+        String sign = amountMinor < 0 ? "-" : "";
+        long abs = Math.abs(amountMinor);
+        return sign + (abs / 100) + "." + String.format("%02d", abs % 100);
+    }
+}
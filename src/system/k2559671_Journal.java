@@ -0,0 +1,752 @@
+package system;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Date;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import domain.k2559671_Book;
+import domain.k2559671_BookMetadata;
+import domain.k2559671_BorrowRecord;
+import domain.k2559671_Fine;
+import domain.k2559671_LibraryClock;
+import domain.k2559671_MembershipType;
+import domain.k2559671_Reservation;
+import domain.k2559671_User;
+import patterns.command.k2559671_Command;
+import patterns.command.k2559671_CommandSnapshot;
+import patterns.strategy.k2559671_FineStrategies;
+import patterns.strategy.k2559671_FineStrategy;
+
+/**
+ * Journal - Durable, append-only write-ahead log of library mutations.
+ *
+ * Entry format (binary):
+ * - int length, then length bytes of [byte type][payload], then int CRC32
+ * - Strings are an int byte count (-1 for null) followed by UTF-8 bytes
+ *
+ * Group Commit:
+ * - Appends are encoded on the caller's thread into a shared in-memory buffer
+ * - A background flusher writes the buffer and fsyncs it when either
+ *   syncEveryEntries entries are pending or syncIntervalMillis has passed
+ * - With syncEveryEntries = 1 every append is written and fsynced before it returns
+ *
+ * Commands are journaled with the time they took effect and the loan or
+ * hold ID they opened or closed, so replay rebuilds the same records with
+ * the same dates (overdue loans stay overdue). Replay applies entries
+ * silently: notifications already went out when the entries were written.
+ *
+ * On replay, a torn or corrupt tail (e.g. after a crash mid-write) is
+ * detected by its length/CRC and truncated, so new entries follow the last
+ * complete one. Each entry is fully decoded and validated before any of it
+ * is applied; an unknown type or malformed payload ends replay at the last
+ * good entry in the same way, instead of failing with the library half
+ * rebuilt.
+ */
+public class k2559671_Journal implements AutoCloseable {
+    private static final byte ADD_BOOK = 1;
+    private static final byte REMOVE_BOOK = 2;
+    private static final byte ADD_USER = 3;
+    private static final byte REMOVE_USER = 4;
+    private static final byte ADD_BORROW_RECORD = 5;
+    private static final byte ADD_RESERVATION = 6;
+    private static final byte ADD_FINE = 7;
+    private static final byte COMMAND = 8;
+    private static final byte PAY_FINE = 9;
+    private static final byte UNDO_COMMAND = 10;
+    private static final byte FINE_AMOUNT = 11;
+    private static final byte APPLIED_COMMAND = 12;
+    private static final byte ADD_USER_WITH_STRATEGY = 13;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final int syncEveryEntries;
+    private final long syncIntervalMillis;
+
+    private final Object bufferLock = new Object();
+    private final Object writeLock = new Object();
+    private ByteArrayOutputStream pending;
+    private int pendingEntries;
+    private long entriesWritten;
+    private volatile boolean closed;
+    private Thread flusher;
+
+    /**
+     * Open (or create) a journal file.
+     *
+     * @param file Journal file path
+     * @param syncEveryEntries Flush and fsync once this many entries are pending
+     * @param syncIntervalMillis Flush and fsync at least this often
+     * @throws IOException if the file cannot be opened
+     */
+    public k2559671_Journal(Path file, int syncEveryEntries, long syncIntervalMillis) throws IOException {
+        if (syncEveryEntries < 1 || syncIntervalMillis < 1) {
+            throw new IllegalArgumentException("Sync thresholds must be positive");
+        }
+        this.file = file;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        this.syncEveryEntries = syncEveryEntries;
+        this.syncIntervalMillis = syncIntervalMillis;
+        this.pending = new ByteArrayOutputStream(64 * 1024);
+    }
+
+    // Appending
+
+    public void appendAddBook(k2559671_Book book) {
+        EntryWriter entry = new EntryWriter(ADD_BOOK);
+        entry.writeString(book.getBookId());
+        entry.writeString(book.getTitle());
+        entry.writeString(book.getAuthor());
+        entry.writeString(book.getCategory());
+        entry.writeString(book.getISBN());
+        k2559671_BookMetadata metadata = book.getMetadata();
+        entry.writeBoolean(metadata != null);
+        if (metadata != null) {
+            entry.writeString(metadata.getPublisher());
+            entry.writeInt(metadata.getPublicationYear());
+            entry.writeString(metadata.getEdition());
+            entry.writeString(metadata.getSummary());
+            entry.writeString(metadata.getLanguage());
+            entry.writeInt(metadata.getPageCount());
+            entry.writeInt(metadata.getTags().size());
+            for (String tag : metadata.getTags()) {
+                entry.writeString(tag);
+            }
+            entry.writeInt(metadata.getReviews().size());
+            for (String review : metadata.getReviews()) {
+                entry.writeString(review);
+            }
+        }
+        append(entry);
+    }
+
+    public void appendRemoveBook(String bookId) {
+        EntryWriter entry = new EntryWriter(REMOVE_BOOK);
+        entry.writeString(bookId);
+        append(entry);
+    }
+
+    public void appendAddUser(k2559671_User user) {
+        EntryWriter entry = new EntryWriter(ADD_USER_WITH_STRATEGY);
+        entry.writeString(user.getUserId());
+        entry.writeString(user.getName());
+        entry.writeString(user.getEmail());
+        entry.writeString(user.getContactNo());
+        entry.writeInt(user.getMembershipType().ordinal());
+        entry.writeByte(k2559671_FineStrategies.codeOf(user.getFineStrategy()));
+        append(entry);
+    }
+
+    public void appendRemoveUser(String userId) {
+        EntryWriter entry = new EntryWriter(REMOVE_USER);
+        entry.writeString(userId);
+        append(entry);
+    }
+
+    public void appendBorrowRecord(k2559671_BorrowRecord record) {
+        EntryWriter entry = new EntryWriter(ADD_BORROW_RECORD);
+        entry.writeString(record.getRecordId());
+        entry.writeString(record.getUserId());
+        entry.writeString(record.getBookId());
+        entry.writeLong(record.getBorrowMillis());
+        entry.writeLong(record.getDueMillis());
+        append(entry);
+    }
+
+    public void appendReservation(k2559671_Reservation reservation) {
+        EntryWriter entry = new EntryWriter(ADD_RESERVATION);
+        entry.writeString(reservation.getReservationId());
+        entry.writeString(reservation.getUserId());
+        entry.writeString(reservation.getBookId());
+        entry.writeLong(reservation.getReservationMillis());
+        append(entry);
+    }
+
+    public void appendFine(k2559671_Fine fine) {
+        EntryWriter entry = new EntryWriter(ADD_FINE);
+        entry.writeString(fine.getFineId());
+        entry.writeString(fine.getUserId());
+        entry.writeString(fine.getBookId());
+        entry.writeDouble(fine.getAmount());
+        entry.writeLong(fine.getDateIssued().getTime());
+        append(entry);
+    }
+
+    /**
+     * Append fines created and re-assessed by one batch as a single write.
+     * A re-assessed fine is recorded as its ID and new amount.
+     */
+    public void appendFineAssessment(List<k2559671_Fine> created, List<k2559671_Fine> updated) {
+        ByteArrayOutputStream batch = new ByteArrayOutputStream((created.size() + updated.size()) * 64);
+        for (k2559671_Fine fine : created) {
+            EntryWriter entry = new EntryWriter(ADD_FINE);
+            entry.writeString(fine.getFineId());
+            entry.writeString(fine.getUserId());
+            entry.writeString(fine.getBookId());
+            entry.writeDouble(fine.getAmount());
+            entry.writeLong(fine.getDateIssued().getTime());
+            byte[] bytes = entry.toByteArray();
+            batch.write(bytes, 0, bytes.length);
+        }
+        for (k2559671_Fine fine : updated) {
+            EntryWriter entry = new EntryWriter(FINE_AMOUNT);
+            entry.writeString(fine.getFineId());
+            entry.writeDouble(fine.getAmount());
+            byte[] bytes = entry.toByteArray();
+            batch.write(bytes, 0, bytes.length);
+        }
+        int entries = created.size() + updated.size();
+        if (entries > 0) {
+            append(batch.toByteArray(), entries);
+        }
+    }
+
+    /**
+     * Append an executed command with its time and the record it opened or
+     * closed. Commands that cannot be described by a k2559671_CommandSnapshot
+     * are skipped.
+     *
+     * @param applied Executed command
+     */
+    void appendCommand(k2559671_LibrarySystem.Applied applied) {
+        EntryWriter entry = appliedEntry(applied);
+        if (entry != null) {
+            append(entry);
+        }
+    }
+
+    /**
+     * Append the undo of a previously journaled command.
+     *
+     * @param command Undone command
+     */
+    public void appendUndo(k2559671_Command command) {
+        EntryWriter entry = commandEntry(UNDO_COMMAND, command);
+        if (entry != null) {
+            append(entry);
+        }
+    }
+
+    /**
+     * Append a batch of executed commands as one write. With
+     * syncEveryEntries = 1 the whole batch costs a single fsync.
+     */
+    void appendCommands(List<k2559671_LibrarySystem.Applied> commands) {
+        ByteArrayOutputStream batch = new ByteArrayOutputStream(commands.size() * 64);
+        int entries = 0;
+        for (k2559671_LibrarySystem.Applied applied : commands) {
+            EntryWriter entry = appliedEntry(applied);
+            if (entry != null) {
+                byte[] bytes = entry.toByteArray();
+                batch.write(bytes, 0, bytes.length);
+                entries++;
+            }
+        }
+        if (entries > 0) {
+            append(batch.toByteArray(), entries);
+        }
+    }
+
+    private static EntryWriter appliedEntry(k2559671_LibrarySystem.Applied applied) {
+        EntryWriter entry = commandEntry(APPLIED_COMMAND, applied.command());
+        if (entry != null) {
+            entry.writeLong(applied.timeMillis());
+            entry.writeString(applied.recordId());
+        }
+        return entry;
+    }
+
+    private static EntryWriter commandEntry(byte type, k2559671_Command command) {
+        k2559671_CommandSnapshot snapshot = k2559671_CommandSnapshot.of(command);
+        if (snapshot == null) {
+            return null;
+        }
+        EntryWriter entry = new EntryWriter(type);
+        entry.writeByte(snapshot.getType());
+        entry.writeString(snapshot.getUserId());
+        entry.writeString(snapshot.getBookId());
+        entry.writeString(snapshot.getReservationId());
+        return entry;
+    }
+
+    public void appendPayFine(k2559671_Fine fine) {
+        EntryWriter entry = new EntryWriter(PAY_FINE);
+        entry.writeString(fine.getFineId());
+        entry.writeLong(fine.getDatePaid().getTime());
+        append(entry);
+    }
+
+    private void append(EntryWriter entry) {
+        append(entry.toByteArray(), 1);
+    }
+
+    private void append(byte[] bytes, int entries) {
+        boolean syncNow;
+        synchronized (bufferLock) {
+            if (closed) {
+                throw new IllegalStateException("Journal is closed: " + file);
+            }
+            pending.write(bytes, 0, bytes.length);
+            pendingEntries += entries;
+            syncNow = pendingEntries >= syncEveryEntries;
+            if (syncNow && syncEveryEntries > 1) {
+                bufferLock.notifyAll();
+            }
+        }
+        if (syncNow && syncEveryEntries == 1) {
+            flush();
+        }
+    }
+
+    // Group commit
+
+    /**
+     * Start the background flusher. Called once replay has finished.
+     */
+    public synchronized void start() {
+        if (flusher == null) {
+            flusher = new Thread(this::runFlusher, "library-journal-flusher");
+            flusher.setDaemon(true);
+            flusher.start();
+        }
+    }
+
+    private void runFlusher() {
+        while (!closed) {
+            try {
+                synchronized (bufferLock) {
+                    if (!closed && pendingEntries < syncEveryEntries) {
+                        bufferLock.wait(syncIntervalMillis);
+                    }
+                }
+                flush();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (UncheckedIOException e) {
+                System.err.println("⚠ Journal flush failed: " + e.getCause().getMessage());
+            }
+        }
+    }
+
+    /**
+     * Write every pending entry and fsync the file.
+     * Returns once everything appended before the call is durable.
+     */
+    public void flush() {
+        synchronized (writeLock) {
+            byte[] data;
+            int entries;
+            synchronized (bufferLock) {
+                if (pendingEntries == 0) {
+                    return;
+                }
+                data = pending.toByteArray();
+                entries = pendingEntries;
+                pending.reset();
+                pendingEntries = 0;
+            }
+            try {
+                ByteBuffer buffer = ByteBuffer.wrap(data);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer, channel.size());
+                }
+                channel.force(false);
+                entriesWritten += entries;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    public long getEntriesWritten() {
+        synchronized (writeLock) {
+            return entriesWritten;
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Discard every entry, e.g. after a snapshot has captured the same state.
+     */
+    public void truncate() {
+        synchronized (writeLock) {
+            synchronized (bufferLock) {
+                pending.reset();
+                pendingEntries = 0;
+            }
+            try {
+                channel.truncate(0);
+                channel.force(true);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        synchronized (bufferLock) {
+            bufferLock.notifyAll();
+        }
+        Thread current;
+        synchronized (this) {
+            current = flusher;
+        }
+        if (current != null) {
+            try {
+                current.join(syncIntervalMillis * 2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Replay
+
+    /**
+     * Replay every complete, valid entry into the library, then truncate from
+     * the first torn, corrupt or undecodable entry on.
+     * The library must not have this journal attached while replaying.
+     *
+     * @param library Library to rebuild
+     * @return Number of entries replayed
+     * @throws IOException if the file cannot be read
+     */
+    public int replay(k2559671_LibrarySystem library) throws IOException {
+        int replayed = 0;
+        long validLength = 0;
+        // Replayed commands, newest last, so UNDO_COMMAND entries can find their command
+        Deque<k2559671_Command> commands = new ArrayDeque<>();
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file), 64 * 1024)) {
+            DataInputStream data = new DataInputStream(in);
+            while (true) {
+                int length;
+                try {
+                    length = data.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                if (length <= 0 || length > channel.size()) {
+                    break;
+                }
+                byte[] payload = new byte[length];
+                int crc;
+                try {
+                    data.readFully(payload);
+                    crc = data.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                CRC32 check = new CRC32();
+                check.update(payload);
+                if ((int) check.getValue() != crc) {
+                    break;
+                }
+                Replay entry;
+                try {
+                    entry = decode(payload);
+                } catch (IOException e) {
+                    break; // Unknown type or malformed payload: stop here, as for a bad CRC
+                }
+                entry.apply(library, commands);
+                validLength += 8 + length;
+                replayed++;
+            }
+        }
+        if (validLength < channel.size()) {
+            channel.truncate(validLength);
+        }
+        entriesWritten = replayed;
+        return replayed;
+    }
+
+    /**
+     * One decoded entry, ready to apply to the library.
+     */
+    @FunctionalInterface
+    private interface Replay {
+        void apply(k2559671_LibrarySystem library, Deque<k2559671_Command> commands);
+    }
+
+    /**
+     * Decode and validate a whole entry without touching the library.
+     *
+     * @throws IOException if the type is unknown or the payload is malformed
+     */
+    private static Replay decode(byte[] payload) throws IOException {
+        EntryReader entry = new EntryReader(payload);
+        byte type = entry.readByte();
+        Replay replay = switch (type) {
+            case ADD_BOOK -> {
+                k2559671_Book book = new k2559671_Book(entry.readString(), entry.readString(),
+                        entry.readString(), entry.readString(), entry.readString());
+                if (entry.readBoolean()) {
+                    k2559671_BookMetadata metadata = new k2559671_BookMetadata();
+                    metadata.setPublisher(entry.readString());
+                    metadata.setPublicationYear(entry.readInt());
+                    metadata.setEdition(entry.readString());
+                    metadata.setSummary(entry.readString());
+                    metadata.setLanguage(entry.readString());
+                    metadata.setPageCount(entry.readInt());
+                    for (int i = entry.readCount(); i > 0; i--) {
+                        metadata.addTag(entry.readString());
+                    }
+                    for (int i = entry.readCount(); i > 0; i--) {
+                        metadata.addReview(entry.readString());
+                    }
+                    book.setMetadata(metadata);
+                }
+                yield (library, commands) -> library.registerBook(book);
+            }
+            case REMOVE_BOOK -> {
+                String bookId = entry.readString();
+                yield (library, commands) -> library.removeBook(bookId);
+            }
+            case ADD_USER, ADD_USER_WITH_STRATEGY -> {
+                k2559671_User user = new k2559671_User(entry.readString(), entry.readString(),
+                        entry.readString(), entry.readString(), entry.readMembershipType());
+                // Entries written before users carried their strategy use the membership rate
+                if (type == ADD_USER_WITH_STRATEGY) {
+                    user.setFineStrategy(entry.readFineStrategy());
+                }
+                yield (library, commands) -> library.addUser(user);
+            }
+            case REMOVE_USER -> {
+                String userId = entry.readString();
+                yield (library, commands) -> library.removeUser(userId);
+            }
+            case ADD_BORROW_RECORD -> {
+                k2559671_BorrowRecord record = new k2559671_BorrowRecord(entry.readString(),
+                        entry.readString(), entry.readString(), entry.readLong(), entry.readLong());
+                yield (library, commands) -> library.addBorrowRecord(record);
+            }
+            case ADD_RESERVATION -> {
+                k2559671_Reservation reservation = new k2559671_Reservation(entry.readString(),
+                        entry.readString(), entry.readString(), entry.readLong());
+                yield (library, commands) -> library.replayReservation(reservation);
+            }
+            case ADD_FINE -> {
+                k2559671_Fine fine = new k2559671_Fine(entry.readString(), entry.readString(),
+                        entry.readString(), entry.readDouble(), new Date(entry.readLong()));
+                yield (library, commands) -> library.addFine(fine);
+            }
+            case COMMAND, APPLIED_COMMAND -> {
+                k2559671_CommandSnapshot snapshot = new k2559671_CommandSnapshot(entry.readByte(),
+                        entry.readString(), entry.readString(), entry.readString());
+                // Entries written before commands carried their time replay as of now
+                boolean applied = type == APPLIED_COMMAND;
+                long timeMillis = applied ? entry.readLong() : k2559671_LibraryClock.get().millis();
+                String recordId = applied ? entry.readString() : null;
+                yield (library, commands) -> {
+                    k2559671_Command command = snapshot.restore(library);
+                    if (command != null) {
+                        library.replayCommand(command, timeMillis, recordId);
+                        if (command.isExecuted()) {
+                            commands.addLast(command);
+                        }
+                    }
+                };
+            }
+            case UNDO_COMMAND -> {
+                k2559671_CommandSnapshot snapshot = new k2559671_CommandSnapshot(entry.readByte(),
+                        entry.readString(), entry.readString(), entry.readString());
+                yield (library, commands) -> {
+                    Iterator<k2559671_Command> newestFirst = commands.descendingIterator();
+                    while (newestFirst.hasNext()) {
+                        k2559671_Command command = newestFirst.next();
+                        if (command.isExecuted() && snapshot.equals(k2559671_CommandSnapshot.of(command))) {
+                            newestFirst.remove();
+                            library.replayUndo(command);
+                            break;
+                        }
+                    }
+                };
+            }
+            case PAY_FINE -> {
+                String fineId = entry.readString();
+                Date datePaid = new Date(entry.readLong());
+                yield (library, commands) -> library.payFine(fineId, datePaid);
+            }
+            case FINE_AMOUNT -> {
+                String fineId = entry.readString();
+                double amount = entry.readDouble();
+                yield (library, commands) -> library.updateFineAmount(fineId, amount);
+            }
+            default -> throw new IOException("Unknown journal entry type " + type);
+        };
+        entry.expectEnd();
+        return replay;
+    }
+
+    /**
+     * Encodes one entry: [int length][type + payload][int CRC32].
+     */
+    private static final class EntryWriter {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        private final DataOutputStream out = new DataOutputStream(bytes);
+
+        private EntryWriter(byte type) {
+            writeByte(type);
+        }
+
+        private void writeByte(int value) {
+            try {
+                out.writeByte(value);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void writeBoolean(boolean value) {
+            writeByte(value ? 1 : 0);
+        }
+
+        private void writeInt(int value) {
+            try {
+                out.writeInt(value);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void writeLong(long value) {
+            try {
+                out.writeLong(value);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void writeDouble(double value) {
+            try {
+                out.writeDouble(value);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void writeString(String value) {
+            if (value == null) {
+                writeInt(-1);
+                return;
+            }
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            writeInt(utf8.length);
+            bytes.write(utf8, 0, utf8.length);
+        }
+
+        private byte[] toByteArray() {
+            byte[] payload = bytes.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            ByteBuffer entry = ByteBuffer.allocate(payload.length + 8);
+            entry.putInt(payload.length).put(payload).putInt((int) crc.getValue());
+            return entry.array();
+        }
+    }
+
+    /**
+     * Decodes the payload of one entry.
+     */
+    private static final class EntryReader {
+        private final DataInputStream in;
+
+        private EntryReader(byte[] payload) {
+            this.in = new DataInputStream(new ByteArrayInputStream(payload));
+        }
+
+        private byte readByte() throws IOException {
+            return in.readByte();
+        }
+
+        private boolean readBoolean() throws IOException {
+            return in.readByte() != 0;
+        }
+
+        private int readInt() throws IOException {
+            return in.readInt();
+        }
+
+        private long readLong() throws IOException {
+            return in.readLong();
+        }
+
+        private double readDouble() throws IOException {
+            return in.readDouble();
+        }
+
+        private int readCount() throws IOException {
+            int count = in.readInt();
+            if (count < 0 || count > in.available()) {
+                throw new IOException("Bad count " + count);
+            }
+            return count;
+        }
+
+        private k2559671_MembershipType readMembershipType() throws IOException {
+            int ordinal = in.readInt();
+            k2559671_MembershipType[] types = k2559671_MembershipType.values();
+            if (ordinal < 0 || ordinal >= types.length) {
+                throw new IOException("Bad membership type " + ordinal);
+            }
+            return types[ordinal];
+        }
+
+        private k2559671_FineStrategy readFineStrategy() throws IOException {
+            byte code = in.readByte();
+            try {
+                return k2559671_FineStrategies.forCode(code);
+            } catch (IllegalArgumentException e) {
+                throw new IOException(e.getMessage());
+            }
+        }
+
+        private void expectEnd() throws IOException {
+            if (in.available() > 0) {
+                throw new IOException("Trailing bytes in entry");
+            }
+        }
+
+        private String readString() throws IOException {
+            int length = in.readInt();
+            if (length == -1) {
+                return null;
+            }
+            if (length < 0 || length > in.available()) {
+                throw new IOException("Bad string length " + length);
+            }
+            byte[] utf8 = new byte[length];
+            in.readFully(utf8);
+            return new String(utf8, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -1,77 +1,221 @@
 package system;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import domain.k2559671_Book;
 import domain.k2559671_BorrowRecord;
 import domain.k2559671_Fine;
+import domain.k2559671_LibraryClock;
 import domain.k2559671_Reservation;
 import domain.k2559671_User;
 import patterns.builder.k2559671_BookBuilder;
+import patterns.command.k2559671_BorrowCommand;
+import patterns.command.k2559671_CancelReservationCommand;
 import patterns.command.k2559671_Command;
+import patterns.command.k2559671_CommandSnapshot;
+import patterns.command.k2559671_ReserveCommand;
+import patterns.command.k2559671_ReturnCommand;
 import patterns.observer.k2559671_NotificationManager;
+import patterns.state.k2559671_BookStates;
 
 /**
  * LibrarySystem - Main controller class for the Smart Library Management System.
  * 
  * Data Structures Used:
- * - HashMap<String, k2559671_Book>: O(1) lookup for books by ID
- * - HashMap<String, k2559671_User>: O(1) lookup for users by ID
- * - ArrayList: For maintaining order and iteration of records
+ * - ConcurrentHashMap<String, k2559671_Book>: O(1) lookup for books by ID
+ * - ConcurrentHashMap<String, k2559671_User>: O(1) lookup for users by ID
+ * - ConcurrentLinkedQueue: Lock-free, insertion-ordered iteration of books and users
+ * - k2559671_RecordIndex: Borrow records, reservations and fines with O(1)
+ *   lookup by ID plus secondary indexes by user ID and book ID
+ * - k2559671_CatalogIndex: Inverted index for ranked full-text catalog search
+ * - k2559671_AvailabilityIndex: Live per-state book sets, updated on every
+ *   State Pattern transition
+ * - k2559671_ReportAggregates: Active borrowers, borrow counts and
+ *   open loans, updated as commands execute so reports never rescan history
+ * - k2559671_TopKTracker: Most-borrowed rankings (overall, per category and
+ *   sliding window), exact by default or approximate with fixed memory
+ * - k2559671_DueDateScheduler: Open loans ordered by due date; fires due-soon
+ *   reminders and overdue alerts on time through k2559671_TimedEventQueue
+ * - k2559671_ReservationExpiryEngine: Expires reservation holds on the same
+ *   event queue and releases the reserved book
+ * - k2559671_CommandHistory: Bounded undo/redo history of executed commands,
+ *   kept as ID-only snapshots; one per desk or session (the library's own
+ *   history serves callers that do not pass one)
+ * - k2559671_HoldQueue (one per book): Waiting reservations in FIFO order,
+ *   optionally by membership priority; a returned book is allocated to the
+ *   next valid holder straight away
+ * 
+ * Durability:
+ * - When a k2559671_Journal is opened, every add/remove and every executed
+ *   command is appended to it; opening the journal first replays it to
+ *   rebuild the state from the last run
+ * - saveSnapshot()/loadSnapshot() write and memory-map a versioned binary
+ *   snapshot (k2559671_SnapshotStore) for fast restarts; saving a snapshot
+ *   checkpoints the journal
+ * 
+ * Thread Safety:
+ * - All collections are concurrent, so many circulation desks and kiosks
+ *   can share one instance without a global lock
+ * - Lookups never block; adds and removes only contend on the hash bin
+ *   (ConcurrentHashMap) or queue tail (ConcurrentLinkedQueue) they touch
+ * - Commands, undos and redos on one book are applied and journaled under
+ *   that book's lock (striped by book ID), so the journal records them in
+ *   the order they took effect; desks working on different books rarely
+ *   share a stripe
+ * - The class is final: the constructor hands this to the due-date and
+ *   expiry schedulers and the report manager, which is only safe because no
+ *   subclass constructor can still be running when they use it
  * 
  * Manages all books, users, borrow records, reservations, and fines.
  * Integrates all design patterns.
  */
-public class k2559671_LibrarySystem {
-    // HashMap for fast O(1) lookups by ID
+public final class k2559671_LibrarySystem {
+    // Bounds of each undo/redo history
+    private static final int HISTORY_ENTRIES = 100;
+    private static final long HISTORY_BYTES = 64 * 1024;
+    // Per-book command locks, striped by book ID
+    private static final int BOOK_LOCK_STRIPES = 64;
+
+    // ConcurrentHashMap for fast, thread-safe O(1) lookups by ID
     private final Map<String, k2559671_Book> bookMap;
     private final Map<String, k2559671_User> userMap;
     
-    // ArrayList for maintaining collections
-    private final List<k2559671_Book> books;
-    private final List<k2559671_User> users;
-    private final List<k2559671_BorrowRecord> borrowRecords;
-    private final List<k2559671_Reservation> reservations;
-    private final List<k2559671_Fine> fines;
+    // ConcurrentLinkedQueue for lock-free, insertion-ordered collections
+    private final Queue<k2559671_Book> books;
+    private final Queue<k2559671_User> users;
+    
+    // Indexed record stores for O(1) lookup by ID, user and book
+    private final k2559671_RecordIndex<k2559671_BorrowRecord> borrowRecords;
+    private final k2559671_RecordIndex<k2559671_Reservation> reservations;
+    private final k2559671_RecordIndex<k2559671_Fine> fines;
+    
+    // Inverted index over title, author, category and metadata
+    private final k2559671_CatalogIndex catalogIndex;
+    
+    // Books partitioned by availability state
+    private final k2559671_AvailabilityIndex availabilityIndex;
+    
+    // Running report totals and the ID sequences for loans and holds opened by commands
+    private final k2559671_ReportAggregates reportAggregates;
+    private final k2559671_FineLedger fineLedger;
+    private final AtomicLong loanSequence;
+    private final AtomicLong holdSequence;
+    private volatile boolean holdPriorityEnabled;
+    private volatile k2559671_TopKTracker topBorrowed;
+    
+    // Timed events (reminders, overdue alerts) and the due-date index they drive
+    private final k2559671_TimedEventQueue timedEvents;
+    private final k2559671_DueDateScheduler dueDates;
+    private final k2559671_ReservationExpiryEngine reservationExpiry;
     
     private final k2559671_NotificationManager notificationManager;
     private final k2559671_ReportManager reportManager;
     private final k2559671_Logger logger;
+    
+    // Write-ahead journal, null until openJournal() is called
+    private volatile k2559671_Journal journal;
+    
+    // Undo/redo history for this session
+    private final k2559671_CommandHistory commandHistory;
+    
+    // Orders each book's commands and their journal entries
+    private final ReentrantLock[] bookLocks;
 
     public k2559671_LibrarySystem() {
-        // Initialize HashMaps for efficient lookups
-        this.bookMap = new HashMap<>();
-        this.userMap = new HashMap<>();
+        // Initialize ConcurrentHashMaps for efficient lookups
+        this.bookMap = new ConcurrentHashMap<>();
+        this.userMap = new ConcurrentHashMap<>();
+        
+        // Initialize lock-free queues for collections
+        this.books = new ConcurrentLinkedQueue<>();
+        this.users = new ConcurrentLinkedQueue<>();
         
-        // Initialize ArrayLists for collections
-        this.books = new ArrayList<>();
-        this.users = new ArrayList<>();
-        this.borrowRecords = new ArrayList<>();
-        this.reservations = new ArrayList<>();
-        this.fines = new ArrayList<>();
+        // Initialize record indexes keyed by ID, user and book
+        this.borrowRecords = new k2559671_RecordIndex<>(k2559671_BorrowRecord::getRecordId,
+                k2559671_BorrowRecord::getUserId, k2559671_BorrowRecord::getBookId);
+        this.reservations = new k2559671_RecordIndex<>(k2559671_Reservation::getReservationId,
+                k2559671_Reservation::getUserId, k2559671_Reservation::getBookId);
+        this.fines = new k2559671_RecordIndex<>(k2559671_Fine::getFineId,
+                k2559671_Fine::getUserId, k2559671_Fine::getBookId);
+        
+        this.catalogIndex = new k2559671_CatalogIndex(bookMap::get);
+        this.availabilityIndex = new k2559671_AvailabilityIndex();
+        this.reportAggregates = new k2559671_ReportAggregates();
+        this.fineLedger = new k2559671_FineLedger();
+        this.loanSequence = new AtomicLong();
+        this.holdSequence = new AtomicLong();
+        this.holdPriorityEnabled = true;
+        this.topBorrowed = new k2559671_TopKTracker(10, 30, 0);
+        this.timedEvents = new k2559671_TimedEventQueue();
+        this.dueDates = new k2559671_DueDateScheduler(this, timedEvents, 2);
+        this.reservationExpiry = new k2559671_ReservationExpiryEngine(this, timedEvents);
+        this.commandHistory = new k2559671_CommandHistory(HISTORY_ENTRIES, HISTORY_BYTES);
+        this.bookLocks = new ReentrantLock[BOOK_LOCK_STRIPES];
+        for (int i = 0; i < BOOK_LOCK_STRIPES; i++) {
+            bookLocks[i] = new ReentrantLock();
+        }
         
         this.notificationManager = new k2559671_NotificationManager();
         this.logger = new k2559671_Logger();
         this.reportManager = new k2559671_ReportManager(this);
 
-        logger.log("Library System initialized with HashMap for efficient lookups");
+        logger.log("Library System initialized with concurrent collections for multi-desk access");
     }
 
     // Book Management
     /**
      * Add a book to the library system.
-     * Uses HashMap for O(1) access and ArrayList for iteration.
+     * Uses ConcurrentHashMap for O(1) access and a lock-free queue for iteration.
+     * putIfAbsent makes concurrent adds of the same ID resolve to one winner.
      * 
      * @param book Book to add
      */
     public void addBook(k2559671_Book book) {
-        books.add(book);
-        bookMap.put(book.getBookId(), book); // HashMap for fast lookup
+        if (!registerBook(book)) {
+            logger.logError("Book ID already exists: " + book.getBookId());
+            return;
+        }
+        journal(j -> j.appendAddBook(book));
         logger.log("Book added: " + book.getTitle());
+        notificationManager.sendNewBookAlert(book);
+    }
+
+    /**
+     * Store and index a book without journaling or logging.
+     */
+    boolean registerBook(k2559671_Book book) {
+        if (!registerBookWithoutSearch(book)) {
+            return false;
+        }
+        catalogIndex.add(book);
+        return true;
+    }
+
+    /**
+     * Store a book without adding it to the full-text index.
+     * Used by snapshot restore, which builds the search index in the background.
+     */
+    boolean registerBookWithoutSearch(k2559671_Book book) {
+        if (bookMap.putIfAbsent(book.getBookId(), book) != null) {
+            return false;
+        }
+        books.add(book);
+        availabilityIndex.add(book);
+        return true;
     }
 
     /**
@@ -81,42 +225,94 @@ public class k2559671_LibrarySystem {
      * @return true if book was removed, false otherwise
      */
     public boolean removeBook(String bookId) {
-        k2559671_Book book = getBook(bookId);
+        k2559671_Book book = bookMap.remove(bookId); // Atomic remove from map
         if (book != null) {
             books.remove(book);
-            bookMap.remove(bookId); // Remove from HashMap
+            catalogIndex.remove(bookId);
+            availabilityIndex.remove(book);
+            journal(j -> j.appendRemoveBook(bookId));
             logger.log("Book removed: " + bookId);
             return true;
         }
         return false;
     }
 
+    /**
+     * Record an update to a book and re-index it for search,
+     * e.g. after its metadata tags or summary have changed.
+     * 
+     * @param book Book that was updated
+     */
     public void updateBook(k2559671_Book book) {
+        if (bookMap.containsKey(book.getBookId())) {
+            catalogIndex.add(book);
+        }
         logger.log("Book updated: " + book.getTitle());
     }
 
     /**
-     * Get a book by ID using HashMap for O(1) lookup.
-     * This is much faster than O(n) linear search with ArrayList.
+     * Get a book by ID using ConcurrentHashMap for O(1) lookup.
+     * This is much faster than O(n) linear search and never blocks.
      * 
      * @param bookId Book ID to search for
      * @return Book object or null if not found
      */
     public k2559671_Book getBook(String bookId) {
-        return bookMap.get(bookId); // O(1) HashMap lookup instead of O(n) stream
+        return bookMap.get(bookId); // O(1) non-blocking lookup instead of O(n) stream
     }
 
+    /**
+     * Search the catalog using the inverted index.
+     * Supports multi-term AND, OR between terms, and "quoted phrases";
+     * a bare term also matches words it is the start of. Results are ranked
+     * by relevance. A blank query lists every book.
+     * 
+     * @param query Search query
+     * @return Matching books, most relevant first
+     */
     public List<k2559671_Book> searchBook(String query) {
-        return books.stream()
-                .filter(b -> b.getTitle().toLowerCase().contains(query.toLowerCase()) ||
-                        b.getAuthor().toLowerCase().contains(query.toLowerCase()))
-                .collect(Collectors.toList());
+        if (query == null || query.isBlank()) {
+            return getAllBooks();
+        }
+        return catalogIndex.search(query);
     }
 
+    /**
+     * Get the books currently available for borrowing.
+     * Read from the availability index in time proportional to the result.
+     * 
+     * @return Available books
+     */
     public List<k2559671_Book> getAvailableBooks() {
-        return books.stream()
-                .filter(b -> b.getAvailabilityStatus().equals("Available"))
-                .collect(Collectors.toList());
+        return availabilityIndex.getBooks("Available");
+    }
+
+    /**
+     * Get the books currently in a given state.
+     * 
+     * @param state State name (Available, Borrowed, Reserved)
+     * @return Books in that state
+     */
+    public List<k2559671_Book> getBooksByState(String state) {
+        return availabilityIndex.getBooks(state);
+    }
+
+    /**
+     * Count the books in a given state in O(1).
+     */
+    public int countBooksByState(String state) {
+        return availabilityIndex.count(state);
+    }
+
+    /**
+     * Count the books of a category in a given state in O(1).
+     * 
+     * @param category Book category
+     * @param state State name (Available, Borrowed, Reserved)
+     * @return Number of matching books
+     */
+    public int countBooksByState(String category, String state) {
+        return availabilityIndex.count(category, state);
     }
 
     public List<k2559671_Book> getAllBooks() {
@@ -126,17 +322,32 @@ public class k2559671_LibrarySystem {
     // User Management
     /**
      * Add a user to the library system.
-     * Uses HashMap for O(1) access by user ID.
+     * Uses ConcurrentHashMap for O(1) access by user ID.
      * 
      * @param user User to add
      */
     public void addUser(k2559671_User user) {
-        users.add(user);
-        userMap.put(user.getUserId(), user); // HashMap for fast lookup
-        notificationManager.addObserver(user);
+        if (!registerUser(user)) {
+            logger.logError("User ID already exists: " + user.getUserId());
+            return;
+        }
+        journal(j -> j.appendAddUser(user));
         logger.log("User added: " + user.getName());
     }
 
+    /**
+     * Store a user and subscribe it to its own loan and reservation
+     * notifications without journaling or logging.
+     */
+    boolean registerUser(k2559671_User user) {
+        if (userMap.putIfAbsent(user.getUserId(), user) != null) {
+            return false;
+        }
+        users.add(user);
+        notificationManager.subscribe(k2559671_NotificationManager.userTopic(user.getUserId()), user);
+        return true;
+    }
+
     /**
      * Remove a user from the library system.
      * 
@@ -144,11 +355,11 @@ public class k2559671_LibrarySystem {
      * @return true if user was removed, false otherwise
      */
     public boolean removeUser(String userId) {
-        k2559671_User user = getUser(userId);
+        k2559671_User user = userMap.remove(userId); // Atomic remove from map
         if (user != null) {
             users.remove(user);
-            userMap.remove(userId); // Remove from HashMap
             notificationManager.removeObserver(user);
+            journal(j -> j.appendRemoveUser(userId));
             logger.log("User removed: " + userId);
             return true;
         }
@@ -156,13 +367,13 @@ public class k2559671_LibrarySystem {
     }
 
     /**
-     * Get a user by ID using HashMap for O(1) lookup.
+     * Get a user by ID using ConcurrentHashMap for O(1) lookup.
      * 
      * @param userId User ID to search for
      * @return User object or null if not found
      */
     public k2559671_User getUser(String userId) {
-        return userMap.get(userId); // O(1) HashMap lookup
+        return userMap.get(userId); // O(1) non-blocking lookup
     }
 
     public List<k2559671_User> getAllUsers() {
@@ -170,63 +381,1188 @@ public class k2559671_LibrarySystem {
     }
 
     // Command Processing
+    /**
+     * Execute a command. A successful borrow opens a loan record (and
+     * fulfils the borrower's hold on the book), a return closes the user's
+     * open loan and allocates the book to the next holder, and a reserve
+     * puts the user in the book's hold queue.
+     * 
+     * @param command Command to execute
+     */
     public void processCommand(k2559671_Command command) {
-        command.execute();
+        processCommand(command, commandHistory);
+    }
+
+    /**
+     * Execute a command for a desk, recording it in that desk's undo history.
+     * 
+     * @param command Command to execute
+     * @param history The desk's history (from newCommandHistory())
+     */
+    public void processCommand(k2559671_Command command, k2559671_CommandHistory history) {
+        int[] locked = lockBooks(List.of(command));
+        try {
+            Applied applied = applyCommand(command);
+            if (command.isExecuted()) {
+                remember(applied, history);
+                journal(j -> j.appendCommand(applied));
+            }
+        } finally {
+            unlockBooks(locked);
+        }
         logger.logCommand(command);
     }
 
+    /**
+     * Execute a batch of commands with a single journal write.
+     * 
+     * With atomic = true the batch is all-or-nothing: at the first command
+     * that fails (does not execute or throws), the commands already executed
+     * are undone in reverse order, the rest are skipped and nothing is
+     * journaled. Notifications sent along the way are not recalled, and
+     * other threads may see intermediate state while the batch runs.
+     * 
+     * With atomic = false every command is attempted and the executed ones
+     * are kept.
+     * 
+     * @param commands Commands to execute, in order
+     * @param atomic true for all-or-nothing
+     * @return One result per command, in the same order
+     */
+    public List<k2559671_CommandResult> processCommands(List<? extends k2559671_Command> commands, boolean atomic) {
+        return processCommands(commands, atomic, commandHistory);
+    }
+
+    /**
+     * Execute a batch of commands for a desk, recording the executed ones in
+     * that desk's undo history. See processCommands(List, boolean).
+     */
+    public List<k2559671_CommandResult> processCommands(List<? extends k2559671_Command> commands, boolean atomic,
+            k2559671_CommandHistory history) {
+        return processCommands(commands, Collections.nCopies(commands.size(), history), atomic);
+    }
+
+    /**
+     * @param histories Undo history for each command (commands from many desks, e.g. the command pipeline)
+     */
+    List<k2559671_CommandResult> processCommands(List<? extends k2559671_Command> commands,
+            List<k2559671_CommandHistory> histories, boolean atomic) {
+        int[] locked = lockBooks(commands);
+        try {
+            return applyBatch(commands, histories, atomic);
+        } finally {
+            unlockBooks(locked);
+        }
+    }
+
+    private List<k2559671_CommandResult> applyBatch(List<? extends k2559671_Command> commands,
+            List<k2559671_CommandHistory> histories, boolean atomic) {
+        List<k2559671_CommandResult> results = new ArrayList<>(commands.size());
+        List<Applied> executed = new ArrayList<>(commands.size());
+        List<k2559671_CommandHistory> executedHistories = new ArrayList<>(commands.size());
+        boolean failed = false;
+        for (int c = 0; c < commands.size(); c++) {
+            k2559671_Command command = commands.get(c);
+            if (failed && atomic) {
+                results.add(new k2559671_CommandResult(command, k2559671_CommandResult.Status.SKIPPED, null));
+                continue;
+            }
+            String error = null;
+            Applied applied = null;
+            try {
+                applied = applyCommand(command);
+                if (!command.isExecuted()) {
+                    error = "Command was not executed";
+                }
+            } catch (RuntimeException e) {
+                error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            }
+            if (error == null) {
+                executed.add(applied);
+                executedHistories.add(histories.get(c));
+                results.add(new k2559671_CommandResult(command, k2559671_CommandResult.Status.EXECUTED, null));
+            } else {
+                failed = true;
+                results.add(new k2559671_CommandResult(command, k2559671_CommandResult.Status.FAILED, error));
+            }
+        }
+
+        if (failed && atomic) {
+            for (int i = executed.size() - 1; i >= 0; i--) {
+                revertCommand(executed.get(i).command(), true);
+            }
+            for (k2559671_CommandResult result : results) {
+                if (result.getStatus() == k2559671_CommandResult.Status.EXECUTED) {
+                    result.setStatus(k2559671_CommandResult.Status.ROLLED_BACK);
+                }
+            }
+            logger.log("BATCH ROLLED BACK: " + executed.size() + " of " + commands.size()
+                    + " commands undone");
+            return results;
+        }
+
+        journal(j -> j.appendCommands(executed));
+        for (int i = 0; i < executed.size(); i++) {
+            remember(executed.get(i), executedHistories.get(i));
+            logger.logCommand(executed.get(i).command());
+        }
+        logger.log("BATCH EXECUTED: " + executed.size() + " of " + commands.size() + " commands");
+        return results;
+    }
+
+    /**
+     * A command as it was applied: when, and the loan or hold it opened or
+     * closed (null for a cancellation or a command that did not execute).
+     * Journaled with the command so replay rebuilds the same records with
+     * the same dates instead of re-stamping them at replay time.
+     */
+    record Applied(k2559671_Command command, long timeMillis, String recordId) {
+    }
+
+    /**
+     * Execute a command now and do the library bookkeeping that follows it,
+     * without journaling or logging.
+     */
+    private Applied applyCommand(k2559671_Command command) {
+        return applyCommand(command, k2559671_LibraryClock.get().millis(), null, true);
+    }
+
+    /**
+     * @param timeMillis Time the command takes effect (dates of the records it opens or closes)
+     * @param recordId Loan or hold ID to use (replay), or null to pick the next one
+     * @param notify false to apply silently (replay: the notifications went out the first time)
+     */
+    private Applied applyCommand(k2559671_Command command, long timeMillis, String recordId, boolean notify) {
+        command.execute();
+        String affected = null;
+        if (command.isExecuted()) {
+            if (command instanceof k2559671_BorrowCommand borrow) {
+                affected = openLoan(borrow.getUser(), borrow.getBook(), timeMillis, recordId);
+                fulfilHold(borrow.getUser(), borrow.getBook());
+            } else if (command instanceof k2559671_ReturnCommand ret) {
+                affected = closeLoan(ret.getUser().getUserId(), ret.getBook().getBookId(), recordId, timeMillis);
+                if (reportAggregates.getOpenLoanCountForBook(ret.getBook().getBookId()) == 0
+                        && !allocateNextHold(ret.getBook(), timeMillis, notify) && notify) {
+                    notificationManager.sendBookAvailable(ret.getBook());
+                }
+            } else if (command instanceof k2559671_ReserveCommand reserve) {
+                affected = openHold(reserve.getUser(), reserve.getBook(), timeMillis, recordId, notify);
+            } else if (command instanceof k2559671_CancelReservationCommand cancel) {
+                closeHold(cancel.getReservation(), timeMillis, notify);
+            }
+        }
+        return new Applied(command, timeMillis, affected);
+    }
+
+    /**
+     * Re-apply a journaled command with its original time and record ID,
+     * sending no notifications. Used by journal replay only.
+     */
+    void replayCommand(k2559671_Command command, long timeMillis, String recordId) {
+        applyCommand(command, timeMillis, recordId, false);
+    }
+
+    /**
+     * Re-apply a journaled undo, sending no notifications. Used by journal replay only.
+     */
+    void replayUndo(k2559671_Command command) {
+        revertCommand(command, false);
+    }
+
+    /**
+     * Undo an executed command, reversing its loan bookkeeping as well:
+     * an undone borrow removes the loan it opened (a book with holds goes to
+     * the next holder), an undone return reopens the loan it closed.
+     * 
+     * @param command Command previously passed to processCommand
+     * @return false if the command was not executed
+     */
+    public boolean undoCommand(k2559671_Command command) {
+        return undoCommand(command, commandHistory);
+    }
+
+    /**
+     * Undo an executed command processed for a desk; its entry leaves that
+     * desk's history.
+     * 
+     * @param command Command previously passed to processCommand
+     * @param history The desk's history
+     * @return false if the command was not executed
+     */
+    public boolean undoCommand(k2559671_Command command, k2559671_CommandHistory history) {
+        if (!command.isExecuted()) {
+            return false;
+        }
+        k2559671_CommandSnapshot snapshot = k2559671_CommandSnapshot.of(command);
+        if (snapshot != null) {
+            history.remove(snapshot);
+        }
+        int[] locked = lockBooks(List.of(command));
+        try {
+            revertCommand(command, true);
+            journal(j -> j.appendUndo(command));
+        } finally {
+            unlockBooks(locked);
+        }
+        logger.log("UNDO: " + command.getDescription());
+        return true;
+    }
+
+    /**
+     * Undo the most recent commands in this session's history, newest first.
+     * 
+     * @param steps How many commands to undo
+     * @return Number of commands actually undone
+     */
+    public int undoLast(int steps) {
+        return undoLast(commandHistory, steps);
+    }
+
+    /**
+     * Undo the most recent commands in a desk's history, newest first.
+     * Entries whose user, book or reservation no longer exists are dropped,
+     * and so are entries that are no longer the latest change to their loan
+     * or hold (e.g. another desk borrowed the book after this return).
+     * 
+     * @param history The desk's history
+     * @param steps How many commands to undo
+     * @return Number of commands actually undone
+     */
+    public int undoLast(k2559671_CommandHistory history, int steps) {
+        int undone = 0;
+        while (undone < steps) {
+            k2559671_CommandSnapshot snapshot = history.popUndo();
+            if (snapshot == null) {
+                break;
+            }
+            k2559671_Command command = snapshot.restoreExecuted(this);
+            if (command == null) {
+                continue;
+            }
+            int[] locked = lockBooks(List.of(command));
+            try {
+                if (!isLatestChange(snapshot)) {
+                    logger.log("UNDO skipped, superseded by a later change: " + command.getDescription());
+                    continue;
+                }
+                revertCommand(command, true);
+                journal(j -> j.appendUndo(command));
+            } finally {
+                unlockBooks(locked);
+            }
+            logger.log("UNDO: " + command.getDescription());
+            history.pushRedo(snapshot);
+            undone++;
+        }
+        return undone;
+    }
+
+    /**
+     * Whether the loan or hold a history entry opened or closed is still as
+     * that command left it, so reverting the command cannot undo later work.
+     */
+    private boolean isLatestChange(k2559671_CommandSnapshot snapshot) {
+        String recordId = snapshot.getRecordId();
+        if (recordId == null && snapshot.getType() != k2559671_CommandSnapshot.CANCEL_RESERVATION) {
+            return true; // Not recorded: nothing to check against
+        }
+        return switch (snapshot.getType()) {
+            case k2559671_CommandSnapshot.BORROW -> isOpenLoan(borrowRecords.get(recordId));
+            case k2559671_CommandSnapshot.RETURN -> isLastLoanOfBook(borrowRecords.get(recordId));
+            case k2559671_CommandSnapshot.RESERVE -> isOpenHold(reservations.get(recordId));
+            case k2559671_CommandSnapshot.CANCEL_RESERVATION -> {
+                k2559671_Reservation hold = reservations.get(snapshot.getReservationId());
+                yield hold != null && "Cancelled".equals(hold.getStatus());
+            }
+            default -> true;
+        };
+    }
+
+    private static boolean isOpenLoan(k2559671_BorrowRecord loan) {
+        return loan != null && !loan.getIsReturned();
+    }
+
+    /**
+     * A returned loan after which the book has not been borrowed again.
+     */
+    private boolean isLastLoanOfBook(k2559671_BorrowRecord loan) {
+        if (loan == null || !loan.getIsReturned()) {
+            return false;
+        }
+        for (k2559671_BorrowRecord other : borrowRecords.getByBook(loan.getBookId())) {
+            if (other != loan && other.getBorrowMillis() >= loan.getReturnMillis()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isOpenHold(k2559671_Reservation hold) {
+        return hold != null && ("Active".equals(hold.getStatus()) || "Ready".equals(hold.getStatus()));
+    }
+
+    /**
+     * Execute the most recently undone command again.
+     * 
+     * @return false if there is nothing to redo or the command did not execute
+     */
+    public boolean redo() {
+        return redo(commandHistory);
+    }
+
+    /**
+     * Execute the most recently undone command in a desk's history again.
+     * 
+     * @param history The desk's history
+     * @return false if there is nothing to redo or the command did not execute
+     */
+    public boolean redo(k2559671_CommandHistory history) {
+        k2559671_CommandSnapshot snapshot;
+        k2559671_Command command = null;
+        while (command == null) {
+            snapshot = history.popRedo();
+            if (snapshot == null) {
+                return false;
+            }
+            command = snapshot.restore(this);
+        }
+        int[] locked = lockBooks(List.of(command));
+        try {
+            Applied redone = applyCommand(command);
+            if (!command.isExecuted()) {
+                logger.logError("REDO failed: " + command.getDescription());
+                return false;
+            }
+            history.pushUndo(k2559671_CommandSnapshot.of(command, redone.recordId()));
+            journal(j -> j.appendCommand(redone));
+        } finally {
+            unlockBooks(locked);
+        }
+        logger.log("REDO: " + command.getDescription());
+        return true;
+    }
+
+    /**
+     * Lock the books the commands change. Stripes are taken in index order,
+     * so batches over overlapping books cannot deadlock.
+     * 
+     * @return Stripes locked, for unlockBooks
+     */
+    private int[] lockBooks(List<? extends k2559671_Command> commands) {
+        boolean[] needed = new boolean[BOOK_LOCK_STRIPES];
+        int count = 0;
+        for (k2559671_Command command : commands) {
+            String bookId = bookIdOf(command);
+            if (bookId != null) {
+                int stripe = Math.floorMod(bookId.hashCode(), BOOK_LOCK_STRIPES);
+                if (!needed[stripe]) {
+                    needed[stripe] = true;
+                    count++;
+                }
+            }
+        }
+        int[] locked = new int[count];
+        int next = 0;
+        for (int stripe = 0; stripe < BOOK_LOCK_STRIPES; stripe++) {
+            if (needed[stripe]) {
+                bookLocks[stripe].lock();
+                locked[next++] = stripe;
+            }
+        }
+        return locked;
+    }
+
+    private void unlockBooks(int[] locked) {
+        for (int i = locked.length - 1; i >= 0; i--) {
+            bookLocks[locked[i]].unlock();
+        }
+    }
+
+    private static String bookIdOf(k2559671_Command command) {
+        if (command instanceof k2559671_BorrowCommand borrow) {
+            return borrow.getBook().getBookId();
+        } else if (command instanceof k2559671_ReturnCommand ret) {
+            return ret.getBook().getBookId();
+        } else if (command instanceof k2559671_ReserveCommand reserve) {
+            return reserve.getBook().getBookId();
+        } else if (command instanceof k2559671_CancelReservationCommand cancel) {
+            return cancel.getReservation().getBookId();
+        }
+        return null;
+    }
+
+    private static void remember(Applied applied, k2559671_CommandHistory history) {
+        k2559671_CommandSnapshot snapshot = k2559671_CommandSnapshot.of(applied.command(), applied.recordId());
+        if (snapshot != null) {
+            history.record(snapshot);
+        }
+    }
+
+    /**
+     * The history used when no desk history is passed (e.g. the console session).
+     */
+    public k2559671_CommandHistory getCommandHistory() {
+        return commandHistory;
+    }
+
+    /**
+     * A new, empty undo/redo history for one circulation desk or session.
+     * Pass it with that desk's commands so its undo only reaches its own work.
+     */
+    public k2559671_CommandHistory newCommandHistory() {
+        return new k2559671_CommandHistory(HISTORY_ENTRIES, HISTORY_BYTES);
+    }
+
+    /**
+     * Undo an executed command and its bookkeeping, without journaling or logging.
+     * 
+     * @param notify false to undo silently (journal replay)
+     */
+    private void revertCommand(k2559671_Command command, boolean notify) {
+        if (command instanceof k2559671_ReturnCommand ret) {
+            // The book goes back on loan: whoever it was allocated to waits again
+            requeueAllocatedHold(ret.getBook());
+        }
+        command.undo();
+        if (command instanceof k2559671_BorrowCommand borrow) {
+            removeLatestLoan(borrow.getUser().getUserId(), borrow.getBook().getBookId());
+            // Back on the shelf, as after a return: the next holder gets it
+            if (reportAggregates.getOpenLoanCountForBook(borrow.getBook().getBookId()) == 0) {
+                releaseHold(borrow.getBook(), k2559671_LibraryClock.get().millis(), notify);
+            }
+        } else if (command instanceof k2559671_ReturnCommand ret) {
+            reopenLatestLoan(ret.getUser().getUserId(), ret.getBook().getBookId());
+        } else if (command instanceof k2559671_ReserveCommand reserve) {
+            cancelLatestHold(reserve.getUser().getUserId(), reserve.getBook(), notify);
+        } else if (command instanceof k2559671_CancelReservationCommand cancel) {
+            restoreHold(cancel.getReservation(), notify);
+        }
+    }
+
+    /**
+     * @return ID of the opened loan
+     */
+    private String openLoan(k2559671_User user, k2559671_Book book, long borrowMillis, String replayedId) {
+        String recordId = nextRecordId(replayedId, "L", loanSequence, borrowRecords);
+        long dueMillis = borrowMillis + TimeUnit.DAYS.toMillis(user.getMembershipType().getLoanPeriodDays());
+        k2559671_BorrowRecord record = new k2559671_BorrowRecord(recordId, user.getUserId(),
+                book.getBookId(), borrowMillis, dueMillis);
+        // Not journaled separately: the borrow command is journaled with this ID and time
+        if (registerBorrowRecord(record, user)) {
+            logger.log("Borrow record created: " + recordId);
+        }
+        return recordId;
+    }
+
+    /**
+     * The journaled ID when replaying (keeping the sequence ahead of it),
+     * otherwise the next unused ID from the sequence.
+     */
+    private static String nextRecordId(String replayedId, String prefix, AtomicLong sequence,
+            k2559671_RecordIndex<?> index) {
+        if (replayedId != null && index.get(replayedId) == null) {
+            if (replayedId.startsWith(prefix)) {
+                try {
+                    long number = Long.parseLong(replayedId.substring(prefix.length()));
+                    sequence.accumulateAndGet(number, Math::max);
+                } catch (NumberFormatException e) {
+                    // Not a sequence-issued ID, nothing to keep ahead of
+                }
+            }
+            return replayedId;
+        }
+        String id;
+        do {
+            id = prefix + sequence.incrementAndGet();
+        } while (index.get(id) != null);
+        return id;
+    }
+
+    /**
+     * Last loan number issued, saved with snapshots.
+     */
+    long getLoanSequence() {
+        return loanSequence.get();
+    }
+
+    /**
+     * Last hold number issued, saved with snapshots.
+     */
+    long getHoldSequence() {
+        return holdSequence.get();
+    }
+
+    /**
+     * Continue numbering after a snapshot's loans and holds, so the first new
+     * ID does not have to probe past every restored one.
+     */
+    void restoreSequences(long loans, long holds) {
+        loanSequence.accumulateAndGet(loans, Math::max);
+        holdSequence.accumulateAndGet(holds, Math::max);
+    }
+
+    /**
+     * Close the given open loan, or the user's oldest open loan of the book.
+     * 
+     * @return ID of the closed loan, or null if none was open
+     */
+    private String closeLoan(String userId, String bookId, String recordId, long returnMillis) {
+        k2559671_BorrowRecord oldest = recordId == null ? null : borrowRecords.get(recordId);
+        if (oldest == null || oldest.getIsReturned()) {
+            oldest = null;
+            for (k2559671_BorrowRecord record : getOpenLoansForUser(userId)) {
+                if (record.getBookId().equals(bookId)
+                        && (oldest == null || record.getBorrowMillis() < oldest.getBorrowMillis())) {
+                    oldest = record;
+                }
+            }
+        }
+        if (oldest != null) {
+            oldest.markReturned(returnMillis);
+            k2559671_User user = userMap.get(userId);
+            if (user != null) {
+                user.loanReturned(oldest);
+            }
+            reportAggregates.loanClosed(oldest);
+            dueDates.loanClosed(oldest);
+            logger.log("Borrow record closed: " + oldest.getRecordId());
+            return oldest.getRecordId();
+        }
+        return null;
+    }
+
+    private void removeLatestLoan(String userId, String bookId) {
+        k2559671_BorrowRecord latest = null;
+        for (k2559671_BorrowRecord record : getOpenLoansForUser(userId)) {
+            if (record.getBookId().equals(bookId)
+                    && (latest == null || record.getBorrowMillis() >= latest.getBorrowMillis())) {
+                latest = record;
+            }
+        }
+        if (latest != null && borrowRecords.remove(latest.getRecordId()) != null) {
+            k2559671_User user = userMap.get(userId);
+            if (user != null) {
+                user.removeClaimedLoan(latest);
+            }
+            reportAggregates.recordRemoved(latest);
+            dueDates.loanClosed(latest);
+            trackBorrow(latest, false);
+        }
+    }
+
+    private void reopenLatestLoan(String userId, String bookId) {
+        // Undo is rare, so scanning the user's returned history is acceptable here
+        k2559671_BorrowRecord latest = null;
+        for (k2559671_BorrowRecord record : borrowRecords.getByUser(userId)) {
+            if (record.getIsReturned() && record.getBookId().equals(bookId)
+                    && (latest == null || record.getReturnMillis() >= latest.getReturnMillis())) {
+                latest = record;
+            }
+        }
+        if (latest != null) {
+            latest.reopen();
+            k2559671_User user = userMap.get(userId);
+            if (user != null) {
+                user.loanReopened(latest);
+            }
+            reportAggregates.loanOpened(latest);
+            dueDates.loanOpened(latest);
+        }
+    }
+
+    /**
+     * @return ID of the placed hold
+     */
+    private String openHold(k2559671_User user, k2559671_Book book, long reservationMillis, String replayedId,
+            boolean notify) {
+        String reservationId = nextRecordId(replayedId, "H", holdSequence, reservations);
+        k2559671_Reservation reservation = new k2559671_Reservation(reservationId, user.getUserId(),
+                book.getBookId(), reservationMillis);
+        // Not journaled separately: the reserve command is journaled with this ID and time
+        if (registerReservation(reservation)) {
+            logger.log("Hold placed: " + reservationId + " (position "
+                    + book.getHoldPosition(reservationId) + ")");
+            allocateIfOnShelf(book, reservationMillis, notify);
+        }
+        return reservationId;
+    }
+
+    /**
+     * A cancelled hold leaves the queue; if the book was waiting for it,
+     * the book goes to the next holder.
+     * 
+     * @param closedMillis Time of the cancellation (start of the next holder's pickup window)
+     */
+    private void closeHold(k2559671_Reservation reservation, long closedMillis, boolean notify) {
+        reservationExpiry.reservationClosed(reservation);
+        k2559671_Book book = bookMap.get(reservation.getBookId());
+        if (book != null) {
+            book.removeReservation(reservation);
+            if (book.clearAllocatedReservation(reservation)) {
+                releaseHold(book, closedMillis, notify);
+            }
+        }
+    }
+
+    /**
+     * Undoing a cancellation puts the hold back in the queue (at its old
+     * place when possible). A hold that was already allocated queues again
+     * and gets a fresh pickup window if it is allocated once more.
+     */
+    private void restoreHold(k2559671_Reservation reservation, boolean notify) {
+        k2559671_Book book = bookMap.get(reservation.getBookId());
+        if ("Ready".equals(reservation.getStatus())) {
+            reservation.returnToQueue();
+        }
+        if (book != null && "Active".equals(reservation.getStatus())) {
+            book.addReservation(reservation, holdPriority(reservation.getUserId()));
+            allocateIfOnShelf(book, k2559671_LibraryClock.get().millis(), notify);
+        }
+        reservationExpiry.reservationAdded(reservation);
+    }
+
+    private void cancelLatestHold(String userId, k2559671_Book book, boolean notify) {
+        k2559671_Reservation latest = null;
+        for (k2559671_Reservation reservation : reservations.getByUser(userId)) {
+            String status = reservation.getStatus();
+            if (reservation.getBookId().equals(book.getBookId())
+                    && ("Active".equals(status) || "Ready".equals(status))
+                    && (latest == null || reservation.getReservationMillis() >= latest.getReservationMillis())) {
+                latest = reservation;
+            }
+        }
+        if (latest != null) {
+            latest.cancel();
+            closeHold(latest, k2559671_LibraryClock.get().millis(), notify);
+        }
+    }
+
+    /**
+     * When a user borrows a book they hold, their hold is fulfilled: either
+     * the book was allocated to them (the pickup already ended the
+     * allocation) or they were still waiting in the queue.
+     */
+    private void fulfilHold(k2559671_User user, k2559671_Book book) {
+        // A user's own reservations are few, so this scan stays cheap
+        for (k2559671_Reservation reservation : reservations.getByUser(user.getUserId())) {
+            if (!reservation.getBookId().equals(book.getBookId())) {
+                continue;
+            }
+            synchronized (reservation) {
+                String status = reservation.getStatus();
+                if (!"Active".equals(status) && !"Ready".equals(status)) {
+                    continue;
+                }
+                reservation.setStatus("Fulfilled");
+            }
+            book.removeReservation(reservation);
+            book.clearAllocatedReservation(reservation);
+            reservationExpiry.reservationClosed(reservation);
+            logger.log("Hold fulfilled: " + reservation.getReservationId());
+        }
+    }
+
+    /**
+     * Take a book's allocation back: the allocated hold returns to its place
+     * in the queue and loses its pickup deadline. The book stays Reserved.
+     */
+    private void requeueAllocatedHold(k2559671_Book book) {
+        k2559671_Reservation allocated = book.getAllocatedReservation();
+        if (allocated == null || !book.clearAllocatedReservation(allocated)) {
+            return;
+        }
+        synchronized (allocated) {
+            if (!"Ready".equals(allocated.getStatus())) {
+                return;
+            }
+            allocated.returnToQueue();
+        }
+        book.addReservation(allocated, holdPriority(allocated.getUserId()));
+        reservationExpiry.reservationAdded(allocated);
+    }
+
+    private void allocateIfOnShelf(k2559671_Book book, long allocatedMillis, boolean notify) {
+        if (book.getAllocatedReservation() == null
+                && reportAggregates.getOpenLoanCountForBook(book.getBookId()) == 0) {
+            allocateNextHold(book, allocatedMillis, notify);
+        }
+    }
+
+    /**
+     * Allocate a book that is back on the shelf to the next valid holder
+     * and tell them it is ready for pickup. The pickup window starts now,
+     * not when the hold was placed. Holds that were cancelled or whose user
+     * has left are skipped.
+     * 
+     * @param book Book to allocate
+     * @param allocatedMillis Time of the allocation (the journaled time on replay)
+     * @param notify false to allocate silently (journal replay)
+     * @return true if a holder was found
+     */
+    private boolean allocateNextHold(k2559671_Book book, long allocatedMillis, boolean notify) {
+        k2559671_Reservation next;
+        while ((next = book.allocateNextReservation()) != null) {
+            k2559671_User user = userMap.get(next.getUserId());
+            boolean ready = false;
+            synchronized (next) {
+                if (user != null && next.isActive()) {
+                    next.markReady(allocatedMillis);
+                    ready = true;
+                }
+            }
+            if (!ready) {
+                book.clearAllocatedReservation(next);
+                continue;
+            }
+            reservationExpiry.reservationAdded(next);
+            // Available -> Reserved, held for pickup (no-op if already reserved)
+            book.compareAndSetState(k2559671_BookStates.AVAILABLE, k2559671_BookStates.RESERVED);
+            if (notify) {
+                notificationManager.sendReservationAlert(user, book);
+            }
+            logger.log("Hold " + next.getReservationId() + " ready for pickup by " + user.getName());
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Pass on a book whose allocated holder cancelled or did not pick it up;
+     * with no one else waiting the book becomes Available again.
+     * 
+     * @param releasedMillis Time the previous holder gave the book up
+     */
+    void releaseHold(k2559671_Book book, long releasedMillis) {
+        releaseHold(book, releasedMillis, true);
+    }
+
+    private void releaseHold(k2559671_Book book, long releasedMillis, boolean notify) {
+        if (!allocateNextHold(book, releasedMillis, notify) && reportAggregates.getOpenLoanCountForBook(book.getBookId()) == 0
+                && book.compareAndSetState(k2559671_BookStates.RESERVED, k2559671_BookStates.AVAILABLE)
+                && notify) {
+            notificationManager.sendBookAvailable(book);
+        }
+    }
+
+    private int holdPriority(String userId) {
+        k2559671_User user = userMap.get(userId);
+        return holdPriorityEnabled && user != null ? user.getMembershipType().getHoldPriority() : 0;
+    }
+
+    /**
+     * Serve holds by membership priority (faculty first) or in plain FIFO
+     * order. Applies to holds placed from now on.
+     * 
+     * @param enabled true for membership priority (the default)
+     */
+    public void setHoldPriorityEnabled(boolean enabled) {
+        this.holdPriorityEnabled = enabled;
+    }
+
     // Borrow Record Management
+    /**
+     * Add a borrow record. Primary, user and book indexes are updated together.
+     * 
+     * @param record Borrow record to add
+     */
     public void addBorrowRecord(k2559671_BorrowRecord record) {
-        borrowRecords.add(record);
+        if (!registerBorrowRecord(record)) {
+            logger.logError("Borrow record ID already exists: " + record.getRecordId());
+            return;
+        }
+        journal(j -> j.appendBorrowRecord(record));
         logger.log("Borrow record created: " + record.getRecordId());
     }
 
+    /**
+     * Index a borrow record, link it to its user and update the report aggregates.
+     */
+    boolean registerBorrowRecord(k2559671_BorrowRecord record) {
+        return registerBorrowRecord(record, null);
+    }
+
+    /**
+     * @param claimedBy Borrower whose executed borrow already holds a loan slot
+     *                  for this record, or null to count the record as a new loan
+     */
+    private boolean registerBorrowRecord(k2559671_BorrowRecord record, k2559671_User claimedBy) {
+        if (!borrowRecords.add(record)) {
+            return false;
+        }
+        if (claimedBy != null) {
+            claimedBy.addClaimedLoan(record);
+        } else {
+            k2559671_User user = userMap.get(record.getUserId());
+            if (user != null) {
+                user.addBorrowRecord(record);
+            }
+        }
+        reportAggregates.recordAdded(record);
+        if (!record.getIsReturned()) {
+            dueDates.loanOpened(record);
+        }
+        trackBorrow(record, true);
+        return true;
+    }
+
+    private void trackBorrow(k2559671_BorrowRecord record, boolean added) {
+        k2559671_Book book = bookMap.get(record.getBookId());
+        String category = book == null ? null : book.getCategory();
+        long time = record.getBorrowMillis();
+        if (added) {
+            topBorrowed.recordBorrow(record.getBookId(), category, time);
+        } else {
+            topBorrowed.removeBorrow(record.getBookId(), category, time);
+        }
+    }
+
+    /**
+     * Get a borrow record by ID using the primary index (O(1)).
+     * 
+     * @param recordId Record ID to look up
+     * @return Borrow record or null if not found
+     */
     public k2559671_BorrowRecord getBorrowRecord(String recordId) {
-        return borrowRecords.stream()
-                .filter(r -> r.getRecordId().equals(recordId))
-                .findFirst()
-                .orElse(null);
+        return borrowRecords.get(recordId);
     }
 
     public List<k2559671_BorrowRecord> getAllBorrowRecords() {
-        return new ArrayList<>(borrowRecords);
+        return borrowRecords.getAll();
+    }
+
+    public List<k2559671_BorrowRecord> getBorrowRecordsForUser(String userId) {
+        return borrowRecords.getByUser(userId);
+    }
+
+    public List<k2559671_BorrowRecord> getBorrowRecordsForBook(String bookId) {
+        return borrowRecords.getByBook(bookId);
+    }
+
+    /**
+     * Get all loans a user has not returned yet.
+     * Reads the user's open-loan set, so returned history is never touched.
+     * 
+     * @param userId User ID
+     * @return Open borrow records for the user
+     */
+    public List<k2559671_BorrowRecord> getOpenLoansForUser(String userId) {
+        k2559671_User user = userMap.get(userId);
+        if (user != null) {
+            return user.getActiveLoans();
+        }
+        return borrowRecords.getByUser(userId).stream()
+                .filter(r -> !r.getIsReturned())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Get all loans of a book that have not been returned yet.
+     * 
+     * @param bookId Book ID
+     * @return Open borrow records for the book
+     */
+    public List<k2559671_BorrowRecord> getOpenLoansForBook(String bookId) {
+        return borrowRecords.getByBook(bookId).stream()
+                .filter(r -> !r.getIsReturned())
+                .collect(Collectors.toList());
     }
 
     // Reservation Management
+    /**
+     * Add a reservation. An active reservation joins the book's hold queue
+     * and, if the book is on the shelf with no one ahead, is allocated at once.
+     * 
+     * @param reservation Reservation to add
+     */
     public void addReservation(k2559671_Reservation reservation) {
-        reservations.add(reservation);
+        if (!registerReservation(reservation)) {
+            logger.logError("Reservation ID already exists: " + reservation.getReservationId());
+            return;
+        }
+        journal(j -> j.appendReservation(reservation));
         logger.log("Reservation created: " + reservation.getReservationId());
+        k2559671_Book book = bookMap.get(reservation.getBookId());
+        if (book != null && "Active".equals(reservation.getStatus())) {
+            allocateIfOnShelf(book, k2559671_LibraryClock.get().millis(), true);
+        }
+    }
+
+    /**
+     * Re-add a journaled reservation without notifying anyone. Used by journal replay only.
+     */
+    void replayReservation(k2559671_Reservation reservation) {
+        if (registerReservation(reservation)) {
+            k2559671_Book book = bookMap.get(reservation.getBookId());
+            if (book != null && "Active".equals(reservation.getStatus())) {
+                allocateIfOnShelf(book, reservation.getReservationMillis(), false);
+            }
+        }
+    }
+
+    /**
+     * Index a reservation and link it to its book: waiting holds join the
+     * hold queue, a "Ready" hold (e.g. from a snapshot) is the book's allocation.
+     */
+    boolean registerReservation(k2559671_Reservation reservation) {
+        if (!reservations.add(reservation)) {
+            return false;
+        }
+        k2559671_Book book = bookMap.get(reservation.getBookId());
+        if (book != null) {
+            if ("Active".equals(reservation.getStatus())) {
+                book.addReservation(reservation, holdPriority(reservation.getUserId()));
+            } else if ("Ready".equals(reservation.getStatus())) {
+                book.setAllocatedReservation(reservation);
+            }
+        }
+        reservationExpiry.reservationAdded(reservation);
+        return true;
     }
 
+    /**
+     * Get a reservation by ID using the primary index (O(1)).
+     */
     public k2559671_Reservation getReservation(String reservationId) {
-        return reservations.stream()
-                .filter(r -> r.getReservationId().equals(reservationId))
-                .findFirst()
-                .orElse(null);
+        return reservations.get(reservationId);
     }
 
     public List<k2559671_Reservation> getAllReservations() {
-        return new ArrayList<>(reservations);
+        return reservations.getAll();
+    }
+
+    public List<k2559671_Reservation> getReservationsForUser(String userId) {
+        return reservations.getByUser(userId);
+    }
+
+    public List<k2559671_Reservation> getReservationsForBook(String bookId) {
+        return reservations.getByBook(bookId);
     }
 
     // Fine Management
     public void addFine(k2559671_Fine fine) {
-        fines.add(fine);
+        if (!registerFine(fine)) {
+            logger.logError("Fine ID already exists: " + fine.getFineId());
+            return;
+        }
+        journal(j -> j.appendFine(fine));
         logger.log("Fine created: " + fine.getFineId() + " - Amount: LKR " + fine.getAmount());
     }
 
+    boolean registerFine(k2559671_Fine fine) {
+        // Held until the ledger has the fine, so a concurrent payFine waits for it
+        synchronized (fine) {
+            if (!fines.add(fine)) {
+                return false;
+            }
+            k2559671_User user = userMap.get(fine.getUserId());
+            fineLedger.issued(fine, user == null ? null : user.getMembershipType());
+            fine.setPaymentListener(this::finePaid);
+        }
+        return true;
+    }
+
+    /**
+     * Record payment of a fine. Paying a registered fine directly with
+     * k2559671_Fine.payFine has the same effect on the ledger and journal.
+     * 
+     * @param fineId ID of the fine to pay
+     * @return false if the fine does not exist or is already paid
+     */
+    public boolean payFine(String fineId) {
+        return payFine(fineId, new Date(k2559671_LibraryClock.get().millis()));
+    }
+
+    boolean payFine(String fineId, Date datePaid) {
+        k2559671_Fine fine = fines.get(fineId);
+        if (fine == null) {
+            logger.logError("Fine not found: " + fineId);
+            return false;
+        }
+        if (!fine.payFine(datePaid)) {
+            logger.logError("Fine already paid: " + fineId);
+            return false;
+        }
+        logger.log("Fine paid: " + fineId + " - Amount: LKR " + fine.getAmount());
+        return true;
+    }
+
+    /**
+     * Payment listener of every registered fine, called under the fine's lock.
+     */
+    private void finePaid(k2559671_Fine fine) {
+        fineLedger.paid(fine);
+        journal(j -> j.appendPayFine(fine));
+    }
+
+    /**
+     * Change the amount of an unpaid fine (journal replay of a re-assessment).
+     */
+    void updateFineAmount(String fineId, double amount) {
+        k2559671_Fine fine = fines.get(fineId);
+        if (fine != null) {
+            synchronized (fine) {
+                if (!fine.isPaid()) {
+                    long previous = fine.getAmountMinor();
+                    fine.setAmount(amount);
+                    fineLedger.reassessed(fine, previous);
+                }
+            }
+        }
+    }
+
+    /**
+     * Journal the fines created and re-assessed by one batch of the fine assessment job.
+     */
+    void journalFineAssessment(List<k2559671_Fine> created, List<k2559671_Fine> updated) {
+        journal(j -> j.appendFineAssessment(created, updated));
+    }
+
+    /**
+     * Assess fines for every overdue loan now (see k2559671_FineAssessmentJob).
+     * 
+     * @return Counts and throughput of the run
+     */
+    public k2559671_FineAssessmentJob.Result assessFines() {
+        return new k2559671_FineAssessmentJob(this).run();
+    }
+
+    /**
+     * Get a fine by ID using the primary index (O(1)).
+     */
     public k2559671_Fine getFine(String fineId) {
-        return fines.stream()
-                .filter(f -> f.getFineId().equals(fineId))
-                .findFirst()
-                .orElse(null);
+        return fines.get(fineId);
     }
 
     public List<k2559671_Fine> getAllFines() {
-        return new ArrayList<>(fines);
+        return fines.getAll();
+    }
+
+    public List<k2559671_Fine> getFinesForUser(String userId) {
+        return fines.getByUser(userId);
+    }
+
+    public List<k2559671_Fine> getFinesForBook(String bookId) {
+        return fines.getByBook(bookId);
+    }
+
+    /**
+     * What a user still owes, in minor units (cents), read from the fine ledger (O(1)).
+     */
+    public long getOutstandingFines(String userId) {
+        return fineLedger.getOutstanding(userId);
+    }
+
+    /**
+     * Get the fines a user still has to pay.
+     * 
+     * @param userId User ID
+     * @return Unpaid fines for the user
+     */
+    public List<k2559671_Fine> getUnpaidFinesForUser(String userId) {
+        return fines.getByUser(userId).stream()
+                .filter(f -> !f.isPaid())
+                .collect(Collectors.toList());
+    }
+
+    // Journal Management
+    /**
+     * Open the write-ahead journal, replaying any existing entries first.
+     * Entries are group-committed: the file is fsynced once syncEveryEntries
+     * entries are pending or every syncIntervalMillis, whichever comes first.
+     * 
+     * @param file Journal file
+     * @param syncEveryEntries Pending entries that trigger an fsync (1 = fsync every entry)
+     * @param syncIntervalMillis Maximum time between fsyncs
+     * @return Number of entries replayed
+     * @throws IOException if the journal cannot be opened or read
+     */
+    public int openJournal(Path file, int syncEveryEntries, long syncIntervalMillis) throws IOException {
+        if (journal != null) {
+            throw new IllegalStateException("Journal already open: " + journal.getFile());
+        }
+        k2559671_Journal opened = new k2559671_Journal(file, syncEveryEntries, syncIntervalMillis);
+        int replayed = opened.replay(this); // Not attached yet, so replay is not re-journaled
+        commandHistory.clear(); // Replayed commands belong to earlier sessions
+        opened.start();
+        this.journal = opened;
+        logger.log("Journal opened: " + file + " (" + replayed + " entries replayed)");
+        return replayed;
+    }
+
+    /**
+     * Flush, fsync and close the journal.
+     */
+    public void closeJournal() {
+        k2559671_Journal current = journal;
+        if (current != null) {
+            journal = null;
+            current.close();
+            logger.log("Journal closed: " + current.getFile());
+        }
+    }
+
+    // Snapshot Management
+    /**
+     * Save a snapshot of the whole library. If a journal is open it is
+     * truncated afterwards, since the snapshot now holds the same state.
+     * Call while no commands are being processed.
+     * 
+     * @param file Snapshot file
+     * @throws IOException if the snapshot cannot be written
+     */
+    public void saveSnapshot(Path file) throws IOException {
+        k2559671_SnapshotStore.save(this, file);
+        k2559671_Journal current = journal;
+        if (current != null) {
+            current.truncate();
+        }
+        logger.log("Snapshot saved: " + file);
+    }
+
+    /**
+     * Load a snapshot into this (empty) library and log a startup-time report.
+     * Lookups are ready when this returns; the full-text search index is
+     * built in the background and the first search waits for it.
+     * Open the journal afterwards to replay changes made since the snapshot.
+     * 
+     * @param file Snapshot file
+     * @return Startup-time report
+     * @throws IOException if the snapshot cannot be read
+     */
+    public k2559671_SnapshotStore.LoadReport loadSnapshot(Path file) throws IOException {
+        if (!bookMap.isEmpty() || !userMap.isEmpty()) {
+            throw new IllegalStateException("Snapshots can only be loaded into an empty library");
+        }
+        k2559671_SnapshotStore.LoadReport report = k2559671_SnapshotStore.load(this, file);
+        catalogIndex.addAllInBackground(getAllBooks());
+        logger.log(report.toString());
+        return report;
+    }
+
+    public k2559671_Journal getJournal() {
+        return journal;
+    }
+
+    private void journal(Consumer<k2559671_Journal> append) {
+        k2559671_Journal current = journal;
+        if (current != null) {
+            append.accept(current);
+        }
     }
 
     // Getters for managers
+    /**
+     * Coalesce each user's alerts into one digest per window (off by default).
+     * 
+     * @param windowMillis Collection window in milliseconds, or 0 to turn digests off
+     */
+    public void setNotificationDigestWindow(long windowMillis) {
+        notificationManager.disableDigest();
+        if (windowMillis > 0) {
+            notificationManager.enableDigest(windowMillis, timedEvents);
+        }
+    }
+
     public k2559671_NotificationManager getNotificationManager() {
         return notificationManager;
     }
@@ -235,6 +1571,63 @@ public class k2559671_LibrarySystem {
         return reportManager;
     }
 
+    public k2559671_ReportAggregates getReportAggregates() {
+        return reportAggregates;
+    }
+
+    public k2559671_FineLedger getFineLedger() {
+        return fineLedger;
+    }
+
+    public k2559671_DueDateScheduler getDueDates() {
+        return dueDates;
+    }
+
+    public k2559671_ReservationExpiryEngine getReservationExpiry() {
+        return reservationExpiry;
+    }
+
+    public k2559671_TimedEventQueue getTimedEvents() {
+        return timedEvents;
+    }
+
+    /**
+     * Fire any reminders, overdue alerts and reservation expiries that are due
+     * now (normally the scheduler thread does this on time) and list the
+     * overdue loans.
+     * 
+     * @return Open loans past their due date, earliest due first
+     */
+    public List<k2559671_BorrowRecord> checkOverdueBooks() {
+        timedEvents.runDue(k2559671_LibraryClock.get().millis());
+        return dueDates.getOverdueLoans();
+    }
+
+    public k2559671_TopKTracker getTopBorrowed() {
+        return topBorrowed;
+    }
+
+    /**
+     * Switch the most-borrowed rankings to approximate (Space-Saving) mode,
+     * which uses a fixed number of counters per ranking. The new tracker is
+     * filled from the existing borrow records; call during setup, before
+     * desks start borrowing.
+     * 
+     * @param capacity Counters per ranking
+     */
+    public void enableApproximateTopK(int capacity) {
+        k2559671_TopKTracker current = topBorrowed;
+        k2559671_TopKTracker approximate = new k2559671_TopKTracker(current.getK(),
+                current.getWindowDays(), capacity);
+        for (k2559671_BorrowRecord record : borrowRecords.getAll()) {
+            k2559671_Book book = bookMap.get(record.getBookId());
+            approximate.recordBorrow(record.getBookId(), book == null ? null : book.getCategory(),
+                    record.getBorrowMillis());
+        }
+        topBorrowed = approximate;
+        logger.log("Most-borrowed rankings switched to approximate mode (" + capacity + " counters)");
+    }
+
     public k2559671_Logger getLogger() {
         return logger;
     }
@@ -1,53 +1,420 @@
 package system;
 
-import java.text.SimpleDateFormat;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 import patterns.command.k2559671_Command;
 
 /**
  * Logger class for logging system activities and commands.
- * Maintains a history of all actions for auditing purposes.
+ * Maintains a history of recent actions for auditing purposes.
+ *
+ * Asynchronous Design:
+ * - log() only records the message and a timestamp in a lock-free ring buffer
+ *   (k2559671_RingBuffer); it never formats, prints or touches the disk
+ * - A background writer thread formats timestamps, echoes to the console and
+ *   appends batches to library_system.log with one NIO write per batch
+ * - The in-memory history keeps only the most recent entries (bounded)
+ * - The idle writer parks until log() wakes it; log() only wakes it for an
+ *   entry that went into an empty buffer, so a burst costs one wakeup
+ * - One JVM shutdown hook per process flushes every logger still open
+ *
+ * When the ring buffer is full the OverflowPolicy decides what happens:
+ * - BLOCK: the caller waits for space (nothing is lost), parking with a
+ *   bounded, growing back-off between tries
+ * - DROP: the message is discarded and counted
+ * - SAMPLE: one message in every sampleRate waits for space, the rest are dropped
+ *
+ * After close() there is no writer thread, so log() writes each message
+ * synchronously on the caller's thread instead of queueing it.
  */
 public class k2559671_Logger {
-    private final List<String> logHistory;
-    private final String logFile;
-    private final SimpleDateFormat dateFormat;
-    
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")
+            .withZone(ZoneId.systemDefault());
+    private static final int DEFAULT_BUFFER_CAPACITY = 8192;
+    private static final int DEFAULT_HISTORY_CAPACITY = 10_000;
+    private static final int BATCH_SIZE = 1024;
+    private static final long MIN_FULL_PARK_NANOS = 1_000L;
+    private static final long MAX_FULL_PARK_NANOS = 1_000_000L;
+
+    public enum OverflowPolicy {
+        BLOCK, DROP, SAMPLE
+    }
+
+    private static final class Entry {
+        private final long timeMillis;
+        private final String message;
+
+        private Entry(long timeMillis, String message) {
+            this.timeMillis = timeMillis;
+            this.message = message;
+        }
+    }
+
+    /**
+     * Loggers with a running writer, flushed by one shared shutdown hook.
+     * The hook is registered when the first writer starts.
+     */
+    private static final class OpenLoggers {
+        private static final Set<k2559671_Logger> OPEN = ConcurrentHashMap.newKeySet();
+
+        static {
+            Runtime.getRuntime().addShutdownHook(new Thread(
+                    () -> OPEN.forEach(k2559671_Logger::flush), "library-logger-shutdown"));
+        }
+    }
+
+    private final k2559671_RingBuffer<Entry> buffer;
+    private final String[] history;
+    private int historyStart;
+    private int historySize;
+    private final Path logFile;
+    private final OverflowPolicy overflowPolicy;
+    private final int sampleRate;
+    private volatile boolean consoleOutput;
+    private volatile boolean fileOutput;
+
+    private final AtomicLong published;
+    private final AtomicLong dropped;
+    private final AtomicLong overflowCount;
+    private volatile long written;
+    private volatile Thread writer;
+    private volatile boolean closed;
+    private FileChannel channel;
+    private long lastSecond = -1;
+    private String lastTimestamp;
+
     public k2559671_Logger() {
-        this.logHistory = new ArrayList<>();
-        this.logFile = "library_system.log";
-        this.dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        this(Paths.get("library_system.log"), DEFAULT_BUFFER_CAPACITY, DEFAULT_HISTORY_CAPACITY,
+                OverflowPolicy.BLOCK, 100);
+    }
+
+    /**
+     * @param logFile File the writer thread appends to
+     * @param bufferCapacity Ring buffer size (rounded up to a power of two)
+     * @param historyCapacity Number of recent entries kept for getHistory()
+     * @param overflowPolicy What log() does when the ring buffer is full
+     * @param sampleRate For SAMPLE, keep one in this many messages while full
+     */
+    public k2559671_Logger(Path logFile, int bufferCapacity, int historyCapacity,
+            OverflowPolicy overflowPolicy, int sampleRate) {
+        this.buffer = new k2559671_RingBuffer<>(bufferCapacity);
+        this.history = new String[historyCapacity];
+        this.logFile = logFile;
+        this.overflowPolicy = overflowPolicy;
+        this.sampleRate = Math.max(1, sampleRate);
+        this.consoleOutput = true;
+        this.fileOutput = true;
+        this.published = new AtomicLong();
+        this.dropped = new AtomicLong();
+        this.overflowCount = new AtomicLong();
     }
-    
+
     public void log(String message) {
-        String timestamp = dateFormat.format(new Date());
-        String logEntry = "[" + timestamp + "] " + message;
-        logHistory.add(logEntry);
-        System.out.println("📝 LOG: " + logEntry);
+        Entry entry = new Entry(System.currentTimeMillis(), message);
+        if (closed) {
+            writeNow(entry);
+            return;
+        }
+        ensureWriter();
+        if (publish(entry)) {
+            drainIfClosed();
+            return;
+        }
+
+        boolean wait = switch (overflowPolicy) {
+            case BLOCK -> true;
+            case DROP -> false;
+            case SAMPLE -> overflowCount.incrementAndGet() % sampleRate == 0;
+        };
+        if (!wait) {
+            dropped.incrementAndGet();
+            return;
+        }
+        long parkNanos = MIN_FULL_PARK_NANOS;
+        while (!publish(entry)) {
+            if (closed) {
+                // No writer will make space any more
+                writeNow(entry);
+                return;
+            }
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(parkNanos);
+            parkNanos = Math.min(parkNanos * 2, MAX_FULL_PARK_NANOS);
+        }
+        drainIfClosed();
+    }
+
+    /**
+     * Offer an entry to the writer, waking it if the buffer was empty.
+     *
+     * @return false if the buffer is full
+     */
+    private boolean publish(Entry entry) {
+        long position = buffer.offerAt(entry);
+        if (position < 0) {
+            return false;
+        }
+        published.incrementAndGet();
+        if (buffer.isOldest(position)) {
+            LockSupport.unpark(writer);
+        }
+        return true;
     }
-    
+
     public void logCommand(k2559671_Command command) {
         log("COMMAND EXECUTED: " + command.getDescription());
     }
-    
+
     public void logError(String error) {
         log("ERROR: " + error);
     }
-    
+
+    /**
+     * Get the most recent log entries, oldest first.
+     * Waits for entries logged before the call to be written.
+     */
     public List<String> getHistory() {
-        return new ArrayList<>(logHistory);
+        flush();
+        synchronized (history) {
+            List<String> entries = new ArrayList<>(historySize);
+            for (int i = 0; i < historySize; i++) {
+                entries.add(history[(historyStart + i) % history.length]);
+            }
+            return entries;
+        }
     }
-    
+
     public void clearLog() {
-        logHistory.clear();
+        flush();
+        synchronized (history) {
+            historyStart = 0;
+            historySize = 0;
+        }
         log("Log cleared");
     }
-    
+
+    /**
+     * Wait for everything logged so far to be written, then fsync the log file.
+     */
     public void saveToFile() {
+        flush();
+        synchronized (this) {
+            try {
+                if (channel != null) {
+                    channel.force(false);
+                }
+            } catch (IOException e) {
+                System.err.println("⚠ Could not sync " + logFile + ": " + e.getMessage());
+            }
+        }
         log("Log saved to " + logFile);
-        // In a real implementation, this would write to an actual file
+    }
+
+    /**
+     * Wait until every entry published before this call has been written.
+     */
+    public void flush() {
+        long target = published.get();
+        while (written < target && writer != null && writer.isAlive()) {
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(100_000L);
+        }
+    }
+
+    /**
+     * Flush pending entries and stop the writer thread.
+     */
+    public void close() {
+        flush();
+        closed = true;
+        Thread current = writer;
+        if (current != null) {
+            LockSupport.unpark(current);
+            try {
+                current.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        OpenLoggers.OPEN.remove(this);
+        synchronized (this) {
+            try {
+                if (channel != null) {
+                    channel.close();
+                    channel = null;
+                }
+            } catch (IOException e) {
+                System.err.println("⚠ Could not close " + logFile + ": " + e.getMessage());
+            }
+        }
+        drainIfClosed();
+    }
+
+    public void setConsoleOutput(boolean consoleOutput) {
+        this.consoleOutput = consoleOutput;
+    }
+
+    public void setFileOutput(boolean fileOutput) {
+        this.fileOutput = fileOutput;
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public int getPendingCount() {
+        return buffer.size();
+    }
+
+    // Writer thread
+
+    private void ensureWriter() {
+        if (writer == null) {
+            synchronized (this) {
+                if (writer == null && !closed) {
+                    Thread thread = new Thread(this::runWriter, "library-logger");
+                    thread.setDaemon(true);
+                    writer = thread;
+                    OpenLoggers.OPEN.add(this);
+                    thread.start();
+                }
+            }
+        }
+    }
+
+    private void runWriter() {
+        StringBuilder batch = new StringBuilder(64 * 1024);
+        List<String> lines = new ArrayList<>(BATCH_SIZE);
+        while (true) {
+            int drained = buffer.drain(entry -> lines.add(format(entry)), BATCH_SIZE);
+            if (drained == 0) {
+                if (closed) {
+                    return;
+                }
+                // Woken by log() for an entry into an empty buffer, or by flush()/close()
+                LockSupport.park(this);
+                continue;
+            }
+
+            for (String line : lines) {
+                batch.append(line).append(System.lineSeparator());
+            }
+            if (consoleOutput) {
+                StringBuilder console = new StringBuilder(batch.length() + lines.size() * 8);
+                for (String line : lines) {
+                    console.append("📝 LOG: ").append(line).append(System.lineSeparator());
+                }
+                System.out.print(console);
+            }
+            if (fileOutput) {
+                writeToFile(batch);
+            }
+            remember(lines);
+
+            written += drained;
+            lines.clear();
+            batch.setLength(0);
+        }
+    }
+
+    /**
+     * Write entries a closing writer left in the buffer (or that were
+     * published as it stopped) on the caller's thread.
+     */
+    private void drainIfClosed() {
+        if (!closed) {
+            return;
+        }
+        Thread current = writer;
+        if (current != null && current.isAlive()) {
+            // The writer empties the buffer before it exits
+            try {
+                current.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        synchronized (this) {
+            buffer.drain(this::writeNow, Integer.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Format, print, append and remember one entry on the caller's thread.
+     */
+    private synchronized void writeNow(Entry entry) {
+        String line = "[" + DATE_FORMAT.format(Instant.ofEpochMilli(entry.timeMillis)) + "] " + entry.message;
+        if (consoleOutput) {
+            System.out.println("📝 LOG: " + line);
+        }
+        if (fileOutput) {
+            try {
+                Files.writeString(logFile, line + System.lineSeparator(), StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            } catch (IOException e) {
+                fileOutput = false;
+                System.err.println("⚠ Logging to " + logFile + " disabled: " + e.getMessage());
+            }
+        }
+        remember(List.of(line));
+    }
+
+    private String format(Entry entry) {
+        long second = entry.timeMillis / 1000;
+        if (second != lastSecond) {
+            lastSecond = second;
+            lastTimestamp = DATE_FORMAT.format(Instant.ofEpochMilli(entry.timeMillis));
+        }
+        return "[" + lastTimestamp + "] " + entry.message;
+    }
+
+    private synchronized void writeToFile(StringBuilder batch) {
+        try {
+            if (channel == null) {
+                channel = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.APPEND);
+            }
+            ByteBuffer bytes = StandardCharsets.UTF_8.encode(batch.toString());
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        } catch (IOException e) {
+            fileOutput = false;
+            System.err.println("⚠ Logging to " + logFile + " disabled: " + e.getMessage());
+        }
+    }
+
+    private void remember(List<String> lines) {
+        synchronized (history) {
+            for (String line : lines) {
+                if (history.length == 0) {
+                    return;
+                }
+                if (historySize < history.length) {
+                    history[(historyStart + historySize) % history.length] = line;
+                    historySize++;
+                } else {
+                    history[historyStart] = line;
+                    historyStart = (historyStart + 1) % history.length;
+                }
+            }
+        }
     }
 }
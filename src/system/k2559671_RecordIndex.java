@@ -0,0 +1,131 @@
+package system;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Function;
+
+/**
+ * RecordIndex keeps a collection of records together with hash indexes over it.
+ * 
+ * Data Structures Used:
+ * - ConcurrentLinkedQueue<T>: insertion-ordered list of every record
+ * - ConcurrentHashMap<String, T>: O(1) primary-key lookup by record ID
+ * - ConcurrentHashMap<String, Queue<T>>: secondary indexes by user ID and book ID
+ * 
+ * All indexes are updated inside add(), so they can never drift from the
+ * underlying list. Used for borrow records, reservations and fines.
+ *
+ * @param <T> Record type being indexed
+ */
+public class k2559671_RecordIndex<T> {
+    private final Queue<T> records;
+    private final Map<String, T> byId;
+    private final Map<String, Queue<T>> byUser;
+    private final Map<String, Queue<T>> byBook;
+    private final Function<T, String> idOf;
+    private final Function<T, String> userIdOf;
+    private final Function<T, String> bookIdOf;
+
+    /**
+     * @param idOf Extracts the primary key of a record
+     * @param userIdOf Extracts the user ID of a record
+     * @param bookIdOf Extracts the book ID of a record
+     */
+    public k2559671_RecordIndex(Function<T, String> idOf, Function<T, String> userIdOf,
+            Function<T, String> bookIdOf) {
+        this.records = new ConcurrentLinkedQueue<>();
+        this.byId = new ConcurrentHashMap<>();
+        this.byUser = new ConcurrentHashMap<>();
+        this.byBook = new ConcurrentHashMap<>();
+        this.idOf = idOf;
+        this.userIdOf = userIdOf;
+        this.bookIdOf = bookIdOf;
+    }
+
+    /**
+     * Add a record and update every index.
+     * 
+     * @param record Record to add
+     * @return false if a record with the same ID already exists
+     */
+    public boolean add(T record) {
+        if (byId.putIfAbsent(idOf.apply(record), record) != null) {
+            return false;
+        }
+        records.add(record);
+        addTo(byUser, userIdOf.apply(record), record);
+        addTo(byBook, bookIdOf.apply(record), record);
+        return true;
+    }
+
+    private void addTo(Map<String, Queue<T>> index, String key, T record) {
+        if (key != null) {
+            index.computeIfAbsent(key, k -> new ConcurrentLinkedQueue<>()).add(record);
+        }
+    }
+
+    /**
+     * Remove a record from every index. Removal from the ordered list is
+     * O(n), so this is meant for rare corrections such as undo.
+     *
+     * @param id Primary key of the record
+     * @return Removed record, or null if not found
+     */
+    public T remove(String id) {
+        T record = byId.remove(id);
+        if (record == null) {
+            return null;
+        }
+        records.remove(record);
+        removeFrom(byUser, userIdOf.apply(record), record);
+        removeFrom(byBook, bookIdOf.apply(record), record);
+        return record;
+    }
+
+    private void removeFrom(Map<String, Queue<T>> index, String key, T record) {
+        if (key != null) {
+            index.computeIfPresent(key, (k, bucket) -> {
+                bucket.remove(record);
+                return bucket.isEmpty() ? null : bucket;
+            });
+        }
+    }
+
+    /**
+     * O(1) lookup by primary key.
+     */
+    public T get(String id) {
+        return byId.get(id);
+    }
+
+    /**
+     * All records for a user, in insertion order.
+     */
+    public List<T> getByUser(String userId) {
+        return copyOf(byUser.get(userId));
+    }
+
+    /**
+     * All records for a book, in insertion order.
+     */
+    public List<T> getByBook(String bookId) {
+        return copyOf(byBook.get(bookId));
+    }
+
+    private List<T> copyOf(Queue<T> bucket) {
+        return bucket == null ? Collections.emptyList() : new ArrayList<>(bucket);
+    }
+
+    public List<T> getAll() {
+        return new ArrayList<>(records);
+    }
+
+    public int size() {
+        return byId.size();
+    }
+}
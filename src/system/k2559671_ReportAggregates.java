@@ -0,0 +1,104 @@
+package system;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import domain.k2559671_BorrowRecord;
+
+/**
+ * ReportAggregates - Running totals behind the library reports.
+ *
+ * Data Structures Used:
+ * - ConcurrentHashMap<String, LongAdder>: bookId -> number of borrows
+ * - ConcurrentHashMap<String, Integer>: userId -> open loans (active borrowers only)
+ * - ConcurrentHashMap<String, Integer>: bookId -> open loans (books on loan only)
+ * - ConcurrentHashMap<String, k2559671_BorrowRecord>: open loans by record ID
+ *
+ * The library updates these as records are added and loans are opened or
+ * closed, so a report reads only the entries it prints instead of
+ * rescanning every book, user and record. Fine totals are kept by
+ * k2559671_FineLedger.
+ * Opening or closing the same loan twice has no extra effect.
+ */
+public class k2559671_ReportAggregates {
+    private final Map<String, LongAdder> borrowCounts;
+    private final Map<String, Integer> activeBorrowers;
+    private final Map<String, Integer> booksOnLoan;
+    private final Map<String, k2559671_BorrowRecord> openLoans;
+
+    public k2559671_ReportAggregates() {
+        this.borrowCounts = new ConcurrentHashMap<>();
+        this.activeBorrowers = new ConcurrentHashMap<>();
+        this.booksOnLoan = new ConcurrentHashMap<>();
+        this.openLoans = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * A borrow record was added; opens it as a loan unless already returned.
+     */
+    public void recordAdded(k2559671_BorrowRecord record) {
+        borrowCounts.computeIfAbsent(record.getBookId(), id -> new LongAdder()).increment();
+        if (!record.getIsReturned()) {
+            loanOpened(record);
+        }
+    }
+
+    /**
+     * A borrow record was removed (e.g. its borrow was undone).
+     */
+    public void recordRemoved(k2559671_BorrowRecord record) {
+        borrowCounts.computeIfPresent(record.getBookId(), (id, count) -> {
+            count.decrement();
+            return count.sum() <= 0 ? null : count;
+        });
+        loanClosed(record);
+    }
+
+    public void loanOpened(k2559671_BorrowRecord record) {
+        if (openLoans.putIfAbsent(record.getRecordId(), record) == null) {
+            activeBorrowers.merge(record.getUserId(), 1, Integer::sum);
+            booksOnLoan.merge(record.getBookId(), 1, Integer::sum);
+        }
+    }
+
+    public void loanClosed(k2559671_BorrowRecord record) {
+        if (openLoans.remove(record.getRecordId()) != null) {
+            activeBorrowers.computeIfPresent(record.getUserId(), (id, count) -> count <= 1 ? null : count - 1);
+            booksOnLoan.computeIfPresent(record.getBookId(), (id, count) -> count <= 1 ? null : count - 1);
+        }
+    }
+
+    public long getBorrowCount(String bookId) {
+        LongAdder count = borrowCounts.get(bookId);
+        return count == null ? 0 : count.sum();
+    }
+
+    /**
+     * Users with at least one open loan, mapped to their open-loan count (read-only view).
+     */
+    public Map<String, Integer> getActiveBorrowers() {
+        return Collections.unmodifiableMap(activeBorrowers);
+    }
+
+    public int getOpenLoanCount(String userId) {
+        return activeBorrowers.getOrDefault(userId, 0);
+    }
+
+    public int getOpenLoanCountForBook(String bookId) {
+        return booksOnLoan.getOrDefault(bookId, 0);
+    }
+
+    /**
+     * Loans not returned yet (read-only view).
+     */
+    public Collection<k2559671_BorrowRecord> getOpenLoans() {
+        return Collections.unmodifiableCollection(openLoans.values());
+    }
+
+    public int getOpenLoanCount() {
+        return openLoans.size();
+    }
+}
@@ -1,7 +1,8 @@
 package system;
 
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 import domain.k2559671_Book;
 import domain.k2559671_BorrowRecord;
@@ -10,50 +11,86 @@ import domain.k2559671_User;
 
 /**
  * ReportManager generates various reports for the library system.
+ *
+ * Reports read the library's k2559671_ReportAggregates, which are kept up to
+ * date as commands execute, so each report costs time proportional to what
+ * it prints (borrowed books, active borrowers, open loans) rather than to the
+ * whole history. Cheap enough to poll from a dashboard every second.
+ * Overdue loans come from the library's k2559671_DueDateScheduler and fine
+ * totals from its k2559671_FineLedger.
  */
 public class k2559671_ReportManager {
     private final k2559671_LibrarySystem librarySystem;
+    private final k2559671_ReportAggregates aggregates;
 
     public k2559671_ReportManager(k2559671_LibrarySystem librarySystem) {
         this.librarySystem = librarySystem;
+        this.aggregates = librarySystem.getReportAggregates();
     }
 
+    /**
+     * Top-K most borrowed books overall, most borrowed first.
+     */
     public List<k2559671_Book> generateMostBorrowedBooks() {
         System.out.println("\n=== MOST BORROWED BOOKS REPORT ===");
-        List<k2559671_Book> books = librarySystem.getAllBooks();
+        return printRanking(librarySystem.getTopBorrowed().getTop());
+    }
 
-        // Sort by borrow history size (in real implementation)
-        books.forEach(book -> {
-            System.out.println("- " + book.getTitle() + " by " + book.getAuthor() +
-                    " (Borrowed: " + book.getBorrowedHistory().size() + " times)");
-        });
+    /**
+     * Top-K most borrowed books within one category.
+     */
+    public List<k2559671_Book> generateMostBorrowedBooks(String category) {
+        System.out.println("\n=== MOST BORROWED BOOKS REPORT: " + category + " ===");
+        return printRanking(librarySystem.getTopBorrowed().getTopInCategory(category));
+    }
+
+    /**
+     * Top-K most borrowed books over the tracker's sliding window.
+     */
+    public List<k2559671_Book> generateTrendingBooks() {
+        k2559671_TopKTracker tracker = librarySystem.getTopBorrowed();
+        System.out.println("\n=== TRENDING BOOKS REPORT (last " + tracker.getWindowDays() + " days) ===");
+        return printRanking(tracker.getTopInWindow());
+    }
+
+    private List<k2559671_Book> printRanking(List<Map.Entry<String, Long>> ranking) {
+        String approximate = librarySystem.getTopBorrowed().isApproximate() ? "~" : "";
+        List<k2559671_Book> books = new ArrayList<>(ranking.size());
+
+        for (Map.Entry<String, Long> entry : ranking) {
+            k2559671_Book book = librarySystem.getBook(entry.getKey());
+            if (book != null) {
+                books.add(book);
+                System.out.println("- " + book.getTitle() + " by " + book.getAuthor() +
+                        " (Borrowed: " + approximate + entry.getValue() + " times)");
+            }
+        }
 
         return books;
     }
 
     public List<k2559671_User> generateActiveBorrowers() {
         System.out.println("\n📊 === ACTIVE BORROWERS REPORT ===");
-        List<k2559671_User> users = librarySystem.getAllUsers();
-
-        List<k2559671_User> activeUsers = users.stream()
-                .filter(user -> user.getCurrentBorrowedCount() > 0)
-                .collect(Collectors.toList());
-
-        activeUsers.forEach(user -> {
-            System.out.println("- " + user.getName() + " (" + user.getMembershipType() +
-                    ") - Currently borrowed: " + user.getCurrentBorrowedCount());
+        List<k2559671_User> activeUsers = new ArrayList<>();
+
+        aggregates.getActiveBorrowers().forEach((userId, openLoans) -> {
+            k2559671_User user = librarySystem.getUser(userId);
+            if (user != null) {
+                activeUsers.add(user);
+                System.out.println("- " + user.getName() + " (" + user.getMembershipType() +
+                        ") - Currently borrowed: " + openLoans);
+            }
         });
 
         return activeUsers;
     }
 
+    /**
+     * Overdue loans, read from the due-date index (earliest due first).
+     */
     public List<k2559671_BorrowRecord> generateOverdueBooks() {
         System.out.println("\n📊 === OVERDUE BOOKS REPORT ===");
-        List<k2559671_BorrowRecord> allRecords = librarySystem.getAllBorrowRecords();
-
-        List<k2559671_BorrowRecord> overdueRecords = allRecords.stream()
-                .filter(record -> !record.getIsReturned() && record.isOverdue())
-                .collect(Collectors.toList());
+        List<k2559671_BorrowRecord> overdueRecords = librarySystem.getDueDates().getOverdueLoans();
 
         overdueRecords.forEach(record -> {
             System.out.println("- Record #" + record.getRecordId() +
@@ -64,17 +101,22 @@ public class k2559671_ReportManager {
         return overdueRecords;
     }
 
+    /**
+     * Fines collected and outstanding, overall and per membership type,
+     * read from the fine ledger (exact, in cents).
+     */
     public double generateRevenueReport() {
         System.out.println("\n📊 === REVENUE REPORT (Fines Collected) ===");
-        List<k2559671_Fine> fines = librarySystem.getAllFines();
-
-        double totalRevenue = fines.stream()
-                .filter(k2559671_Fine::isPaid)
-                .mapToDouble(k2559671_Fine::getAmount)
-                .sum();
-
-        System.out.println("Total fines collected: LKR " + totalRevenue);
-        return totalRevenue;
+        k2559671_FineLedger ledger = librarySystem.getFineLedger();
+        k2559671_FineLedger.Balance total = ledger.getTotal();
+
+        System.out.println("Total fines collected: LKR " + k2559671_FineLedger.format(total.getPaid())
+                + " (" + total.getPaidCount() + " fines)");
+        System.out.println("Outstanding fines: LKR " + k2559671_FineLedger.format(total.getOutstanding()));
+        ledger.getBalancesByType().forEach((type, balance) -> System.out.println("- " + type
+                + ": collected LKR " + k2559671_FineLedger.format(balance.getPaid())
+                + ", outstanding LKR " + k2559671_FineLedger.format(balance.getOutstanding())));
+        return k2559671_Fine.fromMinorUnits(total.getPaid());
     }
 
     public String generateUserReport(String userId) {
@@ -85,7 +127,9 @@ public class k2559671_ReportManager {
             String report = "User: " + user.getName() + "\n" +
                     "Membership: " + user.getMembershipType() + "\n" +
                     "Currently Borrowed: " + user.getCurrentBorrowedCount() + "\n" +
-                    "Borrowing Limit: " + user.getMembershipType().getBorrowingLimit();
+                    "Borrowing Limit: " + user.getMembershipType().getBorrowingLimit() + "\n" +
+                    "Outstanding Fines: LKR "
+                    + k2559671_FineLedger.format(librarySystem.getOutstandingFines(userId));
             System.out.println(report);
             return report;
         }
@@ -0,0 +1,98 @@
+package system;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import domain.k2559671_Book;
+import domain.k2559671_LibraryClock;
+import domain.k2559671_Reservation;
+import domain.k2559671_User;
+
+/**
+ * ReservationExpiryEngine - Expires reservation holds on time.
+ *
+ * Data Structures Used:
+ * - k2559671_TimedEventQueue (shared with due-date reminders): one event per
+ *   allocated ("Ready") reservation at its pickup deadline; waiting
+ *   ("Active") reservations have no deadline and no event
+ * - ConcurrentHashMap<String, Event>: pending expiry per reservation ID, so
+ *   cancelled reservations drop their event
+ *
+ * When a hold expires the engine:
+ * - sets the reservation status to "Expired" and takes it out of the book's
+ *   hold queue
+ * - if the book was waiting for this user, passes it on to the next holder
+ *   (or back to Available when no one is waiting)
+ * - notifies the user through the NotificationManager
+ *
+ * Work is done only when something expires; nothing scans all reservations.
+ * Holds whose pickup deadline passed while the system was down (restored
+ * from a snapshot or journal) are expired as soon as they are registered.
+ */
+public class k2559671_ReservationExpiryEngine {
+    private final k2559671_LibrarySystem library;
+    private final k2559671_TimedEventQueue events;
+    private final Map<String, k2559671_TimedEventQueue.Event> pending;
+
+    public k2559671_ReservationExpiryEngine(k2559671_LibrarySystem library, k2559671_TimedEventQueue events) {
+        this.library = library;
+        this.events = events;
+        this.pending = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Schedule the pickup deadline of an allocated reservation. Called again
+     * whenever its status changes: a reservation back in the queue drops its event.
+     */
+    public void reservationAdded(k2559671_Reservation reservation) {
+        if (!isReady(reservation.getStatus())) {
+            reservationClosed(reservation);
+            return;
+        }
+        k2559671_TimedEventQueue.Event event = events.schedule(reservation.getExpiryMillis(),
+                () -> expire(reservation));
+        k2559671_TimedEventQueue.Event previous = pending.put(reservation.getReservationId(), event);
+        events.cancel(previous);
+    }
+
+    /**
+     * Drop the pending expiry of a reservation that was cancelled or fulfilled.
+     */
+    public void reservationClosed(k2559671_Reservation reservation) {
+        events.cancel(pending.remove(reservation.getReservationId()));
+    }
+
+    private void expire(k2559671_Reservation reservation) {
+        pending.remove(reservation.getReservationId());
+        long deadline;
+        synchronized (reservation) {
+            deadline = reservation.getExpiryMillis();
+            if (!isReady(reservation.getStatus()) || k2559671_LibraryClock.get().millis() < deadline) {
+                return; // Fulfilled, cancelled, re-queued or re-allocated in the meantime
+            }
+            reservation.setStatus("Expired");
+        }
+        library.getLogger().log("Reservation expired: " + reservation.getReservationId());
+
+        k2559671_Book book = library.getBook(reservation.getBookId());
+        if (book != null) {
+            book.removeReservation(reservation);
+            if (book.clearAllocatedReservation(reservation)) {
+                library.releaseHold(book, deadline); // Not picked up in time
+            }
+        }
+
+        k2559671_User user = library.getUser(reservation.getUserId());
+        if (user != null && book != null) {
+            library.getNotificationManager().sendReservationExpiredAlert(user, book);
+        }
+    }
+
+    private static boolean isReady(String status) {
+        return "Ready".equals(status);
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+}
@@ -0,0 +1,141 @@
+package system;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * RingBuffer - Bounded, lock-free, multi-producer / single-consumer queue.
+ *
+ * Data Structures Used:
+ * - Object[] slots, pre-allocated, with a power-of-two capacity
+ * - AtomicLongArray of per-slot sequence numbers that tell producers and
+ *   the consumer whether a slot is free or published
+ * - AtomicLong tail claimed by producers with compare-and-set
+ *
+ * Producers never take a lock: they claim a slot by CAS on the tail, fill it,
+ * then publish it by advancing the slot's sequence. offer() returns false
+ * instead of waiting when the buffer is full, so callers choose their own
+ * overflow policy. Only one thread may call poll()/drain().
+ *
+ * @param <E> Element type
+ */
+public final class k2559671_RingBuffer<E> {
+    private final Object[] slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail;
+    private volatile long head;
+
+    /**
+     * @param capacity Requested capacity, rounded up to a power of two
+     */
+    public k2559671_RingBuffer(int capacity) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("Capacity must be at least 2");
+        }
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        this.slots = new Object[size];
+        this.sequences = new AtomicLongArray(size);
+        this.mask = size - 1;
+        this.tail = new AtomicLong();
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Try to add an element without blocking.
+     *
+     * @param element Element to add
+     * @return false if the buffer is full
+     */
+    public boolean offer(E element) {
+        return offerAt(element) >= 0;
+    }
+
+    /**
+     * Try to add an element without blocking, and report where it went.
+     * Pass the position to isOldest() to find out whether the consumer may
+     * have found the buffer empty and needs waking.
+     *
+     * @param element Element to add
+     * @return Position of the published element, or -1 if the buffer is full
+     */
+    public long offerAt(E element) {
+        while (true) {
+            long position = tail.get();
+            int index = (int) (position & mask);
+            long available = sequences.get(index) - position;
+            if (available == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots[index] = element;
+                    sequences.set(index, position + 1); // Publish
+                    return position;
+                }
+            } else if (available < 0) {
+                return -1; // Slot not yet consumed: buffer is full
+            }
+            // Another producer claimed this slot first; retry with the new tail
+        }
+    }
+
+    /**
+     * Whether a published element is the next one the consumer will take,
+     * i.e. the buffer was empty from the consumer's point of view when it
+     * was added. If an earlier element is still waiting, the consumer is
+     * awake for that one and will reach this one too.
+     *
+     * @param position Position returned by offerAt()
+     */
+    public boolean isOldest(long position) {
+        return head == position;
+    }
+
+    /**
+     * Remove the oldest published element. Single consumer only.
+     *
+     * @return Element, or null if none is published yet
+     */
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        long position = head;
+        int index = (int) (position & mask);
+        if (sequences.get(index) != position + 1) {
+            return null;
+        }
+        E element = (E) slots[index];
+        slots[index] = null;
+        sequences.set(index, position + mask + 1); // Free the slot for the next lap
+        head = position + 1;
+        return element;
+    }
+
+    /**
+     * Remove up to max published elements. Single consumer only.
+     *
+     * @param consumer Receives each element in order
+     * @param max Maximum number of elements to drain
+     * @return Number of elements drained
+     */
+    public int drain(Consumer<E> consumer, int max) {
+        int drained = 0;
+        E element;
+        while (drained < max && (element = poll()) != null) {
+            consumer.accept(element);
+            drained++;
+        }
+        return drained;
+    }
+
+    /**
+     * Approximate number of elements waiting.
+     */
+    public int size() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+}
@@ -0,0 +1,493 @@
+package system;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+import domain.k2559671_Book;
+import domain.k2559671_BookMetadata;
+import domain.k2559671_BorrowRecord;
+import domain.k2559671_Fine;
+import domain.k2559671_MembershipType;
+import domain.k2559671_Reservation;
+import domain.k2559671_User;
+import patterns.strategy.k2559671_FineStrategies;
+
+/**
+ * SnapshotStore - Versioned binary snapshot files for fast restart.
+ *
+ * File Layout (version 3):
+ * - Header: int magic "SLMS", int version, long created millis, long last
+ *   loan number, long last hold number, then for each of the 5 sections
+ *   (books, users, borrow records, reservations, fines): long entry count,
+ *   long data offset, long chunk table offset
+ * - User entries carry the fine strategy code (k2559671_FineStrategies)
+ * - Reservation entries carry the pickup deadline (Long.MAX_VALUE while
+ *   the hold is still waiting)
+ * - Files of any other version are rejected; rebuild them from the journal
+ * - Section data: entries back to back; strings are an int byte count
+ *   (-1 for null) followed by UTF-8 bytes
+ * - Chunk table: int chunk count, then the start offset of every chunk of
+ *   CHUNK_SIZE entries, followed by the section end offset
+ *
+ * Loading:
+ * - Each chunk is memory-mapped read-only, so the file is read straight from
+ *   the page cache with no intermediate copies, and files above 2 GB work
+ * - Chunks are decoded in parallel; books and users load first, then the
+ *   three history sections load concurrently with each other
+ * - Every section is decoded during the load, not lazily on first access:
+ *   the library serves lookups from its own hash indexes and running totals
+ *   (availability sets, open-loan counters, due-date and hold queues), which
+ *   must hold every entry before the first command runs. Decoding is what
+ *   those indexes need anyway, and it is spread over all cores chunk by chunk
+ * - The full-text search index is not built during the load; the library
+ *   builds it in the background afterwards
+ *
+ * Snapshots are written to a temporary file and atomically moved into place,
+ * so a crash while saving never leaves a half-written snapshot behind.
+ * Take snapshots while the library is quiescent (e.g. at shutdown).
+ */
+public final class k2559671_SnapshotStore {
+    private static final int MAGIC = 0x534C4D53; // "SLMS"
+    private static final int VERSION = 3;
+    private static final int SECTIONS = 5;
+    private static final int HEADER_SIZE = 32 + SECTIONS * 24;
+    private static final int CHUNK_SIZE = 65536;
+
+    private static final int BOOKS = 0;
+    private static final int USERS = 1;
+    private static final int RECORDS = 2;
+    private static final int RESERVATIONS = 3;
+    private static final int FINES = 4;
+
+    private k2559671_SnapshotStore() {
+    }
+
+    /**
+     * Startup-time report for one snapshot load.
+     */
+    public static final class LoadReport {
+        private final long[] counts;
+        private final long elapsedMillis;
+        private final long fileBytes;
+
+        private LoadReport(long[] counts, long elapsedMillis, long fileBytes) {
+            this.counts = counts;
+            this.elapsedMillis = elapsedMillis;
+            this.fileBytes = fileBytes;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        public long getTotalRecords() {
+            long total = 0;
+            for (long count : counts) {
+                total += count;
+            }
+            return total;
+        }
+
+        @Override
+        public String toString() {
+            return "Snapshot loaded in " + elapsedMillis + " ms (" + (fileBytes / 1024) + " KB): "
+                    + counts[BOOKS] + " books, " + counts[USERS] + " users, "
+                    + counts[RECORDS] + " borrow records, " + counts[RESERVATIONS] + " reservations, "
+                    + counts[FINES] + " fines";
+        }
+    }
+
+    // Saving
+
+    /**
+     * Write a snapshot of the library.
+     *
+     * @param library Library to save
+     * @param file Snapshot file (replaced atomically)
+     * @throws IOException if the file cannot be written
+     */
+    public static void save(k2559671_LibrarySystem library, Path file) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            SnapshotWriter out = new SnapshotWriter(channel, HEADER_SIZE);
+            long[][] sections = new long[SECTIONS][];
+            sections[BOOKS] = writeSection(out, library.getAllBooks(), k2559671_SnapshotStore::writeBook);
+            sections[USERS] = writeSection(out, library.getAllUsers(), k2559671_SnapshotStore::writeUser);
+            sections[RECORDS] = writeSection(out, library.getAllBorrowRecords(), k2559671_SnapshotStore::writeRecord);
+            sections[RESERVATIONS] = writeSection(out, library.getAllReservations(),
+                    k2559671_SnapshotStore::writeReservation);
+            sections[FINES] = writeSection(out, library.getAllFines(), k2559671_SnapshotStore::writeFine);
+            out.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putLong(System.currentTimeMillis());
+            header.putLong(library.getLoanSequence()).putLong(library.getHoldSequence());
+            for (long[] section : sections) {
+                header.putLong(section[0]).putLong(section[1]).putLong(section[2]);
+            }
+            header.flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private interface EntryEncoder<T> {
+        void write(SnapshotWriter out, T entry) throws IOException;
+    }
+
+    /**
+     * Write one section and its chunk table.
+     *
+     * @return {entry count, data offset, chunk table offset}
+     */
+    private static <T> long[] writeSection(SnapshotWriter out, List<T> entries, EntryEncoder<T> encoder)
+            throws IOException {
+        long dataOffset = out.position();
+        List<Long> chunkStarts = new ArrayList<>();
+        for (int i = 0; i < entries.size(); i++) {
+            if (i % CHUNK_SIZE == 0) {
+                chunkStarts.add(out.position());
+            }
+            encoder.write(out, entries.get(i));
+        }
+        long end = out.position();
+
+        long tableOffset = out.position();
+        out.writeInt(chunkStarts.size());
+        for (long start : chunkStarts) {
+            out.writeLong(start);
+        }
+        out.writeLong(end);
+        return new long[] {entries.size(), dataOffset, tableOffset};
+    }
+
+    private static void writeBook(SnapshotWriter out, k2559671_Book book) throws IOException {
+        out.writeString(book.getBookId());
+        out.writeString(book.getTitle());
+        out.writeString(book.getAuthor());
+        out.writeString(book.getCategory());
+        out.writeString(book.getISBN());
+        out.writeString(book.getAvailabilityStatus());
+        k2559671_BookMetadata metadata = book.getMetadata();
+        out.writeByte(metadata == null ? 0 : 1);
+        if (metadata != null) {
+            out.writeString(metadata.getPublisher());
+            out.writeInt(metadata.getPublicationYear());
+            out.writeString(metadata.getEdition());
+            out.writeString(metadata.getSummary());
+            out.writeString(metadata.getLanguage());
+            out.writeInt(metadata.getPageCount());
+            out.writeInt(metadata.getTags().size());
+            for (String tag : metadata.getTags()) {
+                out.writeString(tag);
+            }
+            out.writeInt(metadata.getReviews().size());
+            for (String review : metadata.getReviews()) {
+                out.writeString(review);
+            }
+        }
+    }
+
+    private static void writeUser(SnapshotWriter out, k2559671_User user) throws IOException {
+        out.writeString(user.getUserId());
+        out.writeString(user.getName());
+        out.writeString(user.getEmail());
+        out.writeString(user.getContactNo());
+        out.writeByte(user.getMembershipType().ordinal());
+        out.writeByte(k2559671_FineStrategies.codeOf(user.getFineStrategy()));
+    }
+
+    private static void writeRecord(SnapshotWriter out, k2559671_BorrowRecord record) throws IOException {
+        out.writeString(record.getRecordId());
+        out.writeString(record.getUserId());
+        out.writeString(record.getBookId());
+        out.writeLong(record.getBorrowMillis());
+        out.writeLong(record.getDueMillis());
+        out.writeByte(record.getIsReturned() ? 1 : 0);
+        out.writeLong(record.getReturnMillis());
+        out.writeDouble(record.getFineAmount());
+    }
+
+    private static void writeReservation(SnapshotWriter out, k2559671_Reservation reservation) throws IOException {
+        out.writeString(reservation.getReservationId());
+        out.writeString(reservation.getUserId());
+        out.writeString(reservation.getBookId());
+        out.writeLong(reservation.getReservationMillis());
+        out.writeString(reservation.getStatus());
+        out.writeLong(reservation.getExpiryMillis());
+    }
+
+    private static void writeFine(SnapshotWriter out, k2559671_Fine fine) throws IOException {
+        out.writeString(fine.getFineId());
+        out.writeString(fine.getUserId());
+        out.writeString(fine.getBookId());
+        out.writeDouble(fine.getAmount());
+        out.writeLong(fine.getDateIssued().getTime());
+        out.writeByte(fine.isPaid() ? 1 : 0);
+        out.writeLong(fine.isPaid() ? fine.getDatePaid().getTime() : 0L);
+    }
+
+    // Loading
+
+    /**
+     * Load a snapshot into an empty library.
+     *
+     * @param library Library to populate
+     * @param file Snapshot file
+     * @return Startup-time report
+     * @throws IOException if the file cannot be read or has the wrong format/version
+     */
+    public static LoadReport load(k2559671_LibrarySystem library, Path file) throws IOException {
+        long start = System.nanoTime();
+        long[] counts = new long[SECTIONS];
+        long fileBytes;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            fileBytes = channel.size();
+            if (fileBytes < HEADER_SIZE) {
+                throw new IOException("Snapshot too short: " + file);
+            }
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not a library snapshot: " + file);
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + ": " + file);
+            }
+            header.getLong(); // Created timestamp
+            library.restoreSequences(header.getLong(), header.getLong());
+            long[] tableOffsets = new long[SECTIONS];
+            for (int i = 0; i < SECTIONS; i++) {
+                counts[i] = header.getLong();
+                header.getLong(); // Data offset, implied by the chunk table
+                tableOffsets[i] = header.getLong();
+            }
+
+            // Books and users first: history entries are linked to them
+            CompletableFuture<Void> books = CompletableFuture.runAsync(() -> loadSection(channel,
+                    tableOffsets[BOOKS], k2559671_SnapshotStore::readBook, library::registerBookWithoutSearch));
+            CompletableFuture<Void> users = CompletableFuture.runAsync(() -> loadSection(channel,
+                    tableOffsets[USERS], k2559671_SnapshotStore::readUser, library::registerUser));
+            CompletableFuture.allOf(books, users).join();
+
+            CompletableFuture<Void> records = CompletableFuture.runAsync(() -> loadSection(channel,
+                    tableOffsets[RECORDS], k2559671_SnapshotStore::readRecord, library::registerBorrowRecord));
+            CompletableFuture<Void> reservations = CompletableFuture.runAsync(() -> loadSection(channel,
+                    tableOffsets[RESERVATIONS], k2559671_SnapshotStore::readReservation,
+                    library::registerReservation));
+            CompletableFuture<Void> fines = CompletableFuture.runAsync(() -> loadSection(channel,
+                    tableOffsets[FINES], k2559671_SnapshotStore::readFine, library::registerFine));
+            CompletableFuture.allOf(records, reservations, fines).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            throw e;
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        return new LoadReport(counts, elapsedMillis, fileBytes);
+    }
+
+    private interface EntryDecoder<T> {
+        T read(ByteBuffer in);
+    }
+
+    /**
+     * Map and decode every chunk of a section in parallel, then register the
+     * entries in file order so insertion-ordered collections keep their order.
+     */
+    private static <T> void loadSection(FileChannel channel, long tableOffset, EntryDecoder<T> decoder,
+            Predicate<T> register) {
+        try {
+            ByteBuffer count = channel.map(FileChannel.MapMode.READ_ONLY, tableOffset, 4);
+            int chunks = count.getInt();
+            ByteBuffer table = channel.map(FileChannel.MapMode.READ_ONLY, tableOffset + 4, (chunks + 1) * 8L);
+            long[] starts = new long[chunks + 1];
+            for (int i = 0; i <= chunks; i++) {
+                starts[i] = table.getLong();
+            }
+
+            List<List<T>> decoded = new ArrayList<>(chunks);
+            for (int i = 0; i < chunks; i++) {
+                decoded.add(null);
+            }
+            IntStream.range(0, chunks).parallel().forEach(i -> {
+                try {
+                    MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY,
+                            starts[i], starts[i + 1] - starts[i]);
+                    List<T> entries = new ArrayList<>(CHUNK_SIZE);
+                    while (region.hasRemaining()) {
+                        entries.add(decoder.read(region));
+                    }
+                    decoded.set(i, entries);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+
+            for (List<T> entries : decoded) {
+                entries.forEach(register::test);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static k2559671_Book readBook(ByteBuffer in) {
+        k2559671_Book book = new k2559671_Book(readString(in), readString(in), readString(in),
+                readString(in), readString(in));
+        book.updateStatus(readString(in)); // No listener yet, so this does not touch any index
+        if (in.get() != 0) {
+            k2559671_BookMetadata metadata = new k2559671_BookMetadata();
+            metadata.setPublisher(readString(in));
+            metadata.setPublicationYear(in.getInt());
+            metadata.setEdition(readString(in));
+            metadata.setSummary(readString(in));
+            metadata.setLanguage(readString(in));
+            metadata.setPageCount(in.getInt());
+            for (int i = in.getInt(); i > 0; i--) {
+                metadata.addTag(readString(in));
+            }
+            for (int i = in.getInt(); i > 0; i--) {
+                metadata.addReview(readString(in));
+            }
+            book.setMetadata(metadata);
+        }
+        return book;
+    }
+
+    private static k2559671_User readUser(ByteBuffer in) {
+        k2559671_User user = new k2559671_User(readString(in), readString(in), readString(in), readString(in),
+                k2559671_MembershipType.values()[in.get()]);
+        user.setFineStrategy(k2559671_FineStrategies.forCode(in.get()));
+        return user;
+    }
+
+    private static k2559671_BorrowRecord readRecord(ByteBuffer in) {
+        k2559671_BorrowRecord record = new k2559671_BorrowRecord(readString(in), readString(in),
+                readString(in), in.getLong(), in.getLong());
+        boolean returned = in.get() != 0;
+        long returnMillis = in.getLong();
+        if (returned) {
+            record.markReturned(returnMillis);
+        }
+        record.setFineAmount(in.getDouble());
+        return record;
+    }
+
+    private static k2559671_Reservation readReservation(ByteBuffer in) {
+        k2559671_Reservation reservation = new k2559671_Reservation(readString(in), readString(in),
+                readString(in), in.getLong());
+        reservation.setStatus(readString(in));
+        reservation.setExpiryMillis(in.getLong());
+        return reservation;
+    }
+
+    private static k2559671_Fine readFine(ByteBuffer in) {
+        k2559671_Fine fine = new k2559671_Fine(readString(in), readString(in), readString(in),
+                in.getDouble(), new Date(in.getLong()));
+        boolean paid = in.get() != 0;
+        long datePaid = in.getLong();
+        if (paid) {
+            fine.payFine(new Date(datePaid));
+        }
+        return fine;
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] utf8 = new byte[length];
+        in.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Buffered writer over a FileChannel that tracks a 64-bit file position.
+     */
+    private static final class SnapshotWriter {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+        private long flushedPosition;
+
+        private SnapshotWriter(FileChannel channel, long startPosition) {
+            this.channel = channel;
+            this.flushedPosition = startPosition;
+        }
+
+        private long position() {
+            return flushedPosition + buffer.position();
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                flushedPosition += channel.write(buffer, flushedPosition);
+            }
+            buffer.clear();
+        }
+
+        private void writeByte(int value) throws IOException {
+            ensure(1);
+            buffer.put((byte) value);
+        }
+
+        private void writeInt(int value) throws IOException {
+            ensure(4);
+            buffer.putInt(value);
+        }
+
+        private void writeLong(long value) throws IOException {
+            ensure(8);
+            buffer.putLong(value);
+        }
+
+        private void writeDouble(double value) throws IOException {
+            ensure(8);
+            buffer.putDouble(value);
+        }
+
+        private void writeString(String value) throws IOException {
+            if (value == null) {
+                writeInt(-1);
+                return;
+            }
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            writeInt(utf8.length);
+            int offset = 0;
+            while (offset < utf8.length) {
+                ensure(1);
+                int length = Math.min(buffer.remaining(), utf8.length - offset);
+                buffer.put(utf8, offset, length);
+                offset += length;
+            }
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package system;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import domain.k2559671_LibraryClock;
+
+/**
+ * TimedEventQueue - Runs actions at a given k2559671_LibraryClock time.
+ *
+ * Data Structures Used:
+ * - ConcurrentSkipListSet<Event>: events ordered by (time, sequence), so the
+ *   next event is always first; schedule and cancel are O(log n)
+ *
+ * A single daemon thread ("library-scheduler") sleeps until the earliest
+ * event is due, runs every due event, and sleeps again. Scheduling an event
+ * earlier than the current head wakes it up, so events fire on time rather
+ * than on a polling tick, and an idle queue costs nothing.
+ *
+ * The worker reads the installed k2559671_LibraryClock, the same time base
+ * the schedulers compute event times from. It re-reads the clock at least
+ * every CLOCK_CHECK_MILLIS, so a manual clock that is advanced (or a clock
+ * installed later) is noticed without an explicit wake-up.
+ *
+ * runDue(now) runs due events on the caller's thread instead, e.g. for
+ * an explicit "check now" after advancing a manual clock.
+ */
+public class k2559671_TimedEventQueue {
+    private static final Comparator<Event> BY_TIME = Comparator
+            .comparingLong((Event e) -> e.time)
+            .thenComparingLong(e -> e.sequence);
+    private static final long CLOCK_CHECK_MILLIS = 1000;
+
+    private final NavigableSet<Event> events;
+    private final AtomicLong sequence;
+    private volatile Thread worker;
+    private volatile boolean closed;
+
+    /**
+     * A scheduled action. Keep it to cancel the action later.
+     */
+    public static final class Event {
+        private final long time;
+        private final long sequence;
+        private final Runnable action;
+
+        private Event(long time, long sequence, Runnable action) {
+            this.time = time;
+            this.sequence = sequence;
+            this.action = action;
+        }
+
+        public long getTime() {
+            return time;
+        }
+    }
+
+    public k2559671_TimedEventQueue() {
+        this.events = new ConcurrentSkipListSet<>(BY_TIME);
+        this.sequence = new AtomicLong();
+    }
+
+    /**
+     * Schedule an action.
+     *
+     * @param timeMillis When to run it (epoch millis on k2559671_LibraryClock)
+     * @param action Action to run
+     * @return Handle for cancel()
+     */
+    public Event schedule(long timeMillis, Runnable action) {
+        Event event = new Event(timeMillis, sequence.incrementAndGet(), action);
+        events.add(event);
+        Thread current = ensureWorker();
+        if (peek() == event) {
+            LockSupport.unpark(current); // New earliest event: re-compute the sleep
+        }
+        return event;
+    }
+
+    /**
+     * Cancel a scheduled action.
+     *
+     * @return false if it already ran or was cancelled
+     */
+    public boolean cancel(Event event) {
+        return event != null && events.remove(event);
+    }
+
+    /**
+     * Run every event due at or before the given time on the caller's thread.
+     *
+     * @param nowMillis Current time (epoch millis)
+     * @return Number of events run
+     */
+    public int runDue(long nowMillis) {
+        int ran = 0;
+        Event event;
+        while ((event = peek()) != null && event.time <= nowMillis) {
+            if (events.remove(event)) { // Lost races (cancel, other runner) are skipped
+                run(event);
+                ran++;
+            }
+        }
+        return ran;
+    }
+
+    private void run(Event event) {
+        try {
+            event.action.run();
+        } catch (RuntimeException e) {
+            System.err.println("⚠ Scheduled event failed: " + e);
+        }
+    }
+
+    private Event peek() {
+        Iterator<Event> first = events.iterator();
+        return first.hasNext() ? first.next() : null;
+    }
+
+    public int size() {
+        return events.size();
+    }
+
+    /**
+     * Stop the background thread. Pending events are kept but no longer run automatically.
+     */
+    public void close() {
+        closed = true;
+        LockSupport.unpark(worker);
+    }
+
+    private Thread ensureWorker() {
+        Thread current = worker;
+        if (current == null) {
+            synchronized (this) {
+                current = worker;
+                if (current == null && !closed) {
+                    current = new Thread(this::runWorker, "library-scheduler");
+                    current.setDaemon(true);
+                    current.start();
+                    worker = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private void runWorker() {
+        while (!closed) {
+            runDue(k2559671_LibraryClock.get().millis());
+            Event next = peek();
+            if (next == null) {
+                LockSupport.park(this);
+            } else {
+                long waitMillis = Math.min(next.time - k2559671_LibraryClock.get().millis(), CLOCK_CHECK_MILLIS);
+                if (waitMillis > 0) {
+                    LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(waitMillis));
+                }
+            }
+        }
+    }
+}
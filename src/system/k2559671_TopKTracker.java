@@ -0,0 +1,315 @@
+package system;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import domain.k2559671_LibraryClock;
+
+/**
+ * TopKTracker - Streaming "most borrowed" rankings, updated on every borrow.
+ *
+ * Rankings kept:
+ * - Overall, per category, and over a sliding window of the last windowDays days
+ *
+ * Exact mode (default):
+ * - HashMap of borrow counts plus a TreeSet holding only the current top K,
+ *   ordered weakest-first like a bounded min-heap: a borrow costs O(log K)
+ *   and reading the ranking costs O(K)
+ * - If a top-K member's count goes down (undo, or day buckets leaving the
+ *   window) the top K is rebuilt once from the counts on the next read
+ *
+ * Approximate mode (Space-Saving heavy hitters):
+ * - At most `capacity` counters per ranking however many books are borrowed,
+ *   so memory stays fixed for tens of millions of loans
+ * - When full, the weakest counter is reassigned to the new book, which
+ *   inherits its count; counts may therefore over-estimate, but any book
+ *   borrowed more than total/capacity times is guaranteed to be ranked
+ *
+ * The sliding window keeps one ranking per day (in the same mode) and
+ * subtracts a day's counts from the window ranking when it expires.
+ */
+public class k2559671_TopKTracker {
+    private static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    // Weakest first: lowest count, then the later ID, so the best is last
+    private static final Comparator<Counter> WEAKEST_FIRST = Comparator
+            .comparingLong((Counter c) -> c.count)
+            .thenComparing((Counter c) -> c.id, Comparator.reverseOrder());
+
+    private final int k;
+    private final int windowDays;
+    private final int capacity;
+    private final Ranking overall;
+    private final Map<String, Ranking> byCategory;
+    private final Ranking window;
+    private final NavigableMap<Long, Ranking> days;
+
+    /**
+     * @param k Number of books in each ranking
+     * @param windowDays Length of the sliding window in days
+     * @param capacity Counters per ranking for approximate mode, or 0 for exact counts
+     */
+    public k2559671_TopKTracker(int k, int windowDays, int capacity) {
+        if (k < 1 || windowDays < 1 || capacity < 0 || (capacity > 0 && capacity < k)) {
+            throw new IllegalArgumentException("Invalid top-K configuration");
+        }
+        this.k = k;
+        this.windowDays = windowDays;
+        this.capacity = capacity;
+        this.overall = newRanking();
+        this.byCategory = new ConcurrentHashMap<>();
+        this.window = newRanking();
+        this.days = new TreeMap<>();
+    }
+
+    private Ranking newRanking() {
+        return capacity == 0 ? new ExactRanking(k) : new SpaceSavingRanking(capacity);
+    }
+
+    /**
+     * Count one borrow.
+     *
+     * @param bookId Borrowed book
+     * @param category Book category, or null if unknown
+     * @param timeMillis Borrow time, used for the sliding window
+     */
+    public void recordBorrow(String bookId, String category, long timeMillis) {
+        update(bookId, category, timeMillis, 1);
+    }
+
+    /**
+     * Take back a borrow counted earlier (e.g. an undone borrow).
+     */
+    public void removeBorrow(String bookId, String category, long timeMillis) {
+        update(bookId, category, timeMillis, -1);
+    }
+
+    private void update(String bookId, String category, long timeMillis, long delta) {
+        overall.add(bookId, delta);
+        if (category != null) {
+            byCategory.computeIfAbsent(category, c -> newRanking()).add(bookId, delta);
+        }
+
+        long day = Math.floorDiv(timeMillis, DAY_MILLIS);
+        synchronized (days) {
+            long cutoff = expire(k2559671_LibraryClock.get().today());
+            if (day > cutoff) {
+                days.computeIfAbsent(day, d -> newRanking()).add(bookId, delta);
+                window.add(bookId, delta);
+            }
+        }
+    }
+
+    /**
+     * Drop day buckets that have left the window. Caller holds the days lock.
+     *
+     * @return Last day outside the window
+     */
+    private long expire(long today) {
+        long cutoff = today - windowDays;
+        Iterator<Ranking> expired = days.headMap(cutoff, true).values().iterator();
+        while (expired.hasNext()) {
+            expired.next().counts().forEach((bookId, count) -> window.add(bookId, -count));
+            expired.remove();
+        }
+        return cutoff;
+    }
+
+    /**
+     * Most borrowed books overall, best first.
+     */
+    public List<Map.Entry<String, Long>> getTop() {
+        return overall.top(k);
+    }
+
+    /**
+     * Most borrowed books in one category, best first.
+     */
+    public List<Map.Entry<String, Long>> getTopInCategory(String category) {
+        Ranking ranking = byCategory.get(category);
+        return ranking == null ? new ArrayList<>() : ranking.top(k);
+    }
+
+    /**
+     * Most borrowed books over the last windowDays days, best first.
+     */
+    public List<Map.Entry<String, Long>> getTopInWindow() {
+        synchronized (days) {
+            expire(k2559671_LibraryClock.get().today());
+            return window.top(k);
+        }
+    }
+
+    public int getK() {
+        return k;
+    }
+
+    public int getWindowDays() {
+        return windowDays;
+    }
+
+    public boolean isApproximate() {
+        return capacity > 0;
+    }
+
+    private static final class Counter {
+        private final String id;
+        private long count;
+        private boolean inTop;
+
+        private Counter(String id, long count) {
+            this.id = id;
+            this.count = count;
+        }
+    }
+
+    private interface Ranking {
+        void add(String id, long delta);
+
+        List<Map.Entry<String, Long>> top(int n);
+
+        Map<String, Long> counts();
+    }
+
+    /**
+     * Exact counts with a bounded top-K set maintained on every update.
+     */
+    private static final class ExactRanking implements Ranking {
+        private final int k;
+        private final Map<String, Counter> counters = new HashMap<>();
+        private final TreeSet<Counter> top = new TreeSet<>(WEAKEST_FIRST);
+        private boolean dirty;
+
+        private ExactRanking(int k) {
+            this.k = k;
+        }
+
+        @Override
+        public synchronized void add(String id, long delta) {
+            Counter counter = counters.get(id);
+            if (counter == null) {
+                if (delta <= 0) {
+                    return;
+                }
+                counter = new Counter(id, 0);
+                counters.put(id, counter);
+            }
+            if (counter.inTop) {
+                top.remove(counter); // Re-insert after the count changes
+            }
+            counter.count += delta;
+
+            if (counter.count <= 0) {
+                counters.remove(id);
+                dirty |= counter.inTop;
+            } else if (counter.inTop) {
+                top.add(counter);
+                dirty |= delta < 0; // A book outside the top K may now rank higher
+            } else {
+                offer(counter);
+            }
+        }
+
+        private void offer(Counter counter) {
+            if (top.size() < k) {
+                top.add(counter);
+                counter.inTop = true;
+            } else if (WEAKEST_FIRST.compare(counter, top.first()) > 0) {
+                top.pollFirst().inTop = false;
+                top.add(counter);
+                counter.inTop = true;
+            }
+        }
+
+        @Override
+        public synchronized List<Map.Entry<String, Long>> top(int n) {
+            if (dirty) {
+                top.clear();
+                for (Counter counter : counters.values()) {
+                    counter.inTop = false;
+                    offer(counter);
+                }
+                dirty = false;
+            }
+            List<Map.Entry<String, Long>> result = new ArrayList<>(Math.min(n, top.size()));
+            for (Iterator<Counter> best = top.descendingIterator(); best.hasNext() && result.size() < n;) {
+                Counter counter = best.next();
+                result.add(Map.entry(counter.id, counter.count));
+            }
+            return result;
+        }
+
+        @Override
+        public synchronized Map<String, Long> counts() {
+            Map<String, Long> counts = new HashMap<>();
+            counters.forEach((id, counter) -> counts.put(id, counter.count));
+            return counts;
+        }
+    }
+
+    /**
+     * Space-Saving summary: a fixed number of counters ordered by count.
+     */
+    private static final class SpaceSavingRanking implements Ranking {
+        private final int capacity;
+        private final Map<String, Counter> counters = new HashMap<>();
+        private final TreeSet<Counter> byCount = new TreeSet<>(WEAKEST_FIRST);
+
+        private SpaceSavingRanking(int capacity) {
+            this.capacity = capacity;
+        }
+
+        @Override
+        public synchronized void add(String id, long delta) {
+            Counter counter = counters.get(id);
+            if (counter != null) {
+                byCount.remove(counter);
+                counter.count += delta;
+                if (counter.count <= 0) {
+                    counters.remove(id);
+                } else {
+                    byCount.add(counter);
+                }
+                return;
+            }
+            if (delta <= 0) {
+                return; // Not monitored, nothing to take back
+            }
+            if (counters.size() < capacity) {
+                counter = new Counter(id, delta);
+            } else {
+                Counter weakest = byCount.pollFirst();
+                counters.remove(weakest.id);
+                counter = new Counter(id, weakest.count + delta);
+            }
+            counters.put(id, counter);
+            byCount.add(counter);
+        }
+
+        @Override
+        public synchronized List<Map.Entry<String, Long>> top(int n) {
+            List<Map.Entry<String, Long>> result = new ArrayList<>(Math.min(n, byCount.size()));
+            for (Iterator<Counter> best = byCount.descendingIterator(); best.hasNext() && result.size() < n;) {
+                Counter counter = best.next();
+                result.add(Map.entry(counter.id, counter.count));
+            }
+            return result;
+        }
+
+        @Override
+        public synchronized Map<String, Long> counts() {
+            Map<String, Long> counts = new HashMap<>();
+            counters.forEach((id, counter) -> counts.put(id, counter.count));
+            return counts;
+        }
+    }
+}
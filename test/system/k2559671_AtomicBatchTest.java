@@ -0,0 +1,94 @@
+package system;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import domain.k2559671_Book;
+import domain.k2559671_MembershipType;
+import domain.k2559671_User;
+import patterns.command.k2559671_BorrowCommand;
+import patterns.command.k2559671_Command;
+
+/**
+ * Command batches: an atomic batch that hits a failing command undoes what
+ * it already did and skips the rest; a non-atomic one keeps its successes.
+ */
+class k2559671_AtomicBatchTest {
+    private k2559671_LibrarySystem library;
+    private k2559671_User borrower;
+    private k2559671_User other;
+
+    @BeforeEach
+    void setUp() {
+        library = new k2559671_LibrarySystem();
+        library.getLogger().setConsoleOutput(false);
+        library.getLogger().setFileOutput(false);
+        borrower = user("U1", k2559671_MembershipType.STUDENT);
+        other = user("U2", k2559671_MembershipType.STUDENT);
+        library.addUser(borrower);
+        library.addUser(other);
+        for (String id : List.of("B1", "B2", "B3")) {
+            library.addBook(book(id));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        library.getLogger().close();
+    }
+
+    @Test
+    void atomicBatchRollsBackAtTheFirstFailure() {
+        List<k2559671_CommandResult> results = library.processCommands(batch(), true);
+
+        assertEquals(List.of(k2559671_CommandResult.Status.ROLLED_BACK, k2559671_CommandResult.Status.ROLLED_BACK,
+                k2559671_CommandResult.Status.FAILED, k2559671_CommandResult.Status.SKIPPED), statuses(results));
+        for (String id : List.of("B1", "B2", "B3")) {
+            assertEquals("Available", library.getBook(id).getAvailabilityStatus(), id);
+            assertTrue(library.getOpenLoansForBook(id).isEmpty(), id);
+        }
+        assertEquals(0, borrower.getCurrentBorrowedCount());
+        assertEquals(0, other.getCurrentBorrowedCount());
+        assertEquals(0, library.getCommandHistory().getUndoCount(), "Nothing to undo after a rollback");
+    }
+
+    @Test
+    void nonAtomicBatchKeepsWhatExecuted() {
+        List<k2559671_CommandResult> results = library.processCommands(batch(), false);
+
+        assertEquals(List.of(k2559671_CommandResult.Status.EXECUTED, k2559671_CommandResult.Status.EXECUTED,
+                k2559671_CommandResult.Status.FAILED, k2559671_CommandResult.Status.EXECUTED), statuses(results));
+        assertEquals(2, borrower.getCurrentBorrowedCount());
+        assertEquals(1, other.getCurrentBorrowedCount());
+        assertEquals(3, library.getCommandHistory().getUndoCount());
+    }
+
+    /**
+     * Borrow B1 and B2, try B1 again for another user (fails), then borrow B3.
+     */
+    private List<k2559671_Command> batch() {
+        return List.of(
+                new k2559671_BorrowCommand(borrower, library.getBook("B1"), library.getLogger()),
+                new k2559671_BorrowCommand(borrower, library.getBook("B2"), library.getLogger()),
+                new k2559671_BorrowCommand(other, library.getBook("B1"), library.getLogger()),
+                new k2559671_BorrowCommand(other, library.getBook("B3"), library.getLogger()));
+    }
+
+    private static List<k2559671_CommandResult.Status> statuses(List<k2559671_CommandResult> results) {
+        return results.stream().map(k2559671_CommandResult::getStatus).toList();
+    }
+
+    private static k2559671_Book book(String id) {
+        return new k2559671_Book(id, "Title " + id, "Author", "Science", "ISBN-" + id);
+    }
+
+    private static k2559671_User user(String id, k2559671_MembershipType type) {
+        return new k2559671_User(id, "User " + id, id + "@example.com", "0770000000", type);
+    }
+}
@@ -0,0 +1,64 @@
+package system;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import domain.k2559671_Book;
+
+/**
+ * Catalog search: partial words match by prefix, AND/OR groups combine
+ * them, and phrases match whole adjacent terms.
+ */
+class k2559671_CatalogSearchTest {
+    private k2559671_LibrarySystem library;
+
+    @BeforeEach
+    void setUp() {
+        library = new k2559671_LibrarySystem();
+        library.getLogger().setConsoleOutput(false);
+        library.getLogger().setFileOutput(false);
+        library.addBook(new k2559671_Book("B1", "Programming Pearls", "Jon Bentley", "Computer Science", "ISBN-1"));
+        library.addBook(new k2559671_Book("B2", "Clean Code", "Robert Martin", "Software", "ISBN-2"));
+        library.addBook(new k2559671_Book("B3", "Design Patterns", "Erich Gamma", "Software", "ISBN-3"));
+        library.addBook(new k2559671_Book("B4", "Code Complete", "Steve McConnell", "Software", "ISBN-4"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        library.getLogger().close();
+    }
+
+    @Test
+    void partialWordsMatchByPrefix() {
+        assertEquals(List.of("B1"), ids(library.searchBook("prog")));
+        assertEquals(List.of("B3"), ids(library.searchBook("Patt")));
+        assertEquals(List.of("B4"), ids(library.searchBook("mccon")));
+        assertTrue(library.searchBook("ogram").isEmpty(), "Only prefixes match, not inner substrings");
+    }
+
+    @Test
+    void prefixTermsCombineWithAndOr() {
+        assertEquals(List.of("B2"), ids(library.searchBook("cle cod")));
+        assertEquals(List.of("B1", "B3"), sorted(ids(library.searchBook("pearl OR gam"))));
+    }
+
+    @Test
+    void phrasesMatchWholeAdjacentTerms() {
+        assertEquals(List.of("B2"), ids(library.searchBook("\"clean code\"")));
+        assertTrue(library.searchBook("\"clean cod\"").isEmpty());
+    }
+
+    private static List<String> ids(List<k2559671_Book> books) {
+        return books.stream().map(k2559671_Book::getBookId).toList();
+    }
+
+    private static List<String> sorted(List<String> ids) {
+        return ids.stream().sorted().toList();
+    }
+}
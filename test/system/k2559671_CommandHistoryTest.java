@@ -0,0 +1,133 @@
+package system;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import domain.k2559671_Book;
+import domain.k2559671_MembershipType;
+import domain.k2559671_Reservation;
+import domain.k2559671_User;
+import patterns.command.k2559671_BorrowCommand;
+import patterns.command.k2559671_ReserveCommand;
+import patterns.command.k2559671_ReturnCommand;
+
+/**
+ * Undo through the history: commands rebuilt from snapshots revert to the
+ * state they really replaced, an undone borrow passes the book to the
+ * waiting holder, and each desk undoes only its own work.
+ */
+class k2559671_CommandHistoryTest {
+    private k2559671_LibrarySystem library;
+    private k2559671_User first;
+    private k2559671_User second;
+    private k2559671_Book book;
+
+    @BeforeEach
+    void setUp() {
+        library = new k2559671_LibrarySystem();
+        library.getLogger().setConsoleOutput(false);
+        library.getLogger().setFileOutput(false);
+        first = user("U1");
+        second = user("U2");
+        library.addUser(first);
+        library.addUser(second);
+        book = new k2559671_Book("B1", "Title B1", "Author", "Science", "ISBN-B1");
+        library.addBook(book);
+    }
+
+    @AfterEach
+    void tearDown() {
+        library.getLogger().close();
+    }
+
+    @Test
+    void undoingAReserveOnABorrowedBookLeavesItBorrowed() {
+        library.processCommand(new k2559671_BorrowCommand(first, book, library.getLogger()));
+        library.processCommand(new k2559671_ReserveCommand(second, book, library.getLogger()));
+        assertEquals("Reserved", book.getAvailabilityStatus());
+
+        assertEquals(1, library.undoLast(1));
+
+        assertEquals("Borrowed", book.getAvailabilityStatus());
+        assertEquals(1, library.getOpenLoansForBook("B1").size());
+        for (k2559671_Reservation hold : library.getAllReservations()) {
+            assertEquals("Cancelled", hold.getStatus());
+        }
+        assertEquals(1, library.countBooksByState("Borrowed"));
+    }
+
+    @Test
+    void undoingABorrowAllocatesTheBookToTheWaitingHolder() {
+        k2559671_User third = user("U3");
+        library.addUser(third);
+        library.processCommand(new k2559671_BorrowCommand(first, book, library.getLogger()));
+        k2559671_CommandHistory holdDesk = library.newCommandHistory();
+        library.processCommand(new k2559671_ReserveCommand(second, book, library.getLogger()), holdDesk);
+        k2559671_Reservation hold = library.getReservationsForUser("U2").get(0);
+
+        assertEquals(1, library.undoLast(1));
+
+        assertEquals("Ready", hold.getStatus());
+        assertEquals(hold, book.getAllocatedReservation());
+        assertEquals("Reserved", book.getAvailabilityStatus());
+        assertTrue(library.getOpenLoansForBook("B1").isEmpty());
+
+        k2559671_BorrowCommand jump = new k2559671_BorrowCommand(third, book, library.getLogger());
+        library.processCommand(jump);
+        assertFalse(jump.isExecuted());
+        k2559671_BorrowCommand pickup = new k2559671_BorrowCommand(second, book, library.getLogger());
+        library.processCommand(pickup);
+        assertTrue(pickup.isExecuted());
+        assertEquals("Fulfilled", hold.getStatus());
+    }
+
+    @Test
+    void eachDeskUndoesOnlyItsOwnCommands() {
+        k2559671_CommandHistory frontDesk = library.newCommandHistory();
+        k2559671_CommandHistory kiosk = library.newCommandHistory();
+        k2559671_Book other = new k2559671_Book("B2", "Title B2", "Author", "Science", "ISBN-B2");
+        library.addBook(other);
+
+        library.processCommand(new k2559671_BorrowCommand(first, book, library.getLogger()), frontDesk);
+        library.processCommand(new k2559671_BorrowCommand(second, other, library.getLogger()), kiosk);
+
+        assertEquals(1, library.undoLast(frontDesk, 5));
+
+        assertEquals("Available", book.getAvailabilityStatus());
+        assertEquals("Borrowed", other.getAvailabilityStatus());
+        assertEquals(0, first.getCurrentBorrowedCount());
+        assertEquals(1, second.getCurrentBorrowedCount());
+        assertEquals(1, kiosk.getUndoCount());
+        assertEquals(0, library.getCommandHistory().getUndoCount());
+    }
+
+    @Test
+    void undoSkipsAReturnSupersededByAnotherDesk() {
+        k2559671_CommandHistory frontDesk = library.newCommandHistory();
+        k2559671_CommandHistory kiosk = library.newCommandHistory();
+        library.processCommand(new k2559671_BorrowCommand(first, book, library.getLogger()), frontDesk);
+        library.processCommand(new k2559671_ReturnCommand(first, book, library.getLogger()), frontDesk);
+        library.processCommand(new k2559671_BorrowCommand(second, book, library.getLogger()), kiosk);
+
+        // The return is no longer the latest change to the book, and the borrow
+        // before it no longer has an open loan: both are dropped
+        assertEquals(0, library.undoLast(frontDesk, 1));
+        assertEquals(0, frontDesk.getUndoCount());
+
+        assertEquals("Borrowed", book.getAvailabilityStatus());
+        assertEquals(0, first.getCurrentBorrowedCount());
+        assertEquals(1, second.getCurrentBorrowedCount());
+        assertEquals(1, library.getOpenLoansForBook("B1").size());
+        assertTrue(library.getOpenLoansForUser("U1").isEmpty());
+    }
+
+    private static k2559671_User user(String id) {
+        return new k2559671_User(id, "User " + id, id + "@example.com", "0770000000",
+                k2559671_MembershipType.FACULTY);
+    }
+}
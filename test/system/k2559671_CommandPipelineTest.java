@@ -0,0 +1,128 @@
+package system;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import domain.k2559671_Book;
+import domain.k2559671_MembershipType;
+import domain.k2559671_User;
+import patterns.command.k2559671_BorrowCommand;
+
+/**
+ * Command pipeline: every submission's future completes with its own
+ * result once the writer has applied it, whichever desk submitted it.
+ */
+class k2559671_CommandPipelineTest {
+    private static final int DESKS = 4;
+    private static final int BORROWS_PER_DESK = 50;
+
+    private k2559671_LibrarySystem library;
+    private k2559671_CommandPipeline pipeline;
+
+    @BeforeEach
+    void setUp() {
+        library = new k2559671_LibrarySystem();
+        library.getLogger().setConsoleOutput(false);
+        library.getLogger().setFileOutput(false);
+        pipeline = new k2559671_CommandPipeline(library, 16, 8);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pipeline.close();
+        library.getLogger().close();
+    }
+
+    @Test
+    void everyFutureCompletesWithItsOwnResult() throws Exception {
+        List<List<CompletableFuture<k2559671_CommandResult>>> perDesk = new ArrayList<>();
+        List<Thread> desks = new ArrayList<>();
+        for (int d = 0; d < DESKS; d++) {
+            List<CompletableFuture<k2559671_CommandResult>> futures = new ArrayList<>();
+            perDesk.add(futures);
+            k2559671_User faculty = user("U" + d, k2559671_MembershipType.FACULTY);
+            library.addUser(faculty);
+            List<k2559671_Book> books = new ArrayList<>();
+            for (int n = 0; n < BORROWS_PER_DESK; n++) {
+                k2559671_Book book = book("B" + d + "-" + n);
+                library.addBook(book);
+                books.add(book);
+            }
+            Thread desk = new Thread(() -> {
+                for (k2559671_Book book : books) {
+                    // Over the faculty limit after the first few, so later borrows fail
+                    futures.add(pipeline.submit(new k2559671_BorrowCommand(faculty, book, library.getLogger())));
+                }
+            });
+            desk.start();
+            desks.add(desk);
+        }
+        for (Thread desk : desks) {
+            desk.join();
+        }
+
+        int limit = k2559671_MembershipType.FACULTY.getBorrowingLimit();
+        for (List<CompletableFuture<k2559671_CommandResult>> futures : perDesk) {
+            for (int n = 0; n < futures.size(); n++) {
+                k2559671_CommandResult result = futures.get(n).get(5, TimeUnit.SECONDS);
+                assertEquals(n < limit, result.isSuccess(), "Borrow " + n);
+                assertTrue(result.getCommand() instanceof k2559671_BorrowCommand);
+            }
+        }
+        assertEquals(DESKS * BORROWS_PER_DESK, pipeline.getAppliedCount());
+        assertTrue(pipeline.getBatchCount() >= DESKS * BORROWS_PER_DESK / 8);
+    }
+
+    @Test
+    void deskHistoryRecordsItsAppliedCommands() throws Exception {
+        k2559671_User student = user("U1", k2559671_MembershipType.STUDENT);
+        library.addUser(student);
+        k2559671_Book book = book("B1");
+        library.addBook(book);
+        k2559671_CommandHistory desk = library.newCommandHistory();
+
+        k2559671_CommandResult result = pipeline
+                .submit(new k2559671_BorrowCommand(student, book, library.getLogger()), desk)
+                .get(5, TimeUnit.SECONDS);
+
+        assertEquals(k2559671_CommandResult.Status.EXECUTED, result.getStatus());
+        assertEquals(1, desk.getUndoCount());
+        assertEquals(0, library.getCommandHistory().getUndoCount());
+    }
+
+    @Test
+    void submitAfterCloseIsRejected() throws InterruptedException, ExecutionException, TimeoutException {
+        k2559671_User student = user("U1", k2559671_MembershipType.STUDENT);
+        library.addUser(student);
+        k2559671_Book book = book("B1");
+        library.addBook(book);
+        CompletableFuture<k2559671_CommandResult> before = pipeline
+                .submit(new k2559671_BorrowCommand(student, book, library.getLogger()));
+
+        pipeline.close();
+
+        assertTrue(before.get(5, TimeUnit.SECONDS).isSuccess(), "Queued work is applied before closing");
+        assertThrows(IllegalStateException.class,
+                () -> pipeline.submit(new k2559671_BorrowCommand(student, book, library.getLogger())));
+    }
+
+    private static k2559671_Book book(String id) {
+        return new k2559671_Book(id, "Title " + id, "Author", "Science", "ISBN-" + id);
+    }
+
+    private static k2559671_User user(String id, k2559671_MembershipType type) {
+        return new k2559671_User(id, "User " + id, id + "@example.com", "0770000000", type);
+    }
+}
@@ -0,0 +1,256 @@
+package system;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import domain.k2559671_Book;
+import domain.k2559671_MembershipType;
+import domain.k2559671_Reservation;
+import domain.k2559671_User;
+import patterns.command.k2559671_BorrowCommand;
+import patterns.command.k2559671_ReserveCommand;
+import patterns.command.k2559671_ReturnCommand;
+
+/**
+ * Concurrent desks against one library: checkouts of a shared copy, a
+ * reserved copy going only to its holder, the per-user borrowing limit,
+ * and the indexes kept current by transitions.
+ */
+class k2559671_ConcurrentCirculationTest {
+    private static final int THREADS = 16;
+
+    private k2559671_LibrarySystem library;
+
+    @BeforeEach
+    void setUp() {
+        library = new k2559671_LibrarySystem();
+        library.getLogger().setConsoleOutput(false);
+        library.getLogger().setFileOutput(false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        library.getLogger().close();
+    }
+
+    @Test
+    void concurrentCheckoutsOfOneCopyHaveExactlyOneWinner() throws InterruptedException {
+        k2559671_Book book = book("B1", "Science");
+        library.addBook(book);
+        List<k2559671_User> users = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            k2559671_User user = user("U" + i, k2559671_MembershipType.FACULTY);
+            library.addUser(user);
+            users.add(user);
+        }
+
+        AtomicInteger borrowed = new AtomicInteger();
+        runConcurrently(i -> {
+            k2559671_BorrowCommand borrow = new k2559671_BorrowCommand(users.get(i), book, library.getLogger());
+            library.processCommand(borrow);
+            if (borrow.isExecuted()) {
+                borrowed.incrementAndGet();
+            }
+        });
+
+        assertEquals(1, borrowed.get());
+        assertEquals(1, library.getOpenLoansForBook("B1").size());
+        assertEquals("Borrowed", book.getAvailabilityStatus());
+        assertEquals(1, library.countBooksByState("Borrowed"));
+        assertEquals(0, library.countBooksByState("Available"));
+    }
+
+    @Test
+    void reservedBookCanOnlyBeBorrowedByItsHolderOnceReturned() throws InterruptedException {
+        k2559671_Book book = book("B1", "Science");
+        library.addBook(book);
+        List<k2559671_User> users = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            k2559671_User user = user("U" + i, k2559671_MembershipType.FACULTY);
+            library.addUser(user);
+            users.add(user);
+        }
+        k2559671_User borrower = users.get(0);
+        k2559671_User holder = users.get(1);
+        library.processCommand(new k2559671_BorrowCommand(borrower, book, library.getLogger()));
+        library.processCommand(new k2559671_ReserveCommand(holder, book, library.getLogger()));
+        k2559671_Reservation hold = library.getReservationsForUser(holder.getUserId()).get(0);
+
+        // Still on loan: no one gets the copy, not even the holder
+        AtomicInteger borrowed = new AtomicInteger();
+        runConcurrently(i -> {
+            k2559671_BorrowCommand borrow = new k2559671_BorrowCommand(users.get(i), book, library.getLogger());
+            library.processCommand(borrow);
+            if (borrow.isExecuted()) {
+                borrowed.incrementAndGet();
+            }
+        });
+        assertEquals(0, borrowed.get());
+        assertEquals(1, library.getOpenLoansForBook("B1").size());
+        assertEquals("Active", hold.getStatus());
+        assertEquals(1, book.getHoldPosition(hold.getReservationId()));
+
+        // Back on the shelf and allocated: only the holder wins
+        library.processCommand(new k2559671_ReturnCommand(borrower, book, library.getLogger()));
+        assertEquals("Ready", hold.getStatus());
+        List<k2559671_User> winners = new ArrayList<>();
+        runConcurrently(i -> {
+            k2559671_BorrowCommand borrow = new k2559671_BorrowCommand(users.get(i), book, library.getLogger());
+            library.processCommand(borrow);
+            if (borrow.isExecuted()) {
+                synchronized (winners) {
+                    winners.add(users.get(i));
+                }
+            }
+        });
+        assertEquals(List.of(holder), winners);
+        assertEquals(1, library.getOpenLoansForBook("B1").size());
+        assertEquals("Fulfilled", hold.getStatus());
+        assertEquals("Borrowed", book.getAvailabilityStatus());
+    }
+
+    @Test
+    void concurrentBorrowsNeverExceedTheBorrowingLimit() throws InterruptedException {
+        k2559671_User student = user("U1", k2559671_MembershipType.STUDENT);
+        library.addUser(student);
+        List<k2559671_Book> books = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            k2559671_Book book = book("B" + i, "Science");
+            library.addBook(book);
+            books.add(book);
+        }
+
+        AtomicInteger borrowed = new AtomicInteger();
+        runConcurrently(i -> {
+            k2559671_BorrowCommand borrow = new k2559671_BorrowCommand(student, books.get(i), library.getLogger());
+            library.processCommand(borrow);
+            if (borrow.isExecuted()) {
+                borrowed.incrementAndGet();
+            }
+        });
+
+        int limit = student.getBorrowLimit();
+        assertEquals(limit, borrowed.get());
+        assertEquals(limit, student.getCurrentBorrowedCount());
+        assertEquals(limit, student.getActiveLoans().size());
+        assertEquals(limit, library.countBooksByState("Borrowed"));
+    }
+
+    @Test
+    void availabilityIndexMatchesBookStatesAfterRacingTransitions() throws InterruptedException {
+        List<k2559671_Book> books = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            k2559671_Book book = book("B" + i, i % 2 == 0 ? "Science" : "History");
+            library.addBook(book);
+            books.add(book);
+        }
+
+        runConcurrently(i -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int n = 0; n < 20_000; n++) {
+                k2559671_Book book = books.get(random.nextInt(books.size()));
+                switch (random.nextInt(3)) {
+                    case 0 -> book.borrow();
+                    case 1 -> book.returnBook();
+                    default -> book.reserve();
+                }
+            }
+        });
+
+        Map<String, Integer> byState = new HashMap<>();
+        Map<String, Integer> byCategoryAndState = new HashMap<>();
+        for (k2559671_Book book : books) {
+            byState.merge(book.getAvailabilityStatus(), 1, Integer::sum);
+            byCategoryAndState.merge(book.getCategory() + "/" + book.getAvailabilityStatus(), 1, Integer::sum);
+        }
+        for (String state : List.of("Available", "Borrowed", "Reserved")) {
+            int expected = byState.getOrDefault(state, 0);
+            assertEquals(expected, library.countBooksByState(state), state);
+            assertEquals(expected, library.getBooksByState(state).size(), state);
+            for (String category : List.of("Science", "History")) {
+                assertEquals(byCategoryAndState.getOrDefault(category + "/" + state, 0),
+                        library.countBooksByState(category, state), category + "/" + state);
+            }
+        }
+    }
+
+    @Test
+    void borrowReturnCyclesLeaveNoOpenLoansOrLeakedSlots() throws InterruptedException {
+        List<k2559671_User> users = new ArrayList<>();
+        List<k2559671_Book> books = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            k2559671_User user = user("U" + i, k2559671_MembershipType.GUEST);
+            library.addUser(user);
+            users.add(user);
+            k2559671_Book book = book("B" + i, "Science");
+            library.addBook(book);
+            books.add(book);
+        }
+
+        runConcurrently(i -> {
+            k2559671_User user = users.get(i);
+            for (int n = 0; n < 200; n++) {
+                // Neighbouring desks share books, so some borrows lose the race
+                k2559671_Book book = books.get((i + n) % books.size());
+                k2559671_BorrowCommand borrow = new k2559671_BorrowCommand(user, book, library.getLogger());
+                library.processCommand(borrow);
+                if (borrow.isExecuted()) {
+                    library.processCommand(new k2559671_ReturnCommand(user, book, library.getLogger()));
+                }
+            }
+        });
+
+        for (k2559671_User user : users) {
+            assertEquals(0, user.getCurrentBorrowedCount(), user.getUserId());
+        }
+        assertTrue(library.getOpenLoansForBook("B0").isEmpty());
+        assertEquals(books.size(), library.countBooksByState("Available"));
+    }
+
+    private void runConcurrently(IntConsumer desk) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>(THREADS);
+        List<Throwable> failures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            int index = i;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    desk.accept(index);
+                } catch (Throwable e) {
+                    synchronized (failures) {
+                        failures.add(e);
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(failures.isEmpty(), () -> "Desk failed: " + failures);
+    }
+
+    private static k2559671_Book book(String id, String category) {
+        return new k2559671_Book(id, "Title " + id, "Author", category, "ISBN-" + id);
+    }
+
+    private static k2559671_User user(String id, k2559671_MembershipType type) {
+        return new k2559671_User(id, "User " + id, id + "@example.com", "0770000000", type);
+    }
+}
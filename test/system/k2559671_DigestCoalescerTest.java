@@ -0,0 +1,118 @@
+package system;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import domain.k2559671_Book;
+import domain.k2559671_LibraryClock;
+import domain.k2559671_MembershipType;
+import domain.k2559671_User;
+import patterns.observer.k2559671_DigestCoalescer;
+import patterns.observer.k2559671_NotificationManager;
+
+/**
+ * Notification digests: alerts within one window reach the observer as a
+ * single message with repeats collapsed, delivered when the window ends.
+ */
+class k2559671_DigestCoalescerTest {
+    private static final long START = 1_700_000_000_000L;
+    private static final long WINDOW_MILLIS = 60_000L;
+
+    private k2559671_LibraryClock.Manual clock;
+    private k2559671_LibrarySystem library;
+    private k2559671_NotificationManager notifications;
+    private k2559671_User reader;
+    private k2559671_Book book;
+
+    @BeforeEach
+    void setUp() {
+        clock = k2559671_LibraryClock.manual(START);
+        k2559671_LibraryClock.install(clock);
+        library = new k2559671_LibrarySystem();
+        library.getLogger().setConsoleOutput(false);
+        library.getLogger().setFileOutput(false);
+        notifications = library.getNotificationManager();
+        reader = user("U1", k2559671_MembershipType.STUDENT);
+        library.addUser(reader);
+        book = book("B1");
+        library.addBook(book);
+        notifications.enableDigest(WINDOW_MILLIS, library.getTimedEvents());
+    }
+
+    @AfterEach
+    void tearDown() {
+        notifications.disableDigest();
+        library.getLogger().close();
+        k2559671_LibraryClock.install(k2559671_LibraryClock.system());
+    }
+
+    @Test
+    void repeatedAlertsInOneWindowArriveAsOneDigest() throws InterruptedException {
+        notifications.sendOverdueAlert(reader, book);
+        notifications.sendOverdueAlert(reader, book);
+        notifications.sendDueDateReminder(reader, book);
+        assertTrue(reader.getNotifications().isEmpty(), "Held until the window ends");
+
+        clock.advance(WINDOW_MILLIS);
+        List<String> delivered = awaitNotifications(1);
+
+        String digest = delivered.get(0);
+        assertTrue(digest.startsWith("📦 Digest of 2 alerts:"), digest);
+        assertTrue(digest.contains("is overdue! Please return immediately. (x2)"), digest);
+        assertTrue(digest.contains("is due soon!"), digest);
+        k2559671_DigestCoalescer digests = notifications.getDigests();
+        assertEquals(3, digests.getReceivedCount());
+        assertEquals(1, digests.getDigestCount());
+        assertEquals(0, digests.getOpenDigestCount());
+    }
+
+    @Test
+    void singleAlertIsDeliveredUnchanged() throws InterruptedException {
+        notifications.sendOverdueAlert(reader, book);
+
+        clock.advance(WINDOW_MILLIS);
+
+        assertEquals(List.of("⚠ OVERDUE: Book 'Title B1' is overdue! Please return immediately."),
+                awaitNotifications(1));
+    }
+
+    @Test
+    void disablingDeliversOpenDigestsAtOnce() {
+        notifications.sendDueDateReminder(reader, book);
+        notifications.sendDueDateReminder(reader, book);
+
+        notifications.disableDigest();
+
+        assertEquals(List.of("Reminder: Book 'Title B1' is due soon! (x2)"), reader.getNotifications());
+        assertEquals(0, library.getTimedEvents().size());
+    }
+
+    /**
+     * Run due events; the scheduler thread may have flushed the digest
+     * already, so wait for it to arrive.
+     */
+    private List<String> awaitNotifications(int count) throws InterruptedException {
+        library.getTimedEvents().runDue(clock.millis());
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (reader.getNotifications().size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        List<String> delivered = reader.getNotifications();
+        assertEquals(count, delivered.size());
+        return delivered;
+    }
+
+    private static k2559671_Book book(String id) {
+        return new k2559671_Book(id, "Title " + id, "Author", "Science", "ISBN-" + id);
+    }
+
+    private static k2559671_User user(String id, k2559671_MembershipType type) {
+        return new k2559671_User(id, "User " + id, id + "@example.com", "0770000000", type);
+    }
+}
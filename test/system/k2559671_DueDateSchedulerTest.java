@@ -0,0 +1,112 @@
+package system;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import domain.k2559671_Book;
+import domain.k2559671_LibraryClock;
+import domain.k2559671_MembershipType;
+import domain.k2559671_User;
+import patterns.command.k2559671_BorrowCommand;
+import patterns.command.k2559671_ReturnCommand;
+
+/**
+ * Due-date events on a manual clock: the reminder fires two days before
+ * the due date, the overdue alert on it, and a return cancels both.
+ */
+class k2559671_DueDateSchedulerTest {
+    private static final long START = 1_700_000_000_000L;
+    private static final int LOAN_DAYS = k2559671_MembershipType.STUDENT.getLoanPeriodDays();
+
+    private k2559671_LibraryClock.Manual clock;
+    private k2559671_LibrarySystem library;
+    private k2559671_User student;
+    private k2559671_Book book;
+
+    @BeforeEach
+    void setUp() {
+        clock = k2559671_LibraryClock.manual(START);
+        k2559671_LibraryClock.install(clock);
+        library = new k2559671_LibrarySystem();
+        library.getLogger().setConsoleOutput(false);
+        library.getLogger().setFileOutput(false);
+        student = user("U1", k2559671_MembershipType.STUDENT);
+        library.addUser(student);
+        book = book("B1");
+        library.addBook(book);
+        library.processCommand(new k2559671_BorrowCommand(student, book, library.getLogger()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        library.getLogger().close();
+        k2559671_LibraryClock.install(k2559671_LibraryClock.system());
+    }
+
+    @Test
+    void reminderThenOverdueAlertFireOnTheClock() throws InterruptedException {
+        clock.advanceDays(LOAN_DAYS - 3);
+        runDue();
+        assertTrue(alerts("due soon").isEmpty(), "No reminder three days out");
+        assertEquals(1, library.getDueDates().getLoansDueWithin(4).size());
+
+        clock.advanceDays(1);
+        awaitAlert("due soon");
+        assertTrue(alerts("OVERDUE").isEmpty());
+
+        clock.advanceDays(3);
+        awaitAlert("OVERDUE");
+        assertEquals(1, alerts("due soon").size(), "Each event fires once");
+        assertEquals(1, library.getDueDates().getOverdueLoans().size());
+        assertEquals(0, library.getTimedEvents().size());
+    }
+
+    @Test
+    void returningTheBookCancelsItsEvents() {
+        assertEquals(2, library.getTimedEvents().size());
+
+        library.processCommand(new k2559671_ReturnCommand(student, book, library.getLogger()));
+        clock.advanceDays(LOAN_DAYS + 1);
+        runDue();
+
+        assertEquals(0, library.getTimedEvents().size());
+        assertTrue(alerts("due soon").isEmpty());
+        assertTrue(alerts("OVERDUE").isEmpty());
+        assertTrue(library.getDueDates().getOverdueLoans().isEmpty());
+    }
+
+    private void runDue() {
+        library.getTimedEvents().runDue(clock.millis());
+    }
+
+    /**
+     * Run due events; the scheduler thread may have taken one already, so
+     * wait for its alert to arrive.
+     */
+    private void awaitAlert(String text) throws InterruptedException {
+        runDue();
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (alerts(text).isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(1, alerts(text).size(), "Expected one alert containing: " + text);
+    }
+
+    private List<String> alerts(String text) {
+        return student.getNotifications().stream().filter(n -> n.contains(text)).toList();
+    }
+
+    private static k2559671_Book book(String id) {
+        return new k2559671_Book(id, "Title " + id, "Author", "Science", "ISBN-" + id);
+    }
+
+    private static k2559671_User user(String id, k2559671_MembershipType type) {
+        return new k2559671_User(id, "User " + id, id + "@example.com", "0770000000", type);
+    }
+}
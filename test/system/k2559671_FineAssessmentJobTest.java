@@ -0,0 +1,106 @@
+package system;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import domain.k2559671_Book;
+import domain.k2559671_Fine;
+import domain.k2559671_LibraryClock;
+import domain.k2559671_MembershipType;
+import domain.k2559671_User;
+import patterns.command.k2559671_BorrowCommand;
+
+/**
+ * Fine assessment job: running it again the same day changes nothing, a
+ * later run re-prices the unpaid fine, and a paid fine is left alone.
+ */
+class k2559671_FineAssessmentJobTest {
+    private static final long START = 1_700_000_000_000L;
+    private static final int LOAN_DAYS = k2559671_MembershipType.STUDENT.getLoanPeriodDays();
+
+    private k2559671_LibraryClock.Manual clock;
+    private k2559671_LibrarySystem library;
+    private k2559671_User student;
+    private String fineId;
+
+    @BeforeEach
+    void setUp() {
+        clock = k2559671_LibraryClock.manual(START);
+        k2559671_LibraryClock.install(clock);
+        library = new k2559671_LibrarySystem();
+        library.getLogger().setConsoleOutput(false);
+        library.getLogger().setFileOutput(false);
+        student = user("U1", k2559671_MembershipType.STUDENT);
+        library.addUser(student);
+        k2559671_Book book = book("B1");
+        library.addBook(book);
+        library.processCommand(new k2559671_BorrowCommand(student, book, library.getLogger()));
+        fineId = k2559671_FineAssessmentJob.FINE_ID_PREFIX
+                + library.getOpenLoansForUser("U1").get(0).getRecordId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        library.getLogger().close();
+        k2559671_LibraryClock.install(k2559671_LibraryClock.system());
+    }
+
+    @Test
+    void secondRunOnTheSameDayChangesNothing() {
+        clock.advanceDays(LOAN_DAYS + 3);
+
+        k2559671_FineAssessmentJob.Result first = library.assessFines();
+        k2559671_FineAssessmentJob.Result second = library.assessFines();
+
+        assertEquals(1, first.created());
+        assertEquals(0, second.created());
+        assertEquals(0, second.updated());
+        assertEquals(1, second.unchanged());
+        assertEquals(1, library.getFinesForUser("U1").size());
+        assertEquals(student.calculateFine(3), library.getFine(fineId).getAmount());
+        assertEquals(k2559671_Fine.toMinorUnits(student.calculateFine(3)), library.getOutstandingFines("U1"));
+    }
+
+    @Test
+    void laterRunRepricesTheUnpaidFine() {
+        clock.advanceDays(LOAN_DAYS + 3);
+        library.assessFines();
+
+        clock.advanceDays(2);
+        k2559671_FineAssessmentJob.Result later = library.assessFines();
+
+        assertEquals(0, later.created());
+        assertEquals(1, later.updated());
+        assertEquals(student.calculateFine(5), library.getFine(fineId).getAmount());
+        assertEquals(k2559671_Fine.toMinorUnits(student.calculateFine(5)), library.getOutstandingFines("U1"),
+                "The ledger follows the re-priced amount");
+    }
+
+    @Test
+    void paidFineIsNotRepriced() {
+        clock.advanceDays(LOAN_DAYS + 3);
+        library.assessFines();
+        assertTrue(library.payFine(fineId));
+
+        clock.advanceDays(2);
+        k2559671_FineAssessmentJob.Result later = library.assessFines();
+
+        assertEquals(1, later.skipped());
+        assertEquals(student.calculateFine(3), library.getFine(fineId).getAmount());
+        assertEquals(0, library.getOutstandingFines("U1"));
+        assertEquals(k2559671_Fine.toMinorUnits(student.calculateFine(3)),
+                library.getFineLedger().getPaid("U1"));
+    }
+
+    private static k2559671_Book book(String id) {
+        return new k2559671_Book(id, "Title " + id, "Author", "Science", "ISBN-" + id);
+    }
+
+    private static k2559671_User user(String id, k2559671_MembershipType type) {
+        return new k2559671_User(id, "User " + id, id + "@example.com", "0770000000", type);
+    }
+}
@@ -0,0 +1,100 @@
+package system;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import domain.k2559671_Fine;
+import domain.k2559671_MembershipType;
+import domain.k2559671_User;
+
+/**
+ * Fine ledger: balances are exact minor-unit sums, payments from several
+ * threads move each fine from outstanding to paid once, and the per-type
+ * balances add up to the library total.
+ */
+class k2559671_FineLedgerTest {
+    private k2559671_LibrarySystem library;
+    private k2559671_FineLedger ledger;
+
+    @BeforeEach
+    void setUp() {
+        library = new k2559671_LibrarySystem();
+        library.getLogger().setConsoleOutput(false);
+        library.getLogger().setFileOutput(false);
+        ledger = library.getFineLedger();
+        library.addUser(user("U1", k2559671_MembershipType.STUDENT));
+        library.addUser(user("U2", k2559671_MembershipType.FACULTY));
+    }
+
+    @AfterEach
+    void tearDown() {
+        library.getLogger().close();
+    }
+
+    @Test
+    void manySmallFinesSumExactly() {
+        for (int i = 0; i < 1_000; i++) {
+            library.addFine(new k2559671_Fine("F" + i, "U1", "B1", 0.10));
+        }
+
+        assertEquals(10_000, library.getOutstandingFines("U1"));
+        assertEquals("100.00", k2559671_FineLedger.format(ledger.getTotal().getOutstanding()));
+    }
+
+    @Test
+    void concurrentPaymentsMoveEachFineOnce() throws InterruptedException {
+        for (int i = 0; i < 200; i++) {
+            library.addFine(new k2559671_Fine("F" + i, i % 2 == 0 ? "U1" : "U2", "B1", 12.55));
+        }
+        List<Thread> desks = new ArrayList<>();
+        for (int d = 0; d < 4; d++) {
+            // Every desk tries to pay every fine; only one payment of each may count
+            Thread desk = new Thread(() -> {
+                for (int i = 0; i < 200; i++) {
+                    library.payFine("F" + i);
+                }
+            });
+            desk.start();
+            desks.add(desk);
+        }
+        for (Thread desk : desks) {
+            desk.join();
+        }
+
+        assertEquals(0, ledger.getTotal().getOutstanding());
+        assertEquals(200 * 1_255L, ledger.getTotal().getPaid());
+        assertEquals(200, ledger.getTotal().getPaidCount());
+        assertEquals(100 * 1_255L, ledger.getPaid("U1"));
+        assertEquals(100 * 1_255L, ledger.getPaid("U2"));
+    }
+
+    @Test
+    void typeBalancesAddUpToTheTotal() {
+        library.addFine(new k2559671_Fine("F1", "U1", "B1", 50.25));
+        library.addFine(new k2559671_Fine("F2", "U2", "B1", 20.10));
+        library.addFine(new k2559671_Fine("F3", "U2", "B2", 40.00));
+        library.payFine("F3");
+
+        assertEquals(5_025, ledger.getBalance(k2559671_MembershipType.STUDENT).getOutstanding());
+        assertEquals(2_010, ledger.getBalance(k2559671_MembershipType.FACULTY).getOutstanding());
+        assertEquals(4_000, ledger.getBalance(k2559671_MembershipType.FACULTY).getPaid());
+        long outstanding = 0;
+        long paid = 0;
+        for (k2559671_FineLedger.Balance balance : ledger.getBalancesByType().values()) {
+            outstanding += balance.getOutstanding();
+            paid += balance.getPaid();
+        }
+        assertEquals(ledger.getTotal().getOutstanding(), outstanding);
+        assertEquals(ledger.getTotal().getPaid(), paid);
+    }
+
+    private static k2559671_User user(String id, k2559671_MembershipType type) {
+        return new k2559671_User(id, "User " + id, id + "@example.com", "0770000000", type);
+    }
+}
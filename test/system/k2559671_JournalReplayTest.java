@@ -0,0 +1,292 @@
+package system;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import domain.k2559671_Book;
+import domain.k2559671_BorrowRecord;
+import domain.k2559671_LibraryClock;
+import domain.k2559671_MembershipType;
+import domain.k2559671_Reservation;
+import domain.k2559671_User;
+import patterns.command.k2559671_BorrowCommand;
+import patterns.command.k2559671_ReserveCommand;
+import patterns.command.k2559671_ReturnCommand;
+import patterns.strategy.k2559671_FineStrategies;
+
+/**
+ * Journal round trip: a library rebuilt from the journal has the same
+ * records, dates and book states as the one that wrote it, also when
+ * desks raced on the same books, and replay notifies no one. Replay stops
+ * at the last entry it can decode.
+ */
+class k2559671_JournalReplayTest {
+    private static final long START = 1_700_000_000_000L;
+
+    @TempDir
+    Path dir;
+
+    private k2559671_LibraryClock.Manual clock;
+    private final List<k2559671_LibrarySystem> libraries = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        clock = k2559671_LibraryClock.manual(START);
+        k2559671_LibraryClock.install(clock);
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (k2559671_LibrarySystem library : libraries) {
+            library.closeJournal();
+            library.getLogger().close();
+        }
+        k2559671_LibraryClock.install(k2559671_LibraryClock.system());
+    }
+
+    @Test
+    void replayRebuildsRecordsWithTheirOriginalDates() throws IOException {
+        Path file = dir.resolve("library.journal");
+        k2559671_LibrarySystem original = library();
+        original.openJournal(file, 1, 10);
+        k2559671_User student = user("U1", k2559671_MembershipType.STUDENT);
+        k2559671_User faculty = user("U2", k2559671_MembershipType.FACULTY);
+        faculty.setFineStrategy(k2559671_FineStrategies.FACULTY);
+        original.addUser(student);
+        original.addUser(faculty);
+        k2559671_Book overdue = book("B1");
+        k2559671_Book returned = book("B2");
+        original.addBook(overdue);
+        original.addBook(returned);
+
+        original.processCommand(new k2559671_BorrowCommand(student, overdue, original.getLogger()));
+        clock.advanceDays(20);
+        original.processCommand(new k2559671_BorrowCommand(student, returned, original.getLogger()));
+        clock.advanceDays(1);
+        original.processCommand(new k2559671_ReserveCommand(faculty, returned, original.getLogger()));
+        clock.advanceDays(1);
+        original.processCommand(new k2559671_ReturnCommand(student, returned, original.getLogger()));
+        original.closeJournal();
+
+        // Restart a day later: the hold is still waiting for pickup
+        clock.advanceDays(1);
+        k2559671_LibrarySystem replayed = library();
+        replayed.openJournal(file, 1, 10);
+        for (k2559671_User user : replayed.getAllUsers()) {
+            assertTrue(user.getNotifications().isEmpty(), "Replay notified " + user.getUserId());
+        }
+
+        assertSameLoans(original, replayed);
+        assertSameHolds(original, replayed);
+        for (String bookId : List.of("B1", "B2")) {
+            assertEquals(original.getBook(bookId).getAvailabilityStatus(),
+                    replayed.getBook(bookId).getAvailabilityStatus(), bookId);
+        }
+        assertEquals(1, replayed.getUser("U1").getCurrentBorrowedCount());
+        assertSame(k2559671_FineStrategies.FACULTY, replayed.getUser("U2").getFineStrategy());
+
+        k2559671_BorrowRecord loan = replayed.getOpenLoansForUser("U1").get(0);
+        assertEquals(START, loan.getBorrowMillis());
+        assertTrue(loan.isOverdue(), "A loan overdue before the restart is still overdue after it");
+        assertEquals(1, replayed.getDueDates().getOverdueLoans().size());
+    }
+
+    @Test
+    void commandsThatDidNotExecuteAreNotJournaled() throws IOException {
+        Path file = dir.resolve("library.journal");
+        k2559671_LibrarySystem original = library();
+        original.openJournal(file, 1, 10);
+        k2559671_User first = user("U1", k2559671_MembershipType.GUEST);
+        k2559671_User second = user("U2", k2559671_MembershipType.GUEST);
+        original.addUser(first);
+        original.addUser(second);
+        k2559671_Book book = book("B1");
+        k2559671_Book onShelf = book("B2");
+        original.addBook(book);
+        original.addBook(onShelf);
+        long before = original.getJournal().getEntriesWritten();
+
+        original.processCommand(new k2559671_BorrowCommand(first, book, original.getLogger()));
+        k2559671_BorrowCommand refused = new k2559671_BorrowCommand(second, book, original.getLogger());
+        original.processCommand(refused);
+        k2559671_ReturnCommand nothingToReturn = new k2559671_ReturnCommand(second, onShelf, original.getLogger());
+        original.processCommand(nothingToReturn);
+
+        assertFalse(refused.isExecuted());
+        assertFalse(nothingToReturn.isExecuted());
+        assertEquals(before + 1, original.getJournal().getEntriesWritten());
+        assertEquals(1, original.getCommandHistory().getUndoCount());
+    }
+
+    @Test
+    void replayContinuesTheRecordSequence() throws IOException {
+        Path file = dir.resolve("library.journal");
+        k2559671_LibrarySystem original = library();
+        original.openJournal(file, 1, 10);
+        k2559671_User user = user("U1", k2559671_MembershipType.FACULTY);
+        original.addUser(user);
+        original.addBook(book("B1"));
+        original.addBook(book("B2"));
+        original.processCommand(new k2559671_BorrowCommand(user, original.getBook("B1"), original.getLogger()));
+        original.closeJournal();
+
+        k2559671_LibrarySystem replayed = library();
+        replayed.openJournal(file, 1, 10);
+        k2559671_User restored = replayed.getUser("U1");
+        replayed.processCommand(new k2559671_BorrowCommand(restored, replayed.getBook("B2"), replayed.getLogger()));
+
+        assertEquals(2, replayed.getOpenLoansForUser("U1").size());
+        assertNotNull(replayed.getBorrowRecord("L1"));
+        assertNotNull(replayed.getBorrowRecord("L2"));
+    }
+
+    @Test
+    void replayMatchesDesksRacingOnTheSameBooks() throws IOException, InterruptedException {
+        Path file = dir.resolve("library.journal");
+        k2559671_LibrarySystem original = library();
+        original.openJournal(file, 64, 10);
+        List<k2559671_Book> books = List.of(book("B1"), book("B2"));
+        List<k2559671_User> desks = List.of(user("U1", k2559671_MembershipType.FACULTY),
+                user("U2", k2559671_MembershipType.FACULTY));
+        books.forEach(original::addBook);
+        desks.forEach(original::addUser);
+
+        // Each desk borrows and returns the shared books; a return on one desk
+        // and the other desk's borrow of the same copy must be journaled in
+        // the order they were applied
+        List<Thread> threads = new ArrayList<>();
+        List<Throwable> failures = new ArrayList<>();
+        for (k2559671_User desk : desks) {
+            Thread thread = new Thread(() -> {
+                try {
+                    for (int n = 0; n < 2_000; n++) {
+                        k2559671_Book book = books.get(n % books.size());
+                        k2559671_BorrowCommand borrow = new k2559671_BorrowCommand(desk, book, original.getLogger());
+                        original.processCommand(borrow);
+                        if (borrow.isExecuted()) {
+                            original.processCommand(new k2559671_ReturnCommand(desk, book, original.getLogger()));
+                        }
+                    }
+                } catch (Throwable e) {
+                    synchronized (failures) {
+                        failures.add(e);
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(failures.isEmpty(), () -> "Desk failed: " + failures);
+        original.closeJournal();
+
+        k2559671_LibrarySystem replayed = library();
+        replayed.openJournal(file, 64, 10);
+
+        assertSameLoans(original, replayed);
+        for (k2559671_Book book : books) {
+            assertEquals(book.getAvailabilityStatus(),
+                    replayed.getBook(book.getBookId()).getAvailabilityStatus(), book.getBookId());
+        }
+        for (k2559671_User desk : desks) {
+            assertEquals(desk.getCurrentBorrowedCount(),
+                    replayed.getUser(desk.getUserId()).getCurrentBorrowedCount(), desk.getUserId());
+        }
+    }
+
+    @Test
+    void replayStopsCleanlyAtAnEntryItCannotDecode() throws IOException {
+        Path file = dir.resolve("library.journal");
+        k2559671_LibrarySystem original = library();
+        original.openJournal(file, 1, 10);
+        original.addUser(user("U1", k2559671_MembershipType.STUDENT));
+        original.addBook(book("B1"));
+        original.closeJournal();
+        long goodLength = Files.size(file);
+
+        // Both have a valid CRC: an unknown type, then an ADD_USER with no membership
+        appendEntry(file, new byte[] { 99, 0, 0, 0, 0 });
+        appendEntry(file, new byte[] { 3, -1, -1, -1, -1 });
+
+        k2559671_LibrarySystem replayed = library();
+        replayed.openJournal(file, 1, 10);
+
+        assertNotNull(replayed.getUser("U1"));
+        assertNotNull(replayed.getBook("B1"));
+        assertEquals(goodLength, Files.size(file), "Undecodable tail is truncated");
+
+        replayed.addBook(book("B2"));
+        replayed.closeJournal();
+        k2559671_LibrarySystem reopened = library();
+        reopened.openJournal(file, 1, 10);
+        assertNotNull(reopened.getBook("B2"), "New entries follow the last good one");
+    }
+
+    private static void appendEntry(Path file, byte[] payload) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer entry = ByteBuffer.allocate(payload.length + 8);
+        entry.putInt(payload.length).put(payload).putInt((int) crc.getValue());
+        Files.write(file, entry.array(), StandardOpenOption.APPEND);
+    }
+
+    private static void assertSameLoans(k2559671_LibrarySystem expected, k2559671_LibrarySystem actual) {
+        List<k2559671_BorrowRecord> loans = expected.getAllBorrowRecords();
+        assertEquals(loans.size(), actual.getAllBorrowRecords().size());
+        for (k2559671_BorrowRecord loan : loans) {
+            k2559671_BorrowRecord copy = actual.getBorrowRecord(loan.getRecordId());
+            assertNotNull(copy, loan.getRecordId());
+            assertEquals(loan.getBorrowMillis(), copy.getBorrowMillis(), loan.getRecordId());
+            assertEquals(loan.getDueMillis(), copy.getDueMillis(), loan.getRecordId());
+            assertEquals(loan.getIsReturned(), copy.getIsReturned(), loan.getRecordId());
+            assertEquals(loan.getReturnMillis(), copy.getReturnMillis(), loan.getRecordId());
+        }
+    }
+
+    private static void assertSameHolds(k2559671_LibrarySystem expected, k2559671_LibrarySystem actual) {
+        List<k2559671_Reservation> holds = expected.getAllReservations();
+        assertEquals(holds.size(), actual.getAllReservations().size());
+        for (k2559671_Reservation hold : holds) {
+            k2559671_Reservation copy = actual.getReservation(hold.getReservationId());
+            assertNotNull(copy, hold.getReservationId());
+            assertEquals(hold.getStatus(), copy.getStatus(), hold.getReservationId());
+            assertEquals(hold.getReservationMillis(), copy.getReservationMillis(), hold.getReservationId());
+            assertEquals(hold.getExpiryMillis(), copy.getExpiryMillis(), hold.getReservationId());
+        }
+    }
+
+    private k2559671_LibrarySystem library() {
+        k2559671_LibrarySystem library = new k2559671_LibrarySystem();
+        library.getLogger().setConsoleOutput(false);
+        library.getLogger().setFileOutput(false);
+        libraries.add(library);
+        return library;
+    }
+
+    private static k2559671_Book book(String id) {
+        return new k2559671_Book(id, "Title " + id, "Author", "Science", "ISBN-" + id);
+    }
+
+    private static k2559671_User user(String id, k2559671_MembershipType type) {
+        return new k2559671_User(id, "User " + id, id + "@example.com", "0770000000", type);
+    }
+}
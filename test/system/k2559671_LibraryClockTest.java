@@ -0,0 +1,123 @@
+package system;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import domain.k2559671_Book;
+import domain.k2559671_BorrowRecord;
+import domain.k2559671_LibraryClock;
+import domain.k2559671_MembershipType;
+import domain.k2559671_Reservation;
+import domain.k2559671_User;
+import patterns.command.k2559671_BorrowCommand;
+import patterns.command.k2559671_ReturnCommand;
+
+/**
+ * Loan and reservation dates follow the installed library clock: due dates
+ * are stamped from it, and overdue and expiry checks move only when it does.
+ */
+class k2559671_LibraryClockTest {
+    private static final long START = 1_700_000_000_000L;
+    private static final long DAY = k2559671_LibraryClock.MILLIS_PER_DAY;
+    private static final int LOAN_DAYS = k2559671_MembershipType.STUDENT.getLoanPeriodDays();
+
+    private k2559671_LibraryClock.Manual clock;
+    private k2559671_LibrarySystem library;
+    private k2559671_User student;
+    private k2559671_Book book;
+
+    @BeforeEach
+    void setUp() {
+        clock = k2559671_LibraryClock.manual(START);
+        k2559671_LibraryClock.install(clock);
+        library = new k2559671_LibrarySystem();
+        library.getLogger().setConsoleOutput(false);
+        library.getLogger().setFileOutput(false);
+        student = user("U1", k2559671_MembershipType.STUDENT);
+        library.addUser(student);
+        book = book("B1");
+        library.addBook(book);
+    }
+
+    @AfterEach
+    void tearDown() {
+        library.getLogger().close();
+        k2559671_LibraryClock.install(k2559671_LibraryClock.system());
+    }
+
+    @Test
+    void loanDatesAreStampedFromTheClock() {
+        library.processCommand(new k2559671_BorrowCommand(student, book, library.getLogger()));
+        k2559671_BorrowRecord loan = library.getOpenLoansForUser("U1").get(0);
+
+        assertEquals(START, loan.getBorrowMillis());
+        assertEquals(START + LOAN_DAYS * DAY, loan.getDueMillis());
+        assertEquals(Math.floorDiv(START, DAY) + LOAN_DAYS, loan.getDueEpochDay());
+        assertEquals(loan.getDueMillis(), loan.getDueDate().getTime());
+    }
+
+    @Test
+    void overdueDaysMoveOnlyWithTheClock() {
+        library.processCommand(new k2559671_BorrowCommand(student, book, library.getLogger()));
+        k2559671_BorrowRecord loan = library.getOpenLoansForUser("U1").get(0);
+
+        clock.advance(LOAN_DAYS * DAY);
+        assertFalse(loan.isOverdue(), "Not overdue at the due time itself");
+        clock.advance(1);
+        assertTrue(loan.isOverdue());
+        assertEquals(0, loan.getDaysOverdue(), "Only whole days count");
+
+        clock.advanceDays(60);
+        assertEquals(60, loan.getDaysOverdue());
+
+        library.processCommand(new k2559671_ReturnCommand(student, book, library.getLogger()));
+        clock.advanceDays(30);
+        assertTrue(loan.getIsReturned());
+        assertEquals(60, loan.getDaysOverdue(), "A returned loan is measured at its return");
+        assertEquals(clock.millis() - 30 * DAY, loan.getReturnMillis());
+    }
+
+    @Test
+    void reservationExpiresAtItsPickupDeadline() {
+        k2559671_Reservation hold = new k2559671_Reservation("H1", "U1", "B1");
+        assertEquals(START, hold.getReservationMillis());
+        assertFalse(hold.hasPickupDeadline());
+
+        clock.advanceDays(90);
+        assertFalse(hold.hasExpired(), "A waiting hold has no deadline");
+
+        hold.markReady(clock.millis());
+        clock.advanceDays(3);
+        assertFalse(hold.hasExpired());
+        clock.advance(1);
+        assertTrue(hold.hasExpired());
+        assertFalse(hold.isActive());
+    }
+
+    @Test
+    void todayIsTheEpochDayOfTheClock() {
+        long day = Math.floorDiv(START, DAY);
+        assertEquals(day, clock.today());
+
+        clock.set((day + 1) * DAY - 1);
+        assertEquals(day, clock.today());
+        clock.advance(1);
+        assertEquals(day + 1, clock.today());
+
+        long systemDay = Math.floorDiv(System.currentTimeMillis(), DAY);
+        assertTrue(Math.abs(k2559671_LibraryClock.system().today() - systemDay) <= 1);
+    }
+
+    private static k2559671_Book book(String id) {
+        return new k2559671_Book(id, "Title " + id, "Author", "Science", "ISBN-" + id);
+    }
+
+    private static k2559671_User user(String id, k2559671_MembershipType type) {
+        return new k2559671_User(id, "User " + id, id + "@example.com", "0770000000", type);
+    }
+}
@@ -0,0 +1,107 @@
+package system;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import domain.k2559671_Book;
+import domain.k2559671_MembershipType;
+import domain.k2559671_Reservation;
+import domain.k2559671_User;
+import patterns.command.k2559671_BorrowCommand;
+import patterns.command.k2559671_ReturnCommand;
+
+/**
+ * Per-user loan tracking: the open-loan set and counter behind the
+ * borrowing limit, returns checked against it, and the user's
+ * reservations handed out as copies.
+ */
+class k2559671_LoanTrackingTest {
+    private k2559671_LibrarySystem library;
+    private k2559671_User borrower;
+    private k2559671_User other;
+    private k2559671_Book book;
+
+    @BeforeEach
+    void setUp() {
+        library = new k2559671_LibrarySystem();
+        library.getLogger().setConsoleOutput(false);
+        library.getLogger().setFileOutput(false);
+        borrower = user("U1", k2559671_MembershipType.GUEST);
+        other = user("U2", k2559671_MembershipType.GUEST);
+        library.addUser(borrower);
+        library.addUser(other);
+        book = book("B1");
+        library.addBook(book);
+    }
+
+    @AfterEach
+    void tearDown() {
+        library.getLogger().close();
+    }
+
+    @Test
+    void onlyTheBorrowerCanReturnABook() {
+        library.processCommand(new k2559671_BorrowCommand(borrower, book, library.getLogger()));
+
+        k2559671_ReturnCommand wrongUser = new k2559671_ReturnCommand(other, book, library.getLogger());
+        library.processCommand(wrongUser);
+
+        assertFalse(wrongUser.isExecuted());
+        assertEquals("Borrowed", book.getAvailabilityStatus());
+        assertEquals(1, borrower.getCurrentBorrowedCount());
+        assertEquals(1, library.getOpenLoansForBook("B1").size());
+
+        k2559671_ReturnCommand ret = new k2559671_ReturnCommand(borrower, book, library.getLogger());
+        library.processCommand(ret);
+
+        assertTrue(ret.isExecuted());
+        assertEquals("Available", book.getAvailabilityStatus());
+        assertEquals(0, borrower.getCurrentBorrowedCount());
+        assertEquals(1, borrower.getLoanHistory().size());
+    }
+
+    @Test
+    void borrowingLimitCountsOpenLoansOnly() {
+        int limit = borrower.getBorrowLimit();
+        for (int i = 0; i < limit; i++) {
+            k2559671_Book next = book("L" + i);
+            library.addBook(next);
+            library.processCommand(new k2559671_BorrowCommand(borrower, next, library.getLogger()));
+        }
+        k2559671_BorrowCommand overLimit = new k2559671_BorrowCommand(borrower, book, library.getLogger());
+        library.processCommand(overLimit);
+        assertFalse(overLimit.isExecuted());
+        assertEquals(limit, borrower.getActiveLoans().size());
+
+        library.processCommand(new k2559671_ReturnCommand(borrower, library.getBook("L0"), library.getLogger()));
+        k2559671_BorrowCommand afterReturn = new k2559671_BorrowCommand(borrower, book, library.getLogger());
+        library.processCommand(afterReturn);
+
+        assertTrue(afterReturn.isExecuted());
+        assertEquals(limit, borrower.getCurrentBorrowedCount());
+        assertTrue(borrower.hasOpenLoan("B1"));
+        assertFalse(borrower.hasOpenLoan("L0"));
+    }
+
+    @Test
+    void reservationsAreReturnedAsACopy() {
+        borrower.addReservation(new k2559671_Reservation("H1", "U1", "B1"));
+
+        borrower.getReservations().clear();
+
+        assertEquals(1, borrower.getReservations().size());
+    }
+
+    private static k2559671_Book book(String id) {
+        return new k2559671_Book(id, "Title " + id, "Author", "Science", "ISBN-" + id);
+    }
+
+    private static k2559671_User user(String id, k2559671_MembershipType type) {
+        return new k2559671_User(id, "User " + id, id + "@example.com", "0770000000", type);
+    }
+}
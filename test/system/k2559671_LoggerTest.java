@@ -0,0 +1,88 @@
+package system;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Asynchronous logger: an idle writer is woken by the next entry, and the
+ * BLOCK policy loses nothing when desks overfill a small buffer.
+ */
+class k2559671_LoggerTest {
+    @TempDir
+    Path dir;
+
+    private k2559671_Logger logger;
+
+    @AfterEach
+    void tearDown() {
+        logger.close();
+    }
+
+    @Test
+    void idleWriterIsWokenByTheNextEntry() throws InterruptedException {
+        logger = logger(64);
+        logger.log("first");
+        logger.flush();
+
+        // The writer is parked now; the next entry alone must wake it
+        Thread.sleep(50);
+        logger.log("second");
+        long deadline = System.nanoTime() + 2_000_000_000L;
+        while (logger.getPendingCount() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+
+        assertEquals(0, logger.getPendingCount(), "Entry left waiting for a writer that was not woken");
+        assertEquals(List.of("first", "second"), messages(logger.getHistory()));
+    }
+
+    @Test
+    void blockPolicyKeepsEveryEntryWhenTheBufferIsFull() throws InterruptedException {
+        logger = logger(4);
+        List<Thread> desks = new ArrayList<>();
+        for (int d = 0; d < 4; d++) {
+            int desk = d;
+            Thread thread = new Thread(() -> {
+                for (int n = 0; n < 500; n++) {
+                    logger.log(desk + ":" + n);
+                }
+            });
+            thread.start();
+            desks.add(thread);
+        }
+        for (Thread desk : desks) {
+            desk.join();
+        }
+
+        Set<String> logged = new HashSet<>(messages(logger.getHistory()));
+        assertEquals(2_000, logged.size());
+        assertTrue(logged.contains("3:499"));
+        assertEquals(0, logger.getDroppedCount());
+    }
+
+    private k2559671_Logger logger(int bufferCapacity) {
+        k2559671_Logger created = new k2559671_Logger(dir.resolve("test.log"), bufferCapacity, 10_000,
+                k2559671_Logger.OverflowPolicy.BLOCK, 1);
+        created.setConsoleOutput(false);
+        created.setFileOutput(false);
+        return created;
+    }
+
+    private static List<String> messages(List<String> history) {
+        List<String> messages = new ArrayList<>(history.size());
+        for (String line : history) {
+            messages.add(line.substring(line.indexOf("] ") + 2));
+        }
+        return messages;
+    }
+}
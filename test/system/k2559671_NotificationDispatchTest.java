@@ -0,0 +1,104 @@
+package system;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import domain.k2559671_MembershipType;
+import domain.k2559671_User;
+import patterns.observer.k2559671_NotificationDispatcher;
+import patterns.observer.k2559671_NotificationManager;
+
+/**
+ * Asynchronous notification delivery: senders do not wait for slow
+ * observers, a failing observer does not stop the rest of its batch, and
+ * awaitDelivery() waits for everything queued.
+ */
+class k2559671_NotificationDispatchTest {
+    private k2559671_LibrarySystem library;
+    private k2559671_NotificationManager notifications;
+
+    @BeforeEach
+    void setUp() {
+        library = new k2559671_LibrarySystem();
+        library.getLogger().setConsoleOutput(false);
+        library.getLogger().setFileOutput(false);
+        notifications = library.getNotificationManager();
+        notifications.enableAsyncDelivery(64, 8);
+    }
+
+    @AfterEach
+    void tearDown() {
+        notifications.disableAsyncDelivery();
+        library.getLogger().close();
+    }
+
+    @Test
+    void senderDoesNotWaitForASlowObserver() throws InterruptedException {
+        CountDownLatch gate = new CountDownLatch(1);
+        CountDownLatch entered = new CountDownLatch(1);
+        notifications.addObserver(message -> {
+            entered.countDown();
+            try {
+                gate.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        List<k2559671_User> users = users(20);
+
+        notifications.notifyObservers("Library closes early today");
+
+        // Returned while the slow observer is still blocked
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+        assertFalse(notifications.awaitDelivery(50, TimeUnit.MILLISECONDS));
+
+        gate.countDown();
+        assertTrue(notifications.awaitDelivery(5, TimeUnit.SECONDS));
+        for (k2559671_User user : users) {
+            assertEquals(List.of("Library closes early today"), user.getNotifications());
+        }
+        assertEquals(21, notifications.getDispatcher().getDeliveredCount());
+    }
+
+    @Test
+    void failingObserverDoesNotStopItsBatch() {
+        notifications.addObserver(message -> {
+            throw new IllegalStateException("mail server down");
+        });
+        List<k2559671_User> users = users(20);
+
+        notifications.notifyObservers("New opening hours");
+
+        assertTrue(notifications.awaitDelivery(5, TimeUnit.SECONDS));
+        for (k2559671_User user : users) {
+            assertEquals(1, user.getNotifications().size());
+        }
+        k2559671_NotificationDispatcher dispatcher = notifications.getDispatcher();
+        assertEquals(20, dispatcher.getDeliveredCount());
+        assertEquals(1, dispatcher.getFailedCount());
+    }
+
+    private List<k2559671_User> users(int count) {
+        List<k2559671_User> users = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            k2559671_User user = user("U" + i, k2559671_MembershipType.STUDENT);
+            notifications.addObserver(user);
+            users.add(user);
+        }
+        return users;
+    }
+
+    private static k2559671_User user(String id, k2559671_MembershipType type) {
+        return new k2559671_User(id, "User " + id, id + "@example.com", "0770000000", type);
+    }
+}
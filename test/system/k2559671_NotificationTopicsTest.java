@@ -0,0 +1,106 @@
+package system;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import domain.k2559671_Book;
+import domain.k2559671_MembershipType;
+import domain.k2559671_User;
+import patterns.command.k2559671_BorrowCommand;
+import patterns.command.k2559671_ReturnCommand;
+import patterns.observer.k2559671_NotificationManager;
+import patterns.observer.k2559671_NotificationManager.EventType;
+
+/**
+ * Topic routing: alerts reach only the subscribers of their book, category,
+ * event or user topic, once each, and removing an observer drops all of
+ * its subscriptions.
+ */
+class k2559671_NotificationTopicsTest {
+    private k2559671_LibrarySystem library;
+    private k2559671_NotificationManager notifications;
+    private k2559671_User reader;
+    private k2559671_User other;
+
+    @BeforeEach
+    void setUp() {
+        library = new k2559671_LibrarySystem();
+        library.getLogger().setConsoleOutput(false);
+        library.getLogger().setFileOutput(false);
+        notifications = library.getNotificationManager();
+        reader = user("U1", k2559671_MembershipType.STUDENT);
+        other = user("U2", k2559671_MembershipType.STUDENT);
+        library.addUser(reader);
+        library.addUser(other);
+    }
+
+    @AfterEach
+    void tearDown() {
+        library.getLogger().close();
+    }
+
+    @Test
+    void newBookAlertReachesOnlyItsCategorySubscribers() {
+        notifications.subscribe(k2559671_NotificationManager.categoryTopic("Science"), reader);
+
+        library.addBook(book("B1", "Science"));
+        library.addBook(book("B2", "History"));
+
+        assertEquals(1, reader.getNotifications().size());
+        assertTrue(reader.getNotifications().get(0).contains("Title B1"));
+        assertTrue(other.getNotifications().isEmpty());
+    }
+
+    @Test
+    void observerOnSeveralMatchingTopicsIsNotifiedOnce() {
+        k2559671_Book book = book("B1", "Science");
+        library.addBook(book);
+        notifications.subscribe(k2559671_NotificationManager.bookTopic("B1"), reader);
+        notifications.subscribe(k2559671_NotificationManager.categoryTopic("Science"), reader);
+        notifications.subscribe(k2559671_NotificationManager.eventTopic(EventType.BOOK_AVAILABLE), reader);
+
+        library.processCommand(new k2559671_BorrowCommand(other, book, library.getLogger()));
+        library.processCommand(new k2559671_ReturnCommand(other, book, library.getLogger()));
+
+        assertEquals(List.of("📗 Book 'Title B1' is now available."), reader.getNotifications());
+    }
+
+    @Test
+    void userAlertsGoToTheUserAndItsTopicSubscribers() {
+        k2559671_Book book = book("B1", "Science");
+        library.addBook(book);
+        notifications.subscribe(k2559671_NotificationManager.userTopic("U2"), reader);
+
+        notifications.sendOverdueAlert(other, book);
+
+        assertEquals(1, other.getNotifications().size(), "Users are subscribed to their own topic");
+        assertEquals(other.getNotifications(), reader.getNotifications());
+    }
+
+    @Test
+    void removedObserverLeavesEveryTopic() {
+        notifications.subscribe(k2559671_NotificationManager.categoryTopic("Science"), reader);
+        notifications.subscribe(k2559671_NotificationManager.eventTopic(EventType.NEW_BOOK), reader);
+
+        notifications.removeObserver(reader);
+        library.addBook(book("B1", "Science"));
+
+        assertTrue(reader.getNotifications().isEmpty());
+        assertTrue(notifications.getSubscriptions(reader).isEmpty());
+        assertTrue(notifications.getSubscribers(k2559671_NotificationManager.categoryTopic("Science")).isEmpty());
+    }
+
+    private static k2559671_Book book(String id, String category) {
+        return new k2559671_Book(id, "Title " + id, "Author", category, "ISBN-" + id);
+    }
+
+    private static k2559671_User user(String id, k2559671_MembershipType type) {
+        return new k2559671_User(id, "User " + id, id + "@example.com", "0770000000", type);
+    }
+}
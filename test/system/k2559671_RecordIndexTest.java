@@ -0,0 +1,95 @@
+package system;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Date;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import domain.k2559671_BorrowRecord;
+import domain.k2559671_Fine;
+import domain.k2559671_Reservation;
+
+/**
+ * Record indexes: lookups by ID, user and book agree with the record list,
+ * also after removals and through the library's own accessors.
+ */
+class k2559671_RecordIndexTest {
+    private k2559671_LibrarySystem library;
+
+    @AfterEach
+    void tearDown() {
+        if (library != null) {
+            library.getLogger().close();
+        }
+    }
+
+    @Test
+    void recordsAreFoundByIdUserAndBook() {
+        k2559671_RecordIndex<k2559671_BorrowRecord> index = borrowIndex();
+        k2559671_BorrowRecord first = record("L1", "U1", "B1");
+        k2559671_BorrowRecord second = record("L2", "U1", "B2");
+        k2559671_BorrowRecord third = record("L3", "U2", "B1");
+        index.add(first);
+        index.add(second);
+        index.add(third);
+
+        assertSame(second, index.get("L2"));
+        assertEquals(List.of(first, second), index.getByUser("U1"));
+        assertEquals(List.of(first, third), index.getByBook("B1"));
+        assertEquals(List.of(first, second, third), index.getAll());
+        assertTrue(index.getByUser("U9").isEmpty());
+        assertNull(index.get("L9"));
+    }
+
+    @Test
+    void duplicateIdsAreRefusedAndRemovalClearsEveryIndex() {
+        k2559671_RecordIndex<k2559671_BorrowRecord> index = borrowIndex();
+        k2559671_BorrowRecord record = record("L1", "U1", "B1");
+        assertTrue(index.add(record));
+        assertFalse(index.add(record("L1", "U2", "B2")));
+        assertEquals(1, index.size());
+        assertTrue(index.getByUser("U2").isEmpty());
+
+        assertSame(record, index.remove("L1"));
+
+        assertNull(index.get("L1"));
+        assertTrue(index.getByUser("U1").isEmpty());
+        assertTrue(index.getByBook("B1").isEmpty());
+        assertEquals(0, index.size());
+        assertNull(index.remove("L1"));
+    }
+
+    @Test
+    void libraryLooksUpReservationsAndFinesThroughItsIndexes() {
+        library = new k2559671_LibrarySystem();
+        library.getLogger().setConsoleOutput(false);
+        library.getLogger().setFileOutput(false);
+        library.addReservation(new k2559671_Reservation("H1", "U1", "B1", 0L));
+        library.addReservation(new k2559671_Reservation("H2", "U2", "B1", 0L));
+        library.addFine(new k2559671_Fine("F1", "U1", "B1", 50.0, new Date(0L)));
+        library.addFine(new k2559671_Fine("F2", "U1", "B2", 20.0, new Date(0L)));
+
+        assertEquals("U2", library.getReservation("H2").getUserId());
+        assertEquals(2, library.getReservationsForBook("B1").size());
+        assertEquals(1, library.getReservationsForUser("U1").size());
+        assertEquals("B2", library.getFine("F2").getBookId());
+        assertEquals(2, library.getFinesForUser("U1").size());
+        assertEquals(1, library.getFinesForBook("B1").size());
+    }
+
+    private static k2559671_RecordIndex<k2559671_BorrowRecord> borrowIndex() {
+        return new k2559671_RecordIndex<>(k2559671_BorrowRecord::getRecordId,
+                k2559671_BorrowRecord::getUserId, k2559671_BorrowRecord::getBookId);
+    }
+
+    private static k2559671_BorrowRecord record(String id, String userId, String bookId) {
+        return new k2559671_BorrowRecord(id, userId, bookId, 0L, 14L * 24 * 60 * 60 * 1000);
+    }
+}
@@ -0,0 +1,110 @@
+package system;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import domain.k2559671_Book;
+import domain.k2559671_MembershipType;
+import domain.k2559671_User;
+import patterns.command.k2559671_BorrowCommand;
+import patterns.command.k2559671_ReturnCommand;
+
+/**
+ * Report totals kept up to date by borrows, returns and undos, without
+ * rescanning the history.
+ */
+class k2559671_ReportAggregatesTest {
+    private k2559671_LibrarySystem library;
+    private k2559671_ReportAggregates aggregates;
+    private k2559671_User alice;
+    private k2559671_User bob;
+    private k2559671_Book first;
+    private k2559671_Book second;
+
+    @BeforeEach
+    void setUp() {
+        library = new k2559671_LibrarySystem();
+        library.getLogger().setConsoleOutput(false);
+        library.getLogger().setFileOutput(false);
+        aggregates = library.getReportAggregates();
+        alice = user("U1");
+        bob = user("U2");
+        library.addUser(alice);
+        library.addUser(bob);
+        first = book("B1");
+        second = book("B2");
+        library.addBook(first);
+        library.addBook(second);
+    }
+
+    @AfterEach
+    void tearDown() {
+        library.getLogger().close();
+    }
+
+    @Test
+    void borrowsAndReturnsUpdateTheTotals() {
+        borrow(alice, first);
+        borrow(alice, second);
+        borrow(bob, first); // Refused: on loan to alice
+
+        assertEquals(2, aggregates.getOpenLoanCount());
+        assertEquals(2, aggregates.getOpenLoanCount("U1"));
+        assertEquals(1, aggregates.getActiveBorrowers().size());
+        assertEquals(1, aggregates.getBorrowCount("B1"));
+
+        library.processCommand(new k2559671_ReturnCommand(alice, first, library.getLogger()));
+        borrow(bob, first);
+
+        assertEquals(2, aggregates.getBorrowCount("B1"), "A return keeps the borrow in the count");
+        assertEquals(1, aggregates.getOpenLoanCount("U1"));
+        assertEquals(1, aggregates.getOpenLoanCount("U2"));
+        assertEquals(1, aggregates.getOpenLoanCountForBook("B1"));
+        assertEquals(2, aggregates.getActiveBorrowers().size());
+    }
+
+    @Test
+    void undoingABorrowTakesItOutOfTheTotals() {
+        borrow(alice, first);
+        borrow(bob, second);
+
+        assertEquals(1, library.undoLast(1));
+
+        assertEquals(0, aggregates.getBorrowCount("B2"));
+        assertEquals(0, aggregates.getOpenLoanCountForBook("B2"));
+        assertEquals(0, aggregates.getOpenLoanCount("U2"));
+        assertEquals(1, aggregates.getOpenLoanCount());
+        assertTrue(aggregates.getActiveBorrowers().keySet().contains("U1"));
+        assertEquals(1, aggregates.getActiveBorrowers().size());
+    }
+
+    @Test
+    void undoingAReturnReopensTheLoan() {
+        borrow(alice, first);
+        library.processCommand(new k2559671_ReturnCommand(alice, first, library.getLogger()));
+        assertEquals(0, aggregates.getOpenLoanCount());
+
+        assertEquals(1, library.undoLast(1));
+
+        assertEquals(1, aggregates.getOpenLoanCount("U1"));
+        assertEquals(1, aggregates.getOpenLoanCountForBook("B1"));
+        assertEquals(1, aggregates.getBorrowCount("B1"));
+    }
+
+    private void borrow(k2559671_User user, k2559671_Book book) {
+        library.processCommand(new k2559671_BorrowCommand(user, book, library.getLogger()));
+    }
+
+    private static k2559671_Book book(String id) {
+        return new k2559671_Book(id, "Title " + id, "Author", "Science", "ISBN-" + id);
+    }
+
+    private static k2559671_User user(String id) {
+        return new k2559671_User(id, "User " + id, id + "@example.com", "0770000000",
+                k2559671_MembershipType.STUDENT);
+    }
+}
@@ -0,0 +1,174 @@
+package system;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import domain.k2559671_Book;
+import domain.k2559671_LibraryClock;
+import domain.k2559671_MembershipType;
+import domain.k2559671_Reservation;
+import domain.k2559671_User;
+import patterns.command.k2559671_BorrowCommand;
+import patterns.command.k2559671_ReserveCommand;
+import patterns.command.k2559671_ReturnCommand;
+
+/**
+ * Hold allocation and expiry: a queued hold waits as long as the loan runs,
+ * and the 3-day pickup window starts when the book is allocated to it.
+ */
+class k2559671_ReservationHoldTest {
+    private static final long START = 1_700_000_000_000L;
+    private static final long PICKUP_MILLIS = 3 * k2559671_LibraryClock.MILLIS_PER_DAY;
+
+    private k2559671_LibraryClock.Manual clock;
+    private k2559671_LibrarySystem library;
+    private k2559671_User borrower;
+    private k2559671_Book book;
+
+    @BeforeEach
+    void setUp() {
+        clock = k2559671_LibraryClock.manual(START);
+        k2559671_LibraryClock.install(clock);
+        library = new k2559671_LibrarySystem();
+        library.getLogger().setConsoleOutput(false);
+        library.getLogger().setFileOutput(false);
+        borrower = user("U1", k2559671_MembershipType.FACULTY);
+        library.addUser(borrower);
+        book = new k2559671_Book("B1", "Title B1", "Author", "Science", "ISBN-B1");
+        library.addBook(book);
+        library.processCommand(new k2559671_BorrowCommand(borrower, book, library.getLogger()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        library.getLogger().close();
+        k2559671_LibraryClock.install(k2559671_LibraryClock.system());
+    }
+
+    @Test
+    void queuedHoldDoesNotExpireWhileTheLoanRuns() {
+        k2559671_User holder = user("U2", k2559671_MembershipType.STUDENT);
+        library.addUser(holder);
+        k2559671_Reservation hold = reserve(holder);
+
+        clock.advanceDays(10);
+        library.checkOverdueBooks();
+
+        assertEquals("Active", hold.getStatus());
+        assertFalse(hold.hasPickupDeadline());
+        assertNull(hold.getExpiryDate());
+        assertEquals(1, book.getHoldPosition(hold.getReservationId()));
+    }
+
+    @Test
+    void pickupWindowStartsWhenTheBookIsAllocated() throws InterruptedException {
+        k2559671_User holder = user("U2", k2559671_MembershipType.STUDENT);
+        library.addUser(holder);
+        k2559671_Reservation hold = reserve(holder);
+
+        clock.advanceDays(10);
+        long returnedMillis = clock.millis();
+        library.processCommand(new k2559671_ReturnCommand(borrower, book, library.getLogger()));
+
+        assertEquals("Ready", hold.getStatus());
+        assertEquals(returnedMillis + PICKUP_MILLIS, hold.getExpiryMillis());
+        assertEquals("Reserved", book.getAvailabilityStatus());
+
+        clock.advanceDays(2);
+        library.checkOverdueBooks();
+        assertEquals("Ready", hold.getStatus());
+
+        clock.advanceDays(2);
+        awaitExpiryAlert(holder);
+        assertEquals("Expired", hold.getStatus());
+        assertNull(book.getAllocatedReservation());
+        assertEquals("Available", book.getAvailabilityStatus());
+    }
+
+    @Test
+    void unclaimedBookPassesToTheNextHolderWithAFreshWindow() throws InterruptedException {
+        k2559671_User first = user("U2", k2559671_MembershipType.STUDENT);
+        k2559671_User second = user("U3", k2559671_MembershipType.STUDENT);
+        library.addUser(first);
+        library.addUser(second);
+        k2559671_Reservation firstHold = reserve(first);
+        k2559671_Reservation secondHold = reserve(second);
+
+        clock.advanceDays(5);
+        library.processCommand(new k2559671_ReturnCommand(borrower, book, library.getLogger()));
+        assertEquals("Ready", firstHold.getStatus());
+        assertEquals("Active", secondHold.getStatus());
+        long firstDeadline = firstHold.getExpiryMillis();
+
+        clock.advanceDays(4);
+        awaitExpiryAlert(first);
+        assertEquals("Expired", firstHold.getStatus());
+
+        assertEquals("Ready", secondHold.getStatus());
+        assertEquals(secondHold, book.getAllocatedReservation());
+        assertEquals(firstDeadline + PICKUP_MILLIS, secondHold.getExpiryMillis());
+        assertEquals("Reserved", book.getAvailabilityStatus());
+    }
+
+    @Test
+    void bookHeldForPickupCanOnlyBeBorrowedByItsHolder() {
+        k2559671_User holder = user("U2", k2559671_MembershipType.STUDENT);
+        k2559671_User other = user("U3", k2559671_MembershipType.FACULTY);
+        library.addUser(holder);
+        library.addUser(other);
+        k2559671_Reservation hold = reserve(holder);
+        library.processCommand(new k2559671_ReturnCommand(borrower, book, library.getLogger()));
+
+        k2559671_BorrowCommand jump = new k2559671_BorrowCommand(other, book, library.getLogger());
+        library.processCommand(jump);
+
+        assertFalse(jump.isExecuted());
+        assertEquals(0, other.getCurrentBorrowedCount());
+        assertEquals("Reserved", book.getAvailabilityStatus());
+        assertEquals(hold, book.getAllocatedReservation());
+
+        k2559671_BorrowCommand pickup = new k2559671_BorrowCommand(holder, book, library.getLogger());
+        library.processCommand(pickup);
+
+        assertTrue(pickup.isExecuted());
+        assertEquals("Fulfilled", hold.getStatus());
+        assertNull(book.getAllocatedReservation());
+        assertEquals("Borrowed", book.getAvailabilityStatus());
+    }
+
+    private k2559671_Reservation reserve(k2559671_User user) {
+        library.processCommand(new k2559671_ReserveCommand(user, book, library.getLogger()));
+        return library.getAllReservations().stream()
+                .filter(r -> r.getUserId().equals(user.getUserId()))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    /**
+     * Run due events until the user has been told their hold expired (the
+     * last step of an expiry); the scheduler thread may be running the same
+     * expiry concurrently.
+     */
+    private void awaitExpiryAlert(k2559671_User user) throws InterruptedException {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (!hasExpiryAlert(user) && System.nanoTime() < deadline) {
+            library.checkOverdueBooks();
+            Thread.sleep(10);
+        }
+        assertTrue(hasExpiryAlert(user), "No expiry alert for " + user.getUserId());
+    }
+
+    private static boolean hasExpiryAlert(k2559671_User user) {
+        return user.getNotifications().stream().anyMatch(n -> n.contains("has expired"));
+    }
+
+    private static k2559671_User user(String id, k2559671_MembershipType type) {
+        return new k2559671_User(id, "User " + id, id + "@example.com", "0770000000", type);
+    }
+}
@@ -0,0 +1,109 @@
+package system;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import domain.k2559671_Book;
+import domain.k2559671_MembershipType;
+import domain.k2559671_User;
+import patterns.command.k2559671_BorrowCommand;
+import patterns.command.k2559671_ReserveCommand;
+import patterns.strategy.k2559671_FineStrategies;
+
+/**
+ * Snapshot round trip: users keep their fine strategy, loans and holds come
+ * back with their states, and files of another version are rejected.
+ */
+class k2559671_SnapshotStoreTest {
+    @TempDir
+    Path dir;
+
+    private final List<k2559671_LibrarySystem> libraries = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        for (k2559671_LibrarySystem library : libraries) {
+            library.getLogger().close();
+        }
+    }
+
+    @Test
+    void snapshotKeepsEachUsersFineStrategy() throws IOException {
+        Path file = dir.resolve("library.snapshot");
+        k2559671_LibrarySystem original = library();
+        k2559671_User faculty = user("U1", k2559671_MembershipType.FACULTY);
+        faculty.setFineStrategy(k2559671_FineStrategies.FACULTY);
+        k2559671_User guest = user("U2", k2559671_MembershipType.GUEST);
+        original.addUser(faculty);
+        original.addUser(guest);
+        original.saveSnapshot(file);
+
+        k2559671_LibrarySystem restored = library();
+        restored.loadSnapshot(file);
+
+        assertSame(k2559671_FineStrategies.FACULTY, restored.getUser("U1").getFineStrategy());
+        assertEquals(faculty.calculateFine(3), restored.getUser("U1").calculateFine(3));
+        assertNull(restored.getUser("U2").getFineStrategy(), "No strategy stays on the membership rate");
+    }
+
+    @Test
+    void snapshotRestoresLoansAndHolds() throws IOException {
+        Path file = dir.resolve("library.snapshot");
+        k2559671_LibrarySystem original = library();
+        k2559671_User borrower = user("U1", k2559671_MembershipType.STUDENT);
+        k2559671_User waiting = user("U2", k2559671_MembershipType.STUDENT);
+        original.addUser(borrower);
+        original.addUser(waiting);
+        k2559671_Book book = new k2559671_Book("B1", "Title", "Author", "Science", "ISBN-1");
+        original.addBook(book);
+        original.processCommand(new k2559671_BorrowCommand(borrower, book, original.getLogger()));
+        original.processCommand(new k2559671_ReserveCommand(waiting, book, original.getLogger()));
+        original.saveSnapshot(file);
+
+        k2559671_LibrarySystem restored = library();
+        restored.loadSnapshot(file);
+
+        assertEquals(book.getAvailabilityStatus(), restored.getBook("B1").getAvailabilityStatus());
+        assertEquals(1, restored.getUser("U1").getCurrentBorrowedCount());
+        assertEquals(1, restored.getAllReservations().size());
+        assertEquals(original.getAllReservations().get(0).getStatus(),
+                restored.getAllReservations().get(0).getStatus());
+    }
+
+    @Test
+    void snapshotOfAnotherVersionIsRejected() throws IOException {
+        Path file = dir.resolve("library.snapshot");
+        library().saveSnapshot(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4).putInt(0, 1), 4);
+        }
+
+        assertThrows(IOException.class, () -> library().loadSnapshot(file));
+    }
+
+    private k2559671_LibrarySystem library() {
+        k2559671_LibrarySystem library = new k2559671_LibrarySystem();
+        library.getLogger().setConsoleOutput(false);
+        library.getLogger().setFileOutput(false);
+        libraries.add(library);
+        return library;
+    }
+
+    private static k2559671_User user(String id, k2559671_MembershipType type) {
+        return new k2559671_User(id, "User " + id, id + "@example.com", "0770000000", type);
+    }
+}
@@ -0,0 +1,111 @@
+package system;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import domain.k2559671_LibraryClock;
+
+/**
+ * Top-K rankings: most borrowed first with ties by book ID, only K entries,
+ * undone borrows and expired days taken back out, and heavy hitters kept
+ * in approximate mode.
+ */
+class k2559671_TopKTrackerTest {
+    private static final long START = 1_700_000_000_000L;
+
+    private k2559671_LibraryClock.Manual clock;
+
+    @BeforeEach
+    void setUp() {
+        clock = k2559671_LibraryClock.manual(START);
+        k2559671_LibraryClock.install(clock);
+    }
+
+    @AfterEach
+    void tearDown() {
+        k2559671_LibraryClock.install(k2559671_LibraryClock.system());
+    }
+
+    @Test
+    void rankingIsMostBorrowedFirstAndKeepsOnlyK() {
+        k2559671_TopKTracker tracker = new k2559671_TopKTracker(3, 30, 0);
+        borrow(tracker, "B1", "Science", 2);
+        borrow(tracker, "B2", "Science", 5);
+        borrow(tracker, "B3", "Fiction", 3);
+        borrow(tracker, "B4", "Fiction", 3);
+        borrow(tracker, "B5", "Fiction", 1);
+
+        assertEquals(List.of("B2", "B3", "B4"), ids(tracker.getTop()), "Ties rank by book ID");
+        assertEquals(5L, tracker.getTop().get(0).getValue());
+        assertEquals(List.of("B3", "B4", "B5"), ids(tracker.getTopInCategory("Fiction")));
+        assertTrue(tracker.getTopInCategory("History").isEmpty());
+    }
+
+    @Test
+    void removedBorrowsDropABookOutOfTheTop() {
+        k2559671_TopKTracker tracker = new k2559671_TopKTracker(2, 30, 0);
+        borrow(tracker, "B1", "Science", 3);
+        borrow(tracker, "B2", "Science", 2);
+        borrow(tracker, "B3", "Science", 1);
+
+        tracker.removeBorrow("B1", "Science", START);
+        tracker.removeBorrow("B1", "Science", START);
+        tracker.removeBorrow("B1", "Science", START);
+
+        assertEquals(List.of("B2", "B3"), ids(tracker.getTop()));
+    }
+
+    @Test
+    void windowForgetsBorrowsOlderThanItsDays() {
+        k2559671_TopKTracker tracker = new k2559671_TopKTracker(3, 7, 0);
+        borrow(tracker, "B1", "Science", 4);
+        clock.advanceDays(5);
+        tracker.recordBorrow("B2", "Science", clock.millis());
+
+        assertEquals(List.of("B1", "B2"), ids(tracker.getTopInWindow()));
+
+        clock.advanceDays(5);
+
+        assertEquals(List.of("B2"), ids(tracker.getTopInWindow()));
+        assertEquals(List.of("B1", "B2"), ids(tracker.getTop()), "The overall ranking never expires");
+    }
+
+    @Test
+    void approximateModeStillRanksTheHeavyHitters() {
+        k2559671_TopKTracker tracker = new k2559671_TopKTracker(2, 30, 8);
+        for (int i = 0; i < 1_000; i++) {
+            tracker.recordBorrow("TAIL" + i, "Science", START);
+            if (i % 4 == 0) {
+                tracker.recordBorrow("HOT1", "Science", START);
+            }
+            if (i % 5 == 0) {
+                tracker.recordBorrow("HOT2", "Science", START);
+            }
+        }
+
+        assertTrue(tracker.isApproximate());
+        assertEquals(List.of("HOT1", "HOT2"), ids(tracker.getTop()));
+    }
+
+    private static void borrow(k2559671_TopKTracker tracker, String bookId, String category, int times) {
+        for (int i = 0; i < times; i++) {
+            tracker.recordBorrow(bookId, category, START);
+        }
+    }
+
+    private static List<String> ids(List<Map.Entry<String, Long>> ranking) {
+        List<String> ids = new ArrayList<>(ranking.size());
+        for (Map.Entry<String, Long> entry : ranking) {
+            ids.add(entry.getKey());
+        }
+        return ids;
+    }
+}